@@ -83,6 +83,11 @@ public class Collection extends org.mmtk.vm.Collection {
     throw new OutOfMemory();
   }
 
+  @Override
+  public void yieldCollector() {
+    Scheduler.yield();
+  }
+
   @Override
   public void spawnCollectorContext(CollectorContext context) {
     Clock.stop();
@@ -12,6 +12,8 @@
  */
 package org.mmtk.harness.vm;
 
+import static org.mmtk.utility.heap.layout.VMLayoutConstants.BYTES_IN_CHUNK;
+import static org.vmmagic.unboxed.harness.MemoryConstants.BYTES_IN_PAGE;
 import static org.vmmagic.unboxed.harness.MemoryConstants.BYTES_IN_WORD;
 import static org.vmmagic.unboxed.harness.MemoryConstants.LOG_BYTES_IN_PAGE;
 import static org.vmmagic.unboxed.harness.MemoryConstants.LOG_BYTES_IN_WORD;
@@ -21,8 +23,11 @@ import static org.vmmagic.unboxed.harness.MemoryConstants.LOG_BYTES_IN_INT;
 import org.mmtk.harness.Harness;
 import org.mmtk.harness.scheduler.Scheduler;
 import org.mmtk.policy.ImmortalSpace;
+import org.mmtk.utility.Conversions;
 import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.utility.heap.layout.HeapParameters;
+import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.Interruptible;
 import org.vmmagic.pragma.Uninterruptible;
@@ -50,6 +55,11 @@ public class Memory extends org.mmtk.vm.Memory {
    */
   private static ImmortalSpace vmSpace = null;
 
+  /**
+   * The number of NUMA nodes the harness pretends to have.
+   */
+  private static final int SIMULATED_NUMA_NODES = 2;
+
   /**
    * Size of the VM space.
    */
@@ -134,6 +144,54 @@ public class Memory extends org.mmtk.vm.Memory {
     return SimulatedMemory.unprotect(start, size);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   * The harness pretends to have two nodes, so that NUMA placement is
+   * exercised when it is enabled.
+   */
+  @Override
+  public int numaNodes() {
+    return SIMULATED_NUMA_NODES;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int currentNumaNode() {
+    return (int)(Thread.currentThread().getId() % SIMULATED_NUMA_NODES);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   * Nothing is bound, but the area must be whole chunks that are mapped.
+   */
+  @Override
+  public boolean numaBind(Address start, int size, int node) {
+    VM.assertions._assert(node >= 0 && node < SIMULATED_NUMA_NODES, "No such node");
+    VM.assertions._assert(start.EQ(Conversions.chunkAlign(start, true)) && (size & (BYTES_IN_CHUNK - 1)) == 0,
+        "NUMA binding of part of a chunk");
+    for (int offset = 0; offset < size; offset += BYTES_IN_PAGE) {
+      VM.assertions._assert(HeapLayout.mmapper.addressIsMapped(start.plus(offset)), "NUMA binding of unmapped memory");
+    }
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean adviseHugePages(Address start, int size) {
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   * The memory stays mapped, but is zeroed as it would be by the OS, so
+   * that uncommitting memory that is still in use shows up.
+   */
+  @Override
+  public boolean uncommit(Address start, int size) {
+    SimulatedMemory.zero(start, Extent.fromIntZeroExtend(size));
+    return true;
+  }
+
   /** {@inheritDoc} */
   @Override
   public void zero(boolean useNT, Address start, Extent len) {
@@ -162,6 +220,13 @@ public class Memory extends org.mmtk.vm.Memory {
     // Nothing required
   }
 
+  /** {@inheritDoc} */
+  @Override
+  @Inline
+  public void spinWaitHint() {
+    Scheduler.yield();
+  }
+
   /*
    * NOTE: The following methods must be implemented by subclasses of this
    * class, but are internal to the VM<->MM interface glue, so are never
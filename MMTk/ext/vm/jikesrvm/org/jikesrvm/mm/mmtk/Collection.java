@@ -21,6 +21,7 @@ import org.jikesrvm.mm.mminterface.MemoryManager;
 import org.jikesrvm.mm.mminterface.Selected;
 import org.jikesrvm.mm.mminterface.CollectorThread;
 import org.jikesrvm.runtime.SysCall;
+import org.jikesrvm.scheduler.Lock;
 import org.jikesrvm.scheduler.RVMThread;
 import org.jikesrvm.scheduler.FinalizerThread;
 
@@ -82,6 +83,11 @@ public class Collection extends org.mmtk.vm.Collection {
     throw RVMThread.getOutOfMemoryError();
   }
 
+  @Override
+  public void yieldCollector() {
+    RVMThread.yieldNoHandshake();
+  }
+
   @Override
   public final void prepareMutator(MutatorContext m) {
     /*
@@ -124,6 +130,7 @@ public class Collection extends org.mmtk.vm.Collection {
   @Override
   @Unpreemptible
   public void resumeAllMutators() {
+    Lock.deflateIdleLocks(Selected.Plan.get().lastCollectionFullHeap());
     RVMThread.unblockAllMutatorsForGC();
   }
 
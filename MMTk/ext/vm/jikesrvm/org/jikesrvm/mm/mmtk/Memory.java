@@ -186,6 +186,31 @@ import org.vmmagic.unboxed.Offset;
                                                    org.jikesrvm.runtime.Memory.PROT_EXEC);
   }
 
+  @Override
+  public final int numaNodes() {
+    return org.jikesrvm.runtime.Memory.numaNodes();
+  }
+
+  @Override
+  public final int currentNumaNode() {
+    return org.jikesrvm.runtime.Memory.currentNumaNode();
+  }
+
+  @Override
+  public final boolean numaBind(Address start, int size, int node) {
+    return org.jikesrvm.runtime.Memory.numaBind(start, Extent.fromIntZeroExtend(size), node);
+  }
+
+  @Override
+  public final boolean adviseHugePages(Address start, int size) {
+    return org.jikesrvm.runtime.Memory.adviseHugePages(start, Extent.fromIntZeroExtend(size));
+  }
+
+  @Override
+  public final boolean uncommit(Address start, int size) {
+    return org.jikesrvm.runtime.Memory.uncommit(start, Extent.fromIntZeroExtend(size));
+  }
+
   @Override
   public final void zero(boolean useNT, Address start, Extent len) {
     org.jikesrvm.runtime.Memory.zero(useNT, start,len);
@@ -212,4 +237,10 @@ import org.vmmagic.unboxed.Offset;
   public final void combinedLoadBarriers() {
     Magic.combinedLoadBarrier();
   }
+
+  @Override
+  @Inline
+  public final void spinWaitHint() {
+    Magic.pause();
+  }
 }
@@ -292,6 +292,10 @@ import org.vmmagic.unboxed.Offset;
 
     if (verbosity >= 2) dumpTopFrameInfo(verbosity);
 
+    /* outermost frame holding objects allocated in it, if stacks were retired */
+    boolean trackStackObjects = VM.BuildForOptCompiler && thread.hasRetiredStacks();
+    Address stackObjectFp = Address.zero();
+
     /* scan each frame if a non-empty stack */
     if (fp.NE(StackFrameLayout.getStackFrameSentinelFP())) {
       prevFp = Address.zero();
@@ -303,12 +307,21 @@ import org.vmmagic.unboxed.Offset;
         if (false) {
           VM.sysWriteln("Thread ",RVMThread.getCurrentThreadSlot()," at fp = ",fp);
         }
+        if (trackStackObjects && RVMThread.allocatesInFrame(fp)) {
+          stackObjectFp = fp;
+        }
         prevFp = scanFrame(verbosity);
         ip = Magic.getReturnAddress(fp, thread);
         fp = Magic.getCallerFramePointer(fp);
       }
     }
 
+    /* only a scan of the whole stack sees every frame that may use a retired stack */
+    if (trackStackObjects && verbosity == DEFAULT_VERBOSITY &&
+        sentinelFp.EQ(StackFrameLayout.getStackFrameSentinelFP())) {
+      thread.releaseRetiredStacks(stackObjectFp);
+    }
+
     /* If a thread started via createVM or attachVM, base may need scaning */
     // TODO implement this if necessary. It was previously only implemented for
     // AIX which is no longer supported.
@@ -482,6 +495,10 @@ import org.vmmagic.unboxed.Offset;
     for (Address refaddr = iterator.getNextReferenceAddress();
          !refaddr.isZero();
          refaddr = iterator.getNextReferenceAddress()) {
+      if (VM.BuildForOptCompiler && thread.isStackAddress(refaddr.loadAddress())) {
+        // an object allocated in a stack frame: it is not in any space
+        continue;
+      }
       if (VALIDATE_REFS) checkReference(refaddr, verbosity);
       if (verbosity >= 4) dumpRef(refaddr, verbosity);
       reportDelayedRootEdge(trace, refaddr);
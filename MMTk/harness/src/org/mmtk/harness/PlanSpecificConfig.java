@@ -65,16 +65,16 @@ public class PlanSpecificConfig {
         "CopyMS");
     register(
         new PlanSpecific("org.mmtk.plan.generational.copying.GenCopy")
-        .addExpectedSpaces("nursery", "ss0", "ss1")
+        .addExpectedSpaces("nursery", "survivor0", "survivor1", "ss0", "ss1")
         .heapFactor(18816 / BASE_HEAP),
         "GenCopy");
     register(
         new PlanSpecific("org.mmtk.plan.generational.immix.GenImmix")
-        .addExpectedSpaces("nursery", "immix"),
+        .addExpectedSpaces("nursery", "survivor0", "survivor1", "immix"),
         "GenImmix");
     register(
         new PlanSpecific("org.mmtk.plan.generational.marksweep.GenMS")
-        .addExpectedSpaces("nursery", "ms"),
+        .addExpectedSpaces("nursery", "survivor0", "survivor1", "ms"),
         "GenMS");
     register(
         new PlanSpecific("org.mmtk.plan.immix.Immix")
@@ -14,6 +14,7 @@ package org.mmtk.plan;
 
 import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.utility.Log;
+import org.mmtk.utility.heap.NumaPlacement;
 
 import org.mmtk.vm.VM;
 
@@ -76,6 +77,9 @@ public abstract class CollectorContext {
   /** Used for printing log information in a thread safe manner */
   protected final Log log = new Log();
 
+  /** Where this collector places the pages it acquires on a NUMA system */
+  private final NumaPlacement numaPlacement = new NumaPlacement();
+
   /****************************************************************************
    *
    * Initialization
@@ -192,6 +196,11 @@ public abstract class CollectorContext {
     return log;
   }
 
+  /** @return the NUMA placement state of this collector context. */
+  public final NumaPlacement getNumaPlacement() {
+    return numaPlacement;
+  }
+
   /**
    * @return The unique identifier for this collector context.
    */
@@ -110,7 +110,10 @@ public class ControllerCollectorContext extends CollectorContext {
           HeapGrowthManager.considerHeapSize();
         }
         HeapGrowthManager.reset();
+      } else if (!VM.activePlan.global().lastCollectionFullHeap() && !userTriggeredCollection) {
+        HeapGrowthManager.considerNurserySize();
       }
+      HeapGrowthManager.considerUncommit();
 
       // Reset the triggering information.
       Plan.resetCollectionTrigger();
@@ -19,6 +19,7 @@ import org.mmtk.policy.LargeObjectLocal;
 import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.utility.alloc.BumpPointer;
 import org.mmtk.utility.Log;
+import org.mmtk.utility.heap.NumaPlacement;
 
 import org.mmtk.vm.VM;
 
@@ -110,6 +111,9 @@ public abstract class MutatorContext {
   /** Used for printing log information in a thread safe manner */
   protected final Log log = new Log();
 
+  /** Where this mutator places the pages it acquires on a NUMA system */
+  private final NumaPlacement numaPlacement = new NumaPlacement();
+
   /** Per-mutator allocator into the immortal space */
   protected final BumpPointer immortal = new ImmortalLocal(Plan.immortalSpace);
 
@@ -1254,6 +1258,11 @@ public abstract class MutatorContext {
     return log;
   }
 
+  /** @return the NUMA placement state of this mutator context. */
+  public final NumaPlacement getNumaPlacement() {
+    return numaPlacement;
+  }
+
   /** @return the unique identifier for this mutator context. */
   @Inline
   public int getId() {
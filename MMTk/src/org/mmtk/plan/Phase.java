@@ -778,6 +778,16 @@ public abstract class Phase {
     concurrentPhaseId = 0;
   }
 
+  /**
+   * Force any concurrent phases in the current collection to be replaced
+   * by their atomic equivalents (e.g. because the collection has been
+   * chosen to move objects).  This must only be called by the primary
+   * collector thread while a collection is in progress.
+   */
+  public static void disallowConcurrentPhase() {
+    allowConcurrentPhase = false;
+  }
+
   /**
    * @return {@code true}if there is an active concurrent phase.
    */
@@ -24,6 +24,7 @@ import org.mmtk.utility.alloc.LinearScan;
 import org.mmtk.utility.Conversions;
 import org.mmtk.utility.HeaderByte;
 import org.mmtk.utility.heap.HeapGrowthManager;
+import org.mmtk.utility.heap.PageResource;
 import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.utility.Log;
@@ -161,12 +162,17 @@ public abstract class Plan {
     Options.noReferenceTypes = new NoReferenceTypes();
     Options.fullHeapSystemGC = new FullHeapSystemGC();
     Options.harnessAll = new HarnessAll();
+    Options.hugePages = new HugePages();
     Options.ignoreSystemGC = new IgnoreSystemGC();
     Options.metaDataLimit = new MetaDataLimit();
+    Options.numaAware = new NumaAware();
     Options.nurserySize = new NurserySize();
     Options.nurseryZeroing = new NurseryZeroing();
     Options.pretenureThresholdFraction = new PretenureThresholdFraction();
     Options.variableSizeHeap = new VariableSizeHeap();
+    Options.pauseGoal = new PauseGoal();
+    Options.gcTimeRatio = new GCTimeRatio();
+    Options.uncommitIdleCollections = new UncommitIdleCollections();
     Options.eagerMmapSpaces = new EagerMmapSpaces();
     Options.sanityCheck = new SanityCheck();
     Options.debugAddress = new DebugAddress();
@@ -174,6 +180,8 @@ public abstract class Plan {
     Options.useReturnBarrier = new UseReturnBarrier();
     Options.useShortStackScans = new UseShortStackScans();
     Options.threads = new Threads();
+    Options.workStealing = new WorkStealing();
+    Options.deferSweep = new DeferSweep();
     Options.cycleTriggerThreshold = new CycleTriggerThreshold();
     HeapLayout.vmMap.finalizeStaticSpaceMap();
     registerSpecializedMethods();
@@ -227,6 +235,7 @@ public abstract class Plan {
     if (Options.verbose.getValue() > 3) VM.config.printConfig();
     if (Options.verbose.getValue() > 0) Stats.startAll();
     if (Options.eagerMmapSpaces.getValue()) Space.eagerlyMmapMMTkSpaces();
+    if (Options.numaAware.getValue()) PageResource.enableNumaPlacement();
     pretenureThreshold = (int) ((Options.nurserySize.getMaxNursery() << LOG_BYTES_IN_PAGE) * Options.pretenureThresholdFraction.getValue());
   }
 
@@ -344,6 +353,7 @@ public abstract class Plan {
   @Interruptible
   public void fullyBooted() {
     if (Options.harnessAll.getValue()) harnessBegin();
+    if (Options.uncommitIdleCollections.getValue() > 0) HeapGrowthManager.enableUncommit();
   }
 
   public static final ParallelCollectorGroup parallelWorkers = new ParallelCollectorGroup("ParallelWorkers");
@@ -960,7 +970,12 @@ public abstract class Plan {
    * @return <code>true</code> if a collection is required.
    */
   public final boolean poll(boolean spaceFull, Space space) {
-    if (collectionRequired(spaceFull, space)) {
+    boolean required = collectionRequired(spaceFull, space);
+    if (required && !spaceFull && space != metaDataSpace && Space.completeDeferredSweeps()) {
+      /* Dead blocks left unswept by the last collection may be all we need */
+      required = collectionRequired(spaceFull, space);
+    }
+    if (required) {
       if (space == metaDataSpace) {
         /* In general we must not trigger a GC on metadata allocation since
          * this is not, in general, in a GC safe point.  Instead we initiate
@@ -13,6 +13,7 @@
 package org.mmtk.plan;
 
 import org.mmtk.utility.deque.SharedDeque;
+import org.mmtk.utility.deque.WorkStealingPool;
 import org.mmtk.policy.RawPageSpace;
 
 import org.vmmagic.pragma.*;
@@ -28,6 +29,7 @@ public class Trace {
   // Global pools for load-balancing deques
   final SharedDeque valuePool;
   final SharedDeque rootLocationPool;
+  final WorkStealingPool valueStealPool;
 
   /**
    * @param metaDataSpace the space to use for allocation for this
@@ -36,6 +38,7 @@ public class Trace {
   public Trace(RawPageSpace metaDataSpace) {
     valuePool = new SharedDeque("valuePool",metaDataSpace, 1);
     rootLocationPool = new SharedDeque("rootLocations", metaDataSpace, 1);
+    valueStealPool = new WorkStealingPool(metaDataSpace);
   }
 
   /**
@@ -44,6 +47,7 @@ public class Trace {
   public void prepareNonBlocking() {
     valuePool.prepareNonBlocking();
     rootLocationPool.prepareNonBlocking();
+    valueStealPool.prepare(1);
   }
 
   /**
@@ -53,6 +57,7 @@ public class Trace {
   public void prepare() {
     valuePool.prepare();
     rootLocationPool.prepareNonBlocking();
+    valueStealPool.prepare();
   }
 
   /**
@@ -40,6 +40,8 @@ public abstract class TraceLocal extends TransitiveClosure {
 
   /** gray objects */
   protected final ObjectReferenceDeque values;
+  /** gray objects, when work stealing is enabled (overflows to <code>values</code>) */
+  protected final ObjectReferenceStealingDeque stealableValues;
   /** delayed root slots */
   protected final AddressDeque rootLocations;
 
@@ -66,6 +68,7 @@ public abstract class TraceLocal extends TransitiveClosure {
   public TraceLocal(int specializedScan, Trace trace) {
     super(specializedScan);
     values = new ObjectReferenceDeque("value", trace.valuePool);
+    stealableValues = new ObjectReferenceStealingDeque("stealable value", trace.valueStealPool, values);
     rootLocations = new AddressDeque("roots", trace.rootLocationPool);
   }
 
@@ -198,13 +201,18 @@ public abstract class TraceLocal extends TransitiveClosure {
   @Override
   @Inline
   public final void processNode(ObjectReference object) {
-    values.push(object);
+    if (Options.workStealing.getValue()) {
+      stealableValues.push(object);
+    } else {
+      values.push(object);
+    }
   }
 
   /**
    * Flush the local buffers of all deques.
    */
   public final void flush() {
+    stealableValues.flushLocal();
     values.flushLocal();
     rootLocations.flushLocal();
   }
@@ -462,6 +470,7 @@ public abstract class TraceLocal extends TransitiveClosure {
   }
 
   public void release() {
+    stealableValues.reset();
     values.reset();
     rootLocations.reset();
   }
@@ -489,16 +498,42 @@ public abstract class TraceLocal extends TransitiveClosure {
     }
     logMessage(5, "processing gray objects");
     assertMutatorRemsetsFlushed();
-    do {
-      while (!values.isEmpty()) {
-        ObjectReference v = values.pop();
-        scanObject(v);
-      }
-      processRememberedSets();
-    } while (!values.isEmpty());
+    if (Options.workStealing.getValue()) {
+      completeTraceStealing();
+    } else {
+      do {
+        while (!values.isEmpty()) {
+          ObjectReference v = values.pop();
+          scanObject(v);
+        }
+        processRememberedSets();
+      } while (!values.isEmpty());
+    }
     assertMutatorRemsetsFlushed();
   }
 
+  /**
+   * Finish processing all GC work, balancing load between collectors by
+   * stealing gray objects from other collectors once our own work (and
+   * the shared pool) is exhausted.  A collector that finds no work goes
+   * idle until either there is work to steal or all collectors are idle,
+   * so every object pushed is scanned by someone before the closure
+   * phase completes.
+   */
+  private void completeTraceStealing() {
+    stealableValues.register();
+    do {
+      do {
+        ObjectReference v = stealableValues.pop();
+        while (!v.isNull()) {
+          scanObject(v);
+          v = stealableValues.pop();
+        }
+        processRememberedSets();
+      } while (!stealableValues.isLocallyEmpty());
+    } while (stealableValues.awaitWork());
+  }
+
   /**
    * Process GC work until either complete or workLimit
    * units of work are completed.
@@ -511,6 +546,19 @@ public abstract class TraceLocal extends TransitiveClosure {
     logMessage(4, "Continuing GC in parallel (incremental)");
     logMessage(5, "processing gray objects");
     int units = 0;
+    if (Options.workStealing.getValue()) {
+      stealableValues.register();
+      do {
+        while (units < workLimit) {
+          ObjectReference v = stealableValues.pop();
+          if (v.isNull()) break;
+          scanObject(v);
+          units++;
+        }
+        processRememberedSets();
+      } while (units < workLimit && !stealableValues.isLocallyEmpty());
+      return stealableValues.isLocallyEmpty();
+    }
     do {
       while (!values.isEmpty() && units < workLimit) {
         ObjectReference v = values.pop();
@@ -0,0 +1,145 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.generational;
+
+import org.mmtk.utility.ForwardingWord;
+import org.mmtk.utility.deque.AddressPairDeque;
+import org.mmtk.utility.options.Options;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class samples the survival of nursery objects by allocation site
+ * and advises the VM which sites to pretenure.<p>
+ *
+ * Each mutator records the region of one nursery allocation in roughly
+ * every {@link #SAMPLE_BYTES} bytes, together with its allocation site.
+ * When a collection is released, but before the nursery is, a sampled
+ * object has survived if it has been forwarded.  Once enough of a site's
+ * objects have been sampled and the fraction that survived reaches
+ * {@link org.mmtk.utility.options.PretenureSurvivalRatio}, the site is
+ * advised to allocate into the mature space.  Sites are numbered by the
+ * VM (see {@link org.mmtk.plan.Plan#getAllocationSite}); sites numbered
+ * {@link #MAX_SITES} or above are not sampled.
+ */
+@Uninterruptible
+public final class AllocationSiteProfile {
+
+  /** The number of allocation sites that can be sampled */
+  public static final int MAX_SITES = 1 << 13;
+
+  /** Bytes of nursery allocation per sample */
+  static final int SAMPLE_BYTES = 1 << 12;
+
+  /** Samples of a site needed before it may be pretenured */
+  private static final int MIN_SAMPLES = 32;
+
+  /** Sample counts are halved at this size, so that recent behaviour dominates */
+  private static final int MAX_SAMPLES = 1 << 20;
+
+  private static boolean enabled = false;
+  private static final int[] sampled = new int[MAX_SITES];
+  private static final int[] survived = new int[MAX_SITES];
+  private static final boolean[] pretenure = new boolean[MAX_SITES];
+
+  /** The number of sites advised to pretenure so far */
+  private static int pretenuredSites = 0;
+
+  /**
+   * Start sampling.  Called once options are processed.
+   */
+  @Interruptible
+  static void enable() {
+    enabled = true;
+  }
+
+  /**
+   * @return {@code true} if allocation sites are being sampled
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param site An allocation site
+   * @return {@code true} if the site can be sampled
+   */
+  @Inline
+  static boolean isSampled(int site) {
+    return site >= 0 && site < MAX_SITES;
+  }
+
+  /**
+   * @param site An allocation site
+   * @return {@code true} if objects allocated at this site should be
+   * allocated directly into the mature space
+   */
+  @Inline
+  public static boolean shouldPretenure(int site) {
+    return isSampled(site) && pretenure[site];
+  }
+
+  /**
+   * @param site An allocation site
+   * @return The number of objects sampled at the site
+   */
+  public static int getSampled(int site) {
+    return isSampled(site) ? sampled[site] : 0;
+  }
+
+  /**
+   * @param site An allocation site
+   * @return The number of sampled objects from the site that survived a
+   * collection
+   */
+  public static int getSurvived(int site) {
+    return isSampled(site) ? survived[site] : 0;
+  }
+
+  /**
+   * @return The number of sites advised to pretenure so far, so the VM
+   * can tell when new advice is available
+   */
+  public static int getPretenuredSites() {
+    return pretenuredSites;
+  }
+
+  /**
+   * Account for the samples taken since the last collection.  Called
+   * once the nursery has been traced, but before it is released.
+   *
+   * @param samples Pairs of sampled region and allocation site
+   */
+  static void processSamples(AddressPairDeque samples) {
+    float ratio = Options.pretenureSurvivalRatio.getValue();
+    while (!samples.isEmpty()) {
+      Address region = samples.pop1();
+      int site = samples.pop2().toInt();
+      ObjectReference object = VM.objectModel.getObjectFromStartAddress(region);
+      if (sampled[site] == MAX_SAMPLES) {
+        sampled[site] >>= 1;
+        survived[site] >>= 1;
+      }
+      sampled[site]++;
+      if (ForwardingWord.isForwarded(object)) {
+        survived[site]++;
+      }
+      if (!pretenure[site] && sampled[site] >= MIN_SAMPLES && survived[site] >= ratio * sampled[site]) {
+        pretenure[site] = true;
+        pretenuredSites++;
+      }
+    }
+  }
+}
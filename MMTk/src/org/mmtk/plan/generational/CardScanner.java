@@ -0,0 +1,67 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.generational;
+
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.utility.deque.AddressDeque;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * Remembers the slots of a dirty card that refer to the nursery, so that
+ * the nursery collection processes them with the rest of the remembered
+ * set.  Objects that straddle the card are scanned in full, but only
+ * their slots within the card are considered.
+ */
+@Uninterruptible
+final class CardScanner extends TransitiveClosure {
+
+  private final AddressDeque remset;
+
+  /** The start of the card being scanned */
+  private Address cardStart;
+
+  /** The end of the card being scanned */
+  private Address cardEnd;
+
+  /**
+   * @param remset The remembered set to add slots to
+   */
+  CardScanner(AddressDeque remset) {
+    this.remset = remset;
+  }
+
+  /**
+   * Set the card whose slots are to be remembered.
+   *
+   * @param start The start of the card
+   * @param end The end of the card
+   */
+  void setCard(Address start, Address end) {
+    cardStart = start;
+    cardEnd = end;
+  }
+
+  @Override
+  @Inline
+  public void processEdge(ObjectReference source, Address slot) {
+    if (slot.GE(cardStart) && slot.LT(cardEnd)) {
+      ObjectReference object = VM.activePlan.global().loadObjectReference(slot);
+      if (!object.isNull() && Gen.inNursery(object)) {
+        remset.insert(slot);
+      }
+    }
+  }
+}
@@ -0,0 +1,353 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.generational;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.plan.Plan;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.alloc.EmbeddedMetaData;
+import org.mmtk.utility.heap.layout.HeapLayout;
+import org.mmtk.vm.SynchronizedCounter;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * A card table for the mature spaces of a generational plan.<p>
+ *
+ * When card marking is enabled (see
+ * {@link org.mmtk.utility.options.CardMarking}), the write barrier slow
+ * path dirties the card holding a mature slot that has been made to refer
+ * to the nursery, rather than appending the slot to a sequential store
+ * buffer.  The barrier fast path (the generation check) is unchanged, so
+ * only stores that create old-to-young references mark cards.  A nursery
+ * collection scans the dirty cards, cleaning them and adding their slots
+ * that still refer to the nursery to the remembered set.<p>
+ *
+ * Scanning a card needs the objects within it.  Each 4MB region of a
+ * covered space holds, in its embedded meta data, one byte per card for
+ * the dirty mark and a bitmap with one bit per {@link #MIN_ALIGNMENT}
+ * bytes that is set where an object starts (see {@link #recordObject}).
+ * The bitmap does not depend on how the space is filled, so free-list
+ * and line-reusing mature spaces can be covered as well as bump-pointer
+ * ones.  A full heap collection clears the bitmap and records every
+ * object it reaches again (see {@link #reset}), so objects that died in
+ * a free-list or line-reusing space leave no stale bits behind.
+ */
+@Uninterruptible
+public final class CardTable {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  public static final int LOG_BYTES_IN_CARD = 9;
+  public static final int BYTES_IN_CARD = 1 << LOG_BYTES_IN_CARD;
+  private static final Word CARD_MASK = Word.fromIntSignExtend(BYTES_IN_CARD - 1);
+  private static final int LOG_CARDS_IN_REGION = EmbeddedMetaData.LOG_BYTES_IN_REGION - LOG_BYTES_IN_CARD;
+  private static final int CARDS_IN_REGION = 1 << LOG_CARDS_IN_REGION;
+
+  /* The object start bitmap, one bit per minimum alignment unit */
+  private static final int LOG_START_COVERAGE = LOG_MIN_ALIGNMENT + LOG_BITS_IN_BYTE;
+  private static final int START_BYTES_PER_REGION = 1 << (EmbeddedMetaData.LOG_BYTES_IN_REGION - LOG_START_COVERAGE);
+  private static final int LOG_START_WORD_STRIDE = LOG_MIN_ALIGNMENT + LOG_BITS_IN_WORD;
+  private static final int START_WORD_STRIDE = 1 << LOG_START_WORD_STRIDE;
+  private static final Word START_SHIFT_MASK = Word.fromIntZeroExtend(BITS_IN_WORD - 1);
+
+  /* The layout of the meta data of each region, from the offset given to cover() */
+  private static final Offset DIRTY_OFFSET = Offset.zero();
+  private static final Offset START_OFFSET = Offset.fromIntZeroExtend(CARDS_IN_REGION);
+
+  /** The bytes of embedded meta data needed by each region of a covered space */
+  public static final int META_DATA_BYTES_PER_REGION = CARDS_IN_REGION + START_BYTES_PER_REGION;
+
+  /** The pages of embedded meta data needed by each region of a covered space */
+  public static final int META_DATA_PAGES_PER_REGION = META_DATA_BYTES_PER_REGION >> LOG_BYTES_IN_PAGE;
+
+  private static final byte DIRTY = 1;
+
+  /** How far back to look for an object that extends into a card */
+  private static final int MAX_BYTES_PER_OBJECT =
+    Math.max(Plan.MAX_NON_LOS_COPY_BYTES,
+        Math.max(Plan.MAX_NON_LOS_DEFAULT_ALLOC_BYTES, Plan.MAX_NON_LOS_NONMOVING_ALLOC_BYTES));
+
+  private static final int MAX_COVERED_SPACES = 2;
+  private static final Space[] spaces = new Space[MAX_COVERED_SPACES];
+  private static final int[] descriptors = new int[MAX_COVERED_SPACES];
+  private static int numSpaces = 0;
+
+  /** Where the card table lies within the embedded meta data of each region */
+  private static Extent metaDataOffset = Extent.zero();
+
+  /** The number of dirty cards scanned since the count was last reset */
+  private static final SynchronizedCounter cardsScanned = VM.newSynchronizedCounter();
+
+  private CardTable() {}
+
+  /**
+   * Cover a space with the card table.  The space must be discontiguous,
+   * must have been created with {@link #META_DATA_BYTES_PER_REGION} bytes
+   * of meta data per region, zeroed whenever the space acquires a chunk,
+   * and all its objects must be recorded with {@link #recordObject}.
+   * All covered spaces keep the card table at the same offset.
+   *
+   * @param space The space to cover
+   * @param offset The offset of the card table within the embedded meta
+   * data of each region of the space
+   */
+  @Interruptible
+  public static void cover(Space space, Extent offset) {
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(numSpaces < MAX_COVERED_SPACES);
+      VM.assertions._assert(space.getStart().isZero());
+      VM.assertions._assert(numSpaces == 0 || offset.EQ(metaDataOffset));
+    }
+    spaces[numSpaces] = space;
+    descriptors[numSpaces] = space.getDescriptor();
+    metaDataOffset = offset;
+    numSpaces++;
+  }
+
+  /**
+   * @return {@code true} if any space is covered by the card table
+   */
+  public static boolean coversAnySpace() {
+    return numSpaces > 0;
+  }
+
+  /****************************************************************************
+   *
+   * Mutator-side operations
+   */
+
+  /**
+   * @param slot An address in the heap
+   * @return {@code true} if the address is in a space covered by the card table
+   */
+  @Inline
+  public static boolean isCovered(Address slot) {
+    for (int i = 0; i < numSpaces; i++) {
+      if (Space.isInSpace(descriptors[i], slot)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Mark the card holding the given slot as dirty.
+   *
+   * @param slot A slot in a covered space
+   */
+  @Inline
+  public static void dirty(Address slot) {
+    cardTable(slot).plus(DIRTY_OFFSET).plus(EmbeddedMetaData.getMetaDataOffset(slot, LOG_BYTES_IN_CARD, 0)).store(DIRTY);
+  }
+
+  /**
+   * Mark the cards holding a range of slots as dirty.  The range lies
+   * within a single object and so within a single region.
+   *
+   * @param start The first slot of the range
+   * @param end The address just beyond the range
+   */
+  public static void dirtyRange(Address start, Address end) {
+    for (Address card = cardStart(start); card.LT(end); card = card.plus(BYTES_IN_CARD)) {
+      dirty(card);
+    }
+  }
+
+  /**
+   * Record the start of an object that has been allocated in, copied to,
+   * or found live in a covered space.  Objects in other spaces are
+   * ignored.  Collector threads may record objects that share a bitmap
+   * word, so the bit is set atomically.
+   *
+   * @param object The object
+   */
+  @Inline
+  public static void recordObject(ObjectReference object) {
+    Address start = VM.objectModel.objectStartRef(object);
+    if (!isCovered(start)) return;
+    Address startWord = startWord(start);
+    Word mask = Word.one().lsh(start.toWord().rshl(LOG_MIN_ALIGNMENT).and(START_SHIFT_MASK).toInt());
+    Word oldValue;
+    do {
+      oldValue = startWord.prepareWord();
+    } while (!startWord.attempt(oldValue, oldValue.or(mask)));
+  }
+
+  /****************************************************************************
+   *
+   * Collector-side operations
+   */
+
+  /**
+   * Clear the dirty marks and the object start bitmaps of the covered
+   * spaces at the start of a full heap collection.  The collection drops
+   * the remembered sets, and records every object that it reaches in a
+   * covered space as it scans it (see {@link GenMatureTraceLocal}).
+   */
+  static void reset() {
+    Extent bytes = Extent.fromIntZeroExtend(META_DATA_BYTES_PER_REGION);
+    for (int i = 0; i < numSpaces; i++) {
+      for (Address chunk = spaces[i].getHeadDiscontiguousRegion(); !chunk.isZero();
+           chunk = HeapLayout.vmMap.getNextContiguousRegion(chunk)) {
+        Address end = chunk.plus(HeapLayout.vmMap.getContiguousRegionSize(chunk));
+        for (Address r = chunk; r.LT(end); r = r.plus(EmbeddedMetaData.BYTES_IN_REGION)) {
+          VM.memory.zero(false, cardTable(r), bytes);
+        }
+      }
+    }
+  }
+
+  /**
+   * Clean the dirty cards of the covered spaces, remembering their slots
+   * that refer to the nursery.  The regions of the spaces are shared out
+   * among the collector threads.
+   *
+   * @param scanner The closure to remember slots with
+   * @param ordinal The ordinal of this collector thread
+   * @param workers The number of collector threads
+   */
+  static void scan(CardScanner scanner, int ordinal, int workers) {
+    int region = 0;
+    for (int i = 0; i < numSpaces; i++) {
+      for (Address chunk = spaces[i].getHeadDiscontiguousRegion(); !chunk.isZero();
+           chunk = HeapLayout.vmMap.getNextContiguousRegion(chunk)) {
+        Address end = chunk.plus(HeapLayout.vmMap.getContiguousRegionSize(chunk));
+        for (Address r = chunk; r.LT(end); r = r.plus(EmbeddedMetaData.BYTES_IN_REGION)) {
+          if (region++ % workers == ordinal) scanRegion(r, scanner);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return The number of dirty cards scanned since the last call
+   */
+  static int resetCardsScanned() {
+    return cardsScanned.reset();
+  }
+
+  /**
+   * Clean and scan the dirty cards of a region, looking at the dirty
+   * marks a word at a time.
+   *
+   * @param region The start of the region
+   * @param scanner The closure to remember slots with
+   */
+  private static void scanRegion(Address region, CardScanner scanner) {
+    Address marks = cardTable(region).plus(DIRTY_OFFSET);
+    for (int i = 0; i < CARDS_IN_REGION; i += BYTES_IN_WORD) {
+      if (marks.plus(i).loadWord().isZero()) continue;
+      for (int card = i; card < i + BYTES_IN_WORD; card++) {
+        if (marks.plus(card).loadByte() != 0) {
+          marks.plus(card).store((byte) 0);
+          scanCard(region, region.plus(card << LOG_BYTES_IN_CARD), scanner);
+          cardsScanned.increment();
+        }
+      }
+    }
+  }
+
+  /**
+   * Scan the objects that lie in a card.
+   *
+   * @param region The start of the region holding the card
+   * @param card The start of the card
+   * @param scanner The closure to remember slots with
+   */
+  private static void scanCard(Address region, Address card, CardScanner scanner) {
+    scanner.setCard(card, card.plus(BYTES_IN_CARD));
+
+    // The last object to start before this card may extend into it
+    Address previous = lastStartBefore(region, card);
+    if (!previous.isZero()) {
+      ObjectReference object = VM.objectModel.getObjectFromStartAddress(previous);
+      if (VM.objectModel.getObjectEndAddress(object).GT(card)) {
+        VM.scanning.scanObject(scanner, object);
+      }
+    }
+
+    // Then every object that starts in the card
+    for (Address cursor = card; cursor.LT(card.plus(BYTES_IN_CARD)); cursor = cursor.plus(START_WORD_STRIDE)) {
+      Word bits = startWord(cursor).loadWord();
+      for (int bit = 0; !bits.isZero(); bit++, bits = bits.rshl(1)) {
+        if (!bits.and(Word.one()).isZero()) {
+          ObjectReference object = VM.objectModel.getObjectFromStartAddress(cursor.plus(bit << LOG_MIN_ALIGNMENT));
+          VM.scanning.scanObject(scanner, object);
+        }
+      }
+    }
+  }
+
+  /**
+   * Find the last object to start before a card that could extend into
+   * it.  Objects do not cross regions, so the search stops at the start
+   * of the region.
+   *
+   * @param region The start of the region holding the card
+   * @param card The start of the card
+   * @return The start of the object, or zero if there is none
+   */
+  private static Address lastStartBefore(Address region, Address card) {
+    Address limit = region;
+    if (card.diff(region).toInt() > MAX_BYTES_PER_OBJECT) {
+      limit = card.minus(MAX_BYTES_PER_OBJECT).toWord().and(Word.fromIntSignExtend(START_WORD_STRIDE - 1).not()).toAddress();
+    }
+    for (Address cursor = card.minus(START_WORD_STRIDE); cursor.GE(limit); cursor = cursor.minus(START_WORD_STRIDE)) {
+      Word bits = startWord(cursor).loadWord();
+      if (!bits.isZero()) {
+        int bit = BITS_IN_WORD - 1;
+        while (bits.rshl(bit).isZero()) bit--;
+        return cursor.plus(bit << LOG_MIN_ALIGNMENT);
+      }
+    }
+    return Address.zero();
+  }
+
+  /****************************************************************************
+   *
+   * Meta data access
+   */
+
+  /**
+   * @param addr An address in a covered space
+   * @return The start of the card holding the address
+   */
+  @Inline
+  private static Address cardStart(Address addr) {
+    return addr.toWord().and(CARD_MASK.not()).toAddress();
+  }
+
+  /**
+   * @param addr An address in a covered space
+   * @return The start of the card table of the region holding the address
+   */
+  @Inline
+  private static Address cardTable(Address addr) {
+    return EmbeddedMetaData.getMetaDataBase(addr).plus(metaDataOffset);
+  }
+
+  /**
+   * @param addr An address in a covered space
+   * @return The address of the word of the object start bitmap holding
+   * the bit for the address
+   */
+  @Inline
+  private static Address startWord(Address addr) {
+    return cardTable(addr).plus(START_OFFSET).plus(EmbeddedMetaData.getMetaDataOffset(addr, LOG_START_COVERAGE, LOG_BYTES_IN_WORD));
+  }
+}
@@ -19,10 +19,16 @@ import org.mmtk.policy.CopySpace;
 import org.mmtk.policy.Space;
 
 import org.mmtk.utility.deque.*;
+import org.mmtk.utility.ForwardingWord;
 import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.utility.heap.layout.HeapLayout;
+import org.mmtk.utility.Conversions;
 import org.mmtk.utility.Log;
+import org.mmtk.utility.options.AdaptiveNursery;
+import org.mmtk.utility.options.CardMarking;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.options.PretenureSurvivalRatio;
+import org.mmtk.utility.options.TenuringThreshold;
 import org.mmtk.utility.sanitychecker.SanityChecker;
 import org.mmtk.utility.statistics.*;
 
@@ -43,6 +49,14 @@ import org.vmmagic.unboxed.*;
  * dropped to a statically defined threshold,
  * <code>NURSERY_THRESHOLD</code><p>
  *
+ * Objects that survive a nursery collection are promoted straight into
+ * the mature space unless a tenuring threshold above one is set, in
+ * which case they are aged in a pair of survivor semispaces below the
+ * nursery until they have survived that many nursery collections.  The
+ * threshold is lowered whenever the survivors crowd the nursery, and the
+ * nursery itself can be resized from the fraction of it that survives
+ * (see {@link AdaptiveNursery}).<p>
+ *
  * See also Plan.java for general comments on local vs global plan
  * classes.
  */
@@ -65,10 +79,25 @@ public abstract class Gen extends StopTheWorld {
   public static final boolean USE_OBJECT_BARRIER_FOR_AASTORE = false; // choose between slot and object barriers
   public static final boolean USE_OBJECT_BARRIER_FOR_PUTFIELD = false; // choose between slot and object barriers
   public static final boolean USE_OBJECT_BARRIER = USE_OBJECT_BARRIER_FOR_AASTORE || USE_OBJECT_BARRIER_FOR_PUTFIELD;
+  /**
+   * Give the mature space of each generational plan a {@link CardTable},
+   * so that the <code>cardMarking</code> option can be used.  Set at build
+   * time with the <code>mmtk.cardTable</code> property.
+   */
+  public static final boolean USE_CARD_TABLE = VM.config.CARD_TABLE;
 
   /** Fraction of available virtual memory to give to the nursery (if contiguous) */
   protected static final float NURSERY_VM_FRACTION = 0.15f;
 
+  /**
+   * Fraction of available virtual memory to give to each survivor space (if
+   * contiguous).  This is taken from the virtual memory shared by the
+   * discontiguous spaces, not from the nursery.  Survivor spaces only
+   * acquire pages when objects are aged, so with the default tenuring
+   * threshold they cost address space but no memory.
+   */
+  protected static final float SURVIVOR_VM_FRACTION = 0.05f;
+
   /** Switch between a contiguous and discontiguous nursery (experimental) */
   static final boolean USE_DISCONTIGUOUS_NURSERY = false;
 
@@ -77,10 +106,26 @@ public abstract class Gen extends StopTheWorld {
   public static final int ALLOC_MATURE         = StopTheWorld.ALLOCATORS + 1;
   public static final int ALLOC_MATURE_MINORGC = StopTheWorld.ALLOCATORS + 2;
   public static final int ALLOC_MATURE_MAJORGC = StopTheWorld.ALLOCATORS + 3;
+  public static final int ALLOC_SURVIVOR       = StopTheWorld.ALLOCATORS + 4;
 
   public static final int SCAN_NURSERY = 0;
   public static final int SCAN_MATURE  = 1;
 
+  /* Object age, in the header bits above the forwarding bits */
+  public static final int AGE_BITS = 2;
+  private static final int AGE_SHIFT = ForwardingWord.FORWARDING_BITS;
+  private static final byte AGE_MASK = (byte) (((1 << AGE_BITS) - 1) << AGE_SHIFT);
+  /** The largest tenuring threshold the age bits can count to */
+  public static final int MAX_TENURING_THRESHOLD = 1 << AGE_BITS;
+
+  /* Survival feedback */
+  /** Survivors may use at most this fraction of the nursery before objects are promoted sooner */
+  private static final float SURVIVOR_LIMIT = 0.5f;
+  /** Fraction of the nursery expected to survive a nursery collection */
+  private static final float TARGET_SURVIVAL = 0.1f;
+  private static final float NURSERY_GROWTH = 1.25f;
+  private static final float NURSERY_SHRINK = 0.9f;
+
   /*****************************************************************************
    *
    * Class fields
@@ -102,8 +147,28 @@ public abstract class Gen extends StopTheWorld {
   private static final VMRequest vmRequest = USE_DISCONTIGUOUS_NURSERY ? VMRequest.discontiguous() : VMRequest.highFraction(NURSERY_VM_FRACTION);
   public static final CopySpace nurserySpace = new CopySpace("nursery", false, vmRequest);
 
+  /* Objects that survive a nursery collection are aged in these spaces until they are tenured */
+  private static final VMRequest survivorVmRequest = USE_DISCONTIGUOUS_NURSERY ? VMRequest.discontiguous() : VMRequest.highFraction(SURVIVOR_VM_FRACTION);
+  public static final CopySpace survivorSpace0 = new CopySpace("survivor0", false, survivorVmRequest);
+  public static final CopySpace survivorSpace1 = new CopySpace("survivor1", false, survivorVmRequest);
+
   public static final int NURSERY = nurserySpace.getDescriptor();
-  private static final Address NURSERY_START = nurserySpace.getStart();
+  public static final int SURVIVOR0 = survivorSpace0.getDescriptor();
+  public static final int SURVIVOR1 = survivorSpace1.getDescriptor();
+  /* High spaces are laid out downwards in creation order, so this is the start of the nursery and both survivors */
+  private static final Address NURSERY_START = survivorSpace1.getStart();
+
+  /** Is survivorSpace1 the space that survivors are copied to? */
+  static boolean survivorHi = false;
+
+  /** The number of nursery collections an object currently survives before it is promoted */
+  static int tenuringThreshold = 1;
+
+  /** Are mature slots in spaces covered by the {@link CardTable} remembered by marking cards? */
+  public static boolean useCardMarking = false;
+
+  /** Are objects being copied into a survivor space in this collection? */
+  static boolean ageSurvivors = false;
 
   /*****************************************************************************
    *
@@ -132,6 +197,22 @@ public abstract class Gen extends StopTheWorld {
   public final SharedDeque remsetPool = new SharedDeque("remSets",metaDataSpace, 1);
   public final SharedDeque arrayRemsetPool = new SharedDeque("arrayRemSets",metaDataSpace, 2);
 
+  /**
+   * Slots outside the nursery that refer to objects in survivor space 0 or 1.
+   * The collector creates these, so unlike the remsets they survive the
+   * nursery collection that fills them and are consumed by the next one.
+   */
+  public final SharedDeque survivorRemsetPool0 = new SharedDeque("survivorRemSets0",metaDataSpace, 1);
+  public final SharedDeque survivorRemsetPool1 = new SharedDeque("survivorRemSets1",metaDataSpace, 1);
+
+  /** Nursery allocations sampled by mutators, see {@link AllocationSiteProfile} */
+  public final SharedDeque allocSamplePool = new SharedDeque("allocSamples",metaDataSpace, 2);
+  private final AddressPairDeque allocSamples = new AddressPairDeque(allocSamplePool);
+
+  /* Survival feedback for the current nursery collection */
+  private int nurseryPagesAtPrepare;
+  private int maturePagesAtPrepare;
+
   /*
    * Class initializer
    */
@@ -150,6 +231,20 @@ public abstract class Gen extends StopTheWorld {
       nurseryMark = null;
       nurseryCons = null;
     }
+    if (VM.VERIFY_ASSERTIONS && !USE_DISCONTIGUOUS_NURSERY) {
+      VM.assertions._assert(survivorSpace1.getStart().LT(survivorSpace0.getStart()));
+      VM.assertions._assert(survivorSpace0.getStart().LT(nurserySpace.getStart()));
+    }
+  }
+
+  /**
+   * Constructor
+   */
+  public Gen() {
+    Options.tenuringThreshold = new TenuringThreshold();
+    Options.adaptiveNursery = new AdaptiveNursery();
+    Options.pretenureSurvivalRatio = new PretenureSurvivalRatio();
+    Options.cardMarking = new CardMarking();
   }
 
   /*****************************************************************************
@@ -176,6 +271,15 @@ public abstract class Gen extends StopTheWorld {
 
     if (phaseId == PREPARE) {
       nurserySpace.prepare(true);
+      allocSamplePool.prepareNonBlocking();
+      survivorHi = !survivorHi;
+      fromSurvivorSpace().prepare(true);
+      toSurvivorSpace().prepare(false);
+      ageSurvivors = !traceFullHeap() && survivorsFit();
+      if (!traceFullHeap()) {
+        nurseryPagesAtPrepare = nurserySpace.reservedPages() + fromSurvivorSpace().reservedPages();
+        maturePagesAtPrepare = activeMatureSpace().reservedPages();
+      }
       if (traceFullHeap()) {
         if (gcFullHeap) {
           if (Stats.gatheringStats()) fullHeap.set();
@@ -183,9 +287,14 @@ public abstract class Gen extends StopTheWorld {
         }
         super.collectionPhase(phaseId);
 
+        // the full heap trace records the objects of the card table again
+        if (USE_CARD_TABLE) CardTable.reset();
         // we can throw away the remsets (but not modbuf) for a full heap GC
         remsetPool.clearDeque(1);
         arrayRemsetPool.clearDeque(2);
+        // every survivor is promoted, so nothing will refer to survivors afterwards
+        survivorRemsetPool0.clearDeque(1);
+        survivorRemsetPool1.clearDeque(1);
       }
       return;
     }
@@ -204,7 +313,17 @@ public abstract class Gen extends StopTheWorld {
     }
 
     if (phaseId == RELEASE) {
+      if (!traceFullHeap()) {
+        adjustTenuring();
+        if (useCardMarking && Options.verbose.getValue() >= 3) {
+          Log.write("[Cards ", CardTable.resetCardsScanned());
+          Log.writeln(" scanned]");
+        }
+      }
+      AllocationSiteProfile.processSamples(allocSamples);
+      allocSamplePool.reset();
       nurserySpace.release();
+      fromSurvivorSpace().release();
       switchNurseryZeroingApproach(nurserySpace);
       modbufPool.clearDeque(1);
       remsetPool.clearDeque(1);
@@ -244,6 +363,61 @@ public abstract class Gen extends StopTheWorld {
     return super.collectionRequired(spaceFull, space);
   }
 
+  /**
+   * Can the nursery and the survivors being collected be copied into the
+   * to-survivor space without exhausting its virtual memory, even if they
+   * all survive?  Only a contiguous nursery is aged.
+   *
+   * @return {@code true} if survivors may be aged in this collection
+   */
+  private boolean survivorsFit() {
+    if (USE_DISCONTIGUOUS_NURSERY || tenuringThreshold <= 1) return false;
+    int capacity = Conversions.bytesToPages(toSurvivorSpace().getExtent());
+    int worstCase = (int) ((nurserySpace.reservedPages() + fromSurvivorSpace().reservedPages()) * WORST_CASE_COPY_EXPANSION);
+    return worstCase < capacity;
+  }
+
+  /**
+   * Feed the outcome of a nursery collection back into the tenuring
+   * threshold and, if adaptive nursery sizing is on, the nursery size.
+   * Objects are promoted sooner when the survivors occupy too much of
+   * the nursery, and later again once they have shrunk.  The nursery
+   * grows while more than {@link #TARGET_SURVIVAL} of it survives, giving
+   * medium-lived objects time to die, and shrinks while much less than
+   * that survives.  A pause goal takes precedence over the survival
+   * rate when sizing the nursery.
+   */
+  private void adjustTenuring() {
+    if (nurseryPagesAtPrepare == 0) return;
+    int survivorPages = toSurvivorSpace().reservedPages();
+    int promotedPages = activeMatureSpace().reservedPages() - maturePagesAtPrepare;
+    if (promotedPages < 0) promotedPages = 0;
+    int maxNursery = Options.nurserySize.getMaxNursery();
+
+    if (survivorPages > maxNursery * SURVIVOR_LIMIT) {
+      if (tenuringThreshold > 1) tenuringThreshold--;
+    } else if (survivorPages < maxNursery * SURVIVOR_LIMIT / 2 &&
+               tenuringThreshold < Options.tenuringThreshold.getValue()) {
+      tenuringThreshold++;
+    }
+
+    if (Options.adaptiveNursery.getValue() && Options.pauseGoal.getMicroseconds() == 0) {
+      float survival = (float) (survivorPages + promotedPages) / nurseryPagesAtPrepare;
+      if (survival > TARGET_SURVIVAL) {
+        Options.nurserySize.setAdaptiveMaxNursery((int) (maxNursery * NURSERY_GROWTH));
+      } else if (survival < TARGET_SURVIVAL / 2) {
+        Options.nurserySize.setAdaptiveMaxNursery((int) (maxNursery * NURSERY_SHRINK));
+      }
+    }
+    if (Options.verbose.getValue() >= 3) {
+      Log.write("[Survivors ", survivorPages);
+      Log.write(" pages, promoted ", promotedPages);
+      Log.write(" pages, tenuring threshold ", tenuringThreshold);
+      Log.write(", max nursery ", Options.nurserySize.getMaxNursery());
+      Log.writeln(" pages]");
+    }
+  }
+
   /**
    * Determine if this GC should be a full heap collection.
    *
@@ -291,12 +465,12 @@ public abstract class Gen extends StopTheWorld {
 
   /**
    * {@inheritDoc}
-   * Simply add the nursery's contribution to that of
+   * Simply add the contribution of the nursery and survivors to that of
    * the superclass.
    */
   @Override
   public int getPagesUsed() {
-    return (nurserySpace.reservedPages() + super.getPagesUsed());
+    return (nurserySpace.reservedPages() + survivorPages() + super.getPagesUsed());
   }
 
   /**
@@ -316,7 +490,14 @@ public abstract class Gen extends StopTheWorld {
    */
   @Override
   public int getCollectionReserve() {
-    return nurserySpace.reservedPages() + super.getCollectionReserve();
+    return nurserySpace.reservedPages() + survivorPages() + super.getCollectionReserve();
+  }
+
+  /**
+   * @return The number of pages reserved by the survivor spaces
+   */
+  private int survivorPages() {
+    return survivorSpace0.reservedPages() + survivorSpace1.reservedPages();
   }
 
   /**
@@ -333,8 +514,26 @@ public abstract class Gen extends StopTheWorld {
    * Miscellaneous
    */
 
+  /**
+   * @return The survivor space that objects are copied to by this (or,
+   * between collections, were copied to by the last) nursery collection.
+   */
+  @Inline
+  public static CopySpace toSurvivorSpace() {
+    return survivorHi ? survivorSpace1 : survivorSpace0;
+  }
+
+  /**
+   * @return The survivor space being evacuated by this collection.
+   */
+  @Inline
+  public static CopySpace fromSurvivorSpace() {
+    return survivorHi ? survivorSpace0 : survivorSpace1;
+  }
+
   /**
    * Return {@code true} if the address resides within the nursery
+   * or a survivor space
    *
    * @param addr The object to be tested
    * @return {@code true} if the address resides within the nursery
@@ -342,13 +541,19 @@ public abstract class Gen extends StopTheWorld {
   @Inline
   static boolean inNursery(Address addr) {
     if (USE_DISCONTIGUOUS_NURSERY)
-      return HeapLayout.vmMap.getDescriptorForAddress(addr) == NURSERY;
+      return isNurseryDescriptor(HeapLayout.vmMap.getDescriptorForAddress(addr));
     else
       return addr.GE(NURSERY_START);
   }
 
+  @Inline
+  private static boolean isNurseryDescriptor(int descriptor) {
+    return descriptor == NURSERY || descriptor == SURVIVOR0 || descriptor == SURVIVOR1;
+  }
+
   /**
    * Return {@code true} if the object resides within the nursery
+   * or a survivor space
    *
    * @param obj The object to be tested
    * @return {@code true} if the object resides within the nursery
@@ -358,6 +563,83 @@ public abstract class Gen extends StopTheWorld {
     return inNursery(obj.toAddress());
   }
 
+  /**
+   * @param object An object for which {@link #inNursery(ObjectReference)} holds
+   * @return The nursery or survivor space that holds the object
+   */
+  @Inline
+  private static CopySpace nurseryRangeSpace(ObjectReference object) {
+    if (Space.isInSpace(NURSERY, object)) return nurserySpace;
+    return Space.isInSpace(SURVIVOR0, object) ? survivorSpace0 : survivorSpace1;
+  }
+
+  /**
+   * Trace an object in the nursery or a survivor space.  During a nursery
+   * collection an object that has survived fewer nursery collections than
+   * the tenuring threshold is copied into the to-survivor space rather
+   * than promoted.
+   *
+   * @param trace The trace being conducted
+   * @param object An object for which {@link #inNursery(ObjectReference)} holds
+   * @param allocator The allocator to use when promoting the object
+   * @return The forwarded object
+   */
+  @Inline
+  static ObjectReference traceNurseryObject(TransitiveClosure trace, ObjectReference object, int allocator) {
+    if (ageSurvivors && getAge(object) + 1 < tenuringThreshold) {
+      allocator = ALLOC_SURVIVOR;
+    }
+    return nurseryRangeSpace(object).traceObject(trace, object, allocator);
+  }
+
+  /**
+   * @param object An object for which {@link #inNursery(ObjectReference)} holds
+   * @return {@code true} if the object is live in this collection
+   */
+  @Inline
+  static boolean isLiveInNursery(ObjectReference object) {
+    CopySpace space = nurseryRangeSpace(object);
+    return !space.isFromSpace() || space.isLive(object);
+  }
+
+  /**
+   * @param object An unforwarded object in the nursery or a survivor space
+   * @return The number of nursery collections the object has survived
+   */
+  @Inline
+  private static int getAge(ObjectReference object) {
+    return (VM.objectModel.readAvailableByte(object) & AGE_MASK) >>> AGE_SHIFT;
+  }
+
+  /**
+   * Clear the forwarding bits of an object just copied into a survivor
+   * space and count the nursery collection it has survived.
+   *
+   * @param object The new copy of the object
+   */
+  @Inline
+  public static void postCopySurvivor(ObjectReference object) {
+    byte value = VM.objectModel.readAvailableByte(object);
+    int age = ((value & AGE_MASK) >>> AGE_SHIFT) + 1;
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(age < MAX_TENURING_THRESHOLD);
+    value &= ~(AGE_MASK | ForwardingWord.FORWARDING_MASK);
+    VM.objectModel.writeAvailableByte(object, (byte) (value | (age << AGE_SHIFT)));
+  }
+
+  /**
+   * Clear the age of an object being promoted, before the mature space
+   * claims the header bits.
+   *
+   * @param object The new copy of the object
+   */
+  @Inline
+  public static void clearAge(ObjectReference object) {
+    byte value = VM.objectModel.readAvailableByte(object);
+    if ((value & AGE_MASK) != 0) {
+      VM.objectModel.writeAvailableByte(object, (byte) (value & ~AGE_MASK));
+    }
+  }
+
   /**
    * @return Does the mature space do copying ?
    */
@@ -404,7 +686,7 @@ public abstract class Gen extends StopTheWorld {
 
   @Override
   public boolean willNeverMove(ObjectReference object) {
-    if (Space.isInSpace(NURSERY, object))
+    if (inNursery(object))
       return false;
     return super.willNeverMove(object);
   }
@@ -418,6 +700,11 @@ public abstract class Gen extends StopTheWorld {
       return SanityChecker.DEAD;
     }
 
+    // Survivors may be retained by mature objects that are not traced
+    if (space == Gen.survivorSpace0 || space == Gen.survivorSpace1) {
+      return SanityChecker.UNSURE;
+    }
+
     // Immortal spaces
     if (space == Gen.immortalSpace || space == Gen.vmSpace) {
       return space.isReachable(object) ? SanityChecker.ALIVE : SanityChecker.DEAD;
@@ -439,6 +726,20 @@ public abstract class Gen extends StopTheWorld {
     super.registerSpecializedMethods();
   }
 
+  @Override
+  @Interruptible
+  public void processOptions() {
+    super.processOptions();
+    tenuringThreshold = Options.tenuringThreshold.getValue();
+    useCardMarking = Options.cardMarking.getValue() && CardTable.coversAnySpace();
+    if (Options.cardMarking.getValue() && !useCardMarking) {
+      Log.writeln("Warning: no space has a card table, so cardMarking is ignored");
+    }
+    if (Options.pretenureSurvivalRatio.getValue() > 0) {
+      AllocationSiteProfile.enable();
+    }
+  }
+
   @Interruptible
   @Override
   public void fullyBooted() {
@@ -13,12 +13,17 @@
 package org.mmtk.plan.generational;
 
 import org.mmtk.plan.*;
+import org.mmtk.policy.CopyLocal;
 import org.mmtk.policy.LargeObjectLocal;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.HeaderByte;
 import org.mmtk.utility.deque.*;
+import org.mmtk.utility.statistics.Stats;
 
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
 
 /**
  * This abstract class implements <i>per-collector thread</i>
@@ -51,6 +56,14 @@ import org.vmmagic.pragma.*;
   protected final ObjectReferenceDeque modbuf;
   protected final AddressDeque remset;
   protected final AddressPairDeque arrayRemset;
+  protected final AddressDeque survivorRemset0;
+  protected final AddressDeque survivorRemset1;
+
+  /** Copies nursery objects that are not yet old enough to be promoted */
+  protected final CopyLocal survivor;
+
+  /** Remembers the slots of dirty cards, see {@link CardTable} */
+  private final CardScanner cardScanner;
 
   /****************************************************************************
    *
@@ -70,9 +83,86 @@ import org.vmmagic.pragma.*;
     arrayRemset = new AddressPairDeque(global().arrayRemsetPool);
     remset = new AddressDeque("remset", global().remsetPool);
     modbuf = new ObjectReferenceDeque("modbuf", global().modbufPool);
+    survivorRemset0 = new AddressDeque("survivorRemset0", global().survivorRemsetPool0);
+    survivorRemset1 = new AddressDeque("survivorRemset1", global().survivorRemsetPool1);
+    survivor = new CopyLocal(Gen.survivorSpace0);
+    cardScanner = new CardScanner(remset);
     nurseryTrace = new GenNurseryTraceLocal(global().nurseryTrace, this);
   }
 
+  /****************************************************************************
+   *
+   * Collection-time allocation
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Objects that are not yet old enough to be promoted are copied into
+   * the to-survivor space, all others by {@link #allocCopyMature}.
+   */
+  @Override
+  @Inline
+  public final Address allocCopy(ObjectReference original, int bytes,
+      int align, int offset, int allocator) {
+    if (Stats.GATHER_MARK_CONS_STATS) {
+      if (Space.isInSpace(Gen.NURSERY, original)) Gen.nurseryMark.inc(bytes);
+    }
+    if (allocator == Gen.ALLOC_SURVIVOR) {
+      return survivor.alloc(bytes, align, offset);
+    }
+    return allocCopyMature(original, bytes, align, offset, allocator);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * A survivor has its age counted.  A promoted object has its age
+   * cleared before {@link #postCopyMature} initializes its header for the
+   * mature space or the large object space.
+   */
+  @Override
+  @Inline
+  public final void postCopy(ObjectReference object, ObjectReference typeRef,
+      int bytes, int allocator) {
+    if (allocator == Gen.ALLOC_SURVIVOR) {
+      Gen.postCopySurvivor(object);
+      return;
+    }
+    Gen.clearAge(object);
+    postCopyMature(object, typeRef, bytes, allocator);
+    if (Gen.USE_CARD_TABLE)
+      CardTable.recordObject(object);
+    if (Gen.USE_OBJECT_BARRIER)
+      HeaderByte.markAsUnlogged(object);
+  }
+
+  /**
+   * Allocate space for promoting an object into the mature space or the
+   * large object space.
+   *
+   * @param original The object that is being copied.
+   * @param bytes The number of bytes required for the copy.
+   * @param align Required alignment for the copy.
+   * @param offset Offset associated with the alignment.
+   * @param allocator The allocator associated with this request.
+   * @return The address of the newly allocated region.
+   */
+  protected abstract Address allocCopyMature(ObjectReference original, int bytes,
+      int align, int offset, int allocator);
+
+  /**
+   * Perform any post-copy actions for an object promoted into the mature
+   * space or the large object space.
+   *
+   * @param object The newly allocated object.
+   * @param typeRef the type reference for the instance being created.
+   * @param bytes The size of the space to be allocated (in bytes).
+   * @param allocator The allocator used for the copy.
+   */
+  protected abstract void postCopyMature(ObjectReference object, ObjectReference typeRef,
+      int bytes, int allocator);
+
   /****************************************************************************
    *
    * Collection
@@ -90,10 +180,17 @@ import org.vmmagic.pragma.*;
       global().arrayRemsetPool.prepareNonBlocking();
       global().remsetPool.prepareNonBlocking();
       global().modbufPool.prepareNonBlocking();
+      fromSurvivorRemsetPool().prepareNonBlocking();
+      if (Gen.useCardMarking && !global().traceFullHeap()) {
+        CardTable.scan(cardScanner, parallelWorkerOrdinal(), parallelWorkerCount());
+        remset.flushLocal();
+      }
+      survivor.rebind(Gen.toSurvivorSpace());
       nurseryTrace.prepare();
       return;
     }
-    if (phaseId == Simple.STACK_ROOTS && !global().gcFullHeap) {
+    // Stacks scanned before may refer to survivors, which move in this collection
+    if (phaseId == Simple.STACK_ROOTS && !global().gcFullHeap && Gen.fromSurvivorSpace().reservedPages() == 0) {
       VM.scanning.computeNewThreadRoots(getCurrentTrace());
       return;
     }
@@ -122,6 +219,8 @@ import org.vmmagic.pragma.*;
         global().arrayRemsetPool.reset();
         global().remsetPool.reset();
         global().modbufPool.reset();
+        fromSurvivorRemsetPool().reset();
+        (Gen.survivorHi ? survivorRemset1 : survivorRemset0).flushLocal();
       }
       return;
     }
@@ -140,6 +239,12 @@ import org.vmmagic.pragma.*;
     return (Gen) VM.activePlan.global();
   }
 
+  /** @return The pool of slots that refer to the survivor space being evacuated */
+  @Inline
+  private static SharedDeque fromSurvivorRemsetPool() {
+    return Gen.survivorHi ? global().survivorRemsetPool0 : global().survivorRemsetPool1;
+  }
+
   @Override
   public final TraceLocal getCurrentTrace() {
     if (global().traceFullHeap()) return getFullHeapTrace();
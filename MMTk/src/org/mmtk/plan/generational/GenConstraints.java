@@ -16,6 +16,7 @@ import org.mmtk.plan.StopTheWorldConstraints;
 
 import org.mmtk.policy.CopySpace;
 import org.mmtk.policy.Space;
+import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
 
@@ -40,7 +41,7 @@ public class GenConstraints extends StopTheWorldConstraints {
 
   @Override
   public int gcHeaderBits() {
-    return CopySpace.LOCAL_GC_BITS_REQUIRED;
+    return CopySpace.LOCAL_GC_BITS_REQUIRED + Gen.AGE_BITS;
   }
 
   @Override
@@ -73,6 +74,12 @@ public class GenConstraints extends StopTheWorldConstraints {
     return Gen.USE_OBJECT_BARRIER;
   }
 
+  /** The card table finds objects from their recorded start addresses */
+  @Override
+  public boolean needsLinearScan() {
+    return VM.config.CARD_TABLE || super.needsLinearScan();
+  }
+
   /**
    * @return The maximum size of an object that may be allocated directly into the nursery
    */
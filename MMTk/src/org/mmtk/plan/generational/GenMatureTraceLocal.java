@@ -83,7 +83,7 @@ public abstract class GenMatureTraceLocal extends TraceLocal {
   public boolean isLive(ObjectReference object) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!object.isNull());
     if (Gen.inNursery(object)) {
-      return Gen.nurserySpace.isLive(object);
+      return Gen.isLiveInNursery(object);
     }
     return super.isLive(object);
   }
@@ -110,10 +110,24 @@ public abstract class GenMatureTraceLocal extends TraceLocal {
   public ObjectReference traceObject(ObjectReference object) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!object.isNull());
     if (Gen.inNursery(object))
-      return Gen.nurserySpace.traceObject(this, object, Gen.ALLOC_MATURE_MAJORGC);
+      return Gen.traceNurseryObject(this, object, Gen.ALLOC_MATURE_MAJORGC);
     return super.traceObject(object);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Every object that the full heap trace reaches in a space covered by
+   * the {@link CardTable} is recorded again, as the table was reset when
+   * the collection started.
+   */
+  @Override
+  @Inline
+  protected void scanObject(ObjectReference object) {
+    if (Gen.USE_CARD_TABLE) CardTable.recordObject(object);
+    super.scanObject(object);
+  }
+
   /**
    * Process any remembered set entries.
    */
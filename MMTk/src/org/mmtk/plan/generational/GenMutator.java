@@ -56,6 +56,10 @@ import org.vmmagic.unboxed.*;
   protected final WriteBuffer remset;           /* remember modified array fields */
   protected final AddressPairDeque arrayRemset; /* remember modified array ranges */
 
+  private final AddressPairDeque allocSamples;  /* sampled nursery allocations */
+  private boolean sampleAllocations;            /* are allocation sites being sampled? */
+  private int bytesUntilSample;
+
   /****************************************************************************
    *
    * Initialization
@@ -73,6 +77,8 @@ import org.vmmagic.unboxed.*;
     modbuf = new ObjectReferenceDeque("modbuf", global().modbufPool);
     remset = new WriteBuffer(global().remsetPool);
     arrayRemset = new AddressPairDeque(global().arrayRemsetPool);
+    allocSamples = new AddressPairDeque(global().allocSamplePool);
+    sampleAllocations = AllocationSiteProfile.isEnabled();
   }
 
   /****************************************************************************
@@ -80,6 +86,22 @@ import org.vmmagic.unboxed.*;
    * Mutator-time allocation
    */
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Pretenured allocations that are too large for the mature space are
+   * sent to the large object space.
+   */
+  @Override
+  @Inline
+  public int checkAllocator(int bytes, int align, int allocator) {
+    if (allocator == Gen.ALLOC_MATURE) {
+      int maxBytes = Allocator.getMaximumAlignedSize(bytes, align);
+      return (maxBytes > Plan.MAX_NON_LOS_DEFAULT_ALLOC_BYTES) ? Plan.ALLOC_LOS : allocator;
+    }
+    return super.checkAllocator(bytes, align, allocator);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -88,11 +110,31 @@ import org.vmmagic.unboxed.*;
   public Address alloc(int bytes, int align, int offset, int allocator, int site) {
     if (allocator == Gen.ALLOC_NURSERY) {
       if (Stats.GATHER_MARK_CONS_STATS) Gen.nurseryCons.inc(bytes);
-      return nursery.alloc(bytes, align, offset);
+      Address region = nursery.alloc(bytes, align, offset);
+      if (sampleAllocations) {
+        bytesUntilSample -= bytes;
+        if (bytesUntilSample < 0) sampleAllocation(region, site);
+      }
+      return region;
     }
     return super.alloc(bytes, align, offset, allocator, site);
   }
 
+  /**
+   * Record a nursery allocation so that the survival of its site can be
+   * measured at the next collection.
+   *
+   * @param region The allocated region
+   * @param site The allocation site
+   */
+  @NoInline
+  private void sampleAllocation(Address region, int site) {
+    bytesUntilSample = AllocationSiteProfile.SAMPLE_BYTES;
+    if (AllocationSiteProfile.isSampled(site)) {
+      allocSamples.insert(region, Address.fromIntZeroExtend(site));
+    }
+  }
+
   @Override
   @Inline
   public void postAlloc(ObjectReference ref, ObjectReference typeRef,
@@ -136,11 +178,27 @@ import org.vmmagic.unboxed.*;
     } else {
       if (!Gen.inNursery(slot) && Gen.inNursery(tgt)) {
         if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbSlow.inc();
-        remset.insert(slot);
+        remember(slot);
       }
     }
   }
 
+  /**
+   * Remember a slot outside the nursery that refers to the nursery, by
+   * dirtying its card if it is covered by the card table and otherwise
+   * in the remembered set.
+   *
+   * @param slot The slot
+   */
+  @Inline
+  private void remember(Address slot) {
+    if (Gen.useCardMarking && CardTable.isCovered(slot)) {
+      CardTable.dirty(slot);
+    } else {
+      remset.insert(slot);
+    }
+  }
+
   /**
    * {@inheritDoc}<p>
    *
@@ -218,11 +276,21 @@ import org.vmmagic.unboxed.*;
   public final boolean objectReferenceBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
     if (!Gen.inNursery(dst)) {
       Address start = dst.toAddress().plus(dstOffset);
-      arrayRemset.insert(start, start.plus(bytes));
+      if (Gen.useCardMarking && CardTable.isCovered(start)) {
+        CardTable.dirtyRange(start, start.plus(bytes));
+      } else {
+        arrayRemset.insert(start, start.plus(bytes));
+      }
     }
     return false;
   }
 
+  @Override
+  public void flush() {
+    super.flush();
+    allocSamples.flushLocal();
+  }
+
   @Override
   public final void flushRememberedSets() {
     modbuf.flushLocal();
@@ -254,6 +322,9 @@ import org.vmmagic.unboxed.*;
 
     if (phaseId == Gen.PREPARE) {
       nursery.reset();
+      allocSamples.flushLocal();
+      // Mutators created before options were processed start sampling now
+      sampleAllocations = AllocationSiteProfile.isEnabled();
       if (global().traceFullHeap()) {
         super.collectionPhase(phaseId, primary);
         modbuf.flushLocal();
@@ -41,6 +41,9 @@ public final class GenNurseryTraceLocal extends TraceLocal {
   private final ObjectReferenceDeque modbuf;
   private final AddressDeque remset;
   private final AddressPairDeque arrayRemset;
+  private final AddressDeque survivorRemset0;
+  private final AddressDeque survivorRemset1;
+  private final SurvivorRemsetRecorder survivorRemsetRecorder;
 
   /**
    * @param trace the global trace class to use
@@ -51,6 +54,9 @@ public final class GenNurseryTraceLocal extends TraceLocal {
     this.modbuf = plan.modbuf;
     this.remset = plan.remset;
     this.arrayRemset = plan.arrayRemset;
+    this.survivorRemset0 = plan.survivorRemset0;
+    this.survivorRemset1 = plan.survivorRemset1;
+    this.survivorRemsetRecorder = new SurvivorRemsetRecorder(plan);
   }
 
   /****************************************************************************
@@ -65,7 +71,7 @@ public final class GenNurseryTraceLocal extends TraceLocal {
   public boolean isLive(ObjectReference object) {
     if (object.isNull()) return false;
     if (Gen.inNursery(object)) {
-      return Gen.nurserySpace.isLive(object);
+      return Gen.isLiveInNursery(object);
     }
     /* During a nursery trace, all objects not in the nursery are considered alive */
     return true;
@@ -75,11 +81,41 @@ public final class GenNurseryTraceLocal extends TraceLocal {
   @Inline
   public ObjectReference traceObject(ObjectReference object) {
     if (Gen.inNursery(object)) {
-      return Gen.nurserySpace.traceObject(this, object, Gen.ALLOC_MATURE_MINORGC);
+      return Gen.traceNurseryObject(this, object, Gen.ALLOC_MATURE_MINORGC);
     }
     return object;
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * While survivors are being aged, the slots of scanned objects outside
+   * the nursery that end up referring to survivors are remembered for the
+   * next nursery collection.
+   */
+  @Override
+  @Inline
+  protected void scanObject(ObjectReference object) {
+    super.scanObject(object);
+    if (Gen.ageSurvivors && !Gen.inNursery(object)) {
+      VM.scanning.scanObject(survivorRemsetRecorder, object);
+    }
+  }
+
+  /**
+   * Trace a remembered slot, remembering it again if it still refers to a
+   * survivor.
+   *
+   * @param slot The remembered slot
+   */
+  @Inline
+  private void processRememberedEdge(Address slot) {
+    processRootEdge(slot, false);
+    if (Gen.ageSurvivors) {
+      survivorRemsetRecorder.remember(slot);
+    }
+  }
+
   /**
    * Process any remembered set entries.
    */
@@ -97,7 +133,12 @@ public final class GenNurseryTraceLocal extends TraceLocal {
     while (!remset.isEmpty()) {
       Address loc = remset.pop();
       if (VM.DEBUG) VM.debugging.remsetEntry(loc);
-      processRootEdge(loc, false);
+      processRememberedEdge(loc);
+    }
+    logMessage(5, "processing survivor remset");
+    AddressDeque survivorRemset = Gen.survivorHi ? survivorRemset0 : survivorRemset1;
+    while (!survivorRemset.isEmpty()) {
+      processRememberedEdge(survivorRemset.pop());
     }
     logMessage(5, "processing array remset");
     arrayRemset.flushLocal();
@@ -106,7 +147,7 @@ public final class GenNurseryTraceLocal extends TraceLocal {
       Address guard = arrayRemset.pop2();
       if (VM.DEBUG) VM.debugging.arrayRemsetEntry(start,guard);
       while (start.LT(guard)) {
-        processRootEdge(start, false);
+        processRememberedEdge(start);
         start = start.plus(BYTES_IN_ADDRESS);
       }
     }
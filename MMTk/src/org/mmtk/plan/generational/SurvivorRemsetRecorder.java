@@ -0,0 +1,61 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.generational;
+
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.utility.deque.AddressDeque;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * Remembers the slots outside the nursery that refer to objects in the
+ * to-survivor space once a nursery collection has updated them.  No write
+ * barrier sees these references, because the collector created them by
+ * promoting an object or copying its referent into a survivor space, so
+ * the next nursery collection would otherwise miss them.
+ */
+@Uninterruptible
+final class SurvivorRemsetRecorder extends TransitiveClosure {
+
+  private final AddressDeque survivorRemset0;
+  private final AddressDeque survivorRemset1;
+
+  /**
+   * @param plan the state of the generational collector
+   */
+  SurvivorRemsetRecorder(GenCollector plan) {
+    this.survivorRemset0 = plan.survivorRemset0;
+    this.survivorRemset1 = plan.survivorRemset1;
+  }
+
+  /**
+   * Remember the given slot if it refers to a survivor.
+   *
+   * @param slot A traced slot outside the nursery
+   */
+  @Inline
+  void remember(Address slot) {
+    ObjectReference object = VM.activePlan.global().loadObjectReference(slot);
+    if (!object.isNull() && Gen.inNursery(object)) {
+      (Gen.survivorHi ? survivorRemset1 : survivorRemset0).insert(slot);
+    }
+  }
+
+  @Override
+  @Inline
+  public void processEdge(ObjectReference source, Address slot) {
+    remember(slot);
+  }
+}
@@ -12,6 +12,8 @@
  */
 package org.mmtk.plan.generational.copying;
 
+import static org.mmtk.utility.Constants.CARD_META_PAGES_PER_REGION;
+
 import org.mmtk.policy.CopySpace;
 import org.mmtk.policy.Space;
 import org.mmtk.plan.generational.*;
@@ -21,6 +23,7 @@ import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.Extent;
 
 /**
  * This class implements the functionality of a standard
@@ -66,18 +69,22 @@ import org.vmmagic.pragma.*;
    */
   static boolean hi = false;
 
+  /** Meta data embedded in each region of the mature spaces, for the card table if there is one */
+  private static final int MATURE_META_DATA_PAGES =
+      USE_CARD_TABLE ? CardTable.META_DATA_PAGES_PER_REGION : CARD_META_PAGES_PER_REGION;
+
   /**
    * The low half of the copying mature space.  We allocate into this space
    * when <code>hi</code> is <code>false</code>.
    */
-  static CopySpace matureSpace0 = new CopySpace("ss0", false, VMRequest.discontiguous());
+  static CopySpace matureSpace0 = new CopySpace("ss0", false, true, MATURE_META_DATA_PAGES, VMRequest.discontiguous());
   static final int MS0 = matureSpace0.getDescriptor();
 
   /**
    * The high half of the copying mature space. We allocate into this space
    * when <code>hi</code> is <code>true</code>.
    */
-  static CopySpace matureSpace1 = new CopySpace("ss1", true, VMRequest.discontiguous());
+  static CopySpace matureSpace1 = new CopySpace("ss1", true, true, MATURE_META_DATA_PAGES, VMRequest.discontiguous());
   static final int MS1 = matureSpace1.getDescriptor();
 
 
@@ -98,6 +105,10 @@ import org.vmmagic.pragma.*;
     super();
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!IGNORE_REMSETS); // Not supported for GenCopy
     matureTrace = new Trace(metaDataSpace);
+    if (USE_CARD_TABLE) {
+      CardTable.cover(matureSpace0, Extent.zero());
+      CardTable.cover(matureSpace1, Extent.zero());
+    }
   }
 
   @Override
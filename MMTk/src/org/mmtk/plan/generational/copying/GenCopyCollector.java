@@ -12,13 +12,11 @@
  */
 package org.mmtk.plan.generational.copying;
 
-import org.mmtk.plan.generational.Gen;
 import org.mmtk.plan.generational.GenCollector;
 import org.mmtk.plan.Plan;
 import org.mmtk.plan.TraceLocal;
 import org.mmtk.policy.CopyLocal;
 import org.mmtk.utility.ForwardingWord;
-import org.mmtk.utility.HeaderByte;
 import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.vm.VM;
 
@@ -79,7 +77,7 @@ public class GenCopyCollector extends GenCollector {
    */
   @Override
   @Inline
-  public Address allocCopy(ObjectReference original, int bytes,
+  protected final Address allocCopyMature(ObjectReference original, int bytes,
       int align, int offset, int allocator) {
     if (allocator == Plan.ALLOC_LOS) {
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Allocator.getMaximumAlignedSize(bytes, align) > Plan.MAX_NON_LOS_COPY_BYTES);
@@ -101,15 +99,13 @@ public class GenCopyCollector extends GenCollector {
    */
   @Override
   @Inline
-  public final void postCopy(ObjectReference object, ObjectReference typeRef,
+  protected final void postCopyMature(ObjectReference object, ObjectReference typeRef,
       int bytes, int allocator) {
     ForwardingWord.clearForwardingBits(object);
     if (allocator == Plan.ALLOC_LOS)
       Plan.loSpace.initializeHeader(object, false);
     else if (GenCopy.IGNORE_REMSETS)
       GenCopy.immortalSpace.traceObject(getCurrentTrace(), object); // FIXME this does not look right
-    if (Gen.USE_OBJECT_BARRIER)
-      HeaderByte.markAsUnlogged(object);
   }
 
 
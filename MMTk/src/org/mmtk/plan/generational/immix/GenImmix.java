@@ -12,9 +12,11 @@
  */
 package org.mmtk.plan.generational.immix;
 
+import org.mmtk.plan.generational.CardTable;
 import org.mmtk.plan.generational.Gen;
 import org.mmtk.plan.Trace;
 import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.policy.immix.Chunk;
 import org.mmtk.policy.immix.ImmixSpace;
 import org.mmtk.policy.immix.ObjectHeader;
 import org.mmtk.policy.Space;
@@ -73,6 +75,16 @@ public class GenImmix extends Gen {
   public final Trace matureTrace = new Trace(metaDataSpace);
   private boolean lastGCWasDefrag = false;
 
+  /**
+   * Constructor
+   */
+  public GenImmix() {
+    super();
+    if (USE_CARD_TABLE) {
+      CardTable.cover(immixSpace, Extent.fromIntZeroExtend(Chunk.CARD_TABLE_OFFSET));
+    }
+  }
+
   /*****************************************************************************
    *
    * Collection
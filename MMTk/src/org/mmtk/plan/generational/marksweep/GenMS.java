@@ -12,6 +12,7 @@
  */
 package org.mmtk.plan.generational.marksweep;
 
+import org.mmtk.plan.generational.CardTable;
 import org.mmtk.plan.generational.Gen;
 import org.mmtk.plan.Trace;
 import org.mmtk.plan.TransitiveClosure;
@@ -54,7 +55,8 @@ public class GenMS extends Gen {
    */
 
   /** The mature space, which for GenMS uses a mark sweep collection policy. */
-  public static final MarkSweepSpace msSpace = new MarkSweepSpace("ms", VMRequest.discontiguous());
+  public static final MarkSweepSpace msSpace =
+      new MarkSweepSpace("ms", USE_CARD_TABLE ? CardTable.META_DATA_PAGES_PER_REGION : 0, VMRequest.discontiguous());
 
   public static final int MS = msSpace.getDescriptor();
 
@@ -66,6 +68,16 @@ public class GenMS extends Gen {
   /** The trace class for a full-heap collection */
   public final Trace matureTrace = new Trace(metaDataSpace);
 
+  /**
+   * Constructor
+   */
+  public GenMS() {
+    super();
+    if (USE_CARD_TABLE) {
+      CardTable.cover(msSpace, msSpace.getAdditionalMetadataOffset());
+    }
+  }
+
   /*****************************************************************************
    *
    * Collection
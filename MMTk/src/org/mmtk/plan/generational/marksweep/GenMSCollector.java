@@ -16,10 +16,7 @@ import org.mmtk.plan.Plan;
 import org.mmtk.plan.TraceLocal;
 import org.mmtk.plan.generational.*;
 import org.mmtk.policy.MarkSweepLocal;
-import org.mmtk.policy.Space;
-import org.mmtk.utility.HeaderByte;
 import org.mmtk.utility.alloc.Allocator;
-import org.mmtk.utility.statistics.Stats;
 
 import org.mmtk.vm.VM;
 
@@ -73,12 +70,8 @@ public class GenMSCollector extends GenCollector {
    */
   @Inline
   @Override
-  public final Address allocCopy(ObjectReference original, int bytes,
-                                 int align, int offset, int allocator) {
-    if (Stats.GATHER_MARK_CONS_STATS) {
-      if (Space.isInSpace(GenMS.NURSERY, original)) GenMS.nurseryMark.inc(bytes);
-    }
-
+  protected final Address allocCopyMature(ObjectReference original, int bytes,
+                                          int align, int offset, int allocator) {
     if (allocator == Plan.ALLOC_LOS) {
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Allocator.getMaximumAlignedSize(bytes, align) > Plan.MAX_NON_LOS_COPY_BYTES);
       return los.alloc(bytes, align, offset);
@@ -94,14 +87,12 @@ public class GenMSCollector extends GenCollector {
 
   @Inline
   @Override
-  public final void postCopy(ObjectReference object, ObjectReference typeRef,
-                             int bytes, int allocator) {
+  protected final void postCopyMature(ObjectReference object, ObjectReference typeRef,
+                                      int bytes, int allocator) {
     if (allocator == Plan.ALLOC_LOS)
       Plan.loSpace.initializeHeader(object, false);
     else
       GenMS.msSpace.postCopy(object, allocator == GenMS.ALLOC_MATURE_MAJORGC);
-    if (Gen.USE_OBJECT_BARRIER)
-      HeaderByte.markAsUnlogged(object);
   }
 
   /*****************************************************************************
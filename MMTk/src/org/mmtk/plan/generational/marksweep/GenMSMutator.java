@@ -90,6 +90,7 @@ public class GenMSMutator extends GenMutator {
       int bytes, int allocator) {
     if (allocator == GenMS.ALLOC_MATURE) {
       GenMS.msSpace.initializeHeader(ref, true);
+      if (Gen.USE_CARD_TABLE) CardTable.recordObject(ref);
     } else {
       super.postAlloc(ref, typeRef, bytes, allocator);
     }
@@ -98,12 +98,28 @@ import org.vmmagic.pragma.*;
    * @param vmRequest An object describing the virtual memory requested.
    */
   public CopySpace(String name, boolean fromSpace, boolean zeroed, VMRequest vmRequest) {
+    this(name, fromSpace, zeroed, META_DATA_PAGES_PER_REGION, vmRequest);
+  }
+
+  /**
+   * The caller specifies the region of virtual memory to be used for
+   * this space.  If this region conflicts with an existing space,
+   * then the constructor will fail.
+   *
+   * @param name The name of this space (used when printing error messages etc)
+   * @param fromSpace The does this instance start life as from-space
+   * @param zeroed if true, allocations return zeroed memory.
+   * @param metaDataPagesPerRegion The number of pages of metadata the
+   * user of this space embeds at the start of each region.
+   * @param vmRequest An object describing the virtual memory requested.
+   */
+  public CopySpace(String name, boolean fromSpace, boolean zeroed, int metaDataPagesPerRegion, VMRequest vmRequest) {
     super(name, true, false, zeroed, vmRequest);
     this.fromSpace = fromSpace;
     if (vmRequest.isDiscontiguous()) {
-      pr = new MonotonePageResource(this, META_DATA_PAGES_PER_REGION);
+      pr = new MonotonePageResource(this, metaDataPagesPerRegion);
     } else {
-      pr = new MonotonePageResource(this, start, extent, META_DATA_PAGES_PER_REGION);
+      pr = new MonotonePageResource(this, start, extent, metaDataPagesPerRegion);
     }
   }
 
@@ -133,6 +149,15 @@ import org.vmmagic.pragma.*;
     fromSpace = false;
   }
 
+  /**
+   * @return The address above the last page allocated to this space,
+   * or zero if the space is discontiguous (its chunks are then found
+   * from {@link #getHeadDiscontiguousRegion()}).
+   */
+  public Address getHighWater() {
+    return contiguous ? ((MonotonePageResource) pr).getHighWater() : Address.zero();
+  }
+
   /**
    * Release an allocated page or pages.  In this case we do nothing
    * because we only release pages enmasse.
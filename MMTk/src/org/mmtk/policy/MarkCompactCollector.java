@@ -37,7 +37,11 @@ import org.vmmagic.unboxed.ObjectReference;
  * Each collector thread maintains a private list of the pages that it compacts.
  * If it runs out of work during the calculateForwardingPointers pass, it requests
  * a new region from the global MarkCompactSpace.  Regions compacted by a collector
- * remain local to the collector.
+ * remain local to the collector for the rest of the collection, so objects are
+ * only ever forwarded within a single collector's list and the collectors need
+ * no shared forwarding tables.  At the start of each collection the regions are
+ * returned to the global list, so the work is shared afresh between however
+ * many collectors there are.
  *
  * @see MarkCompactSpace
  * @see MarkCompactLocal
@@ -422,6 +426,17 @@ public final class MarkCompactCollector {
 
   /* ***************************************************************************************** */
 
+  /**
+   * Prepare for a collection by returning the regions this collector
+   * compacted last time to the global list.
+   */
+  public void prepare() {
+    if (!regions.isZero()) {
+      space.append(regions);
+      regions = Address.zero();
+    }
+  }
+
   /**
    * Perform a linear scan through the objects allocated by this bump pointer,
    * calculating where each live object will be post collection.<p>
@@ -102,7 +102,21 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
    * @param vmRequest An object describing the virtual memory requested.
    */
   public MarkSweepSpace(String name, VMRequest vmRequest) {
-    super(name, 0, vmRequest);
+    this(name, 0, vmRequest);
+  }
+
+  /**
+   * The caller specifies the region of virtual memory to be used for
+   * this space.  If this region conflicts with an existing space,
+   * then the constructor will fail.
+   *
+   * @param name The name of this space (used when printing error messages etc)
+   * @param additionalMetadata The number of pages of meta data per region
+   * the caller needs, see {@link #getAdditionalMetadataOffset()}
+   * @param vmRequest An object describing the virtual memory requested.
+   */
+  public MarkSweepSpace(String name, int additionalMetadata, VMRequest vmRequest) {
+    super(name, additionalMetadata, vmRequest);
     if (usingStickyMarkBits) allocState |= HeaderByte.UNLOGGED_BIT;
   }
 
@@ -188,6 +202,7 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
    * @param gcWholeMS True if we are going to collect the whole marksweep space
    */
   public void prepare(boolean gcWholeMS) {
+    reclaimUnsweptBlocks();
     if (HEADER_MARK_BITS && Options.eagerCompleteSweep.getValue()) {
       consumeBlocks();
     } else {
@@ -210,10 +225,15 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
 
   /**
    * A new collection increment has completed.  For the mark-sweep
-   * collector this means we can perform the sweep phase.
+   * collector this means we can perform the sweep phase, or leave it to
+   * the allocator when sweeping is deferred.
  */
   public void release() {
-    sweepConsumedBlocks(!EAGER_MARK_CLEAR);
+    if (Options.deferSweep.getValue() && !(HEADER_MARK_BITS && Options.eagerCompleteSweep.getValue())) {
+      deferSweep(!EAGER_MARK_CLEAR);
+    } else {
+      sweepConsumedBlocks(!EAGER_MARK_CLEAR);
+    }
     inMSCollection = false;
   }
 
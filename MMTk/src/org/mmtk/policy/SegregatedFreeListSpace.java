@@ -86,18 +86,30 @@ public abstract class SegregatedFreeListSpace extends Space {
   protected final AddressArray consumedBlockHead = AddressArray.create(sizeClassCount());
   protected final AddressArray flushedBlockHead = AddressArray.create(sizeClassCount());
   protected final AddressArray availableBlockHead = AddressArray.create(sizeClassCount());
+  /** Blocks from the last collection that the allocator is yet to sweep */
+  protected final AddressArray unsweptBlockHead = AddressArray.create(sizeClassCount());
+
+  /** Are there blocks on the unswept lists? See {@link #deferSweep(boolean)} */
+  private boolean lazySweepPending;
+  /** Should block marks be cleared as unswept blocks are swept? */
+  private boolean lazySweepClearMarks;
 
   private final int[] cellSize = new int[sizeClassCount()];
   private final byte[] blockSizeClass = new byte[sizeClassCount()];
   private final int[] blockHeaderSize = new int[sizeClassCount()];
 
+  /** The number of pages of meta data per region asked for by the subclass */
+  private final int additionalMetadataPages;
+  /** Where the subclass meta data starts within each region, after our own */
+  private final Extent additionalMetadataOffset;
+
   /**
    * The caller specifies the region of virtual memory to be used for
    * this space.  If this region conflicts with an existing space,
    * then the constructor will fail.
    *
    * @param name The name of this space (used when printing error messages etc)
-   * @param additionalMetadata The number of meta data bytes per region for the subclass.
+   * @param additionalMetadata The number of meta data pages per region for the subclass.
    * @param vmRequest An object describing the virtual memory requested.
    */
   public SegregatedFreeListSpace(String name, int additionalMetadata, VMRequest vmRequest) {
@@ -109,6 +121,8 @@ public abstract class SegregatedFreeListSpace extends Space {
     } else {
       totalMetadata += META_DATA_PAGES_PER_REGION_NO_BITMAP;
     }
+    additionalMetadataPages = additionalMetadata;
+    additionalMetadataOffset = Conversions.pagesToBytes(totalMetadata - additionalMetadata);
     if (vmRequest.isDiscontiguous()) {
       pr = new FreeListPageResource(this, totalMetadata);
     } else {
@@ -116,6 +130,30 @@ public abstract class SegregatedFreeListSpace extends Space {
     }
   }
 
+  /**
+   * @return The offset within each region of the meta data pages asked
+   * for by the subclass
+   */
+  public final Extent getAdditionalMetadataOffset() {
+    return additionalMetadataOffset;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The meta data asked for by the subclass is zeroed in each new chunk,
+   * which may have been used by another space before.
+   */
+  @Override
+  public void growSpace(Address start, Extent bytes, boolean newChunk) {
+    super.growSpace(start, bytes, newChunk);
+    if (newChunk && additionalMetadataPages > 0) {
+      Address metadata = EmbeddedMetaData.getMetaDataBase(start).plus(additionalMetadataOffset);
+      HeapLayout.mmapper.ensureMapped(metadata, additionalMetadataPages);
+      VM.memory.zero(false, metadata, Conversions.pagesToBytes(additionalMetadataPages));
+    }
+  }
+
   /**
    * @return whether SegregatedFreeListSpace should manage a side bitmap
    *  to keep track of live objects
@@ -197,7 +235,33 @@ public abstract class SegregatedFreeListSpace extends Space {
       BlockAllocator.setNext(block, consumedBlockHead.get(sizeClass));
       consumedBlockHead.set(sizeClass, block);
     }
+    if (lazySweepPending) {
+      Extent blockSize = Extent.fromIntSignExtend(BlockAllocator.blockSize(blockSizeClass[sizeClass]));
+      while (!(block = unsweptBlockHead.get(sizeClass)).isZero()) {
+        unsweptBlockHead.set(sizeClass, BlockAllocator.getNext(block));
+        lock.release();
+
+        BlockAllocator.setNext(block, Address.zero());
+        if (containsLiveCell(block, blockSize, lazySweepClearMarks)) {
+          Address cell = advanceToBlock(block, sizeClass);
+          if (!cell.isZero()) {
+            freeList.set(sizeClass, cell);
+            return block;
+          }
+          lock.acquire();
+          BlockAllocator.setNext(block, consumedBlockHead.get(sizeClass));
+          consumedBlockHead.set(sizeClass, block);
+        } else {
+          BlockAllocator.free(this, block);
+          lock.acquire();
+        }
+      }
+    }
     lock.release();
+    if (lazySweepPending && VM.activePlan.global().getPagesAvail() < BlockAllocator.blockSize(blockSizeClass[sizeClass]) >> LOG_BYTES_IN_PAGE) {
+      /* Free the dead blocks of other size classes before the heap is deemed full */
+      sweepUnsweptBlocks();
+    }
     return expandSizeClass(sizeClass, freeList);
   }
 
@@ -522,6 +586,90 @@ public abstract class SegregatedFreeListSpace extends Space {
     }
   }
 
+  /**
+   * Leave the blocks of this collection for the allocator to sweep, rather
+   * than sweeping them in the pause. Blocks on the unswept lists are swept
+   * one at a time as {@link #getAllocationBlock(int, AddressArray)} runs
+   * out of available blocks.
+   *
+   * @param clearMarks should we clear block mark bits as we process.
+   */
+  protected final void deferSweep(boolean clearMarks) {
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(unsweptBlockHead.get(sizeClass).isZero());
+      Address head = consumedBlockHead.get(sizeClass);
+      Address block = flushedBlockHead.get(sizeClass);
+      while (!block.isZero()) {
+        Address next = BlockAllocator.getNext(block);
+        BlockAllocator.setNext(block, head);
+        head = block;
+        block = next;
+      }
+      unsweptBlockHead.set(sizeClass, head);
+      flushedBlockHead.set(sizeClass, Address.zero());
+      consumedBlockHead.set(sizeClass, Address.zero());
+    }
+    lazySweepClearMarks = clearMarks;
+    lazySweepPending = true;
+  }
+
+  /**
+   * Return the blocks the allocator did not get around to sweeping to the
+   * consumed lists, so that the collection about to start sweeps them.
+   * Their marks are a superset of the marks the collection will set, so
+   * the worst outcome is a dead block surviving one more collection.
+   */
+  protected final void reclaimUnsweptBlocks() {
+    lazySweepPending = false;
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      Address block = unsweptBlockHead.get(sizeClass);
+      unsweptBlockHead.set(sizeClass, Address.zero());
+      while (!block.isZero()) {
+        Address next = BlockAllocator.getNext(block);
+        BlockAllocator.setNext(block, consumedBlockHead.get(sizeClass));
+        consumedBlockHead.set(sizeClass, block);
+        block = next;
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Nothing else adds to the unswept lists until the next collection, so
+   * they stay empty once swept.
+   */
+  @Override
+  protected boolean completeDeferredSweep() {
+    if (!lazySweepPending) return false;
+    sweepUnsweptBlocks();
+    lazySweepPending = false;
+    return true;
+  }
+
+  /**
+   * Sweep all remaining unswept blocks, freeing the dead ones and making
+   * the others available. Called by mutators when the heap is nearly full.
+   */
+  private void sweepUnsweptBlocks() {
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      Extent blockSize = Extent.fromIntSignExtend(BlockAllocator.blockSize(blockSizeClass[sizeClass]));
+      lock.acquire();
+      Address block;
+      while (!(block = unsweptBlockHead.get(sizeClass)).isZero()) {
+        unsweptBlockHead.set(sizeClass, BlockAllocator.getNext(block));
+        lock.release();
+        Address availableHead = sweepBlock(block, sizeClass, blockSize, Address.zero(), lazySweepClearMarks);
+        lock.acquire();
+        if (!availableHead.isZero()) {
+          BlockAllocator.setNext(block, availableBlockHead.get(sizeClass));
+          availableBlockHead.set(sizeClass, block);
+        }
+      }
+      lock.release();
+    }
+  }
+
   /**
    * Sweeps a block, freeing it and adding to the list given by availableHead
    * if it contains no free objects.
@@ -237,6 +237,16 @@ public abstract class Space {
     return movable;
   }
 
+  /**
+   * @return {@code true} if the memory of this space should be backed by
+   * transparent huge pages (see {@link org.mmtk.utility.options.HugePages})
+   */
+  public boolean usesHugePages() {
+    int mode = Options.hugePages.getValue();
+    return mode == Options.hugePages.ALL ||
+        (mode == Options.hugePages.HEAP && !(this instanceof RawPageSpace));
+  }
+
   /** @return The number of reserved pages */
   public final int reservedPages() {
     return pr.reservedPages();
@@ -496,6 +506,32 @@ public abstract class Space {
    */
   public void growSpace(Address start, Extent bytes, boolean newChunk) {}
 
+  /**
+   * Finish any sweeping that this space left to its allocators after the
+   * last collection (see {@link org.mmtk.utility.options.DeferSweep}).
+   * Pages of dead blocks that are yet to be swept are still reserved.
+   *
+   * @return {@code true} if there was sweeping left to do
+   */
+  protected boolean completeDeferredSweep() {
+    return false;
+  }
+
+  /**
+   * Finish the sweeping that every space left to its allocators, so that
+   * the pages of dead blocks are released before the plan decides whether
+   * the heap is full.
+   *
+   * @return {@code true} if any space had sweeping left to do
+   */
+  public static boolean completeDeferredSweeps() {
+    boolean swept = false;
+    for (int i = 0; i < spaceCount; i++) {
+      if (spaces[i].completeDeferredSweep()) swept = true;
+    }
+    return swept;
+  }
+
   /**
    * Release one or more contiguous chunks associated with a discontiguous
    * space.
@@ -654,7 +690,7 @@ public abstract class Space {
           Log.write("->");
           Log.writeln(space.start.plus(space.extent.minus(1)));
         }
-        HeapLayout.mmapper.ensureMapped(space.start, bytesToPagesUp(space.extent));
+        HeapLayout.mmapper.ensureMapped(space.start, bytesToPagesUp(space.extent), space.usesHugePages());
       }
     }
   }
@@ -16,6 +16,7 @@ import static org.mmtk.utility.heap.layout.VMLayoutConstants.BYTES_IN_CHUNK;
 import static org.mmtk.policy.immix.ImmixConstants.*;
 import static org.mmtk.utility.Constants.*;
 
+import org.mmtk.plan.generational.CardTable;
 import org.mmtk.utility.Conversions;
 import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.vm.VM;
@@ -128,6 +129,16 @@ public class Chunk {
     return (rtn < 0) ? -rtn : rtn;
   }
 
+  static void setSweepEpoch(Address chunk, int value) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(chunk));
+    chunk.plus(SWEEP_EPOCH_OFFSET).store(value);
+  }
+
+  static int getSweepEpoch(Address chunk) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(chunk));
+    return chunk.plus(SWEEP_EPOCH_OFFSET).loadInt();
+  }
+
   static void resetLineMarksAndDefragStateTable(Address chunk, short threshold) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(chunk));
     Address markStateBase = Block.getBlockMarkStateAddress(chunk);
@@ -149,6 +160,8 @@ public class Chunk {
   private static final int HIGHWATER_BYTES = 1 << LOG_BYTES_IN_HIGHWATER_ENTRY;
   private static final int LOG_BYTES_IN_MAP_ENTRY = LOG_BYTES_IN_INT;
   private static final int MAP_BYTES = 1 << LOG_BYTES_IN_MAP_ENTRY;
+  private static final int SWEEP_EPOCH_BYTES = BYTES_IN_INT;
+  private static final int CARD_TABLE_BYTES = VM.config.CARD_TABLE ? CardTable.META_DATA_BYTES_PER_REGION : 0;
 
   /* byte offsets for each type of metadata */
   static final int LINE_MARK_TABLE_OFFSET = 0;
@@ -156,7 +169,10 @@ public class Chunk {
   static final int BLOCK_DEFRAG_STATE_TABLE_OFFSET = BLOCK_STATE_TABLE_OFFSET + Block.BLOCK_STATE_TABLE_BYTES;
   static final int HIGHWATER_OFFSET = BLOCK_DEFRAG_STATE_TABLE_OFFSET + Block.BLOCK_DEFRAG_STATE_TABLE_BYTES;
   static final int MAP_OFFSET = HIGHWATER_OFFSET + HIGHWATER_BYTES;
-  static final int METADATA_BYTES_PER_CHUNK = MAP_OFFSET + MAP_BYTES;
+  static final int SWEEP_EPOCH_OFFSET = MAP_OFFSET + MAP_BYTES;
+  /** The card table of a generational plan, see {@link CardTable} */
+  public static final int CARD_TABLE_OFFSET = (SWEEP_EPOCH_OFFSET + SWEEP_EPOCH_BYTES + BYTES_IN_WORD - 1) & ~(BYTES_IN_WORD - 1);
+  static final int METADATA_BYTES_PER_CHUNK = CARD_TABLE_OFFSET + CARD_TABLE_BYTES;
 
   /* FIXME we round the metadata up to block sizes just to ensure the underlying allocator gives us aligned requests */
   private static final int BLOCK_MASK = (1 << LOG_BYTES_IN_BLOCK) - 1;
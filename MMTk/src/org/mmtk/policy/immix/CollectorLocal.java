@@ -103,7 +103,12 @@ public final class CollectorLocal {
    * @param majorGC whether the collection was a full heap collection
    */
   public void release(boolean majorGC) {
-    sweepAllBlocks(majorGC);
+    if (immixSpace.isSweepDeferred()) {
+      /* The allocator sweeps each chunk before reusing it */
+      defrag.getAndZeroSpillMarkHistogram(VM.activePlan.collector().parallelWorkerOrdinal());
+    } else {
+      sweepAllBlocks(majorGC);
+    }
   }
 
   private void sweepAllBlocks(boolean majorGC) {
@@ -41,6 +41,8 @@ public class Defrag {
   private boolean defragSpaceExhausted = true;
   private int[][] spillMarkHistograms;
   private final int[] spillAvailHistogram = new int[SPILL_HISTOGRAM_BUCKETS];
+  /** Marks of the chunks swept by the allocator after a deferred sweep */
+  private final int[] lazySpillMarkHistogram = new int[SPILL_HISTOGRAM_BUCKETS];
   public static SizeCounter defragCleanBytesUsed = new SizeCounter("cleanUsed");
 
   /* verbose stats (used only on stats runs since they induce overhead when gathered) */
@@ -160,7 +162,7 @@ public class Defrag {
 
   private void establishDefragSpillThreshold(ChunkList chunkMap, ImmixSpace space) {
     int cleanLines = space.getAvailableLines(spillAvailHistogram);
-    int availableLines = cleanLines + availableCleanPagesForDefrag << (LOG_BYTES_IN_PAGE - LOG_BYTES_IN_LINE);
+    int availableLines = cleanLines + (availableCleanPagesForDefrag << (LOG_BYTES_IN_PAGE - LOG_BYTES_IN_LINE));
 
     int requiredLines = 0;
     short threshold = MAX_CONSV_SPILL_COUNT;
@@ -177,6 +179,7 @@ public class Defrag {
       int thisBucketMark = 0;
       int thisBucketAvail = 0;
       for (int c = 0; c < collectors; c++) thisBucketMark += spillMarkHistograms[c][threshold];
+      thisBucketMark += lazySpillMarkHistogram[threshold];
 
       thisBucketAvail = spillAvailHistogram[threshold];
       limit -= thisBucketAvail;
@@ -206,4 +209,14 @@ public class Defrag {
       rtn[i] = 0;
     return rtn;
   }
+
+  int[] getLazySpillMarkHistogram() {
+    return lazySpillMarkHistogram;
+  }
+
+  int[] getAndZeroLazySpillMarkHistogram() {
+    for (int i = 0; i < SPILL_HISTOGRAM_BUCKETS; i++)
+      lazySpillMarkHistogram[i] = 0;
+    return lazySpillMarkHistogram;
+  }
 }
@@ -67,10 +67,12 @@ public final class ImmixSpace extends Space {
           byte lineMarkState = RESET_LINE_MARK_STATE;
   private byte lineUnavailState = RESET_LINE_MARK_STATE;
   private boolean inCollection;
+  private boolean isAllocAsMarked = false;
   private int linesConsumed = 0;
 
   private final Lock mutatorLock = VM.newLock(getName() + "mutator");
   private final Lock gcLock = VM.newLock(getName() + "gc");
+  private final Lock sweepLock = VM.newLock(getName() + "sweep");
 
   private Address allocBlockCursor = Address.zero();
   private Address allocBlockSentinel = Address.zero();
@@ -79,6 +81,12 @@ public final class ImmixSpace extends Space {
   private final ChunkList chunkMap = new ChunkList();
   private final Defrag defrag;
 
+  /* deferred sweeping, see Options.deferSweep */
+  private boolean sweepDeferred;
+  private boolean lazySweepPending;
+  private byte lazySweepMarkValue;
+  private int sweepEpoch;
+
   /****************************************************************************
    *
    * Initialization
@@ -135,11 +143,19 @@ public final class ImmixSpace extends Space {
    * @param majorGC whether the collection will be a full heap collection
    */
   public void prepare(boolean majorGC) {
+    if (lazySweepPending && defrag.inDefrag()) {
+      /* Defragmentation decisions need every block swept */
+      sweepPendingChunks();
+    }
+    lazySweepPending = false;
     if (majorGC) {
       markState = ObjectHeader.deltaMarkState(markState, true);
         lineMarkState++;
         if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(lineMarkState <= MAX_LINE_MARK_STATE);
     }
+    /* Line marks are reset as they are swept when the mark state wraps, which can't wait */
+    sweepDeferred = Options.deferSweep.getValue() && !defrag.inDefrag() &&
+        !(majorGC && lineMarkState == MAX_LINE_MARK_STATE);
     chunkMap.reset();
     defrag.prepare(chunkMap, this);
     inCollection = true;
@@ -159,6 +175,12 @@ public final class ImmixSpace extends Space {
     }
     chunkMap.reset();
     defrag.globalRelease();
+    defrag.getAndZeroLazySpillMarkHistogram();
+    if (sweepDeferred) {
+      lazySweepMarkValue = lineMarkState;
+      sweepEpoch++;
+      lazySweepPending = true;
+    }
     inCollection = false;
 
     /* set up reusable space */
@@ -180,6 +202,56 @@ public final class ImmixSpace extends Space {
     return didDefrag;
   }
 
+  /**
+   * @return {@code true} if the blocks of the current collection are
+   *  swept by the allocator rather than by the collectors
+   */
+  boolean isSweepDeferred() {
+    return sweepDeferred;
+  }
+
+  /**
+   * Sweep a chunk left unswept by the last collection, if it hasn't been
+   * already. This must happen before any block in the chunk is reused,
+   * since the sweep would otherwise free blocks that were acquired since.
+   *
+   * @param chunk The chunk
+   */
+  private void ensureSwept(Address chunk) {
+    if (!lazySweepPending || Chunk.getSweepEpoch(chunk) == sweepEpoch) return;
+    sweepLock.acquire();
+    sweepChunk(chunk);
+    sweepLock.release();
+  }
+
+  private void sweepChunk(Address chunk) {
+    if (Chunk.getSweepEpoch(chunk) != sweepEpoch) {
+      Chunk.sweep(chunk, Chunk.getHighWater(chunk), this, defrag.getLazySpillMarkHistogram(), lazySweepMarkValue, false);
+      Chunk.setSweepEpoch(chunk, sweepEpoch);
+    }
+  }
+
+  @Override
+  protected boolean completeDeferredSweep() {
+    if (!lazySweepPending) return false;
+    sweepPendingChunks();
+    lazySweepPending = false;
+    return true;
+  }
+
+  /**
+   * Sweep every chunk left unswept by the last collection.
+   */
+  private void sweepPendingChunks() {
+    sweepLock.acquire();
+    Address chunk = chunkMap.firstChunk(0, 1);
+    while (!chunk.isZero()) {
+      sweepChunk(chunk);
+      chunk = chunkMap.nextChunk(chunk, 0, 1);
+    }
+    sweepLock.release();
+  }
+
   /**
    * Determine the collection kind.
    *
@@ -187,9 +259,11 @@ public final class ImmixSpace extends Space {
    * @param collectWholeHeap Is this a whole heap collection?
    * @param collectionAttempt Which attempt is this to collect?
    * @param userTriggeredCollection Was this collection requested by the user?
+   * @return {@code true} if this collection will defragment the space
    */
-  public void decideWhetherToDefrag(boolean emergencyCollection, boolean collectWholeHeap, int collectionAttempt, boolean userTriggeredCollection) {
+  public boolean decideWhetherToDefrag(boolean emergencyCollection, boolean collectWholeHeap, int collectionAttempt, boolean userTriggeredCollection) {
     defrag.decideWhetherToDefrag(emergencyCollection, collectWholeHeap, collectionAttempt, userTriggeredCollection, exhaustedReusableSpace);
+    return defrag.inDefrag();
   }
 
   /**
@@ -272,6 +346,11 @@ public final class ImmixSpace extends Space {
 
     linesConsumed += lineUseCount;
 
+    if (lazySweepPending && VM.activePlan.global().getPagesAvail() < PAGES_IN_BLOCK) {
+      /* Free the dead blocks before the heap is deemed full */
+      sweepPendingChunks();
+    }
+
     rtn = acquire(PAGES_IN_BLOCK);
 
     if (VM.VERIFY_ASSERTIONS) {
@@ -280,6 +359,7 @@ public final class ImmixSpace extends Space {
     }
 
     if (!rtn.isZero()) {
+      ensureSwept(Chunk.align(rtn));
       Block.setBlockAsInUse(rtn);
       Chunk.updateHighWater(rtn);
       if (VM.VERIFY_ASSERTIONS && Options.verbose.getValue() >= 9) {
@@ -301,6 +381,7 @@ public final class ImmixSpace extends Space {
       Address chunk = Conversions.chunkAlign(start.plus(bytes), true);
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Conversions.chunkAlign(start.plus(bytes), true).EQ(chunk));
       Chunk.clearMetaData(chunk);
+      Chunk.setSweepEpoch(chunk, sweepEpoch);
       chunkMap.addNewChunkToMap(chunk);
     }
   }
@@ -337,6 +418,7 @@ public final class ImmixSpace extends Space {
     }
     unlock();
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isRecycleAllocChunkAligned(rtn));
+    if (!rtn.isZero()) ensureSwept(Chunk.align(rtn));
     return rtn;
   }
 
@@ -358,11 +440,24 @@ public final class ImmixSpace extends Space {
    * {@inheritDoc}<p>
    *
    * This hook is called by the page level allocators whenever a
-   * complete discontiguous chunk is released.
+   * complete discontiguous chunk is released.  A chunk may be released by
+   * a deferred sweep while the allocators are walking the chunks for
+   * reusable blocks, so the walk is moved on past the chunk.
    */
   @Override
   public int releaseDiscontiguousChunks(Address chunk) {
+    lock();
+    boolean cursorInChunk = Chunk.align(allocBlockCursor).EQ(chunk);
+    boolean sentinelInChunk = Chunk.align(allocBlockSentinel).EQ(chunk);
+    if (cursorInChunk || sentinelInChunk) {
+      Address next = chunkMap.nextChunk(chunk);
+      if (cursorInChunk) allocBlockCursor = next;
+      if (sentinelInChunk) allocBlockSentinel = next;
+      if (next.isZero() || (cursorInChunk != sentinelInChunk && allocBlockCursor.EQ(allocBlockSentinel)))
+        exhaustedReusableSpace = true;
+    }
     chunkMap.removeChunkFromMap(chunk);
+    unlock();
     return super.releaseDiscontiguousChunks(chunk);
   }
 
@@ -379,9 +474,13 @@ public final class ImmixSpace extends Space {
   */
   @Inline
   public void postAlloc(ObjectReference object, int bytes) {
-    if (bytes > BYTES_IN_LINE)
-      ObjectHeader.markAsStraddling(object);
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(ObjectHeader.isNewObject(object));
+    if (isAllocAsMarked) {
+      ObjectHeader.writeMarkState(object, markState, bytes > BYTES_IN_LINE);
+      /* An object allocated while a (concurrent) trace is under way must keep its lines */
+      if (inCollection) markLines(object);
+    } else if (bytes > BYTES_IN_LINE)
+      ObjectHeader.markAsStraddling(object);
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!ForwardingWord.isForwardedOrBeingForwarded(object));
   }
 
@@ -767,6 +866,15 @@ public final class ImmixSpace extends Space {
     return Block.isDefragSource(address);
   }
 
+  /**
+   * Mark newly allocated objects as live, and if a collection is under
+   * way, mark their lines too.  This is required by concurrent collectors,
+   * which allow mutators to allocate while the trace is in progress.
+   */
+  public void makeAllocAsMarked() {
+    isAllocAsMarked = true;
+  }
+
 
   /****************************************************************************
    *
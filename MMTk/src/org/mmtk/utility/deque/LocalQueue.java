@@ -86,6 +86,26 @@ import org.vmmagic.unboxed.*;
     }
   }
 
+  /**
+   * Check whether there are values in the buffer for a pending dequeue,
+   * as for {@link #checkDequeue(int)}, but without waiting on the shared
+   * queue for other clients to either produce a buffer or reach
+   * exhaustion.
+   *
+   * @param arity The arity of the values stored in this queue: the
+   * buffer must contain enough space for this many words.
+   * @return whether there are values available for a dequeue
+   */
+  @Inline
+  protected final boolean checkDequeueNonBlocking(int arity) {
+    if (bufferOffset(head).isZero()) {
+      return dequeueUnderflowNonBlocking(arity);
+    } else {
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(bufferOffset(head).sGE(Word.fromIntZeroExtend(arity).lsh(LOG_BYTES_IN_ADDRESS).toOffset()));
+      return true;
+    }
+  }
+
   /**
    * Dequeue a value from the buffer.  This is <i>unchecked</i>.  The
    * caller must first call <code>checkDequeue()</code> to ensure the
@@ -156,4 +176,34 @@ import org.vmmagic.unboxed.*;
 
     return true;
   }
+
+  /**
+   * As for {@link #dequeueUnderflow(int)}, but if neither the shared
+   * queue nor the tail have entries, return false rather than waiting.
+   *
+   * @param arity The arity of this buffer (used for sanity test only).
+   * @return True if there the head buffer has been successfully
+   * replenished.
+   */
+  @NoInline
+  private boolean dequeueUnderflowNonBlocking(int arity) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == queue.getArity());
+    do {
+      if (head.NE(Deque.HEAD_INITIAL_VALUE))
+        queue.free(head);
+      head = queue.dequeue(arity);
+    } while (head.NE(Deque.HEAD_INITIAL_VALUE) && bufferOffset(head).isZero());
+
+    if (head.NE(Deque.HEAD_INITIAL_VALUE))
+      return true;
+
+    // Consume the tail if it has entries
+    if (tail.NE(tailBufferEnd)) {
+      head = normalizeTail(arity).plus(BYTES_IN_ADDRESS);
+      tail = Deque.TAIL_INITIAL_VALUE;
+      tailBufferEnd = Deque.TAIL_INITIAL_VALUE;
+      return true;
+    }
+    return false;
+  }
 }
@@ -96,6 +96,41 @@ import org.vmmagic.pragma.*;
     }
   }
 
+  /**
+   * Pop an object from the object queue without waiting for other
+   * consumers of the shared queue, return zero if neither this queue
+   * nor the shared queue have any entries.
+   *
+   * @return The next object in the object queue, or zero if there
+   * is no work immediately available
+   */
+  @Inline
+  public final ObjectReference popNonBlocking() {
+    if (checkDequeueNonBlocking(1)) {
+      return uncheckedDequeue().toObjectReference();
+    } else {
+      return ObjectReference.nullReference();
+    }
+  }
+
+  /**
+   * @return {@code true} if neither this queue nor the shared queue have
+   * any entries, without waiting for other consumers of the shared queue.
+   */
+  @Inline
+  public final boolean isEmptyNonBlocking() {
+    return !checkDequeueNonBlocking(1);
+  }
+
+  /**
+   * @return {@code true} if the shared queue holds buffers that other
+   * consumers have flushed.  This is an unsynchronized hint.
+   */
+  @Inline
+  public final boolean sharedWorkAvailable() {
+    return queue.enqueuedPages() > 0;
+  }
+
   @Inline
   public final boolean isEmpty() {
     return !checkDequeue(1);
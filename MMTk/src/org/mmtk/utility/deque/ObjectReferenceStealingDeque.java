@@ -0,0 +1,168 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.deque;
+
+import org.mmtk.vm.VM;
+
+import org.vmmagic.unboxed.*;
+import org.vmmagic.pragma.*;
+
+/**
+ * A work-stealing deque of object references, backed by an
+ * {@link ObjectReferenceDeque} that absorbs overflow.<p>
+ *
+ * Objects are pushed onto the local work-stealing deque while it has
+ * room, and onto the overflow deque (and hence the shared pool) when
+ * it does not.  When popping, local work is preferred, followed by the
+ * overflow deque and the shared pool, and finally work stolen from other
+ * collectors.  None of these wait on other collectors: once no work can
+ * be found, {@link #awaitWork()} detects termination of the trace.
+ */
+@Uninterruptible public class ObjectReferenceStealingDeque extends WorkStealingDeque {
+
+  /****************************************************************************
+   *
+   * Public instance methods
+   */
+
+  /**
+   * An idle collector spins for 2^round pause hints between polls of the
+   * pool, for rounds up to this bound, and yields its processor thereafter.
+   */
+  private static final int MAX_SPIN_ROUNDS = 10;
+
+  /** The human-readable name of this deque */
+  public final String name;
+
+  /** The deque to which work is spilled when this deque is full */
+  private final ObjectReferenceDeque overflow;
+
+  /**
+   * @param n human-readable name of the queue
+   * @param pool The pool through which idle collectors may steal work
+   * from this deque, and from which this deque steals work when empty.
+   * @param overflow The deque to use when this deque is full
+   */
+  public ObjectReferenceStealingDeque(String n, WorkStealingPool pool, ObjectReferenceDeque overflow) {
+    super(pool);
+    name = n;
+    this.overflow = overflow;
+  }
+
+  /**
+   * Push an object onto the deque.
+   *
+   * @param object the object to be pushed onto the deque
+   */
+  @Inline
+  public final void push(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!object.isNull());
+    if (!pushBottom(object.toAddress())) {
+      overflow.push(object);
+    }
+  }
+
+  /**
+   * Pop an object from the deque, stealing from another collector if
+   * there is no local work.  Return null if no work could be found.
+   *
+   * @return The next object to process, or null if no work was found
+   */
+  @Inline
+  public final ObjectReference pop() {
+    Address value = popBottom();
+    if (!value.isZero()) {
+      return value.toObjectReference();
+    }
+    ObjectReference object = overflow.popNonBlocking();
+    if (!object.isNull()) {
+      return object;
+    }
+    return popOOL();
+  }
+
+  /**
+   * Called when no work could be found.  Declare this collector idle and
+   * wait until either another collector has work that may be stolen, or
+   * every collector taking part in the trace is idle.<p>
+   *
+   * The pool is polled with exponential backoff: between polls the
+   * collector first spins on the VM's spin-wait hint for exponentially
+   * longer, then yields its processor, so that idle collectors neither
+   * saturate the cache lines of the pool nor starve busy collectors
+   * sharing their processors.
+   *
+   * @return {@code true} if there may be work to steal, {@code false} if
+   * the trace is complete.
+   */
+  @NoInline
+  public final boolean awaitWork() {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isLocallyEmpty());
+    int ordinal = VM.activePlan.collector().parallelWorkerOrdinal();
+    pool.enterIdle();
+    int round = 0;
+    while (!pool.isComplete()) {
+      if (pool.hasStealableWork(ordinal) || overflow.sharedWorkAvailable()) {
+        pool.leaveIdle();
+        return true;
+      }
+      if (round < MAX_SPIN_ROUNDS) {
+        for (int i = 0; i < (1 << round); i++) {
+          VM.memory.spinWaitHint();
+        }
+        round++;
+      } else {
+        VM.collection.yieldCollector();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Move all local entries onto the overflow deque and flush it, making
+   * this collector's work visible through the shared pool.
+   */
+  public final void flushLocal() {
+    Address value = popBottom();
+    while (!value.isZero()) {
+      overflow.push(value.toObjectReference());
+      value = popBottom();
+    }
+    overflow.flushLocal();
+  }
+
+  /**
+   * @return {@code true} if neither this deque nor the overflow deque hold
+   * any local work, and the shared pool is empty.  This never waits on
+   * other collectors.
+   */
+  @Inline
+  public final boolean isLocallyEmpty() {
+    return isEmpty() && overflow.isEmptyNonBlocking();
+  }
+
+  /****************************************************************************
+   *
+   * Private instance methods
+   */
+
+  /**
+   * Out of line slow path for {@link #pop()}: steal from another collector.
+   *
+   * @return The stolen object, or null
+   */
+  @NoInline
+  private ObjectReference popOOL() {
+    return pool.steal(VM.activePlan.collector().parallelWorkerOrdinal()).toObjectReference();
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.deque;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * A fixed-capacity, per-thread work-stealing deque in the style of
+ * Chase and Lev ("Dynamic Circular Work-Stealing Deque", SPAA 2005).<p>
+ *
+ * The owning thread pushes and pops entries at the <i>bottom</i> of the
+ * deque without any atomic operations, except when racing for the very
+ * last entry.  Other threads steal entries from the <i>top</i> of the
+ * deque using a compare-and-swap on the top index, so that each entry is
+ * handed out exactly once.<p>
+ *
+ * The deque lives in raw pages acquired from the {@link WorkStealingPool}'s
+ * page space: a header page holding the top and bottom indices (on
+ * separate cache lines), followed by a circular array of entries.  The
+ * deque does not grow; when it is full, {@link #pushBottom(Address)}
+ * fails and the caller is expected to spill work elsewhere (typically
+ * to a {@link SharedDeque}).<p>
+ *
+ * Thieves only ever see the address of the deque (via the pool), so all
+ * operations that a thief may perform are static.
+ */
+@Uninterruptible class WorkStealingDeque {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** log<sub>2</sub> of the number of pages of entries in each deque */
+  private static final int LOG_PAGES_OF_ENTRIES = 4;
+
+  /** Number of pages used for entries, excluding the header page */
+  private static final int PAGES_OF_ENTRIES = 1 << LOG_PAGES_OF_ENTRIES;
+
+  /** Total number of pages for a deque, including the header page */
+  static final int PAGES_PER_DEQUE = PAGES_OF_ENTRIES + 1;
+
+  /** The number of entries a deque can hold */
+  static final int CAPACITY = 1 << (LOG_PAGES_OF_ENTRIES + LOG_BYTES_IN_PAGE - LOG_BYTES_IN_ADDRESS);
+
+  /** Mask applied to an index to yield a slot in the circular array */
+  private static final int INDEX_MASK = CAPACITY - 1;
+
+  /** Offset of the top index, which is advanced by thieves (and the owner) */
+  private static final Offset TOP_OFFSET = Offset.zero();
+
+  /**
+   * Offset of the bottom index, which only the owner writes. Kept on a
+   * different cache line from the top index to avoid false sharing.
+   */
+  private static final Offset BOTTOM_OFFSET = Offset.fromIntZeroExtend(128);
+
+  /** Offset of the first entry, after the header page */
+  private static final Offset ENTRIES_OFFSET = Offset.fromIntZeroExtend(BYTES_IN_PAGE);
+
+  /****************************************************************************
+   *
+   * Instance variables
+   */
+
+  /** The pool through which other threads may steal from this deque */
+  protected final WorkStealingPool pool;
+
+  /** The start of the raw memory holding this deque, or zero if not yet allocated */
+  private Address deque = Address.zero();
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * @param pool The pool through which idle threads may steal from this deque
+   */
+  WorkStealingDeque(WorkStealingPool pool) {
+    this.pool = pool;
+  }
+
+  /****************************************************************************
+   *
+   * Owner operations
+   */
+
+  /**
+   * Make this deque visible to thieves in the pool, under the parallel
+   * worker ordinal of the current collector.  The deque must be
+   * (re-)registered each time a new trace is started by its owner, as
+   * collector contexts from different groups may share an ordinal.
+   */
+  public final void register() {
+    if (!deque.isZero()) {
+      pool.register(VM.activePlan.collector().parallelWorkerOrdinal(), deque);
+    }
+  }
+
+  /**
+   * Push a value onto the bottom of the deque.
+   *
+   * @param value The value to push (must be non-zero)
+   * @return {@code false} if the deque is full and the value was not pushed
+   */
+  @Inline
+  protected final boolean pushBottom(Address value) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!value.isZero());
+    if (deque.isZero()) {
+      allocate();
+    }
+    int b = bottom(deque);
+    int t = top(deque);
+    if (b - t >= CAPACITY) {
+      return false;
+    }
+    slot(deque, b).store(value);
+    VM.memory.fence();   // The entry must be visible before the new bottom
+    deque.store(b + 1, BOTTOM_OFFSET);
+    return true;
+  }
+
+  /**
+   * Pop a value from the bottom of the deque.
+   *
+   * @return The value, or zero if the deque is empty (or the last
+   * value was lost to a thief)
+   */
+  @Inline
+  protected final Address popBottom() {
+    if (deque.isZero()) {
+      return Address.zero();
+    }
+    int b = bottom(deque) - 1;
+    deque.store(b, BOTTOM_OFFSET);
+    VM.memory.fence();   // Publish the new bottom before reading top
+    int t = top(deque);
+    if (t > b) {
+      /* Empty: restore the canonical empty state */
+      deque.store(t, BOTTOM_OFFSET);
+      return Address.zero();
+    }
+    Address value = slot(deque, b).loadAddress();
+    if (t == b) {
+      /* Last entry: race any thieves for it */
+      if (!advanceTop(deque, t)) {
+        value = Address.zero();
+      }
+      deque.store(t + 1, BOTTOM_OFFSET);
+    }
+    return value;
+  }
+
+  /**
+   * @return {@code true} if this deque holds no entries.  This is only
+   * reliable when called by the owner.
+   */
+  @Inline
+  public final boolean isEmpty() {
+    return deque.isZero() || bottom(deque) - top(deque) <= 0;
+  }
+
+  /**
+   * Release the memory used by this deque, withdrawing it from the
+   * pool.  The deque must be empty, and no thread may be attempting to
+   * steal from it (i.e. the trace this deque takes part in is complete).
+   */
+  public void reset() {
+    if (!deque.isZero()) {
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isEmpty());
+      pool.deregister(VM.activePlan.collector().parallelWorkerOrdinal(), deque);
+      pool.free(deque);
+      deque = Address.zero();
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Thief operations
+   */
+
+  /**
+   * Attempt to steal a value from the top of a deque.
+   *
+   * @param deque The start address of the deque to steal from
+   * @return The stolen value, or zero if the deque was empty or another
+   * thread won the race for the top entry.
+   */
+  static Address steal(Address deque) {
+    int t = deque.prepareInt(TOP_OFFSET);
+    VM.memory.fence();   // Read top before bottom
+    int b = bottom(deque);
+    if (b - t <= 0) {
+      return Address.zero();
+    }
+    Address value = slot(deque, t).loadAddress();
+    if (!deque.attempt(t, t + 1, TOP_OFFSET)) {
+      return Address.zero();
+    }
+    return value;
+  }
+
+  /**
+   * @param deque The start address of a deque
+   * @return {@code true} if the deque appears to hold no entries.  This
+   * is an unsynchronized hint when called by a thief.
+   */
+  @Inline
+  static boolean isEmpty(Address deque) {
+    return bottom(deque) - top(deque) <= 0;
+  }
+
+  /****************************************************************************
+   *
+   * Private methods
+   */
+
+  /**
+   * Acquire and initialize the memory for this deque, and make it
+   * available to thieves.
+   */
+  private void allocate() {
+    Address rtn = pool.alloc();
+    rtn.store(0, TOP_OFFSET);
+    rtn.store(0, BOTTOM_OFFSET);
+    deque = rtn;
+    register();
+  }
+
+  /**
+   * Advance the top index from <code>t</code> to <code>t + 1</code>.
+   *
+   * @param deque The deque
+   * @param t The expected current value of the top index
+   * @return {@code true} if the top index was advanced by this thread
+   */
+  @Inline
+  private static boolean advanceTop(Address deque, int t) {
+    int old = deque.prepareInt(TOP_OFFSET);
+    return old == t && deque.attempt(t, t + 1, TOP_OFFSET);
+  }
+
+  @Inline
+  private static int top(Address deque) {
+    return deque.loadInt(TOP_OFFSET);
+  }
+
+  @Inline
+  private static int bottom(Address deque) {
+    return deque.loadInt(BOTTOM_OFFSET);
+  }
+
+  /**
+   * @param deque The deque
+   * @param index A top or bottom index
+   * @return The address of the entry corresponding to the given index
+   */
+  @Inline
+  private static Address slot(Address deque, int index) {
+    return deque.plus(ENTRIES_OFFSET).plus((index & INDEX_MASK) << LOG_BYTES_IN_ADDRESS);
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.deque;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.policy.RawPageSpace;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.options.Options;
+import org.mmtk.vm.Lock;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * The global rendezvous point for a set of {@link WorkStealingDeque}s.<p>
+ *
+ * Each parallel collector registers its deque under its parallel worker
+ * ordinal, and a collector that has run out of local work visits the
+ * other registered deques in turn, stealing from the first one that has
+ * work available.  The registry is a single page of deque addresses,
+ * allocated the first time any deque is registered, so no locking is
+ * required on the steal path.<p>
+ *
+ * The pool also detects termination of the trace: a collector that can
+ * neither find local work nor steal any declares itself idle, and then
+ * waits until either some victim's deque (or the shared pool) has work,
+ * in which case it becomes active again and retries, or every collector
+ * taking part is idle.  Only active collectors hold or produce work, so
+ * once all are idle the trace is complete.<p>
+ *
+ * With {@link Options#numaAware} the NUMA node of each collector is noted
+ * when it registers, and thieves try the deques of collectors on their
+ * own node before going further afield.
+ */
+@Uninterruptible
+public class WorkStealingPool {
+
+  /** The maximum number of deques (i.e. parallel collectors) that may take part */
+  private static final int MAX_DEQUES = BYTES_IN_PAGE >>> LOG_BYTES_IN_ADDRESS;
+
+  /****************************************************************************
+   *
+   * Public instance methods
+   */
+
+  /**
+   * @param rps the space to get pages from
+   */
+  public WorkStealingPool(RawPageSpace rps) {
+    this.rps = rps;
+    lock = VM.newLock("WorkStealingPool");
+  }
+
+  /**
+   * Prepare for a new trace in which a given number of collectors take
+   * part.  This must be called while no collector is tracing.
+   *
+   * @param consumers The number of collectors that must be idle for the
+   * trace to be complete
+   */
+  public final void prepare(int consumers) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(consumers > 0);
+    this.consumers = consumers;
+    idle = 0;
+  }
+
+  /**
+   * Prepare for a new trace in which all parallel collectors take part.
+   */
+  public final void prepare() {
+    prepare(VM.activePlan.collector().parallelWorkerCount());
+  }
+
+  /**
+   * Attempt to steal a value from a deque other than the thief's own.
+   * Victims are visited in ordinal order, starting with the one after
+   * the thief, so that thieves spread themselves across victims.
+   *
+   * @param thief The parallel worker ordinal of the stealing thread
+   * @return The stolen value, or zero if no work could be stolen
+   */
+  public final Address steal(int thief) {
+    Address table = registry;
+    if (table.isZero()) {
+      return Address.zero();
+    }
+    int workers = VM.activePlan.collector().parallelWorkerCount();
+    if (Options.numaAware.getValue()) {
+      Address value = steal(table, thief, workers, nodes[thief]);
+      if (!value.isZero()) {
+        return value;
+      }
+    }
+    return steal(table, thief, workers, ANY_NODE);
+  }
+
+  /**
+   * Visit the victims in turn, stealing from the first that has work.
+   *
+   * @param table The registry
+   * @param thief The parallel worker ordinal of the stealing thread
+   * @param workers The number of parallel workers
+   * @param node Only visit victims on this NUMA node, or {@link #ANY_NODE}
+   * @return The stolen value, or zero if no work could be stolen
+   */
+  private Address steal(Address table, int thief, int workers, int node) {
+    for (int i = 1; i < workers; i++) {
+      int victim = thief + i;
+      if (victim >= workers) victim -= workers;
+      if (node != ANY_NODE && nodes[victim] != node) continue;
+      Address deque = table.loadAddress(slot(victim));
+      if (!deque.isZero()) {
+        Address value = WorkStealingDeque.steal(deque);
+        if (!value.isZero()) {
+          return value;
+        }
+      }
+    }
+    return Address.zero();
+  }
+
+  /**
+   * @param thief The parallel worker ordinal of the calling thread
+   * @return {@code true} if a deque other than the thief's own appears to
+   * have work.  This is an unsynchronized hint: a subsequent steal may
+   * still fail.
+   */
+  public final boolean hasStealableWork(int thief) {
+    Address table = registry;
+    if (table.isZero()) {
+      return false;
+    }
+    int workers = VM.activePlan.collector().parallelWorkerCount();
+    for (int i = 1; i < workers; i++) {
+      int victim = thief + i;
+      if (victim >= workers) victim -= workers;
+      Address deque = table.loadAddress(slot(victim));
+      if (!deque.isZero() && !WorkStealingDeque.isEmpty(deque)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Declare the calling collector idle: it has no local work, and will
+   * neither produce nor steal work until it calls {@link #leaveIdle()}.
+   */
+  public final void enterIdle() {
+    lock.acquire();
+    idle++;
+    lock.release();
+  }
+
+  /**
+   * Declare the calling collector active again, having seen that there
+   * may be work to steal.
+   */
+  public final void leaveIdle() {
+    lock.acquire();
+    idle--;
+    lock.release();
+  }
+
+  /**
+   * @return {@code true} if every collector taking part in the trace is
+   * idle, and hence no work remains anywhere.
+   */
+  @Inline
+  public final boolean isComplete() {
+    return idle >= consumers;
+  }
+
+  /****************************************************************************
+   *
+   * Package-private methods used by WorkStealingDeque
+   */
+
+  /**
+   * Register a deque under a given ordinal, replacing any previous
+   * registration.
+   *
+   * @param ordinal The parallel worker ordinal of the deque's owner
+   * @param deque The start address of the deque
+   */
+  final void register(int ordinal, Address deque) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(ordinal >= 0 && ordinal < MAX_DEQUES);
+    if (registry.isZero()) {
+      createRegistry();
+    }
+    if (Options.numaAware.getValue()) {
+      nodes[ordinal] = VM.memory.currentNumaNode();
+    }
+    registry.store(deque, slot(ordinal));
+    VM.memory.fence();
+  }
+
+  /**
+   * Withdraw a deque from the pool, if it is the one currently
+   * registered under the given ordinal.
+   *
+   * @param ordinal The parallel worker ordinal of the deque's owner
+   * @param deque The start address of the deque
+   */
+  final void deregister(int ordinal, Address deque) {
+    if (!registry.isZero() && registry.loadAddress(slot(ordinal)).EQ(deque)) {
+      registry.store(Address.zero(), slot(ordinal));
+    }
+  }
+
+  /** @return A newly acquired, uninitialized, region for a deque */
+  @Inline
+  final Address alloc() {
+    Address rtn = rps.acquire(WorkStealingDeque.PAGES_PER_DEQUE);
+    if (rtn.isZero()) {
+      Space.printUsageMB();
+      VM.assertions.fail("Failed to allocate space for work-stealing deque.  Is metadata virtual memory exhausted?");
+    }
+    return rtn;
+  }
+
+  /**
+   * Release the memory of a deque
+   *
+   * @param deque The start address of the deque
+   */
+  @Inline
+  final void free(Address deque) {
+    rps.release(deque);
+  }
+
+  /****************************************************************************
+   *
+   * Private instance methods and fields
+   */
+
+  /** Raw page space from which to allocate */
+  private final RawPageSpace rps;
+
+  /** Lock used to create the registry and to count idle collectors */
+  private final Lock lock;
+
+  /** The number of collectors taking part in the current trace */
+  private volatile int consumers = 1;
+
+  /** The number of collectors that have run out of work */
+  private volatile int idle;
+
+  /** Page of deque addresses, indexed by parallel worker ordinal */
+  private volatile Address registry = Address.zero();
+
+  /** NUMA node of each registered collector, indexed by parallel worker ordinal */
+  private final int[] nodes = new int[MAX_DEQUES];
+
+  /** Passed to {@link #steal(Address, int, int, int)} to visit every victim */
+  private static final int ANY_NODE = -1;
+
+  /**
+   * Acquire and zero the page used to record registered deques.  Several
+   * collectors may race to do this, so it is done under a lock.
+   */
+  private void createRegistry() {
+    lock.acquire();
+    if (registry.isZero()) {
+      Address table = rps.acquire(1);
+      if (table.isZero()) {
+        Space.printUsageMB();
+        VM.assertions.fail("Failed to allocate registry for work-stealing pool.");
+      }
+      VM.memory.zero(false, table, Extent.fromIntZeroExtend(BYTES_IN_PAGE));
+      VM.memory.fence();
+      registry = table;
+    }
+    lock.release();
+  }
+
+  /**
+   * @param ordinal A parallel worker ordinal
+   * @return The offset of that worker's entry in the registry
+   */
+  @Inline
+  private static Offset slot(int ordinal) {
+    return Offset.fromIntZeroExtend(ordinal << LOG_BYTES_IN_ADDRESS);
+  }
+}
@@ -22,7 +22,10 @@ import org.mmtk.vm.VM;
 import org.vmmagic.pragma.*;
 
 /**
- * This context concurrently zeroes a space when triggered.
+ * This context concurrently zeroes a space when triggered.<p>
+ *
+ * Zeroing writes to the pages in blocks, but it never remaps them or
+ * hands them back to the OS, so it does not split huge pages.
  */
 @Uninterruptible
 public class ConcurrentZeroingContext extends CollectorContext {
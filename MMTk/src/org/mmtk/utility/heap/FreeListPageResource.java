@@ -181,7 +181,8 @@ public final class FreeListPageResource extends PageResource {
       commitPages(reservedPages, requiredPages);
       space.growSpace(rtn, bytes, newChunk);
       unlock();
-      HeapLayout.mmapper.ensureMapped(rtn, requiredPages);
+      HeapLayout.mmapper.ensureMapped(rtn, requiredPages, space.usesHugePages());
+      placeOnLocalNode(rtn, requiredPages);
       if (zeroed)
         VM.memory.zero(zeroNT, rtn, bytes);
       VM.events.tracePageAcquired(space, rtn, requiredPages);
@@ -205,6 +206,8 @@ public final class FreeListPageResource extends PageResource {
     int pageOffset = Conversions.bytesToPages(first.diff(start));
 
     int pages = freeList.size(pageOffset);
+    // The pages stay mapped and committed, so huge pages are not split;
+    // memory only goes back to the OS a whole chunk at a time.
     if (VM.config.ZERO_PAGES_ON_RELEASE)
       VM.memory.zero(false, first, Conversions.pagesToBytes(pages));
     /* Can't use protect here because of the chunk sizes involved!
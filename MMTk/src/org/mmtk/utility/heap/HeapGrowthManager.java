@@ -16,6 +16,8 @@ import static org.mmtk.utility.Constants.*;
 
 import org.mmtk.plan.Plan;
 import org.mmtk.utility.*;
+import org.mmtk.utility.heap.layout.HeapLayout;
+import org.mmtk.utility.heap.layout.VMLayoutConstants;
 import org.mmtk.utility.options.Options;
 
 import org.mmtk.vm.VM;
@@ -25,7 +27,11 @@ import org.vmmagic.unboxed.*;
 
 /**
  * This class is responsible for growing and shrinking the
- * heap size by observing heap utilization and GC load.
+ * heap size by observing heap utilization and GC load.<p>
+ *
+ * When a pause goal is given (see {@link org.mmtk.utility.options.PauseGoal})
+ * the nursery is instead sized from the measured pauses, and the heap
+ * from a target GC load.
  */
 @Uninterruptible public abstract class HeapGrowthManager {
 
@@ -87,6 +93,36 @@ import org.vmmagic.unboxed.*;
   private static long endLastMajorGC;
   private static double accumulatedGCTime;
 
+  /*
+   * Heap sizing to a pause goal.  The nursery is sized to meet the pause
+   * goal, then the heap to meet the GC time target; once the target is
+   * comfortably met the heap shrinks slowly to reduce its footprint.
+   * Full heap pauses scale with the live set rather than the heap size,
+   * so shrinking the heap would not bring them towards the goal, only
+   * make collections more frequent.
+   */
+
+  /** Weight of the latest pause in the decaying pause averages */
+  private static final double PAUSE_WEIGHT = 0.5;
+  /** Heap change ratio when the GC time target is comfortably met */
+  private static final double FOOTPRINT_SHRINK = 0.95;
+  /** Largest heap change ratio when too much time is spent collecting */
+  private static final double MAX_GROWTH = 1.5;
+  /** Smallest nursery change ratio when nursery pauses are over the goal */
+  private static final double MIN_NURSERY_SHRINK = 0.5;
+  /** Nursery change ratio when too much time is spent collecting */
+  private static final double NURSERY_GROWTH = 1.2;
+
+  /** The time taken by the last GC, in milliseconds */
+  private static double lastGCTime;
+  /** Decaying average of the nursery collection pauses, in milliseconds */
+  private static double averageNurseryPause;
+  /** Decaying average of the full heap collection pauses, in milliseconds */
+  private static double averageFullHeapPause;
+
+  /** The thread returning idle memory to the OS, or {@code null} if disabled */
+  private static UncommitContext uncommitContext;
+
   /**
    * Initialize heap size parameters and the mechanisms
    * used to adaptively change heap size.
@@ -151,6 +187,7 @@ import org.vmmagic.unboxed.*;
    */
   public static void recordGCTime(double time) {
     accumulatedGCTime += time;
+    lastGCTime = time;
   }
 
   /**
@@ -161,6 +198,42 @@ import org.vmmagic.unboxed.*;
     accumulatedGCTime = 0;
   }
 
+  /**
+   * Start returning the memory of chunks that stay free to the OS
+   * (see {@link org.mmtk.utility.options.UncommitIdleCollections}).
+   */
+  @Interruptible
+  public static void enableUncommit() {
+    uncommitContext = new UncommitContext();
+    VM.collection.spawnCollectorContext(uncommitContext);
+  }
+
+  /**
+   * Called at the end of each collection.  Wake the uncommit thread,
+   * if there is one.
+   */
+  public static void considerUncommit() {
+    if (uncommitContext != null) uncommitContext.trigger();
+  }
+
+  /**
+   * Return the memory of idle free chunks to the OS.  Free chunks beyond
+   * what the current heap size leaves for allocation can't be used
+   * before the heap grows, so they are returned without waiting for
+   * them to become idle.
+   */
+  static void uncommitIdleMemory() {
+    Extent reserved = Plan.reservedMemory();
+    Extent headroom = currentHeapSize.GT(reserved) ? currentHeapSize.minus(reserved) : Extent.zero();
+    int retainedChunks = headroom.toWord().rshl(VMLayoutConstants.LOG_BYTES_IN_CHUNK).toInt();
+    int chunks = HeapLayout.vmMap.uncommitFreeChunks(Options.uncommitIdleCollections.getValue(), retainedChunks);
+    if (chunks > 0 && Options.verbose.getValue() >= 2) {
+      Log.write("GC Message: Uncommitted ");
+      Log.write(chunks << (VMLayoutConstants.LOG_BYTES_IN_CHUNK - LOG_BYTES_IN_KBYTE));
+      Log.writeln("KB of free heap memory");
+    }
+  }
+
   /**
    * Decide how to grow/shrink the heap to respond
    * to application's memory usage.
@@ -170,7 +243,7 @@ import org.vmmagic.unboxed.*;
     Extent oldSize = currentHeapSize;
     Extent reserved = Plan.reservedMemory();
     double liveRatio = reserved.toLong() / ((double) currentHeapSize.toLong());
-    double ratio = computeHeapChangeRatio(liveRatio);
+    double ratio = pauseGoalSizing() ? computePauseGoalRatio() : computeHeapChangeRatio(liveRatio);
     Extent newSize = Word.fromIntSignExtend((int)(ratio * (oldSize.toLong() >> LOG_BYTES_IN_MBYTE))).lsh(LOG_BYTES_IN_MBYTE).toExtent(); // do arith in MB to avoid overflow
     if (newSize.LT(reserved)) newSize = reserved;
     newSize = newSize.plus(BYTES_IN_MBYTE - 1).toWord().rshl(LOG_BYTES_IN_MBYTE).lsh(LOG_BYTES_IN_MBYTE).toExtent(); // round to next megabyte
@@ -192,6 +265,94 @@ import org.vmmagic.unboxed.*;
     }
   }
 
+  /**
+   * @return {@code true} if the heap and nursery are sized to a pause
+   * goal rather than by the live ratio and GC load tables
+   */
+  private static boolean pauseGoalSizing() {
+    return Options.pauseGoal.getMicroseconds() > 0;
+  }
+
+  /**
+   * @param average the current average, or zero if there is none yet
+   * @param sample the latest sample
+   * @return the average updated with the latest sample
+   */
+  private static double decay(double average, double sample) {
+    return average == 0 ? sample : average + PAUSE_WEIGHT * (sample - average);
+  }
+
+  /**
+   * @return the fraction of time spent collecting since the last major GC
+   */
+  private static double gcLoad() {
+    double totalTime = VM.statistics.nanosToMillis(VM.statistics.nanoTime() - endLastMajorGC);
+    double gcLoad = accumulatedGCTime / totalTime;
+    return gcLoad > 1 ? 1 : gcLoad;
+  }
+
+  /**
+   * Decide how to resize the nursery after a nursery collection when
+   * sizing to a pause goal.  The nursery shrinks while its pauses are over
+   * the goal, and grows back towards the bound set by the user while the
+   * pauses leave room and too much time is spent collecting.
+   */
+  public static void considerNurserySize() {
+    if (!pauseGoalSizing()) return;
+    averageNurseryPause = decay(averageNurseryPause, lastGCTime);
+    double goal = Options.pauseGoal.getMicroseconds() / 1000.0;
+    double target = Options.gcTimeRatio.getValue() / 100.0;
+    int oldPages = Options.nurserySize.getMaxNursery();
+    int newPages = oldPages;
+    if (averageNurseryPause > goal) {
+      double factor = goal / averageNurseryPause;
+      newPages = (int) (oldPages * (factor < MIN_NURSERY_SHRINK ? MIN_NURSERY_SHRINK : factor));
+    } else if (averageNurseryPause < goal * 0.8 && gcLoad() > target) {
+      newPages = (int) (oldPages * NURSERY_GROWTH);
+    }
+    if (newPages != oldPages) {
+      Options.nurserySize.setAdaptiveMaxNursery(newPages);
+      if (Options.verbose.getValue() >= 2) {
+        Log.write("GC Message: Nursery changed from ");
+        Log.write(oldPages << (LOG_BYTES_IN_PAGE - LOG_BYTES_IN_KBYTE));
+        Log.write("KB to ");
+        Log.write(Options.nurserySize.getMaxNursery() << (LOG_BYTES_IN_PAGE - LOG_BYTES_IN_KBYTE));
+        Log.writeln("KB");
+      }
+    }
+  }
+
+  /**
+   * Compute the heap change ratio after a full heap collection when
+   * sizing to a pause goal.  The heap is sized by the GC load alone: the
+   * pause goal only steers the nursery (see {@link #considerNurserySize()}).
+   *
+   * @return the ratio by which to change the heap size
+   */
+  private static double computePauseGoalRatio() {
+    averageFullHeapPause = decay(averageFullHeapPause, lastGCTime);
+    double target = Options.gcTimeRatio.getValue() / 100.0;
+    double gcLoad = gcLoad();
+    double factor;
+    if (gcLoad > target) {
+      factor = gcLoad / target;
+      if (factor > MAX_GROWTH) factor = MAX_GROWTH;
+    } else if (gcLoad < target / 2) {
+      factor = FOOTPRINT_SHRINK;
+    } else {
+      factor = 1;
+    }
+    if (Options.verbose.getValue() > 2) {
+      Log.write("Full heap pause ");
+      Log.writeln(averageFullHeapPause);
+      Log.write("GCLoad     ");
+      Log.writeln(gcLoad);
+      Log.write("Heap adjustment factor is ");
+      Log.writeln(factor);
+    }
+    return factor;
+  }
+
   private static double computeHeapChangeRatio(double liveRatio) {
     // (1) compute GC load.
     long totalNanos = VM.statistics.nanoTime() - endLastMajorGC;
@@ -113,6 +113,15 @@ public final class MonotonePageResource extends PageResource {
     return rtn;
   }
 
+  /**
+   * @return The address above the last page allocated from this
+   * resource.  Only meaningful for contiguous resources.
+   */
+  public Address getHighWater() {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(contiguous);
+    return cursor;
+  }
+
   /**
    * Allocate <code>pages</code> pages from this resource.  Simply
    * bump the cursor, and fail if we hit the sentinel.<p>
@@ -130,6 +139,7 @@ public final class MonotonePageResource extends PageResource {
   @Inline
   protected Address allocPages(int reservedPages, int requiredPages, boolean zeroed) {
     boolean newChunk = false;
+    int unadjustedPages = requiredPages;
     lock();
     Address rtn = cursor;
 
@@ -163,11 +173,16 @@ public final class MonotonePageResource extends PageResource {
 
     if (!contiguous && tmp.GT(sentinel)) {
       /* we're out of virtual memory within our discontiguous region, so ask for more */
+      if (metaDataPagesPerRegion != 0) {
+        /* the new chunk starts a new region, which needs only its own metadata */
+        requiredPages = unadjustedPages + metaDataPagesPerRegion;
+        bytes = Conversions.pagesToBytes(requiredPages);
+      }
       int requiredChunks = Space.requiredChunks(requiredPages);
       currentChunk = space.growDiscontiguousSpace(requiredChunks); // Returns zero on failure
       cursor = currentChunk;
       sentinel = cursor.plus(currentChunk.isZero() ? 0 : requiredChunks << VMLayoutConstants.LOG_BYTES_IN_CHUNK);
-      rtn = cursor;
+      rtn = cursor.plus(Conversions.pagesToBytes(metaDataPagesPerRegion));
       tmp = cursor.plus(bytes);
       newChunk = true;
     }
@@ -187,7 +202,8 @@ public final class MonotonePageResource extends PageResource {
       commitPages(reservedPages, requiredPages);
       space.growSpace(old, bytes, newChunk);
       unlock();
-      HeapLayout.mmapper.ensureMapped(old, requiredPages);
+      HeapLayout.mmapper.ensureMapped(old, requiredPages, space.usesHugePages());
+      placeOnLocalNode(old, requiredPages);
       if (zeroed) {
         if (!zeroConcurrent) {
           VM.memory.zero(zeroNT, old, bytes);
@@ -0,0 +1,103 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.heap;
+
+import org.mmtk.utility.Conversions;
+import org.mmtk.utility.heap.layout.HeapLayout;
+import org.mmtk.utility.statistics.Stats;
+
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * The NUMA placement state of one mutator or collector.<p>
+ *
+ * Looking up the node of the current processor and binding pages to it
+ * both take a system call.  This caches the node, looking it up again
+ * only after every collection and every {@link #NODE_REFRESH_PLACEMENTS}
+ * placements.<p>
+ *
+ * Pages are bound a whole space chunk at a time.  Each binding with a
+ * different policy splits the mapping, so binding single blocks would
+ * soon run into the OS limit on the number of mappings, and would split
+ * huge pages.  This also remembers the run of chunks this thread has
+ * bound to the node, growing it while acquisitions are adjacent, so that
+ * pages the thread acquires again within that run are not bound again.<p>
+ *
+ * The cached range is only a hint: another thread may have bound some
+ * of its chunks to another node since.  The range is forgotten at every
+ * collection, which is when most pages change hands.
+ */
+@Uninterruptible
+public final class NumaPlacement {
+
+  /** The number of placements after which the current node is looked up again */
+  private static final int NODE_REFRESH_PLACEMENTS = 64;
+
+  /** The node this thread was last seen on */
+  private int node;
+
+  /** The number of placements left before the node is looked up again */
+  private int placementsUntilRefresh = 0;
+
+  /** The collection during which the node was last looked up */
+  private int gcCount = -1;
+
+  /** The start of the pages last bound to {@code node} by this thread */
+  private Address boundStart = Address.zero();
+
+  /** The end of the pages last bound to {@code node} by this thread */
+  private Address boundEnd = Address.zero();
+
+  /**
+   * Place newly acquired pages, and the rest of the chunks they are in,
+   * on the node of the current thread.
+   *
+   * @param start The start of the pages
+   * @param pages The number of pages
+   * @param hugePages Were the pages mapped with huge pages?
+   */
+  void place(Address start, int pages, boolean hugePages) {
+    if (placementsUntilRefresh == 0 || gcCount != Stats.gcCount()) {
+      int current = VM.memory.currentNumaNode();
+      if (current != node || gcCount != Stats.gcCount()) {
+        node = current;
+        boundStart = Address.zero();
+        boundEnd = Address.zero();
+      }
+      gcCount = Stats.gcCount();
+      placementsUntilRefresh = NODE_REFRESH_PLACEMENTS;
+    }
+    placementsUntilRefresh--;
+
+    Address end = Conversions.chunkAlign(start.plus(Conversions.pagesToBytes(pages)), false);
+    start = Conversions.chunkAlign(start, true);
+    if (start.GE(boundStart) && end.LE(boundEnd)) {
+      return;
+    }
+    // the chunks belong to the space, but only the acquired pages need be mapped yet
+    int chunkPages = Conversions.bytesToPages(end.diff(start));
+    HeapLayout.mmapper.ensureMapped(start, chunkPages, hugePages);
+    VM.memory.numaBind(start, end.diff(start).toInt(), node);
+    if (start.EQ(boundEnd)) {
+      boundEnd = end;
+    } else if (end.EQ(boundStart)) {
+      boundStart = start;
+    } else {
+      boundStart = start;
+      boundEnd = end;
+    }
+  }
+}
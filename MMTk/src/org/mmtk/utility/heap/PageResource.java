@@ -46,6 +46,8 @@ public abstract class PageResource {
   private static final Lock classLock;
   /** cumulative count of pages ever committed */
   private static long cumulativeCommitted = 0;
+  /** number of NUMA nodes pages are placed on, or 0 if pages are not placed */
+  private static int numaNodes = 0;
 
 
   /****************************************************************************
@@ -216,6 +218,47 @@ public abstract class PageResource {
     VM.assertions.fail("This PageResource does not implement concurrent zeroing");
   }
 
+  /**
+   * Place pages on the NUMA node of the thread that acquires them from
+   * now on, provided the system has more than one node.
+   */
+  public static void enableNumaPlacement() {
+    int nodes = VM.memory.numaNodes();
+    numaNodes = nodes > 1 ? nodes : 0;
+  }
+
+  /**
+   * Place newly allocated pages on the NUMA node of the current thread,
+   * if NUMA placement is enabled.  This is done before the pages are
+   * zeroed so that fresh pages are faulted in on the right node.
+   *
+   * @param start The start of the pages
+   * @param pages The number of pages
+   */
+  @Inline
+  protected final void placeOnLocalNode(Address start, int pages) {
+    if (numaNodes != 0) {
+      placeOnLocalNodeOOL(start, pages);
+    }
+  }
+
+  /**
+   * Out of line slow path for {@link #placeOnLocalNode}, which goes
+   * through the placement state of the current mutator or collector.
+   * Whole chunks are bound (see {@link NumaPlacement}), so huge pages,
+   * which never cross a chunk boundary, are not split.
+   *
+   * @param start The start of the pages
+   * @param pages The number of pages
+   */
+  @NoInline
+  private void placeOnLocalNodeOOL(Address start, int pages) {
+    NumaPlacement placement = VM.activePlan.isMutator() ?
+        VM.activePlan.mutator().getNumaPlacement() :
+        VM.activePlan.collector().getNumaPlacement();
+    placement.place(start, pages, space.usesHugePages());
+  }
+
   abstract Address allocPages(int reservedPages, int requiredPages, boolean zeroed);
 
   /**
@@ -0,0 +1,63 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.heap;
+
+import org.mmtk.utility.Log;
+import org.mmtk.plan.CollectorContext;
+import org.mmtk.utility.options.Options;
+import org.mmtk.vm.Monitor;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This context returns the memory of idle free chunks to the operating
+ * system after each collection, off the collection's critical path.
+ */
+@Uninterruptible
+public class UncommitContext extends CollectorContext {
+
+  private final Monitor lock;
+  private boolean trigger;
+
+  public UncommitContext() {
+    this.lock = VM.newHeavyCondLock("UncommitLock");
+  }
+
+  /**
+   * Ask for an uncommit pass.  Requests made while a pass is pending
+   * are folded into it.
+   */
+  public void trigger() {
+    lock.lock();
+    trigger = true;
+    lock.broadcast();
+    lock.unlock();
+  }
+
+  @Override
+  public void run() {
+    if (Options.verbose.getValue() >= 2) {
+      Log.writeln("UncommitThread running");
+    }
+    while (true) {
+      lock.lock();
+      while (!trigger) {
+        lock.await();
+      }
+      trigger = false;
+      lock.unlock();
+      HeapGrowthManager.uncommitIdleMemory();
+    }
+  }
+}
@@ -136,7 +136,12 @@ public final class ByteMapMmapper extends Mmapper {
    * @param pages The size of the range to be mapped, in pages
    */
   @Override
-  public void ensureMapped(Address start, int pages) {
+  public void ensureMapped(Address start, int pages, boolean hugePages) {
+    if (hugePages) {
+      Address end = hugePageAlignUp(start.plus(Conversions.pagesToBytes(pages)));
+      start = hugePageAlignDown(start);
+      pages = Conversions.bytesToPages(end.diff(start));
+    }
     int startChunk = addressToMmapChunksDown(start);
     int endChunk = addressToMmapChunksUp(start.plus(Conversions.pagesToBytes(pages)));
     for (int chunk = startChunk; chunk < endChunk; chunk++) {
@@ -158,6 +163,7 @@ public final class ByteMapMmapper extends Mmapper {
             Log.write("  ", mmapStart);
             Log.writeln(" with len = ", MMAP_CHUNK_BYTES);
           }
+          if (hugePages) adviseHugePages(mmapStart);
         }
       }
       if (mapped[chunk] == PROTECTED) {
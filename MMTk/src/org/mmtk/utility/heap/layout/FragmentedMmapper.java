@@ -379,8 +379,13 @@ public final class FragmentedMmapper extends Mmapper {
    * @param pages The size of the range to be mapped, in pages
    */
   @Override
-  public void ensureMapped(Address start, int pages) {
+  public void ensureMapped(Address start, int pages, boolean hugePages) {
     if (STATS) mapCounter.inc();
+    if (hugePages) {
+      Address end = hugePageAlignUp(start.plus(Conversions.pagesToBytes(pages)));
+      start = hugePageAlignDown(start);
+      pages = Conversions.bytesToPages(end.diff(start));
+    }
     final Address end = start.plus(Conversions.pagesToBytes(pages));
     if (VERBOSE) {
       Log.write("Ensuring [", start);
@@ -431,6 +436,7 @@ public final class FragmentedMmapper extends Mmapper {
               Log.write("  ", mmapStart);
               Log.writeln(" with len = ", MMAP_CHUNK_BYTES);
             }
+            if (hugePages) adviseHugePages(mmapStart);
           }
         }
         if (mapped[chunk] == PROTECTED) {
@@ -106,6 +106,19 @@ public abstract class Map {
    */
   public abstract int freeContiguousChunks(Address start);
 
+  /**
+   * Return the memory of free chunks to the operating system.  A free
+   * chunk is uncommitted once it has stayed free for the given number of
+   * collections, or straight away while more than {@code retainedChunks}
+   * free chunks are still committed.
+   *
+   * @param idleCollections The number of collections a chunk may stay free
+   * before it is uncommitted
+   * @param retainedChunks The number of free chunks that may stay committed
+   * @return The number of chunks uncommitted
+   */
+  public abstract int uncommitFreeChunks(int idleCollections, int retainedChunks);
+
   /**
    * Finalize the space map, establishing which virtual memory
    * is nailed down, and then placing the rest into a map to
@@ -22,6 +22,7 @@ import org.mmtk.utility.IntArrayFreeList;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.heap.FreeListPageResource;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.Stats;
 import org.mmtk.vm.Lock;
 import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Inline;
@@ -59,6 +60,13 @@ public final class Map32 extends Map {
   private final FreeListPageResource[] sharedFLMap;
   private int totalAvailableDiscontiguousChunks = 0;
 
+  /**
+   * For each free chunk whose memory is still committed, one more than the
+   * number of collections when it was freed; zero for all other chunks
+   */
+  private final int[] releasedAt;
+  private int committedFreeChunks = 0;
+
   private boolean finalized = false;
 
   private final Lock lock = VM.newLock("Map lock");
@@ -76,6 +84,7 @@ public final class Map32 extends Map {
     prevLink = new int[VMLayoutConstants.MAX_CHUNKS];
     nextLink = new int[VMLayoutConstants.MAX_CHUNKS];
     spaceMap = new Space[VMLayoutConstants.MAX_CHUNKS];
+    releasedAt = new int[VMLayoutConstants.MAX_CHUNKS];
     regionMap = new IntArrayFreeList(VMLayoutConstants.MAX_CHUNKS);
     globalPageMap = new IntArrayFreeList(1, 1, HeapParameters.MAX_SPACES);
     sharedFLMap = new FreeListPageResource[HeapParameters.MAX_SPACES];
@@ -162,6 +171,12 @@ public final class Map32 extends Map {
       return Address.zero();
     }
     totalAvailableDiscontiguousChunks -= chunks;
+    for (int offset = 0; offset < chunks; offset++) {
+      if (releasedAt[chunk + offset] != 0) {
+        releasedAt[chunk + offset] = 0;
+        committedFreeChunks--;
+      }
+    }
     Address rtn = addressForChunkIndex(chunk);
     insert(rtn, Extent.fromIntZeroExtend(chunks << LOG_BYTES_IN_CHUNK), descriptor, space);
     if (head.isZero()) {
@@ -267,10 +282,36 @@ public final class Map32 extends Map {
     for (int offset = 0; offset < chunks; offset++) {
       descriptorMap[chunk + offset] = 0;
       VM.barriers.objectArrayStoreNoGCBarrier(spaceMap, chunk + offset, null);
+      releasedAt[chunk + offset] = Stats.gcCount() + 1;
     }
+    committedFreeChunks += chunks;
     return chunks;
   }
 
+  /**
+   * {@inheritDoc}<p>
+   * The lock is taken for one chunk at a time so that spaces growing
+   * meanwhile are not held up for the whole pass.
+   */
+  @Override
+  public int uncommitFreeChunks(int idleCollections, int retainedChunks) {
+    int now = Stats.gcCount() + 1;
+    int uncommitted = 0;
+    for (int chunk = 0; chunk < VMLayoutConstants.MAX_CHUNKS && committedFreeChunks > 0; chunk++) {
+      if (releasedAt[chunk] == 0) continue;
+      lock.acquire();
+      int released = releasedAt[chunk];
+      if (released != 0 && (now - released >= idleCollections || committedFreeChunks > retainedChunks)) {
+        HeapLayout.mmapper.uncommit(addressForChunkIndex(chunk), VMLayoutConstants.PAGES_IN_CHUNK);
+        releasedAt[chunk] = 0;
+        committedFreeChunks--;
+        uncommitted++;
+      }
+      lock.release();
+    }
+    return uncommitted;
+  }
+
   /**
    * Finalize the space map, establishing which virtual memory
    * is nailed down, and then placing the rest into a map to
@@ -227,6 +227,14 @@ public final class Map64 extends Map {
     return 0;
   }
 
+  /**
+   * No chunks are ever freed in this layout, so there is nothing to uncommit.
+   */
+  @Override
+  public int uncommitFreeChunks(int idleCollections, int retainedChunks) {
+    return 0;
+  }
+
   /**
    * Finalize the space map, which requires initializing all the
    * raw memory free lists.
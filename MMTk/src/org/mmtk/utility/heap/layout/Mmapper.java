@@ -12,6 +12,8 @@
  */
 package org.mmtk.utility.heap.layout;
 
+import org.mmtk.utility.Conversions;
+import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.Address;
@@ -25,6 +27,10 @@ public abstract class Mmapper {
   protected static final int MMAP_CHUNK_BYTES = 1 << VMLayoutConstants.LOG_MMAP_CHUNK_BYTES;   // the granularity VMResource operates at
   protected static final int MMAP_CHUNK_MASK = MMAP_CHUNK_BYTES - 1;
 
+  /** The size of a transparent huge page */
+  public static final int LOG_HUGE_PAGE_BYTES = 21;
+  protected static final int HUGE_PAGE_MASK = (1 << LOG_HUGE_PAGE_BYTES) - 1;
+
   /****************************************************************************
    * Generic mmap and protection functionality
    */
@@ -59,7 +65,21 @@ public abstract class Mmapper {
    * @param start The start of the range to be mapped.
    * @param pages The size of the range to be mapped, in pages
    */
-  public abstract void ensureMapped(Address start, int pages);
+  public final void ensureMapped(Address start, int pages) {
+    ensureMapped(start, pages, false);
+  }
+
+  /**
+   * Ensure that a range of pages is mmapped (or equivalent), optionally
+   * backed by transparent huge pages.  Huge pages are only used for
+   * chunks mapped by this call; the range is widened to whole huge pages
+   * so that they are mapped together.
+   *
+   * @param start The start of the range to be mapped.
+   * @param pages The size of the range to be mapped, in pages
+   * @param hugePages Should newly mapped chunks use huge pages?
+   */
+  public abstract void ensureMapped(Address start, int pages, boolean hugePages);
 
   /**
    * Is the page occupied by this object mapped ?
@@ -83,6 +103,66 @@ public abstract class Mmapper {
    */
   public abstract void protect(Address start, int pages);
 
+  /**
+   * Return the physical memory behind a range of pages to the OS.  The
+   * mapped parts of the range stay mapped and read as zero when next
+   * touched, so the range can be reused without remapping it.<p>
+   *
+   * Adjacent mapped mmap chunks are released with a single call.  Releasing
+   * half of a huge page would split it, so callers release whole space
+   * chunks, which are made of whole huge pages.
+   *
+   * @param start Address of the first page to be uncommitted
+   * @param pages Number of pages to be uncommitted
+   */
+  public void uncommit(Address start, int pages) {
+    Address end = start.plus(Conversions.pagesToBytes(pages));
+    Address runStart = Address.zero();
+    for (Address mmapStart = chunkAlignDown(start); mmapStart.LT(end); mmapStart = mmapStart.plus(MMAP_CHUNK_BYTES)) {
+      if (addressIsMapped(mmapStart)) {
+        if (runStart.isZero()) runStart = mmapStart;
+      } else if (!runStart.isZero()) {
+        VM.memory.uncommit(runStart, mmapStart.diff(runStart).toInt());
+        runStart = Address.zero();
+      }
+    }
+    if (!runStart.isZero()) {
+      VM.memory.uncommit(runStart, chunkAlignUp(end).diff(runStart).toInt());
+    }
+  }
+
+  /**
+   * Ask for a newly mapped mmap chunk to be backed by huge pages.  This is
+   * only advice, and is ignored where the OS does not support it.
+   *
+   * @param mmapStart The start of the chunk
+   */
+  protected static void adviseHugePages(Address mmapStart) {
+    VM.memory.adviseHugePages(mmapStart, MMAP_CHUNK_BYTES);
+  }
+
+  /**
+   * Return a given address rounded up to a huge page
+   *
+   * @param addr The address to be aligned
+   * @return The given address rounded up to a huge page
+   */
+  @Inline
+  public static Address hugePageAlignUp(Address addr) {
+    return hugePageAlignDown(addr.plus(HUGE_PAGE_MASK));
+  }
+
+  /**
+   * Return a given address rounded down to a huge page
+   *
+   * @param addr The address to be aligned
+   * @return The given address rounded down to a huge page
+   */
+  @Inline
+  public static Address hugePageAlignDown(Address addr) {
+    return addr.toWord().and(Word.fromIntSignExtend(HUGE_PAGE_MASK).not()).toAddress();
+  }
+
   /**
    * Return a given address rounded up to an mmap chunk size
    *
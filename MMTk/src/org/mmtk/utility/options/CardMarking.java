@@ -0,0 +1,32 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * Should generational collectors remember mature space slots that refer
+ * to the nursery by marking cards rather than in a sequential store buffer?
+ * The mature spaces only have a card table (see
+ * {@link org.mmtk.plan.generational.CardTable}) when MMTk is built with
+ * {@link org.mmtk.plan.generational.Gen#USE_CARD_TABLE}; otherwise this
+ * option is ignored and the remembered set is used.
+ */
+public final class CardMarking extends org.vmutil.options.BooleanOption {
+  /**
+   * Create the option.
+   */
+  public CardMarking() {
+    super(Options.set, "Card Marking",
+          "Remember mature slots that refer to the nursery by marking cards",
+          false);
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The percentage of time that may be spent collecting when sizing the
+ * heap to a pause goal (see {@link PauseGoal}).
+ */
+public final class GCTimeRatio extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public GCTimeRatio() {
+    super(Options.set, "GC Time Ratio",
+          "Target percentage of time spent collecting when sizing to a pause goal",
+          5);
+  }
+
+  /**
+   * Only accept values between 1 and 99 (inclusive)
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value <= 0, "GC time ratio must be between 1 and 99");
+    failIf(this.value >= 100, "GC time ratio must be between 1 and 99");
+  }
+}
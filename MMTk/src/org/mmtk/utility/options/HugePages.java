@@ -0,0 +1,39 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * Which spaces to back with transparent huge pages.  "heap" covers
+ * every space except the raw page spaces that hold collector metadata.
+ * Protecting released pages protects single mmap chunks, which splits
+ * huge pages, so it should not be combined with this option.
+ */
+@Uninterruptible
+public final class HugePages extends org.vmutil.options.EnumOption {
+
+  public final int NONE = 0;
+  public final int HEAP = 1;
+  public final int ALL = 2;
+
+  /**
+   * Create the option.
+   */
+  public HugePages() {
+    super(Options.set, "Huge Pages",
+          "Which spaces to back with transparent huge pages",
+          new String[] {"none", "heap", "all"},
+          "none");
+  }
+}
@@ -23,6 +23,9 @@ public final class NurserySize {
   private final FixedNursery fixedNursery;
   private final BoundedNursery boundedNursery;
 
+  /** Upper bound on the nursery size set by the heap sizing policy, or zero */
+  private int adaptivePages;
+
   /**
    * Create the options.
    */
@@ -38,7 +41,20 @@ public final class NurserySize {
    */
   @Uninterruptible
   public int getMaxNursery() {
-    return boundedNursery.getPages();
+    return adaptivePages > 0 ? adaptivePages : boundedNursery.getPages();
+  }
+
+  /**
+   * Set the upper bound of the nursery size, within the fixed and bounded
+   * sizes given by the user.
+   *
+   * @param pages the new upper bound, in pages
+   */
+  @Uninterruptible
+  public void setAdaptiveMaxNursery(int pages) {
+    int min = getMinNursery();
+    int max = boundedNursery.getPages();
+    adaptivePages = pages < min ? min : (pages > max ? max : pages);
   }
 
   /**
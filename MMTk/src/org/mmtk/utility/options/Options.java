@@ -21,6 +21,8 @@ public final class Options {
   public static OptionSet set;
 
   /* Other options */
+  public static AdaptiveNursery adaptiveNursery;
+  public static CardMarking cardMarking;
   public static ConcurrentTrigger concurrentTrigger;
   public static CycleFilterThreshold cycleFilterThreshold;
   public static CycleMetaDataLimit cycleMetaDataLimit;
@@ -35,6 +37,7 @@ public final class Options {
   public static DefragLineReuseRatio defragLineReuseRatio;
   public static DefragSimpleSpillThreshold defragSimpleSpillThreshold;
   public static DefragStress defragStress;
+  public static DeferSweep deferSweep;
   public static EagerCompleteSweep eagerCompleteSweep;
   public static EagerMmapSpaces eagerMmapSpaces;
   public static FragmentationStats fragmentationStats;
@@ -43,28 +46,36 @@ public final class Options {
   public static GCspyTileSize gcspyTileSize;
   public static GCspyWait gcspyWait;
   public static GCTimeCap gcTimeCap;
+  public static GCTimeRatio gcTimeRatio;
   public static GenCycleDetection genCycleDetection;
   public static HarnessAll harnessAll;
+  public static HugePages hugePages;
   public static IgnoreSystemGC ignoreSystemGC;
   public static LineReuseRatio lineReuseRatio;
   public static MarkSweepMarkBits markSweepMarkBits;
   public static MetaDataLimit metaDataLimit;
   public static NoFinalizer noFinalizer;
   public static NoReferenceTypes noReferenceTypes;
+  public static NumaAware numaAware;
   public static NurserySize nurserySize;
+  public static PauseGoal pauseGoal;
   public static PerfEvents perfEvents;
+  public static PretenureSurvivalRatio pretenureSurvivalRatio;
   public static PretenureThresholdFraction pretenureThresholdFraction;
   public static PrintPhaseStats printPhaseStats;
   public static ProtectOnRelease protectOnRelease;
   public static SanityCheck sanityCheck;
   public static StressFactor stressFactor;
+  public static TenuringThreshold tenuringThreshold;
   public static Threads threads;
   public static TraceRate traceRate;
+  public static UncommitIdleCollections uncommitIdleCollections;
   public static UseReturnBarrier useReturnBarrier;
   public static UseShortStackScans useShortStackScans;
   public static VariableSizeHeap variableSizeHeap;
   public static VerboseFragmentationStats verboseFragmentationStats;
   public static Verbose verbose;
   public static VerboseTiming verboseTiming;
+  public static WorkStealing workStealing;
   public static XmlStats xmlStats;
 }
@@ -0,0 +1,29 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * Size the nursery to keep collection pauses below this goal, and the
+ * heap to the GC time target (see {@link GCTimeRatio}).  Zero keeps the
+ * default heap sizing policy.
+ */
+public final class PauseGoal extends org.vmutil.options.MicrosecondsOption {
+  /**
+   * Create the option.
+   */
+  public PauseGoal() {
+    super(Options.set, "Pause Goal",
+          "Size the nursery to keep collection pauses below this goal (0 to disable)",
+          0);
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * Generational collectors sample the survival of nursery objects by
+ * allocation site, and advise the VM to allocate objects from a site
+ * directly into the mature space once at least this fraction of its
+ * sampled objects have survived a collection.  Zero disables sampling.
+ */
+public final class PretenureSurvivalRatio extends org.vmutil.options.FloatOption {
+  /**
+   * Create the option.
+   */
+  public PretenureSurvivalRatio() {
+    super(Options.set, "Pretenure Survival Ratio",
+          "Pretenure allocation sites whose sampled objects survive at least this often (0 to disable)",
+          0.0f);
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf((this.value < 0 || this.value > 1.0), "Ratio must be a float between 0 and 1");
+  }
+}
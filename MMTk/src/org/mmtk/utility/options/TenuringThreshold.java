@@ -0,0 +1,37 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The number of nursery collections an object may survive before it is
+ * promoted into the mature space.  A threshold of one promotes every
+ * object that survives its first nursery collection.
+ */
+public final class TenuringThreshold extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public TenuringThreshold() {
+    super(Options.set, "Tenuring Threshold",
+          "Promote nursery objects after surviving this many nursery collections (1 to 4)",
+          1);
+  }
+
+  /**
+   * Only accept values the object age bits can hold.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 1 || this.value > 4, "Tenuring threshold must be between 1 and 4");
+  }
+}
@@ -125,4 +125,11 @@ import org.vmmagic.pragma.*;
    * Fail with an out of memory error.
    */
   public abstract void outOfMemory();
+
+  /**
+   * Give up the processor of the calling collector thread for a while,
+   * letting other threads run.  Called by collectors that have no work
+   * and have been waiting for some time.
+   */
+  public abstract void yieldCollector();
 }
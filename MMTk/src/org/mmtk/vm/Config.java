@@ -25,10 +25,14 @@ public class Config {
   /** Zero pages on release? */
   public final boolean ZERO_PAGES_ON_RELEASE;
 
+  /** Give the mature spaces of the generational plans a card table? */
+  public final boolean CARD_TABLE;
+
   Config(BuildTimeConfig config) {
     ACTIVE_PLAN            = config.getPlanName();
     HEADER_MARK_BITS        = config.getBooleanProperty("mmtk.headerMarkBit",true);
     ZERO_PAGES_ON_RELEASE  = config.getBooleanProperty("mmtk.zeroPagesOnRelease",false);
+    CARD_TABLE             = config.getBooleanProperty("mmtk.cardTable",false);
   }
 
   public void printConfig() {
@@ -37,6 +41,7 @@ public class Config {
     Log.writeln(ACTIVE_PLAN);
     Log.writeln("HEADER_MARK_BITS = ", HEADER_MARK_BITS);
     Log.writeln("ZERO_PAGES_ON_RELEASE = ", ZERO_PAGES_ON_RELEASE);
+    Log.writeln("CARD_TABLE = ", CARD_TABLE);
     Log.writeln("====================================================");
   }
 
@@ -45,6 +50,7 @@ public class Config {
     Xml.configItem("plan",ACTIVE_PLAN);
     Xml.configItem("header-mark-bit",HEADER_MARK_BITS);
     Xml.configItem("zero-pages-on-release",ZERO_PAGES_ON_RELEASE);
+    Xml.configItem("card-table",CARD_TABLE);
     Log.writeln("</config>");
   }
 }
@@ -97,6 +97,52 @@ import org.vmmagic.pragma.*;
    */
   public abstract boolean munprotect(Address start, int size);
 
+  /**
+   * @return the number of NUMA nodes, 1 if the system is not NUMA or
+   * the VM can't tell
+   */
+  public abstract int numaNodes();
+
+  /**
+   * @return the NUMA node of the processor the current thread is running on
+   */
+  public abstract int currentNumaNode();
+
+  /**
+   * Asks for an area of virtual memory to be placed on a NUMA node,
+   * moving any pages already placed elsewhere.
+   *
+   * @param start the address of the start of the area
+   * @param size the size, in bytes, of the area
+   * @param node the NUMA node
+   * @return <code>true</code> if successful, otherwise
+   * <code>false</code>
+   */
+  public abstract boolean numaBind(Address start, int size, int node);
+
+  /**
+   * Asks for an area of virtual memory to be backed by huge pages where
+   * the operating system supports it.
+   *
+   * @param start the address of the start of the area
+   * @param size the size, in bytes, of the area
+   * @return <code>true</code> if successful, otherwise
+   * <code>false</code>
+   */
+  public abstract boolean adviseHugePages(Address start, int size);
+
+  /**
+   * Returns the physical memory behind an area of virtual memory to the
+   * operating system.  The area stays mapped and reads as zero when it is
+   * next touched.
+   *
+   * @param start the address of the start of the area
+   * @param size the size, in bytes, of the area
+   * @return <code>true</code> if successful, otherwise
+   * <code>false</code>
+   */
+  public abstract boolean uncommit(Address start, int size);
+
 
   /**
    * Zero a region of memory.
@@ -134,6 +180,14 @@ import org.vmmagic.pragma.*;
   @Inline
   public abstract void combinedLoadBarriers();
 
+  /**
+   * Tells the processor that the calling thread is spinning, waiting for
+   * another thread to change memory, so that it can save power and give
+   * way to hyperthreads sharing its core.
+   */
+  @Inline
+  public abstract void spinWaitHint();
+
   /*
    * NOTE: The following methods must be implemented by subclasses of this
    * class, but are internal to the VM<->MM interface glue, so are never
@@ -21,6 +21,7 @@ import org.jikesrvm.adaptive.util.CompilerAdvice;
 import org.jikesrvm.architecture.StackFrameLayout;
 import org.jikesrvm.classloader.Atom;
 import org.jikesrvm.classloader.BootstrapClassLoader;
+import org.jikesrvm.classloader.ClassPreloader;
 import org.jikesrvm.classloader.JMXSupport;
 import org.jikesrvm.classloader.RVMClass;
 import org.jikesrvm.classloader.RVMClassLoader;
@@ -31,6 +32,7 @@ import org.jikesrvm.classloader.TypeDescriptorParsing;
 import org.jikesrvm.classloader.TypeReference;
 import org.jikesrvm.compilers.baseline.BaselineCompiler;
 import org.jikesrvm.compilers.common.BootImageCompiler;
+import org.jikesrvm.compilers.common.CompiledMethods;
 import org.jikesrvm.compilers.common.RuntimeCompiler;
 import org.jikesrvm.mm.mminterface.MemoryManager;
 import org.jikesrvm.runtime.BootRecord;
@@ -452,6 +454,10 @@ public class VM extends Properties {
       runClassInitializer("java.util.logging.LogManager");
     }
 
+    // Index the compiled code so instruction addresses can be mapped to methods.
+    //
+    CompiledMethods.boot();
+
     // Initialize compiler that compiles dynamically loaded classes.
     //
     if (verboseBoot >= 1) VM.sysWriteln("Initializing runtime compiler");
@@ -491,6 +497,11 @@ public class VM extends Properties {
     RVMClassLoader.getApplicationClassLoader();
     RVMClassLoader.declareApplicationClassLoaderIsReady();
 
+    if (VM.ClassPreloadFile != null) {
+      if (verboseBoot >= 1) VM.sysWriteln("Starting class preloading threads");
+      ClassPreloader.boot(VM.ClassPreloadFile);
+    }
+
     if (verboseBoot >= 1) {
       VM.sysWriteln("Turning back on security checks.  Letting people see the ApplicationClassLoader.");
     }
@@ -25,6 +25,7 @@ import org.jikesrvm.adaptive.measurements.RuntimeMeasurements;
 import org.jikesrvm.adaptive.measurements.instrumentation.Instrumentation;
 import org.jikesrvm.adaptive.measurements.organizers.Organizer;
 import org.jikesrvm.adaptive.recompilation.CompilationThread;
+import org.jikesrvm.adaptive.recompilation.ProfileCache;
 import org.jikesrvm.adaptive.recompilation.instrumentation.CounterBasedSampling;
 import org.jikesrvm.adaptive.util.AOSLogging;
 import org.jikesrvm.adaptive.util.AOSOptions;
@@ -182,6 +183,9 @@ public class Controller implements Callbacks.ExitMonitor,
 
     CounterBasedSampling.boot(options);
 
+    // boot the persistent profile cache, if one was requested
+    ProfileCache.boot();
+
     createControllerThread();
 
     Controller controller = new Controller();
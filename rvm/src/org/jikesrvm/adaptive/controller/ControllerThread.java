@@ -24,6 +24,7 @@ import org.jikesrvm.adaptive.measurements.organizers.DecayOrganizer;
 import org.jikesrvm.adaptive.measurements.organizers.DynamicCallGraphOrganizer;
 import org.jikesrvm.adaptive.measurements.organizers.MethodSampleOrganizer;
 import org.jikesrvm.adaptive.measurements.organizers.Organizer;
+import org.jikesrvm.adaptive.measurements.organizers.PretenureOrganizer;
 import org.jikesrvm.adaptive.recompilation.CompilationThread;
 import org.jikesrvm.adaptive.recompilation.CompilerDNA;
 import org.jikesrvm.adaptive.recompilation.InvocationCounts;
@@ -31,6 +32,7 @@ import org.jikesrvm.adaptive.util.AOSExternalOptions;
 import org.jikesrvm.adaptive.util.AOSGenerator;
 import org.jikesrvm.adaptive.util.AOSLogging;
 import org.jikesrvm.adaptive.util.AOSOptions;
+import org.jikesrvm.mm.mminterface.AllocationSites;
 import org.jikesrvm.scheduler.SoftLatch;
 import org.jikesrvm.scheduler.SystemThread;
 import org.vmmagic.pragma.NonMoving;
@@ -269,6 +271,10 @@ public final class ControllerThread extends SystemThread {
         Controller.organizers.add(decayOrganizer);
         createDynamicCallGraphOrganizer();
       }
+      // Recompile optimized methods whose allocation sites are pretenured
+      if (AllocationSites.isSampling()) {
+        Controller.organizers.add(new PretenureOrganizer(new YieldCounterListener(PretenureOrganizer.YIELD_FREQUENCY)));
+      }
     }
 
     if ((!opts.ENABLE_PRECOMPILE) && (!opts.ENABLE_BULK_COMPILE)) {
@@ -0,0 +1,67 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.adaptive.controller;
+
+import org.jikesrvm.adaptive.recompilation.CompilerDNA;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.compilers.common.CompiledMethod;
+
+/**
+ * Event used by the pretenure organizer to notify the controller that
+ * an allocation site in an optimized method has been advised to
+ * pretenure.  The method is recompiled at the same opt level so that
+ * the site allocates directly into the mature space.
+ */
+public final class PretenureRecompilationEvent implements ControllerInputEvent {
+
+  /** Priority of the recompilation, below that of hot methods */
+  private static final double PRIORITY = 1.0;
+
+  /** The compiled method containing the site */
+  private final CompiledMethod cm;
+
+  /**
+   * @param _cm the compiled method
+   */
+  public PretenureRecompilationEvent(CompiledMethod _cm) {
+    cm = _cm;
+  }
+
+  @Override
+  public String toString() {
+    return "PretenureRecompilationEvent: " + cm.getMethod();
+  }
+
+  /**
+   * Called when the controller is ready to process this event.
+   * Recompiles the method unless it has been recompiled since the
+   * event was raised or a recompilation is already under way.
+   */
+  @Override
+  public void process() {
+    RVMMethod method = cm.getMethod();
+    if (method.getCurrentCompiledMethod() != cm) return;
+    int prevCompiler = CompilerDNA.getPreviousCompiler(cm);
+    if (prevCompiler == CompilerDNA.CANNOT_RECOMPILE) return;
+    if (ControllerMemory.planWithStatus(method, ControllerPlan.IN_PROGRESS)) return;
+    ControllerPlan plan =
+        Controller.recompilationStrategy.createControllerPlan(method,
+                                                              CompilerDNA.getOptLevel(prevCompiler),
+                                                              null,
+                                                              cm.getId(),
+                                                              1.0,
+                                                              cm.getCompilationTime(),
+                                                              PRIORITY);
+    plan.execute();
+  }
+}
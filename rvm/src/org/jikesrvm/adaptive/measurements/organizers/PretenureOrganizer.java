@@ -0,0 +1,65 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.adaptive.measurements.organizers;
+
+import org.jikesrvm.adaptive.controller.Controller;
+import org.jikesrvm.adaptive.controller.PretenureRecompilationEvent;
+import org.jikesrvm.adaptive.measurements.RuntimeMeasurements;
+import org.jikesrvm.adaptive.measurements.listeners.YieldCounterListener;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.compilers.common.CompiledMethod;
+import org.jikesrvm.mm.mminterface.AllocationSites;
+import org.vmmagic.pragma.NonMoving;
+
+/**
+ * An organizer that periodically looks for allocation sites the memory
+ * manager has newly advised to pretenure, and asks the controller to
+ * recompile the optimized methods containing them.  Baseline compiled
+ * methods are left alone; they pick up the advice when they are
+ * optimized.
+ */
+@NonMoving
+public final class PretenureOrganizer extends Organizer {
+
+  /** Number of yield points between looks for new advice */
+  public static final int YIELD_FREQUENCY = 100;
+
+  /**
+   * @param listener the associated listener
+   */
+  public PretenureOrganizer(YieldCounterListener listener) {
+    this.listener = listener;
+    listener.setOrganizer(this);
+  }
+
+  /**
+   * Initialization: install and activate our listener.
+   */
+  @Override
+  public void initialize() {
+    RuntimeMeasurements.installTimerNullListener((YieldCounterListener) listener);
+  }
+
+  /**
+   * Raise recompilation events for the newly pretenured sites.
+   */
+  @Override
+  void thresholdReached() {
+    for (RVMMethod method : AllocationSites.takeNewlyPretenuredMethods()) {
+      CompiledMethod cm = method.getCurrentCompiledMethod();
+      if (cm != null && cm.getCompilerType() == CompiledMethod.OPT) {
+        Controller.controllerInputQueue.insert(1.0, new PretenureRecompilationEvent(cm));
+      }
+    }
+  }
+}
@@ -85,109 +85,119 @@ public class BulkCompile implements Callbacks.StartupMonitor {
       VM.sysWriteln(Controller.options.ENABLE_PRECOMPILE ? "Start precompile" : "Start bulk compile");
 
     for (CompilerAdviceAttribute value : CompilerAdviceAttribute.values()) {
-      if (value.getOptLevel() == -1) {
-        if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
-          VM.sysWriteln("Skipping base method: ", value.toString());
-        } else if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
-          VM.sysWrite(".");
-        }
-        continue;
+      compileMethod(value);
+    }
+    AOSLogging.logger.compileAllMethodsCompleted();
+    if (Controller.options.BULK_COMPILATION_VERBOSITY >= 1) VM.sysWriteln();
+    if (Controller.options.BULK_COMPILATION_VERBOSITY >= 1) VM.sysWriteln("Recompilation complete");
+  }
+
+  /**
+   * Compile the single method nominated by a piece of compiler advice,
+   * if its class has been loaded.
+   *
+   * @param value the advice naming the method and its opt level
+   */
+  public static void compileMethod(CompilerAdviceAttribute value) {
+    if (value.getOptLevel() == -1) {
+      if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
+        VM.sysWriteln("Skipping base method: ", value.toString());
+      } else if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
+        VM.sysWrite(".");
       }
+      return;
+    }
 
-      ClassLoader cl = RVMClassLoader.findWorkableClassloader(value.getClassName());
-      if (cl == null)
-        continue;
+    ClassLoader cl = RVMClassLoader.findWorkableClassloader(value.getClassName());
+    if (cl == null)
+      return;
 
-      TypeReference tRef = TypeReference.findOrCreate(cl, value.getClassName());
-      RVMClass cls = (RVMClass) tRef.peekType();
+    TypeReference tRef = TypeReference.findOrCreate(cl, value.getClassName());
+    RVMClass cls = (RVMClass) tRef.peekType();
 
-      if (cls != null) {
-        // Ensure the class is properly loaded
-        if (!cls.isInstantiated()) {
-          if (!cls.isResolved()) {
-            if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
-              VM.sysWriteln("Resolving class: ", cls.toString());
-            } else if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
-              VM.sysWrite("R");
-            }
-            cls.resolve();
-          }
+    if (cls != null) {
+      // Ensure the class is properly loaded
+      if (!cls.isInstantiated()) {
+        if (!cls.isResolved()) {
           if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
-            VM.sysWriteln("Instantiating class: ", cls.toString());
+            VM.sysWriteln("Resolving class: ", cls.toString());
           } else if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
-            VM.sysWrite("I");
+            VM.sysWrite("R");
           }
-          cls.instantiate();
+          cls.resolve();
         }
+        if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
+          VM.sysWriteln("Instantiating class: ", cls.toString());
+        } else if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
+          VM.sysWrite("I");
+        }
+        cls.instantiate();
+      }
 
-        // Find the method
-        RVMMethod method = cls.findDeclaredMethod(value.getMethodName(), value.getMethodSig());
+      // Find the method
+      RVMMethod method = cls.findDeclaredMethod(value.getMethodName(), value.getMethodSig());
 
 
-        // If found, compile it
-        if ((method != null) &&
-            !method.hasNoOptCompileAnnotation() &&
-            (method instanceof org.jikesrvm.classloader.NormalMethod)) {
-          // if user's requirement is higher than advice
-          if (value.getOptLevel() > Controller.options.DERIVED_MAX_OPT_LEVEL) {
+      // If found, compile it
+      if ((method != null) &&
+          !method.hasNoOptCompileAnnotation() &&
+          (method instanceof org.jikesrvm.classloader.NormalMethod)) {
+        // if user's requirement is higher than advice
+        if (value.getOptLevel() > Controller.options.DERIVED_MAX_OPT_LEVEL) {
+          if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
+            VM.sysWrite("Replay advice overriden by default opt levels.  Wanted ");
+            VM.sysWrite(value.getOptLevel());
+            VM.sysWrite(", but Controller.options.DERIVED_MAX_OPT_LEVEL: ");
+            VM.sysWrite(Controller.options.DERIVED_MAX_OPT_LEVEL);
+            VM.sysWrite(" ");
+            VM.sysWriteln(value.toString());
+          } else if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
+            VM.sysWrite(value.getOptLevel(), "!");
+          }
+          method.compile();
+        } else {
+          CompilationPlan compPlan;
+          if (Controller.options.counters()) {
+            // for invocation counter, we only use one optimization level
+            compPlan = InvocationCounts.createCompilationPlan((NormalMethod) method);
+            AOSLogging.logger.recompilationStarted(compPlan);
             if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
-              VM.sysWrite("Replay advice overriden by default opt levels.  Wanted ");
-              VM.sysWrite(value.getOptLevel());
-              VM.sysWrite(", but Controller.options.DERIVED_MAX_OPT_LEVEL: ");
-              VM.sysWrite(Controller.options.DERIVED_MAX_OPT_LEVEL);
-              VM.sysWrite(" ");
+              VM.sysWrite("Bulk compiling for counters ");
               VM.sysWriteln(value.toString());
-            } else if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
-              VM.sysWrite(value.getOptLevel(), "!");
             }
-            method.compile();
+            RuntimeCompiler.recompileWithOpt(compPlan);
+            AOSLogging.logger.recompilationCompleted(compPlan);
+          } else if (Controller.options.sampling()) {
+            // Create our set of standard optimization plans.
+            compPlan = Controller.recompilationStrategy.createCompilationPlan((NormalMethod) method, value.getOptLevel(), null);
+            if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
+              VM.sysWrite("Bulk compiling for sampling ");
+              VM.sysWriteln(value.toString());
+            }
+            if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
+              VM.sysWrite(value.getOptLevel());
+            }
+            AOSLogging.logger.recompilationStarted(compPlan);
+            RuntimeCompiler.recompileWithOpt(compPlan);
+            AOSLogging.logger.recompilationCompleted(compPlan);
           } else {
-            CompilationPlan compPlan;
-            if (Controller.options.counters()) {
-              // for invocation counter, we only use one optimization level
-              compPlan = InvocationCounts.createCompilationPlan((NormalMethod) method);
-              AOSLogging.logger.recompilationStarted(compPlan);
-              if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
-                VM.sysWrite("Bulk compiling for counters ");
-                VM.sysWriteln(value.toString());
-              }
-              RuntimeCompiler.recompileWithOpt(compPlan);
-              AOSLogging.logger.recompilationCompleted(compPlan);
-            } else if (Controller.options.sampling()) {
-              // Create our set of standard optimization plans.
-              compPlan = Controller.recompilationStrategy.createCompilationPlan((NormalMethod) method, value.getOptLevel(), null);
-              if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
-                VM.sysWrite("Bulk compiling for sampling ");
-                VM.sysWriteln(value.toString());
-              }
-              if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
-                VM.sysWrite(value.getOptLevel());
-              }
-              AOSLogging.logger.recompilationStarted(compPlan);
-              RuntimeCompiler.recompileWithOpt(compPlan);
-              AOSLogging.logger.recompilationCompleted(compPlan);
-            } else {
-              if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
-                VM.sysWrite("Compiler advice file overridden ");
-                VM.sysWriteln(value.toString());
-              }
-              method.compile();
+            if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
+              VM.sysWrite("Compiler advice file overridden ");
+              VM.sysWriteln(value.toString());
             }
-          }
-        } else {
-          if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
-            VM.sysWrite("Replay failed for ");
-            VM.sysWrite(value.toString());
-            VM.sysWrite(" ");
-            VM.sysWriteln(cl.toString());
-          } else if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
-            VM.sysWrite("*");
+            method.compile();
           }
         }
+      } else {
+        if (Controller.options.BULK_COMPILATION_VERBOSITY > 1) {
+          VM.sysWrite("Replay failed for ");
+          VM.sysWrite(value.toString());
+          VM.sysWrite(" ");
+          VM.sysWriteln(cl.toString());
+        } else if (Controller.options.BULK_COMPILATION_VERBOSITY == 1) {
+          VM.sysWrite("*");
+        }
       }
     }
-    AOSLogging.logger.compileAllMethodsCompleted();
-    if (Controller.options.BULK_COMPILATION_VERBOSITY >= 1) VM.sysWriteln();
-    if (Controller.options.BULK_COMPILATION_VERBOSITY >= 1) VM.sysWriteln("Recompilation complete");
   }
 }
@@ -26,6 +26,12 @@ import org.vmmagic.pragma.NonMoving;
  *  <p>
  *  No intelligence is contained in this class.  All policy decisions are
  *  made by the ControllerThread.
+ *  <p>
+ *  The controller starts exactly one of these threads. The opt compiler
+ *  is not reentrant (it keeps state in static fields, for example the
+ *  sort marker in SortedGraphNode), so RuntimeCompiler serializes its
+ *  entrypoints and a second compilation thread would only wait on that
+ *  lock.
  */
 @NonMoving
 public final class CompilationThread extends SystemThread {
@@ -0,0 +1,349 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.adaptive.recompilation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.jikesrvm.Configuration;
+import org.jikesrvm.VM;
+import org.jikesrvm.adaptive.controller.Controller;
+import org.jikesrvm.adaptive.util.CompilerAdvice;
+import org.jikesrvm.adaptive.util.CompilerAdviceAttribute;
+import org.jikesrvm.adaptive.util.DynamicCallFileInfoReader;
+import org.jikesrvm.classloader.Atom;
+import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.classloader.RVMClass;
+import org.jikesrvm.classloader.RVMClassLoader;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.baseline.EdgeCounts;
+import org.jikesrvm.compilers.common.CompiledMethod;
+import org.jikesrvm.compilers.common.CompiledMethods;
+import org.jikesrvm.compilers.opt.runtimesupport.OptCompiledMethod;
+import org.jikesrvm.runtime.Callbacks;
+import org.jikesrvm.scheduler.SystemThread;
+import org.vmmagic.pragma.NonMoving;
+
+/**
+ * A persistent profile cache that lets the adaptive system start warm.
+ * <p>
+ * When <code>-X:aos:profile_cache_dir=path</code> is given, the profile
+ * of the run is written to that directory as the VM exits:
+ * <ul>
+ *   <li>the opt compiled methods and their opt levels, as a compiler
+ *       advice file (see {@link CompilerAdvice}),</li>
+ *   <li>the edge counts (see {@link EdgeCounts}) and</li>
+ *   <li>the dynamic call graph (see
+ *       {@link org.jikesrvm.adaptive.database.callgraph.PartialCallGraph}).</li>
+ * </ul>
+ * A version file naming the cache format and the VM build, and the length of
+ * every file written, is written last. The cache is ignored unless the
+ * version matches and every file listed has its recorded length, so a cache
+ * written by another VM, or left incomplete or truncated, is never read.
+ * On the next start with the same VM build the edge counts and call
+ * graph are loaded, and this thread compiles the hot methods in the
+ * background at their recorded opt levels as soon as the application has
+ * instantiated their classes. The application itself never waits for
+ * these compilations and the controller keeps recompiling adaptively.
+ */
+@NonMoving
+public final class ProfileCache extends SystemThread
+    implements Callbacks.StartupMonitor, Callbacks.ExitMonitor, Callbacks.ClassInstantiatedMonitor {
+
+  /** Version of the layout of the cache directory */
+  private static final int FORMAT_VERSION = 2;
+
+  private static final String VERSION_FILE = "version";
+  private static final String ADVICE_FILE = "hot-methods.ca";
+  private static final String CALL_GRAPH_FILE = "call-graph.dc";
+  private static final String EDGE_COUNT_FILE = "edge-counts.ec";
+
+  /** The directory holding the cache */
+  private final File dir;
+
+  /** The names of the files in the cache that the version file vouches for */
+  private final HashSet<String> files = new HashSet<String>();
+
+  /** Advice for classes that have not yet been instantiated, by class descriptor */
+  private final HashMap<Atom, List<CompilerAdviceAttribute>> pending =
+    new HashMap<Atom, List<CompilerAdviceAttribute>>();
+
+  /** Advice whose classes have been instantiated, waiting to be compiled */
+  private final LinkedList<CompilerAdviceAttribute> ready = new LinkedList<CompilerAdviceAttribute>();
+
+  /**
+   * Set up the profile cache if one was requested. Called when the
+   * controller boots.
+   */
+  public static void boot() {
+    String dirName = Controller.options.PROFILE_CACHE_DIR;
+    if (dirName == null) return;
+    ProfileCache cache = new ProfileCache(new File(dirName));
+    Callbacks.addExitMonitor(cache);
+    if (Controller.options.ENABLE_PRECOMPILE || Controller.options.ENABLE_BULK_COMPILE) {
+      // Replay compilation already decides what to compile up front
+      return;
+    }
+    if (cache.isUsable()) {
+      Callbacks.addStartupMonitor(cache);
+    }
+  }
+
+  private ProfileCache(File dir) {
+    super("ProfileCache");
+    this.dir = dir;
+  }
+
+  /**
+   * @return a string identifying the cache format and the VM that wrote it
+   */
+  private static String versionString() {
+    return FORMAT_VERSION + " " + Configuration.RVM_VERSION_STRING + " " + Configuration.RVM_CONFIGURATION;
+  }
+
+  /**
+   * Check the version file, recording the files it lists in {@link #files}.
+   *
+   * @return whether the cache directory holds a complete profile written
+   *  by this VM build
+   */
+  private boolean isUsable() {
+    File version = new File(dir, VERSION_FILE);
+    if (!version.exists()) return false;
+    try {
+      BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(version), "UTF-8"));
+      try {
+        String line = in.readLine();
+        if (!versionString().equals(line)) {
+          ignore("Ignoring profile cache written by a different VM: ");
+          return false;
+        }
+        for (line = in.readLine(); line != null; line = in.readLine()) {
+          int space = line.lastIndexOf(' ');
+          if (space < 0) {
+            ignore("Ignoring corrupt profile cache: ");
+            return false;
+          }
+          String name = line.substring(0, space);
+          File file = new File(dir, name);
+          if (!file.exists() || file.length() != Long.parseLong(line.substring(space + 1))) {
+            ignore("Ignoring incomplete profile cache: ");
+            return false;
+          }
+          files.add(name);
+        }
+      } finally {
+        in.close();
+      }
+    } catch (NumberFormatException e) {
+      ignore("Ignoring corrupt profile cache: ");
+      return false;
+    } catch (IOException e) {
+      return false;
+    }
+    if (!files.contains(ADVICE_FILE)) {
+      ignore("Ignoring incomplete profile cache: ");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Note that the cache can't be used.
+   *
+   * @param why the message to print when the bulk compilation verbosity is 1 or more
+   */
+  private void ignore(String why) {
+    files.clear();
+    if (Controller.options.BULK_COMPILATION_VERBOSITY >= 1) {
+      VM.sysWriteln(why, dir.getPath());
+    }
+  }
+
+  //------------------------------------------------------------------------
+  // Reading the cache
+  //------------------------------------------------------------------------
+
+  /**
+   * Load the cached profile and start compiling the hot methods.
+   */
+  @Override
+  public void notifyStartup() {
+    if (files.contains(EDGE_COUNT_FILE)) {
+      EdgeCounts.loadCountsFromFileIfAvailable(new File(dir, EDGE_COUNT_FILE).getPath());
+    }
+    if (files.contains(CALL_GRAPH_FILE) && Controller.dcgAvailable()) {
+      DynamicCallFileInfoReader.readDynamicCallFile(new File(dir, CALL_GRAPH_FILE).getPath(), false);
+    }
+    List<CompilerAdviceAttribute> advice =
+      CompilerAdvice.readCompilerAdviceFile(new File(dir, ADVICE_FILE).getPath());
+    if (advice == null || advice.isEmpty()) return;
+
+    synchronized (this) {
+      for (CompilerAdviceAttribute value : advice) {
+        if (value == null) continue; // a line that could not be parsed
+        List<CompilerAdviceAttribute> forClass = pending.get(value.getClassName());
+        if (forClass == null) {
+          forClass = new LinkedList<CompilerAdviceAttribute>();
+          pending.put(value.getClassName(), forClass);
+        }
+        forClass.add(value);
+      }
+    }
+    Callbacks.addClassInstantiatedMonitor(this);
+
+    // Classes that are already instantiated won't be reported to us
+    Atom[] classNames;
+    synchronized (this) {
+      classNames = pending.keySet().toArray(new Atom[pending.size()]);
+    }
+    for (Atom className : classNames) {
+      ClassLoader cl = RVMClassLoader.findWorkableClassloader(className);
+      if (cl == null) continue;
+      RVMType type = TypeReference.findOrCreate(cl, className).peekType();
+      if (type != null && type.isClassType() && type.isInstantiated()) {
+        notifyClassInstantiated(type.asClass());
+      }
+    }
+    start();
+  }
+
+  @Override
+  public synchronized void notifyClassInstantiated(RVMClass klass) {
+    List<CompilerAdviceAttribute> forClass = pending.remove(klass.getDescriptor());
+    if (forClass != null) {
+      ready.addAll(forClass);
+      notifyAll();
+    }
+  }
+
+  /**
+   * Compile the cached hot methods as their classes become available.
+   */
+  @Override
+  public void run() {
+    while (true) {
+      CompilerAdviceAttribute value;
+      synchronized (this) {
+        while (ready.isEmpty()) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            // keep waiting
+          }
+        }
+        value = ready.removeFirst();
+      }
+      BulkCompile.compileMethod(value);
+    }
+  }
+
+  //------------------------------------------------------------------------
+  // Writing the cache
+  //------------------------------------------------------------------------
+
+  /**
+   * Write the profile of this run to the cache.
+   */
+  @Override
+  public void notifyExit(int value) {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      VM.sysWriteln("ProfileCache: unable to create directory ", dir.getPath());
+      return;
+    }
+    File version = new File(dir, VERSION_FILE);
+    // An incomplete cache must never be used
+    if (version.exists() && !version.delete()) {
+      VM.sysWriteln("ProfileCache: unable to replace ", version.getPath());
+      return;
+    }
+    try {
+      writeHotMethods(new File(dir, ADVICE_FILE));
+      EdgeCounts.dumpCounts(new File(dir, EDGE_COUNT_FILE).getPath());
+      boolean callGraph = Controller.dcgAvailable();
+      if (callGraph) {
+        Controller.dcg.dumpGraph(new File(dir, CALL_GRAPH_FILE).getPath());
+      }
+      PrintStream out = new PrintStream(new FileOutputStream(version), false, "UTF-8");
+      out.println(versionString());
+      printLength(out, ADVICE_FILE);
+      printLength(out, EDGE_COUNT_FILE);
+      if (callGraph) {
+        printLength(out, CALL_GRAPH_FILE);
+      }
+      out.close();
+    } catch (IOException e) {
+      VM.sysWriteln("ProfileCache: unable to write profile to ", dir.getPath());
+    }
+  }
+
+  /**
+   * Record the length of a file in the cache in the version file, if the
+   * file could be written.
+   *
+   * @param out the version file
+   * @param name the name of the file in the cache
+   */
+  private void printLength(PrintStream out, String name) {
+    File file = new File(dir, name);
+    if (file.exists()) {
+      out.println(name + " " + file.length());
+    }
+  }
+
+  /**
+   * Write the methods whose current code was produced by the opt compiler,
+   * in the format read by {@link CompilerAdvice}.
+   *
+   * @param file the file to write
+   * @throws IOException when the file can't be written
+   */
+  private static void writeHotMethods(File file) throws IOException {
+    PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8");
+    int numCompiledMethods = CompiledMethods.numCompiledMethods();
+    for (int i = 1; i < numCompiledMethods; i++) {
+      CompiledMethod cm = CompiledMethods.getCompiledMethodUnchecked(i);
+      if (cm == null || cm.getCompilerType() != CompiledMethod.OPT ||
+          cm.isObsolete() || cm.isInvalid()) {
+        continue;
+      }
+      RVMMethod method = cm.getMethod();
+      if (!(method instanceof NormalMethod) ||
+          ((NormalMethod) method).isForOsrSpecialization() ||
+          method.getCurrentCompiledMethod() != cm) {
+        continue;
+      }
+      out.println(method.getDeclaringClass().getDescriptor() +
+                  " " +
+                  method.getName() +
+                  " " +
+                  method.getDescriptor() +
+                  " " +
+                  CompiledMethod.OPT +
+                  " " +
+                  ((OptCompiledMethod) cm).getOptLevel());
+    }
+    out.close();
+  }
+}
@@ -37,6 +37,17 @@ public class CompilerAdvice {
   public static void postBoot() {
     CompilerAdviceAttribute.postBoot();
   }
+  /**
+   * Read a compiler advice file without registering the advice, so that
+   * it does not change how methods are compiled by default.
+   *
+   * @param file the name of the advice file
+   * @return the advice in the file or {@code null} if it could not be read
+   */
+  public static List<CompilerAdviceAttribute> readCompilerAdviceFile(String file) {
+    return CompilerAdviceInfoReader.readCompilerAdviceFile(file);
+  }
+
   public static void readCompilerAdvice() {
     String compilerAdviceFileName = Controller.options.COMPILER_ADVICE_FILE_INPUT;
     if (compilerAdviceFileName != null) {
@@ -29,9 +29,13 @@ import java.lang.ref.WeakReference;
 import java.util.WeakHashMap;
 
 import org.jikesrvm.VM;
+import org.jikesrvm.runtime.Entrypoints;
+import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.runtime.Statics;
-import org.jikesrvm.util.ImmutableEntryHashMapRVM;
+import org.jikesrvm.scheduler.Synchronization;
+import org.jikesrvm.util.ConcurrentInternTableRVM;
 import org.jikesrvm.util.StringUtilities;
+import org.vmmagic.pragma.Entrypoint;
 import org.vmmagic.pragma.Pure;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.Offset;
@@ -57,8 +61,8 @@ public final class Atom {
   /**
    * Used to canonicalize Atoms: possibly non-canonical Atom =&gt; Atom
    */
-  private static final ImmutableEntryHashMapRVM<Atom, Atom> dictionary =
-    new ImmutableEntryHashMapRVM<Atom, Atom>(12000);
+  private static final ConcurrentInternTableRVM<Atom> dictionary =
+    new ConcurrentInternTableRVM<Atom>(12000);
 
   /**
    * 2^LOG_ROW_SIZE is the number of elements per row
@@ -76,6 +80,8 @@ public final class Atom {
   /**
    * Used to assign ids. Don't use id 0 to allow clients to use id 0 as a 'null'.
    */
+  @SuppressWarnings({"unused", "CanBeFinal", "UnusedDeclaration"})// accessed via EntryPoints
+  @Entrypoint
   private static int nextId = 1;
 
   /**
@@ -201,27 +207,63 @@ public final class Atom {
     val = dictionary.get(val);
     if (val != null || !create) return val;
 
-    synchronized (Atom.class) {
-      // Check if a matching Atom was created while
-      // the current thread tried to acquire the lock
-      val = new Atom(bytes, -1, str);
-      val = dictionary.get(val);
-      if (val != null) return val;
+    val = new Atom(bytes, allocateId(), str);
+    setAtom(val.id, val);
+    Atom canonical = dictionary.findOrAdd(val);
+    if (canonical != val) {
+      // Another thread created a matching Atom first. Nobody else can know
+      // the id we took, so just let it name the canonical Atom too.
+      setAtom(val.id, canonical);
+    }
+    return canonical;
+  }
 
-      val = new Atom(bytes, nextId++, str);
-      int column = val.id >> LOG_ROW_SIZE;
-      if (column == atoms.length) {
-        Atom[][] tmp = new Atom[column + 1][];
-        for (int i = 0; i < column; i++) {
-          tmp[i] = atoms[i];
-        }
-        atoms = tmp;
-        atoms[column] = new Atom[1 << LOG_ROW_SIZE];
+  /**
+   * @return a fresh id for a new Atom
+   */
+  private static int allocateId() {
+    if (VM.runningVM) {
+      return Synchronization.fetchAndAdd(Magic.getJTOC(), Entrypoints.atomNextIdField.getOffset(), 1);
+    } else {
+      synchronized (Atom.class) {
+        return nextId++;
       }
-      atoms[column][val.id & ROW_MASK] = val;
-      dictionary.put(val, val);
     }
-    return val;
+  }
+
+  /**
+   * Record the Atom for an id, growing the table of Atoms if necessary.
+   * This must happen before the Atom is published in the dictionary so
+   * that any thread that finds it can also look it up by id.
+   *
+   * @param id the id
+   * @param val the Atom it names
+   */
+  private static void setAtom(int id, Atom val) {
+    int column = id >> LOG_ROW_SIZE;
+    if (column >= atoms.length) {
+      growAtoms(column);
+    }
+    atoms[column][id & ROW_MASK] = val;
+  }
+
+  /**
+   * Add rows to the table of Atoms until it has the given column. Only
+   * happens once every 2^LOG_ROW_SIZE Atoms, readers never take the lock.
+   *
+   * @param column the column that must exist
+   */
+  private static synchronized void growAtoms(int column) {
+    if (column < atoms.length) return;
+    Atom[][] tmp = new Atom[column + 1][];
+    for (int i = 0; i < atoms.length; i++) {
+      tmp[i] = atoms[i];
+    }
+    for (int i = atoms.length; i <= column; i++) {
+      tmp[i] = new Atom[1 << LOG_ROW_SIZE];
+    }
+    if (VM.runningVM) Magic.storeStoreBarrier();
+    atoms = tmp;
   }
 
   /**
@@ -12,6 +12,7 @@
  */
 package org.jikesrvm.classloader;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -34,6 +35,7 @@ import org.jikesrvm.util.ImmutableEntryHashMapRVM;
  */
 public final class BootstrapClassLoader extends java.lang.ClassLoader {
 
+  /** Types loaded by this class loader, by class name (guarded by itself) */
   private final ImmutableEntryHashMapRVM<String, RVMType> loaded =
     new ImmutableEntryHashMapRVM<String, RVMType>();
 
@@ -118,7 +120,7 @@ public final class BootstrapClassLoader extends java.lang.ClassLoader {
         // Debugging:
         // VM.sysWriteln("loadVMClass: trying to resolve className " + className);
         type = RVMClassLoader.defineClassInternal(className, dataInputStream, this);
-        loaded.put(className, type);
+        putLoaded(className, type);
       } finally {
         try {
           // Make sure the input stream is closed.
@@ -137,19 +139,36 @@ public final class BootstrapClassLoader extends java.lang.ClassLoader {
   }
 
   @Override
-  public synchronized Class<?> loadClass(String className, boolean resolveClass) throws ClassNotFoundException {
+  public Class<?> loadClass(String className, boolean resolveClass) throws ClassNotFoundException {
     if (!VM.runningVM) {
-      return super.loadClass(className, resolveClass);
+      synchronized (this) {
+        return super.loadClass(className, resolveClass);
+      }
     }
     if (className.startsWith("L") && className.endsWith(";")) {
       className = className.substring(1, className.length() - 2);
     }
-    RVMType loadedType = loaded.get(className);
     Class<?> loadedClass;
-    if (loadedType == null) {
-      loadedClass = findClass(className);
-    } else {
+    RVMType loadedType = getLoaded(className);
+    if (loadedType != null) {
       loadedClass = loadedType.getClassForType();
+    } else {
+      // Read the class file before taking the lock, so that threads loading
+      // different classes find and inflate them in parallel.  Parsing and
+      // defining the class stay serialized on this loader: parsing resolves
+      // the class's supertypes, annotation types and enum constants, which
+      // loads further classes, in no particular order.
+      byte[] classFile = (VM.fullyBooted && !className.startsWith("[")) ? readClassFile(className) : null;
+      synchronized (this) {
+        loadedType = getLoaded(className);
+        if (loadedType != null) {
+          loadedClass = loadedType.getClassForType();
+        } else if (classFile != null) {
+          loadedClass = defineBootstrapClass(className, classFile);
+        } else {
+          loadedClass = findClass(className);
+        }
+      }
     }
     if (resolveClass) {
       resolveClass(loadedClass);
@@ -157,6 +176,73 @@ public final class BootstrapClassLoader extends java.lang.ClassLoader {
     return loadedClass;
   }
 
+  /**
+   * Read the class file of the named class from the bootstrap classpath.
+   *
+   * @param className the name of the class
+   * @return the contents of the class file, or {@code null} if it could not be read
+   */
+  private byte[] readClassFile(String className) {
+    InputStream is = getResourceAsStream(className.replace('.', File.separatorChar) + ".class");
+    if (is == null) return null;
+    try {
+      try {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n = is.read(buffer); n >= 0; n = is.read(buffer)) {
+          bytes.write(buffer, 0, n);
+        }
+        return bytes.toByteArray();
+      } finally {
+        is.close();
+      }
+    } catch (IOException e) {
+      // findClass will try again, and report the failure
+      return null;
+    }
+  }
+
+  /**
+   * Define a class from a class file that has already been read.  Must be
+   * called with this class loader locked.
+   *
+   * @param className the name of the class
+   * @param classFile the contents of its class file
+   * @return the class object
+   * @exception ClassNotFoundException if the class was invalid
+   */
+  private Class<?> defineBootstrapClass(String className, byte[] classFile) throws ClassNotFoundException {
+    try {
+      RVMType type = RVMClassLoader.defineClassInternal(className, classFile, 0, classFile.length, this);
+      putLoaded(className, type);
+      return type.getClassForType();
+    } catch (Throwable e) {
+      throw new ClassNotFoundException(className, e);
+    }
+  }
+
+  /**
+   * @param className the name of a class
+   * @return the type of that name loaded by this class loader, or {@code null}
+   */
+  private RVMType getLoaded(String className) {
+    synchronized (loaded) {
+      return loaded.get(className);
+    }
+  }
+
+  /**
+   * Record a type loaded by this class loader.
+   *
+   * @param className the name of the class
+   * @param type the type that has been loaded
+   */
+  private void putLoaded(String className, RVMType type) {
+    synchronized (loaded) {
+      loaded.put(className, type);
+    }
+  }
+
   /**
    * Search the bootstrap class loader's classpath for given class.
    *
@@ -174,7 +260,7 @@ public final class BootstrapClassLoader extends java.lang.ClassLoader {
       TypeReference typeRef =
           TypeReference.findOrCreate(this, Atom.findOrCreateAsciiAtom(className.replace('.', '/')));
       RVMType ans = typeRef.resolve();
-      loaded.put(className, ans);
+      putLoaded(className, ans);
       return ans.getClassForType();
     } else {
       if (!VM.fullyBooted) {
@@ -195,7 +281,7 @@ public final class BootstrapClassLoader extends java.lang.ClassLoader {
         Class<?> cls = null;
         try {
           RVMType type = RVMClassLoader.defineClassInternal(className, dataInputStream, this);
-          loaded.put(className, type);
+          putLoaded(className, type);
           cls = type.getClassForType();
         } finally {
           try {
@@ -322,10 +408,13 @@ public final class BootstrapClassLoader extends java.lang.ClassLoader {
       try {
         String path = tok.nextToken();
         if (path.endsWith(".jar") || path.endsWith(".zip")) {
-          ZipFile zf = zipFileCache.get(path);
-          if (zf == null) {
-            zf = new ZipFile(path);
-            zipFileCache.put(path, zf);
+          ZipFile zf;
+          synchronized (zipFileCache) {
+            zf = zipFileCache.get(path);
+            if (zf == null) {
+              zf = new ZipFile(path);
+              zipFileCache.put(path, zf);
+            }
           }
           // Zip spec. states that separator must be '/' in the path
           if (File.separatorChar != '/') {
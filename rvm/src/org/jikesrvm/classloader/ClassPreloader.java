@@ -0,0 +1,141 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.classloader;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.scheduler.RVMThread;
+import org.jikesrvm.scheduler.SystemThread;
+import org.vmmagic.pragma.NonMoving;
+
+/**
+ * Loads and resolves a list of classes in the background at startup, so
+ * that the application finds them ready on first use.<p>
+ *
+ * The classes are named in a file given by
+ * <code>-X:vm:classPreloadFile=path-to-class-list</code>, one class per
+ * line (either <code>java.lang.String</code> or
+ * <code>java/lang/String</code>); blank lines and lines starting with
+ * <code>#</code> are ignored.  The list is processed by a pool of system
+ * threads (<code>-X:vm:classPreloadThreads=n</code>, by default one per
+ * available processor).<p>
+ *
+ * Each class is sought first in the bootstrap class loader and then in the
+ * application class loader.  The bootstrap class loader reads class files
+ * in parallel, but parses and defines one class at a time.  Resolving the
+ * loaded classes also proceeds in parallel.  Loading a class publishes its
+ * type through its {@link TypeReference} as usual.  Failure to load a class is not an
+ * error: the class will simply be loaded on demand (if ever).
+ */
+@NonMoving
+public final class ClassPreloader extends SystemThread {
+
+  /** The names of the classes to preload */
+  private static String[] classNames;
+
+  /** Index of the next class to be preloaded (guarded by ClassPreloader.class) */
+  private static int nextClass;
+
+  /**
+   * Start preloading the classes listed in the given file.
+   *
+   * @param file the name of the file listing the classes to preload
+   */
+  public static void boot(String file) {
+    String[] names = readClassList(file);
+    if (names == null || names.length == 0) return;
+    classNames = names;
+    int threads = VM.ClassPreloadThreads > 0 ? VM.ClassPreloadThreads : RVMThread.availableProcessors;
+    threads = Math.max(1, Math.min(threads, names.length));
+    if (VM.verboseClassLoading) {
+      VM.sysWriteln("[Preloading ", names.length, " classes with ", threads, " threads]");
+    }
+    for (int i = 0; i < threads; i++) {
+      new ClassPreloader(i).start();
+    }
+  }
+
+  private ClassPreloader(int ordinal) {
+    super("ClassPreloader-" + ordinal);
+  }
+
+  @Override
+  public void run() {
+    for (String className = nextClassName(); className != null; className = nextClassName()) {
+      preload(className);
+    }
+  }
+
+  /**
+   * @return the name of the next class to preload, or {@code null} if there are none left
+   */
+  private static synchronized String nextClassName() {
+    if (nextClass >= classNames.length) return null;
+    return classNames[nextClass++];
+  }
+
+  /**
+   * Load and resolve a single class.
+   *
+   * @param className the (binary) name of the class
+   */
+  private static void preload(String className) {
+    try {
+      Class<?> klass;
+      try {
+        klass = BootstrapClassLoader.getBootstrapClassLoader().loadClass(className, false);
+      } catch (ClassNotFoundException e) {
+        klass = Class.forName(className, false, RVMClassLoader.getApplicationClassLoader());
+      }
+      RVMType type = java.lang.JikesRVMSupport.getTypeForClass(klass);
+      if (type.isClassType()) {
+        type.asClass().resolve();
+      }
+    } catch (ClassNotFoundException e) {
+      if (VM.TraceClassLoading) VM.sysWriteln("ClassPreloader: could not find " + className);
+    } catch (LinkageError e) {
+      if (VM.TraceClassLoading) VM.sysWriteln("ClassPreloader: could not load " + className + ": " + e);
+    }
+  }
+
+  /**
+   * Read the list of classes to preload.
+   *
+   * @param file the name of the file listing the classes
+   * @return the binary names of the classes, or {@code null} if the file could not be read
+   */
+  private static String[] readClassList(String file) {
+    ArrayList<String> names = new ArrayList<String>();
+    try {
+      BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+      try {
+        for (String s = in.readLine(); s != null; s = in.readLine()) {
+          s = s.trim();
+          if (s.length() == 0 || s.startsWith("#")) continue;
+          names.add(s.replace('/', '.'));
+        }
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      VM.sysWriteln("ClassPreloader: couldn't read class list " + file + ": " + e);
+      return null;
+    }
+    return names.toArray(new String[names.size()]);
+  }
+}
@@ -20,8 +20,10 @@ import org.jikesrvm.compilers.common.CodeArray;
 import org.jikesrvm.mm.mminterface.AlignmentEncoding;
 import org.jikesrvm.mm.mminterface.MemoryManager;
 import org.jikesrvm.objectmodel.TIB;
+import org.jikesrvm.runtime.Entrypoints;
 import org.jikesrvm.runtime.RuntimeEntrypoints;
 import org.jikesrvm.runtime.Statics;
+import org.jikesrvm.scheduler.Synchronization;
 import org.vmmagic.pragma.Entrypoint;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.NonMoving;
@@ -234,6 +236,33 @@ public abstract class RVMType extends AnnotatedElement {
    */
   protected int[] doesImplement;
 
+  /**
+   * Number of times a bias on an instance of this type was revoked by a
+   * thread other than the bias owner, since the count was last reset. See
+   * {@link org.jikesrvm.scheduler.ThinLock} for how this drives bulk
+   * rebiasing and revocation. Updated with a compare-and-swap, so that
+   * exactly one thread sees the count reach each threshold.
+   */
+  @Entrypoint
+  private int biasRevocations;
+
+  /**
+   * When instances of this type were last bulk rebiased, in nanoseconds
+   */
+  private long lastBulkRebiasTime;
+
+  /**
+   * Whether instances of this type may still be biased towards a thread
+   */
+  private boolean biasable = true;
+
+  /**
+   * Bias epoch of this type, advanced by each bulk rebias or revocation.
+   * Biases granted under an earlier epoch are stale. Only changed while
+   * all mutators are stopped.
+   */
+  private int biasEpoch;
+
   /**
    * Create an instance of a {@link RVMType}
    * @param typeRef The canonical type reference for this type.
@@ -325,6 +354,79 @@ public abstract class RVMType extends AnnotatedElement {
     return classForType;
   }
 
+  /**
+   * @return whether newly locked instances of this type may be biased
+   *  towards the locking thread
+   */
+  @Uninterruptible
+  public final boolean isBiasable() {
+    return biasable;
+  }
+
+  /**
+   * Stop biasing instances of this type (bulk revocation).
+   */
+  @Uninterruptible
+  public final void disableBiasing() {
+    biasable = false;
+  }
+
+  /**
+   * @return number of biases on instances of this type revoked by other
+   *  threads since the count was last reset
+   */
+  @Uninterruptible
+  public final int getBiasRevocations() {
+    return biasRevocations;
+  }
+
+  /**
+   * Atomically change the count of revoked biases.
+   *
+   * @param expected the count the caller last read
+   * @param updated the new count
+   * @return whether the count was still {@code expected} and has been changed
+   */
+  @Uninterruptible
+  public final boolean attemptBiasRevocations(int expected, int updated) {
+    return Synchronization.tryCompareAndSwap(this, Entrypoints.biasRevocationsField.getOffset(), expected, updated);
+  }
+
+  /**
+   * @return the bias epoch of this type; only its low bits are recorded
+   *  in lock words
+   */
+  @Uninterruptible
+  public final int getBiasEpoch() {
+    return biasEpoch;
+  }
+
+  /**
+   * Make every existing bias on an instance of this type stale. Must only
+   * be called while all mutators are stopped.
+   */
+  @Uninterruptible
+  public final void advanceBiasEpoch() {
+    biasEpoch++;
+  }
+
+  /**
+   * @return when instances of this type were last bulk rebiased, in
+   *  nanoseconds, or {@code 0} if they never were
+   */
+  @Uninterruptible
+  public final long getLastBulkRebiasTime() {
+    return lastBulkRebiasTime;
+  }
+
+  /**
+   * @param time when instances of this type were bulk rebiased, in nanoseconds
+   */
+  @Uninterruptible
+  public final void setLastBulkRebiasTime(long time) {
+    lastBulkRebiasTime = time;
+  }
+
   /**
    * @return offset of TIB slot from start of JTOC, in bytes.
    */
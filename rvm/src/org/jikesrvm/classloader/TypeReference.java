@@ -15,9 +15,14 @@ package org.jikesrvm.classloader;
 import static org.jikesrvm.runtime.UnboxedSizeConstants.BYTES_IN_ADDRESS;
 
 import org.jikesrvm.VM;
+import org.jikesrvm.runtime.Entrypoints;
+import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.runtime.ReflectionBase;
+import org.jikesrvm.scheduler.Synchronization;
+import org.jikesrvm.util.ConcurrentInternTableRVM;
 import org.jikesrvm.util.ImmutableEntryHashSetRVM;
 
+import org.vmmagic.pragma.Entrypoint;
 import org.vmmagic.pragma.Uninterruptible;
 
 /**
@@ -58,8 +63,8 @@ public final class TypeReference {
   /**
    * Used to canonicalize TypeReferences
    */
-  private static final ImmutableEntryHashSetRVM<TypeReference> dictionary =
-    new ImmutableEntryHashSetRVM<TypeReference>();
+  private static final ConcurrentInternTableRVM<TypeReference> dictionary =
+    new ConcurrentInternTableRVM<TypeReference>();
 
   private static final ImmutableEntryHashSetRVM<ClassLoader> clDict = new ImmutableEntryHashSetRVM<ClassLoader>();
   /**
@@ -79,6 +84,8 @@ public final class TypeReference {
    * Used to assign Ids.  Id 0 is not used. Ids are compressed and
    * stored in the constant pool (See {@link RVMClass}).
    */
+  @SuppressWarnings({"unused", "CanBeFinal", "UnusedDeclaration"})// accessed via EntryPoints
+  @Entrypoint
   private static int nextId = 1;
 
   public static final TypeReference Void = findOrCreate("V");
@@ -225,7 +232,7 @@ public final class TypeReference {
    * @throws IllegalArgumentException Needs to throw some kind of error in
    *  the case of a Atom that does not represent a type name.
    */
-  public static synchronized TypeReference findOrCreate(ClassLoader cl, Atom tn) throws IllegalArgumentException {
+  public static TypeReference findOrCreate(ClassLoader cl, Atom tn) throws IllegalArgumentException {
     TypeDescriptorParsing.validateAsTypeDescriptor(tn);
     // Primitives, arrays of primitives, system classes and arrays of system
     // classes must use the bootstrap classloader.  Force that here so we don't
@@ -301,31 +308,77 @@ public final class TypeReference {
    * @param tn the name of the type
    * @return the canonical type reference
    */
-  public static synchronized TypeReference findOrCreateInternal(ClassLoader cl, Atom tn) {
+  public static TypeReference findOrCreateInternal(ClassLoader cl, Atom tn) {
     // Next actually findOrCreate the type reference using the proper classloader.
-    TypeReference key = new TypeReference(cl, tn, nextId);
+    TypeReference key = new TypeReference(cl, tn, -1);
     TypeReference val = dictionary.get(key);
-    if (val == null) {
-      // Create type reference
-      val = key;
-      nextId++; // id of val is the nextId, move it along
-      int column = val.id >> LOG_ROW_SIZE;
-      if (column == types.length) {
-        // Grow the array of types if necessary
-        TypeReference[][] tmp = new TypeReference[column + 1][];
-        for (int i = 0; i < column; i++) {
-          tmp[i] = types[i];
-        }
-        types = tmp;
-        types[column] = new TypeReference[1 << LOG_ROW_SIZE];
+    if (val != null) return val;
+
+    // Create type reference
+    val = new TypeReference(cl, tn, allocateId());
+    setTypeRef(val.id, val);
+    TypeReference canonical = dictionary.findOrAdd(val);
+    if (canonical != val) {
+      // Another thread created a matching type reference first. Nobody else
+      // can know the id we took, so just let it name the canonical one too.
+      setTypeRef(val.id, canonical);
+    }
+    return canonical;
+  }
+
+  /**
+   * @return a fresh id for a new type reference
+   */
+  private static int allocateId() {
+    if (VM.runningVM) {
+      return Synchronization.fetchAndAdd(Magic.getJTOC(), Entrypoints.typeReferenceNextIdField.getOffset(), 1);
+    } else {
+      synchronized (TypeReference.class) {
+        return nextId++;
       }
-      types[column][val.id & ROW_MASK] = val;
-      dictionary.add(val);
     }
-    return val;
   }
+
+  /**
+   * Record the type reference for an id, growing the array of types if
+   * necessary. This must happen before the type reference is published in
+   * the dictionary so that any thread that finds it can also look it up by id.
+   *
+   * @param id the id
+   * @param val the type reference it names
+   */
+  private static void setTypeRef(int id, TypeReference val) {
+    int column = id >> LOG_ROW_SIZE;
+    if (column >= types.length) {
+      growTypes(column);
+    }
+    types[column][id & ROW_MASK] = val;
+  }
+
+  /**
+   * Add rows to the array of types until it has the given column.
+   *
+   * @param column the column that must exist
+   */
+  private static synchronized void growTypes(int column) {
+    if (column < types.length) return;
+    TypeReference[][] tmp = new TypeReference[column + 1][];
+    for (int i = 0; i < types.length; i++) {
+      tmp[i] = types[i];
+    }
+    for (int i = types.length; i <= column; i++) {
+      tmp[i] = new TypeReference[1 << LOG_ROW_SIZE];
+    }
+    if (VM.runningVM) Magic.storeStoreBarrier();
+    types = tmp;
+  }
+
   private static void canonicalizeCL(ClassLoader cl) {
-    clDict.add(cl);
+    if (!clDict.contains(cl)) {
+      synchronized (clDict) {
+        clDict.add(cl);
+      }
+    }
   }
   public static ImmutableEntryHashSetRVM<ClassLoader> getCLDict() {
     return clDict;
@@ -3119,10 +3119,10 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
   protected void emit_resolved_new(RVMClass typeRef) {
     int instanceSize = typeRef.getInstanceSize();
     Offset tibOffset = typeRef.getTibOffset();
-    int whichAllocator = MemoryManager.pickAllocator(typeRef, method);
+    int site = MemoryManager.getAllocationSite(method, biStart);
+    int whichAllocator = MemoryManager.pickAllocator(typeRef, method, site);
     int align = ObjectModel.getAlignment(typeRef);
     int offset = ObjectModel.getOffsetForAlignment(typeRef, false);
-    int site = MemoryManager.getAllocationSite(true);
     asm.emitPUSH_Imm(instanceSize);
     asm.generateJTOCpush(tibOffset);                             // put tib on stack
     asm.emitPUSH_Imm(typeRef.hasFinalizer() ? 1 : 0);    // does the class have a finalizer?
@@ -3137,7 +3137,7 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
 
   @Override
   protected void emit_unresolved_new(TypeReference typeRef) {
-    int site = MemoryManager.getAllocationSite(true);
+    int site = MemoryManager.getAllocationSite(method, biStart);
     asm.emitPUSH_Imm(typeRef.getId());
     asm.emitPUSH_Imm(site);            // site
     genParameterRegisterLoad(asm, 2);  // pass 2 parameter words
@@ -3150,8 +3150,8 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
     int width = array.getLogElementSize();
     Offset tibOffset = array.getTibOffset();
     int headerSize = ObjectModel.computeHeaderSize(array);
-    int whichAllocator = MemoryManager.pickAllocator(array, method);
-    int site = MemoryManager.getAllocationSite(true);
+    int site = MemoryManager.getAllocationSite(method, biStart);
+    int whichAllocator = MemoryManager.pickAllocator(array, method, site);
     int align = ObjectModel.getAlignment(array);
     int offset = ObjectModel.getOffsetForAlignment(array, false);
     // count is already on stack- nothing required
@@ -3169,7 +3169,7 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
 
   @Override
   protected void emit_unresolved_newarray(TypeReference tRef) {
-    int site = MemoryManager.getAllocationSite(true);
+    int site = MemoryManager.getAllocationSite(method, biStart);
     // count is already on stack- nothing required
     asm.emitPUSH_Imm(tRef.getId());
     asm.emitPUSH_Imm(site);           // site
@@ -2697,10 +2697,10 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
   protected void emit_resolved_new(RVMClass typeRef) {
     int instanceSize = typeRef.getInstanceSize();
     Offset tibOffset = typeRef.getTibOffset();
-    int whichAllocator = MemoryManager.pickAllocator(typeRef, method);
+    int site = MemoryManager.getAllocationSite(method, biStart);
+    int whichAllocator = MemoryManager.pickAllocator(typeRef, method, site);
     int align = ObjectModel.getAlignment(typeRef);
     int offset = ObjectModel.getOffsetForAlignment(typeRef, false);
-    int site = MemoryManager.getAllocationSite(true);
     asm.emitLAddrToc(T0, Entrypoints.resolvedNewScalarMethod.getOffset());
     asm.emitMTCTR(T0);
     asm.emitLVAL(T0, instanceSize);
@@ -2716,7 +2716,7 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
 
   @Override
   protected void emit_unresolved_new(TypeReference typeRef) {
-    int site = MemoryManager.getAllocationSite(true);
+    int site = MemoryManager.getAllocationSite(method, biStart);
     asm.emitLAddrToc(T0, Entrypoints.unresolvedNewScalarMethod.getOffset());
     asm.emitMTCTR(T0);
     asm.emitLVAL(T0, typeRef.getId());
@@ -2730,8 +2730,8 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
     int width = array.getLogElementSize();
     Offset tibOffset = array.getTibOffset();
     int headerSize = ObjectModel.computeArrayHeaderSize(array);
-    int whichAllocator = MemoryManager.pickAllocator(array, method);
-    int site = MemoryManager.getAllocationSite(true);
+    int site = MemoryManager.getAllocationSite(method, biStart);
+    int whichAllocator = MemoryManager.pickAllocator(array, method, site);
     int align = ObjectModel.getAlignment(array);
     int offset = ObjectModel.getOffsetForAlignment(array, false);
     asm.emitLAddrToc(T0, Entrypoints.resolvedNewArrayMethod.getOffset());
@@ -2750,7 +2750,7 @@ public final class BaselineCompilerImpl extends BaselineCompiler {
 
   @Override
   protected void emit_unresolved_newarray(TypeReference typeRef) {
-    int site = MemoryManager.getAllocationSite(true);
+    int site = MemoryManager.getAllocationSite(method, biStart);
     asm.emitLAddrToc(T0, Entrypoints.unresolvedNewArrayMethod.getOffset());
     asm.emitMTCTR(T0);
     peekInt(T0, 0);                // T0 := number of elements
@@ -0,0 +1,209 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.common;
+
+import org.jikesrvm.runtime.Magic;
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Word;
+import org.vmmagic.unboxed.WordArray;
+
+/**
+ * An index from the start address of compiled code to compiled method
+ * ids, sorted by address so that an instruction address can be mapped to
+ * its method with a binary search.
+ * <p>
+ * An index is immutable apart from a small buffer of methods whose code
+ * was installed after the index was built. Lookups take no locks. When the
+ * buffer is full {@link CompiledMethods} builds a new index and publishes it.
+ * Entries for methods that have since been snipped are skipped by lookups
+ * and dropped by the next rebuild.
+ * <p>
+ * Code arrays live in the boot image or in the non-moving code spaces, so
+ * a recorded start address stays valid until its method is snipped. Every
+ * lookup is confirmed against the method's current code anyway.
+ */
+final class CodeIndex {
+
+  /** Number of recently installed methods held outside the sorted part */
+  private static final int RECENT_SIZE = 256;
+
+  /** Start addresses of the indexed code, ascending */
+  private final WordArray starts;
+
+  /** Compiled method ids, parallel to {@link #starts} */
+  private final int[] ids;
+
+  /** Ids of methods installed since this index was built */
+  private final int[] recent = new int[RECENT_SIZE];
+
+  /** Number of valid entries in {@link #recent} */
+  private int numRecent;
+
+  private CodeIndex(WordArray starts, int[] ids) {
+    this.starts = starts;
+    this.ids = ids;
+  }
+
+  /**
+   * Build an index over the given compiled methods, ignoring any that are
+   * gone or have no code.
+   *
+   * @param candidates compiled method ids
+   * @param n number of valid entries in {@code candidates}
+   * @return the new index
+   */
+  static CodeIndex build(int[] candidates, int n) {
+    int live = 0;
+    for (int i = 0; i < n; i++) {
+      if (hasCode(CompiledMethods.getCompiledMethodUnchecked(candidates[i]))) {
+        live++;
+      }
+    }
+    WordArray starts = WordArray.create(live);
+    int[] ids = new int[live];
+    int j = 0;
+    for (int i = 0; i < n && j < live; i++) {
+      CompiledMethod cm = CompiledMethods.getCompiledMethodUnchecked(candidates[i]);
+      if (hasCode(cm)) {
+        starts.set(j, Magic.objectAsAddress(cm.getEntryCodeArray()).toWord());
+        ids[j] = candidates[i];
+        j++;
+      }
+    }
+    sort(starts, ids, j);
+    return new CodeIndex(starts, ids);
+  }
+
+  private static boolean hasCode(CompiledMethod cm) {
+    return cm != null && cm.isCompiled() && cm.getEntryCodeArray() != null;
+  }
+
+  /**
+   * Record a newly installed method. The caller holds the lock that
+   * serializes updates to the index.
+   *
+   * @param id the compiled method id
+   * @return {@code false} if there is no more room, in which case the
+   *  caller should {@link #rebuild} the index
+   */
+  boolean add(int id) {
+    if (numRecent == RECENT_SIZE) {
+      return false;
+    }
+    recent[numRecent] = id;
+    // Make the id visible before the count that covers it
+    Magic.fence();
+    numRecent++;
+    return true;
+  }
+
+  /**
+   * @param extraId a method to add to the new index
+   * @return a new index holding the live entries of this one plus {@code extraId}
+   */
+  CodeIndex rebuild(int extraId) {
+    int[] candidates = new int[ids.length + numRecent + 1];
+    int n = 0;
+    for (int id : ids) {
+      candidates[n++] = id;
+    }
+    for (int i = 0; i < numRecent; i++) {
+      candidates[n++] = recent[i];
+    }
+    candidates[n++] = extraId;
+    return build(candidates, n);
+  }
+
+  /**
+   * Find the method whose code contains the given return address.
+   *
+   * @param ip the return address, see
+   *  {@link CompiledMethods#findMethodForInstruction}
+   * @return the method or {@code null} if it isn't in this index
+   */
+  @Uninterruptible
+  CompiledMethod find(Address ip) {
+    int n = numRecent;
+    Magic.combinedLoadBarrier();
+    for (int i = 0; i < n; i++) {
+      CompiledMethod cm = CompiledMethods.getCompiledMethodUnchecked(recent[i]);
+      if (cm != null && cm.isCompiled() && cm.containsReturnAddress(ip)) {
+        return cm;
+      }
+    }
+
+    // Find the last entry starting strictly below ip (ip is a return address)
+    Word target = ip.toWord();
+    int lo = 0;
+    int hi = ids.length - 1;
+    int last = -1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (starts.get(mid).LT(target)) {
+        last = mid;
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    // Live methods never overlap, so the nearest live one decides
+    for (int i = last; i >= 0; i--) {
+      CompiledMethod cm = CompiledMethods.getCompiledMethodUnchecked(ids[i]);
+      if (cm == null || !cm.isCompiled()) {
+        continue; // snipped since the index was built
+      }
+      return cm.containsReturnAddress(ip) ? cm : null;
+    }
+    return null;
+  }
+
+  /**
+   * Heap sort the first {@code n} entries of the parallel arrays by start address.
+   *
+   * @param starts the start addresses
+   * @param ids the ids
+   * @param n the number of entries
+   */
+  private static void sort(WordArray starts, int[] ids, int n) {
+    for (int i = n / 2 - 1; i >= 0; i--) {
+      siftDown(starts, ids, i, n);
+    }
+    for (int end = n - 1; end > 0; end--) {
+      swap(starts, ids, 0, end);
+      siftDown(starts, ids, 0, end);
+    }
+  }
+
+  private static void siftDown(WordArray starts, int[] ids, int root, int n) {
+    while (true) {
+      int child = 2 * root + 1;
+      if (child >= n) return;
+      if (child + 1 < n && starts.get(child).LT(starts.get(child + 1))) {
+        child++;
+      }
+      if (!starts.get(root).LT(starts.get(child))) return;
+      swap(starts, ids, root, child);
+      root = child;
+    }
+  }
+
+  private static void swap(WordArray starts, int[] ids, int a, int b) {
+    Word w = starts.get(a);
+    starts.set(a, starts.get(b));
+    starts.set(b, w);
+    int id = ids[a];
+    ids[a] = ids[b];
+    ids[b] = id;
+  }
+}
@@ -288,6 +288,9 @@ public abstract class CompiledMethod {
   public final void compileComplete(CodeArray code) {
     instructions = code;
     flags |= COMPILED;
+    if (VM.runningVM) {
+      CompiledMethods.codeInstalled(this);
+    }
   }
 
   /**
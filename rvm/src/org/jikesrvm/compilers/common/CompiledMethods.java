@@ -24,11 +24,16 @@ import org.jikesrvm.classloader.RVMMethod;
 import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.compilers.opt.runtimesupport.OptCompiledMethod;
 import org.jikesrvm.jni.JNICompiledMethod;
+import org.jikesrvm.runtime.Entrypoints;
 import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.runtime.Memory;
+import org.jikesrvm.scheduler.Synchronization;
 import org.jikesrvm.util.Services;
+import org.vmmagic.pragma.Entrypoint;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.Word;
+import org.vmmagic.unboxed.WordArray;
 
 /**
  * Manage pool of compiled methods. <p>
@@ -53,6 +58,8 @@ public class CompiledMethods {
   /**
    * Index of most recently allocated slot in compiledMethods[].
    */
+  @SuppressWarnings({"unused", "CanBeFinal", "UnusedDeclaration"})// accessed via EntryPoints
+  @Entrypoint
   private static int currentCompiledMethodId = 0;
 
   /**
@@ -61,19 +68,52 @@ public class CompiledMethods {
    */
   private static boolean scanForObsoleteMethods = false;
 
+  /**
+   * Index from code addresses to compiled methods, see {@link CodeIndex}.
+   * {@code null} until built by {@link #boot}.
+   */
+  private static CodeIndex codeIndex;
+
+  /** Serializes updates to {@link #codeIndex} */
+  private static final Object codeIndexLock = new Object();
+
+  /**
+   * Allocate a new compiled method id. Once the VM is running this is a
+   * single atomic increment; the lock is only taken to add a row to the
+   * backing array.
+   *
+   * @return the new id
+   */
+  private static int allocateId() {
+    int id;
+    if (VM.runningVM) {
+      id = Synchronization.fetchAndAdd(Magic.getJTOC(), Entrypoints.currentCompiledMethodIdField.getOffset(), 1) + 1;
+    } else {
+      synchronized (CompiledMethods.class) {
+        id = ++currentCompiledMethodId;
+      }
+    }
+    if ((id >> LOG_ROW_SIZE) >= compiledMethods.length) {
+      ensureCapacity(id);
+    }
+    return id;
+  }
+
   /**
    * Ensure space in backing array for id.
    *
    * @param id the id we need to ensure capacity for
    */
-  private static void ensureCapacity(int id) {
+  private static synchronized void ensureCapacity(int id) {
     int column = id >> LOG_ROW_SIZE;
     if (column >= compiledMethods.length) {
       CompiledMethod[][] tmp = new CompiledMethod[column + 1][];
-      for (int i = 0; i < column; i++) {
+      for (int i = 0; i < compiledMethods.length; i++) {
         tmp[i] = compiledMethods[i];
       }
-      tmp[column] = new CompiledMethod[1 << LOG_ROW_SIZE];
+      for (int i = compiledMethods.length; i <= column; i++) {
+        tmp[i] = new CompiledMethod[1 << LOG_ROW_SIZE];
+      }
       compiledMethods = tmp;
       Magic.fence();
     }
@@ -116,10 +156,8 @@ public class CompiledMethods {
     return getCompiledMethodUnchecked(compiledMethodId);
   }
 
-  public static synchronized CompiledMethod createCompiledMethod(RVMMethod m, int compilerType) {
-    int id = currentCompiledMethodId + 1;
-    ensureCapacity(id);
-    currentCompiledMethodId++;
+  public static CompiledMethod createCompiledMethod(RVMMethod m, int compilerType) {
+    int id = allocateId();
     CompiledMethod cm = null;
     if (compilerType == CompiledMethod.BASELINE) {
       if (VM.BuildForIA32) {
@@ -142,21 +180,53 @@ public class CompiledMethods {
   /**
    * @return a CompiledMethod for the synthetic hardware trap frame
    */
-  public static synchronized CompiledMethod createHardwareTrapCompiledMethod() {
-    int id = currentCompiledMethodId + 1;
-    ensureCapacity(id);
-    currentCompiledMethodId++;
+  public static CompiledMethod createHardwareTrapCompiledMethod() {
+    int id = allocateId();
     CompiledMethod cm = new HardwareTrapCompiledMethod(id, null);
     setCompiledMethod(id, cm);
     return cm;
   }
 
   /**
-   * @return number of methods compiled so far.
+   * @return number of methods compiled so far. Ids are handed out before
+   *  the backing array is grown to hold them, so this never exceeds the
+   *  capacity of the backing array.
    */
   @Uninterruptible
   public static int numCompiledMethods() {
-    return currentCompiledMethodId + 1;
+    int n = currentCompiledMethodId + 1;
+    int capacity = compiledMethods.length << LOG_ROW_SIZE;
+    return n < capacity ? n : capacity;
+  }
+
+  /**
+   * Build the index used by {@link #findMethodForInstruction} over all
+   * methods compiled so far, including those in the boot image.
+   */
+  public static void boot() {
+    synchronized (codeIndexLock) {
+      int n = numCompiledMethods();
+      int[] ids = new int[n];
+      for (int i = 0; i < n; i++) {
+        ids[i] = i;
+      }
+      codeIndex = CodeIndex.build(ids, n);
+    }
+  }
+
+  /**
+   * Record that a compiled method's code has been installed, so that it
+   * can be found by {@link #findMethodForInstruction}.
+   *
+   * @param cm the compiled method
+   */
+  static void codeInstalled(CompiledMethod cm) {
+    synchronized (codeIndexLock) {
+      CodeIndex index = codeIndex;
+      if (index != null && !index.add(cm.getId())) {
+        codeIndex = index.rebuild(cm.getId());
+      }
+    }
   }
 
   /**
@@ -165,8 +235,8 @@ public class CompiledMethods {
    * Assumption: caller has disabled gc (otherwise collector could move
    *                objects without fixing up the raw <code>ip</code> pointer)<p>
    *
-   * Note: this method is highly inefficient. Normally you should use the
-   * following instead:
+   * Once the VM has booted this is a binary search of the {@link CodeIndex}.
+   * Even so, normally you should use the following instead:
    *
    * <code>
    * RVMClassLoader.getCompiledMethod(Magic.getCompiledMethodID(fp))
@@ -186,6 +256,14 @@ public class CompiledMethods {
    */
   @Uninterruptible
   public static CompiledMethod findMethodForInstruction(Address ip) {
+    CodeIndex index = codeIndex;
+    if (index != null) {
+      CompiledMethod cm = index.find(ip);
+      if (cm != null) {
+        return cm;
+      }
+    }
+    // Not indexed yet (or not at all): fall back to looking at every method
     for (int i = 0, n = numCompiledMethods(); i < n; ++i) {
       CompiledMethod compiledMethod = getCompiledMethodUnchecked(i);
       if (compiledMethod == null || !compiledMethod.isCompiled()) {
@@ -216,6 +216,7 @@ public class LocalCSE extends CompilerPhase {
    */
   private boolean isExpression(Instruction inst) {
     if (inst.isDynamicLinkingPoint()) return false;
+    if (inst.isImplicitLoad() || inst.isImplicitStore()) return false;
     switch (inst.operator().format) {
       case InstructionFormat.Unary_format:
       case InstructionFormat.GuardedUnary_format:
@@ -42,6 +42,7 @@ public final class OptConstants {
   public static final int EPILOGUE_BLOCK_BCI = -14;
   public static final int OSR_PROLOGUE = -15;
   public static final int SYNTH_LOOP_VERSIONING_BCI = -16;
+  public static final int SYNTH_LOOP_VECTORIZATION_BCI = -17;
 
   // The following are used as trinary return values in OptCompiler code
   public static final byte NO = 0;
@@ -42,14 +42,17 @@ import org.jikesrvm.compilers.opt.controlflow.StaticSplitting;
 import org.jikesrvm.compilers.opt.controlflow.TailRecursionElimination;
 import org.jikesrvm.compilers.opt.controlflow.YieldPoints;
 import org.jikesrvm.compilers.opt.escape.EscapeTransformations;
+import org.jikesrvm.compilers.opt.escape.LockCoarsening;
 import org.jikesrvm.compilers.opt.hir2lir.ConvertHIRtoLIR;
 import org.jikesrvm.compilers.opt.hir2lir.ExpandRuntimeServices;
 import org.jikesrvm.compilers.opt.ir.IR;
 import org.jikesrvm.compilers.opt.regalloc.CoalesceMoves;
+import org.jikesrvm.compilers.opt.ssa.ArrayBoundsCheckElimination;
 import org.jikesrvm.compilers.opt.ssa.GCP;
 import org.jikesrvm.compilers.opt.ssa.LeaveSSA;
 import org.jikesrvm.compilers.opt.ssa.LiveRangeSplitting;
 import org.jikesrvm.compilers.opt.ssa.LoadElimination;
+import org.jikesrvm.compilers.opt.ssa.LoopVectorization;
 import org.jikesrvm.compilers.opt.ssa.LoopVersioning;
 import org.jikesrvm.compilers.opt.ssa.PiNodes;
 import org.jikesrvm.compilers.opt.ssa.RedundantBranchElimination;
@@ -267,6 +270,9 @@ public class OptimizationPlanner {
     // Simple escape analysis and related transformations
     addComponent(p, new EscapeTransformations());
 
+    // Merge and remove monitor operations on shared objects
+    addComponent(p, new LockCoarsening());
+
     // Perform peephole branch optimizations to clean-up before SSA stuff
     addComponent(p, new BranchOptimizations(1, true, true));
 
@@ -335,6 +341,8 @@ public class OptimizationPlanner {
             new LoadElimination(5),
             // eliminate redundant conditional branches
             new RedundantBranchElimination(),
+            // array bounds check elimination
+            new ArrayBoundsCheckElimination(),
             // path sensitive constant propagation
             new SSATuneUp(),
             // clean up Pi Nodes
@@ -345,6 +353,8 @@ public class OptimizationPlanner {
             new GCP(),
             // Loop versioning
             new LoopVersioning(),
+            // Loop vectorization
+            new LoopVectorization(),
             // Leave SSA
             new LeaveSSA()}) {
           @Override
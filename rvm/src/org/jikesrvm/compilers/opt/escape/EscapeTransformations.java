@@ -17,6 +17,8 @@ import static org.jikesrvm.compilers.opt.ir.Operators.MONITOREXIT;
 import static org.jikesrvm.compilers.opt.ir.Operators.NEWARRAY_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.NEW_opcode;
 
+import java.util.ArrayList;
+
 import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.compilers.opt.DefUse;
 import org.jikesrvm.compilers.opt.LocalConstantProp;
@@ -42,6 +44,8 @@ import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
  * <ul>
  *  <li> 1. synchronization removal
  *  <li> 2. scalar replacement of aggregates and short arrays
+ *  <li> 3. scalar replacement of objects that escape only on cold paths
+ *  <li> 4. stack allocation of method-local objects that can't be scalar replaced
  * </ul>
  */
 public class EscapeTransformations extends CompilerPhase {
@@ -68,7 +72,8 @@ public class EscapeTransformations extends CompilerPhase {
 
   @Override
   public final boolean shouldPerform(OptOptions options) {
-    return options.ESCAPE_MONITOR_REMOVAL || options.ESCAPE_SCALAR_REPLACE_AGGREGATES;
+    return options.ESCAPE_MONITOR_REMOVAL || options.ESCAPE_SCALAR_REPLACE_AGGREGATES ||
+        options.ESCAPE_PARTIAL_SCALAR_REPLACE || options.ESCAPE_STACK_ALLOCATE;
   }
 
   @Override
@@ -124,6 +129,14 @@ public class EscapeTransformations extends CompilerPhase {
             s.transform();
             removedAggregate = true;
           }
+        } else if (ir.options.ESCAPE_PARTIAL_SCALAR_REPLACE && def.getOpcode() == NEW_opcode &&
+                   !summary.isMethodLocal(reg)) {
+          // materialize the object on the infrequent paths where it escapes
+          ObjectReplacer s = ObjectReplacer.getPartialReplacer(def, ir);
+          if (s != null) {
+            s.transform();
+            removedAggregate = true;
+          }
         }
         // *********************************************************
         // Now remove synchronizations
@@ -145,6 +158,46 @@ public class EscapeTransformations extends CompilerPhase {
         escapeCleanUp.perform(ir);
       }
     } while (removedAggregate);
+
+    if (ir.options.ESCAPE_STACK_ALLOCATE) {
+      stackAllocate(ir, analyzer);
+    }
+  }
+
+  /**
+   * Allocate the method-local objects that are left after scalar
+   * replacement in the stack frame.
+   *
+   * @param ir IR for the target method
+   * @param analyzer the escape analysis
+   */
+  private void stackAllocate(IR ir, SimpleEscape analyzer) {
+    DefUse.computeDU(ir);
+    DefUse.recomputeSSA(ir);
+    FI_EscapeSummary summary = analyzer.simpleEscapeAnalysis(ir);
+    // choose all the sites before transforming any, as inlining the
+    // initialization of an object invalidates the summary
+    ArrayList<StackAllocator> sites = new ArrayList<StackAllocator>();
+    int budget = StackAllocator.MAX_FRAME_BYTES;
+    for (Register reg = ir.regpool.getFirstSymbolicRegister(); reg != null; reg = reg.getNext()) {
+      if (!reg.isSSA() || reg.defList == null || !summary.isMethodLocal(reg)) {
+        continue;
+      }
+      Instruction def = reg.defList.instruction;
+      if ((def.getOpcode() == NEW_opcode) || (def.getOpcode() == NEWARRAY_opcode)) {
+        StackAllocator s = StackAllocator.getAllocator(def, ir, budget);
+        if (s != null) {
+          sites.add(s);
+          budget -= s.getReservedBytes();
+        }
+      }
+    }
+    for (StackAllocator s : sites) {
+      s.transform();
+    }
+    if (!sites.isEmpty()) {
+      escapeCleanUp.perform(ir);
+    }
   }
 
   /**
@@ -0,0 +1,341 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.escape;
+
+import static org.jikesrvm.compilers.opt.driver.OptConstants.RUNTIME_SERVICES_BCI;
+import static org.jikesrvm.compilers.opt.driver.OptConstants.SYNCHRONIZED_MONITORENTER_BCI;
+import static org.jikesrvm.compilers.opt.driver.OptConstants.SYNCHRONIZED_MONITOREXIT_BCI;
+import static org.jikesrvm.compilers.opt.ir.Operators.ATHROW;
+import static org.jikesrvm.compilers.opt.ir.Operators.CALL_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.MONITORENTER_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.MONITOREXIT_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_MOVE_opcode;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.jikesrvm.compilers.opt.DefUse;
+import org.jikesrvm.compilers.opt.OptOptions;
+import org.jikesrvm.compilers.opt.driver.CompilerPhase;
+import org.jikesrvm.compilers.opt.inlining.InlineSequence;
+import org.jikesrvm.compilers.opt.ir.Athrow;
+import org.jikesrvm.compilers.opt.ir.BasicBlock;
+import org.jikesrvm.compilers.opt.ir.Call;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.MonitorOp;
+import org.jikesrvm.compilers.opt.ir.Move;
+import org.jikesrvm.compilers.opt.ir.Register;
+import org.jikesrvm.compilers.opt.ir.operand.MethodOperand;
+import org.jikesrvm.compilers.opt.ir.operand.Operand;
+import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
+import org.jikesrvm.runtime.Entrypoints;
+
+/**
+ * Removes monitor operations on objects that escape the thread, where
+ * {@link UnsyncReplacer} cannot help.
+ * <ul>
+ *  <li> 1. elision of nested locks: an inlined synchronized method whose
+ *       object is already locked by a synchronized caller doesn't lock
+ *       it again
+ *  <li> 2. lock coarsening: a monitorexit followed closely by a
+ *       monitorenter on the same object is removed together with it
+ * </ul>
+ * Coarsening never extends a locked region across a yieldpoint, call,
+ * allocation or potentially excepting instruction, so the time that a
+ * thread can hold a lock without reaching a yieldpoint is bounded by
+ * {@link OptOptions#ESCAPE_COARSEN_MAX_INSTRUCTIONS}. Locks taken in
+ * each iteration of a loop are therefore only merged within the
+ * iteration, as the backedge carries a yieldpoint.
+ */
+public class LockCoarsening extends CompilerPhase {
+
+  /**
+   * Return this instance of this phase. This phase contains no
+   * per-compilation instance fields.
+   * @param ir not used
+   * @return this
+   */
+  @Override
+  public CompilerPhase newExecution(IR ir) {
+    return this;
+  }
+
+  @Override
+  public final boolean shouldPerform(OptOptions options) {
+    return options.ESCAPE_ELIDE_NESTED_LOCKS || options.ESCAPE_COARSEN_LOCKS;
+  }
+
+  @Override
+  public final String getName() {
+    return "Lock Coarsening";
+  }
+
+  @Override
+  public final boolean printingEnabled(OptOptions options, boolean before) {
+    return false;
+  }
+
+  /**
+   * Perform the transformations
+   *
+   * @param ir IR for the target method
+   */
+  @Override
+  public void perform(IR ir) {
+    DefUse.computeDU(ir);
+    if (ir.options.ESCAPE_ELIDE_NESTED_LOCKS) {
+      elideNestedLocks(ir);
+    }
+    if (ir.options.ESCAPE_COARSEN_LOCKS) {
+      coarsenLocks(ir);
+    }
+  }
+
+  /*
+   * Nested lock elision
+   */
+
+  /**
+   * Remove the locking of inlined synchronized methods whose object is
+   * locked by an enclosing synchronized method for the whole of the
+   * inlined body. This phase gathers no profile of its own: the
+   * existing inliner decides which calls are inlined, and so which
+   * nested locks we get to see.
+   * <p>
+   * This relies on the monitor operations of each method being
+   * balanced, which the verifier's structured locking rules ensure for
+   * code that we compile.
+   *
+   * @param ir IR for the target method
+   */
+  private static void elideNestedLocks(IR ir) {
+    // find the implicit monitor operations of synchronized methods
+    HashMap<InlineSequence, ArrayList<Instruction>> enters = new HashMap<InlineSequence, ArrayList<Instruction>>();
+    ArrayList<Instruction> exits = new ArrayList<Instruction>();
+    ArrayList<Instruction> unlocks = new ArrayList<Instruction>();
+    for (Instruction s = ir.firstInstructionInCodeOrder(); s != null; s = s.nextInstructionInCodeOrder()) {
+      switch (s.getOpcode()) {
+        case MONITORENTER_opcode:
+          if (s.getBytecodeIndex() == SYNCHRONIZED_MONITORENTER_BCI) {
+            // code duplication may leave several copies of a prologue
+            ArrayList<Instruction> copies = enters.get(s.position());
+            if (copies == null) {
+              copies = new ArrayList<Instruction>();
+              enters.put(s.position(), copies);
+            }
+            copies.add(s);
+          }
+          break;
+        case MONITOREXIT_opcode:
+          if (s.getBytecodeIndex() == SYNCHRONIZED_MONITOREXIT_BCI) {
+            exits.add(s);
+          }
+          break;
+        case CALL_opcode:
+          if (s.getBytecodeIndex() == RUNTIME_SERVICES_BCI) {
+            MethodOperand mop = Call.getMethod(s);
+            if (mop != null && mop.hasPreciseTarget() && mop.getTarget() == Entrypoints.unlockAndThrowMethod) {
+              unlocks.add(s);
+            }
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    // choose the inlined methods whose lock is already held
+    HashSet<InlineSequence> nested = new HashSet<InlineSequence>();
+    for (InlineSequence seq : enters.keySet()) {
+      for (InlineSequence caller = seq.getCaller(); caller != null; caller = caller.getCaller()) {
+        ArrayList<Instruction> outer = enters.get(caller);
+        if (outer != null && sameLock(enters.get(seq), outer)) {
+          nested.add(seq);
+          break;
+        }
+      }
+    }
+    if (nested.isEmpty()) {
+      return;
+    }
+    for (InlineSequence seq : nested) {
+      for (Instruction enter : enters.get(seq)) {
+        DefUse.removeInstructionAndUpdateDU(enter);
+      }
+    }
+    for (Instruction exit : exits) {
+      if (nested.contains(exit.position())) {
+        DefUse.removeInstructionAndUpdateDU(exit);
+      }
+    }
+    // the synthetic handler of a nested method just rethrows
+    for (Instruction unlock : unlocks) {
+      if (nested.contains(unlock.position())) {
+        Instruction rethrow = Athrow.create(ATHROW, Call.getParam(unlock, 1).copy());
+        DefUse.replaceInstructionAndUpdateDU(unlock, rethrow);
+      }
+    }
+  }
+
+  /**
+   * Do two sets of monitor enters always lock the same object?
+   *
+   * @param inner the enters of the inlined method
+   * @param outer the enters of an enclosing method
+   * @return {@code true} if every pair of enters locks the same object
+   */
+  private static boolean sameLock(ArrayList<Instruction> inner, ArrayList<Instruction> outer) {
+    for (Instruction i : inner) {
+      for (Instruction o : outer) {
+        if (!sameLock(MonitorOp.getRef(i), MonitorOp.getRef(o))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Do two lock operands always refer to the same object?
+   *
+   * @param a the first lock operand
+   * @param b the second lock operand
+   * @return {@code true} if the operands are the same constant or copies
+   *         of the same register
+   */
+  private static boolean sameLock(Operand a, Operand b) {
+    if (a.isRegister() && b.isRegister()) {
+      return originalRegister(a.asRegister().getRegister()) == originalRegister(b.asRegister().getRegister());
+    }
+    return a.isConstant() && a.similar(b);
+  }
+
+  /**
+   * Follow a chain of copies back to the register they copy.
+   *
+   * @param r a register
+   * @return the first register in the chain of single definition copies
+   *         that defines r
+   */
+  private static Register originalRegister(Register r) {
+    HashSet<Register> visited = new HashSet<Register>();
+    while (visited.add(r)) {
+      RegisterOperand def = r.defList;
+      if (def == null || def.getNext() != null) {
+        break;
+      }
+      Instruction s = def.instruction;
+      if (s.getOpcode() != REF_MOVE_opcode || !Move.getVal(s).isRegister()) {
+        break;
+      }
+      r = Move.getVal(s).asRegister().getRegister();
+    }
+    return r;
+  }
+
+  /*
+   * Lock coarsening
+   */
+
+  /**
+   * Merge the locked regions of monitor exits in frequently executed
+   * blocks with closely following monitor enters on the same object.
+   *
+   * @param ir IR for the target method
+   */
+  private static void coarsenLocks(IR ir) {
+    for (Enumeration<BasicBlock> e = ir.getBasicBlocks(); e.hasMoreElements();) {
+      BasicBlock bb = e.nextElement();
+      if (bb.getInfrequent()) {
+        continue;
+      }
+      Instruction next;
+      for (Instruction s = bb.firstInstruction(); s != bb.lastInstruction(); s = next) {
+        next = s.nextInstructionInCodeOrder();
+        if (s.getOpcode() == MONITOREXIT_opcode) {
+          Instruction prev = s.prevInstructionInCodeOrder();
+          if (coarsen(ir, bb, s)) {
+            next = prev.nextInstructionInCodeOrder();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Look forward from a monitor exit for a monitor enter on the same
+   * object that can be merged with it. If one is found remove both.
+   *
+   * @param ir IR for the target method
+   * @param bb the block containing the exit
+   * @param exit the monitor exit
+   * @return {@code true} if the exit was removed
+   */
+  private static boolean coarsen(IR ir, BasicBlock bb, Instruction exit) {
+    Operand lock = MonitorOp.getRef(exit);
+    // registers that currently hold the locked object
+    HashSet<Register> aliases = new HashSet<Register>();
+    if (lock.isRegister()) {
+      aliases.add(lock.asRegister().getRegister());
+    } else if (!lock.isConstant()) {
+      return false;
+    }
+    int budget = ir.options.ESCAPE_COARSEN_MAX_INSTRUCTIONS;
+    Instruction s = exit.nextInstructionInCodeOrder();
+    while (budget-- > 0) {
+      if (s == bb.lastInstruction()) {
+        // only continue into a block that can't be reached another way
+        if (bb.getNumberOfNormalOut() != 1) {
+          return false;
+        }
+        BasicBlock succ = bb.getNormalOut().nextElement();
+        if (succ.isExit() || succ.isExceptionHandlerBasicBlock() || succ.getNumberOfIn() != 1) {
+          return false;
+        }
+        bb = succ;
+        s = bb.firstInstruction();
+      } else if (s.getOpcode() == MONITORENTER_opcode) {
+        Operand other = MonitorOp.getRef(s);
+        boolean same = other.isRegister() ? aliases.contains(other.asRegister().getRegister()) : lock.similar(other);
+        if (!same) {
+          // moving the exit past a different lock could change lock order
+          return false;
+        }
+        DefUse.removeInstructionAndUpdateDU(exit);
+        DefUse.removeInstructionAndUpdateDU(s);
+        return true;
+      } else if (s.isTSPoint() || s.isPEI() || (s.isBranch() && !s.isUnconditionalBranch())) {
+        return false;
+      } else {
+        if (s.getOpcode() == REF_MOVE_opcode && Move.getVal(s).isRegister() &&
+            aliases.contains(Move.getVal(s).asRegister().getRegister())) {
+          aliases.add(Move.getResult(s).getRegister());
+        } else {
+          for (Enumeration<Operand> defs = s.getDefs(); defs.hasMoreElements();) {
+            Operand def = defs.nextElement();
+            if (def.isRegister()) {
+              aliases.remove(def.asRegister().getRegister());
+            }
+          }
+          if (lock.isRegister() && aliases.isEmpty()) {
+            return false;
+          }
+        }
+      }
+      s = s.nextInstructionInCodeOrder();
+    }
+    return false;
+  }
+}
@@ -15,6 +15,7 @@ package org.jikesrvm.compilers.opt.escape;
 import static org.jikesrvm.compilers.opt.driver.OptConstants.MAYBE;
 import static org.jikesrvm.compilers.opt.driver.OptConstants.YES;
 import static org.jikesrvm.compilers.opt.ir.IRTools.IC;
+import static org.jikesrvm.compilers.opt.ir.Operators.ATHROW_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.BOOLEAN_CMP_ADDR_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.BOOLEAN_CMP_INT_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.CALL_opcode;
@@ -31,16 +32,22 @@ import static org.jikesrvm.compilers.opt.ir.Operators.LONG_STORE_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.MONITORENTER_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.MONITOREXIT_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.MUST_IMPLEMENT_INTERFACE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NEW;
 import static org.jikesrvm.compilers.opt.ir.Operators.NULL_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.PUTFIELD;
 import static org.jikesrvm.compilers.opt.ir.Operators.PUTFIELD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.PUTSTATIC_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.READ_CEILING;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_ASTORE_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.REF_IFCMP_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.REF_MOVE;
 import static org.jikesrvm.compilers.opt.ir.Operators.REF_MOVE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.RETURN_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.TRAP;
 import static org.jikesrvm.compilers.opt.ir.Operators.WRITE_FLOOR;
 
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -52,6 +59,8 @@ import org.jikesrvm.classloader.TypeReference;
 import org.jikesrvm.compilers.opt.ClassLoaderProxy;
 import org.jikesrvm.compilers.opt.DefUse;
 import org.jikesrvm.compilers.opt.OptimizingCompilerException;
+import org.jikesrvm.compilers.opt.ir.AStore;
+import org.jikesrvm.compilers.opt.ir.BasicBlock;
 import org.jikesrvm.compilers.opt.ir.Empty;
 import org.jikesrvm.compilers.opt.ir.GetField;
 import org.jikesrvm.compilers.opt.ir.GuardedUnary;
@@ -66,14 +75,25 @@ import org.jikesrvm.compilers.opt.ir.PutField;
 import org.jikesrvm.compilers.opt.ir.Register;
 import org.jikesrvm.compilers.opt.ir.Trap;
 import org.jikesrvm.compilers.opt.ir.TypeCheck;
+import org.jikesrvm.compilers.opt.ir.operand.AddressConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.LocationOperand;
 import org.jikesrvm.compilers.opt.ir.operand.Operand;
 import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
 import org.jikesrvm.compilers.opt.ir.operand.TIBConstantOperand;
 import org.jikesrvm.compilers.opt.ir.operand.TrapCodeOperand;
+import org.jikesrvm.compilers.opt.ir.operand.TrueGuardOperand;
+import org.jikesrvm.compilers.opt.ir.operand.TypeOperand;
 
 /**
  * Class that performs scalar replacement of aggregates for non-array
- * objects
+ * objects.
+ * <p>
+ * An object may also be replaced if it escapes only in infrequently
+ * executed blocks (see {@link #getPartialReplacer}).  The object is then
+ * materialized just before each escaping instruction: a new object is
+ * allocated there and its fields are set from the scalars.  As nothing
+ * uses the object after it escapes, the new object is the only one the
+ * program can observe.
  */
 final class ObjectReplacer implements AggregateReplacer {
   /**
@@ -88,6 +108,21 @@ final class ObjectReplacer implements AggregateReplacer {
    * the register holding the object reference
    */
   private final Register reg;
+  /**
+   * the instructions where the object escapes, or {@code null} if it
+   * doesn't escape
+   */
+  private final ArrayList<Instruction> escapes;
+  /**
+   * the registers holding the object reference, when it escapes
+   */
+  private final Set<Register> aliases;
+
+  /* Classification of the uses of an object, see classifyUse */
+  private static final int LOCAL = 0;
+  private static final int COPY = 1;
+  private static final int ESCAPE = 2;
+  private static final int UNSUPPORTED = 3;
 
   /**
    * Return an object representing this transformation for a given
@@ -104,7 +139,169 @@ final class ObjectReplacer implements AggregateReplacer {
     if (klass.hasFinalizer() || containsUnsupportedUse(ir, r, klass, null)) {
       return null;
     }
-    return new ObjectReplacer(r, klass, ir);
+    return new ObjectReplacer(r, klass, ir, null, null);
+  }
+
+  /**
+   * Return an object representing the partial replacement of an object
+   * that escapes, if it only escapes in infrequently executed blocks and
+   * is not used once it has escaped.
+   *
+   * @param inst the allocation site
+   * @param ir the governing IR
+   * @return the object, or null if illegal
+   */
+  public static ObjectReplacer getPartialReplacer(Instruction inst, IR ir) {
+    // Allocations in cold code are not worth it, and this excludes the
+    // allocations that materialize replaced objects
+    if (inst.getBasicBlock().getInfrequent()) {
+      return null;
+    }
+    Register r = New.getResult(inst).getRegister();
+    RVMClass klass = New.getType(inst).getVMType().asClass();
+    if (klass.hasFinalizer()) {
+      return null;
+    }
+    ArrayList<Register> regs = new ArrayList<Register>();
+    regs.add(r);
+    ArrayList<Instruction> escapes = new ArrayList<Instruction>();
+    Set<BasicBlock> useBlocks = new HashSet<BasicBlock>();
+    for (int i = 0; i < regs.size(); i++) {
+      for (RegisterOperand use = regs.get(i).useList; use != null; use = use.getNext()) {
+        Instruction s = use.instruction;
+        useBlocks.add(s.getBasicBlock());
+        switch (classifyUse(use, klass)) {
+          case LOCAL:
+            break;
+          case COPY: {
+            Register copy = s.getOpcode() == REF_MOVE_opcode ?
+                Move.getResult(s).getRegister() : TypeCheck.getResult(s).getRegister();
+            if (!copy.isSSA()) {
+              return null;
+            }
+            if (!regs.contains(copy)) {
+              regs.add(copy);
+            }
+          }
+          break;
+          case ESCAPE:
+            if (!escapes.contains(s)) {
+              escapes.add(s);
+            }
+            break;
+          default:
+            return null;
+        }
+      }
+    }
+    if (escapes.isEmpty()) {
+      return null;
+    }
+    Set<Register> aliases = new HashSet<Register>(regs);
+    for (Instruction s : escapes) {
+      if (!isLastUse(s, aliases, useBlocks)) {
+        return null;
+      }
+    }
+    return new ObjectReplacer(r, klass, ir, escapes, aliases);
+  }
+
+  /**
+   * Classify a use of an object for partial replacement.
+   *
+   * @param use the use
+   * @param klass the type of the object
+   * @return {@link #LOCAL} if the use can be scalar replaced,
+   *  {@link #COPY} if the use copies the reference, {@link #ESCAPE}
+   *  if the object escapes at a cold use and {@link #UNSUPPORTED} otherwise
+   */
+  private static int classifyUse(RegisterOperand use, RVMClass klass) {
+    Instruction s = use.instruction;
+    switch (s.getOpcode()) {
+      case GETFIELD_opcode:
+        return GetField.getLocation(s).getFieldRef().isResolved() ? LOCAL : UNSUPPORTED;
+      case PUTFIELD_opcode:
+        if (PutField.getValue(s) == use) {
+          return escapeIfCold(s);
+        }
+        return PutField.getLocation(s).getFieldRef().isResolved() ? LOCAL : UNSUPPORTED;
+      case NULL_CHECK_opcode:
+      case GET_OBJ_TIB_opcode:
+        return LOCAL;
+      case REF_MOVE_opcode:
+        return COPY;
+      case CHECKCAST_opcode:
+      case CHECKCAST_NOTNULL_opcode:
+      case CHECKCAST_UNRESOLVED_opcode: {
+        byte ans = ClassLoaderProxy.includesType(TypeCheck.getType(s).getTypeRef(), klass.getTypeRef());
+        return ans == YES ? COPY : ans == MAYBE ? UNSUPPORTED : LOCAL;
+      }
+      case INSTANCEOF_opcode:
+      case INSTANCEOF_NOTNULL_opcode:
+      case INSTANCEOF_UNRESOLVED_opcode:
+        return ClassLoaderProxy.includesType(InstanceOf.getType(s).getTypeRef(), klass.getTypeRef()) == MAYBE ?
+            UNSUPPORTED : LOCAL;
+      case REF_ASTORE_opcode:
+        return AStore.getValue(s) == use ? escapeIfCold(s) : UNSUPPORTED;
+      case CALL_opcode:
+      case PUTSTATIC_opcode:
+      case RETURN_opcode:
+      case ATHROW_opcode:
+        return escapeIfCold(s);
+      default:
+        return UNSUPPORTED;
+    }
+  }
+
+  private static int escapeIfCold(Instruction s) {
+    return s.getBasicBlock().getInfrequent() ? ESCAPE : UNSUPPORTED;
+  }
+
+  /**
+   * Is an escaping instruction the last use of the object on every path
+   * through it?  Later uses in its block, or in any block reachable from
+   * it, would see a different object from the one that escaped.
+   *
+   * @param s the escaping instruction
+   * @param aliases the registers holding the object reference
+   * @param useBlocks the blocks that use the object
+   * @return whether nothing uses the object after {@code s}
+   */
+  private static boolean isLastUse(Instruction s, Set<Register> aliases, Set<BasicBlock> useBlocks) {
+    BasicBlock bb = s.getBasicBlock();
+    for (Instruction t = s.nextInstructionInCodeOrder(); t != bb.lastInstruction(); t = t.nextInstructionInCodeOrder()) {
+      if (usesObject(t, aliases)) {
+        return false;
+      }
+    }
+    Set<BasicBlock> visited = new HashSet<BasicBlock>();
+    ArrayList<BasicBlock> work = new ArrayList<BasicBlock>();
+    for (Enumeration<BasicBlock> e = bb.getOut(); e.hasMoreElements();) {
+      work.add(e.nextElement());
+    }
+    while (!work.isEmpty()) {
+      BasicBlock b = work.remove(work.size() - 1);
+      if (!visited.add(b)) {
+        continue;
+      }
+      if (useBlocks.contains(b)) {
+        return false;
+      }
+      for (Enumeration<BasicBlock> e = b.getOut(); e.hasMoreElements();) {
+        work.add(e.nextElement());
+      }
+    }
+    return true;
+  }
+
+  private static boolean usesObject(Instruction s, Set<Register> aliases) {
+    for (Enumeration<Operand> e = s.getUses(); e.hasMoreElements();) {
+      Operand op = e.nextElement();
+      if (op instanceof RegisterOperand && aliases.contains(((RegisterOperand) op).getRegister())) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
@@ -122,9 +319,52 @@ final class ObjectReplacer implements AggregateReplacer {
       scalars[i] = IRTools.moveIntoRegister(ir.regpool, defI, defaultValue);
       scalars[i].setType(f.getType());
     }
+    if (escapes != null) {
+      for (Instruction s : escapes) {
+        materialize(s, defI, scalars, fields);
+      }
+    }
     transform2(this.reg, defI, scalars, fields, null);
   }
 
+  /**
+   * Allocate the object just before an instruction where it escapes,
+   * initialize its fields from the scalars and make the instruction use
+   * the new object.
+   *
+   * @param s the escaping instruction
+   * @param defI the original allocation
+   * @param scalars the scalars holding the object's fields
+   * @param fields the object's fields
+   */
+  private void materialize(Instruction s, Instruction defI, RegisterOperand[] scalars, ArrayList<RVMField> fields) {
+    RegisterOperand obj = ir.regpool.makeTemp(New.getResult(defI));
+    obj.setGuard(new TrueGuardOperand());
+    Instruction alloc = New.create(NEW, obj, (TypeOperand) New.getType(defI).copy());
+    alloc.copyPosition(s);
+    s.insertBefore(alloc);
+    DefUse.updateDUForNewInstruction(alloc);
+    for (int i = 0; i < fields.size(); i++) {
+      RVMField f = fields.get(i);
+      Instruction put = PutField.create(PUTFIELD, scalars[i].copyRO(), obj.copyRO(),
+                                        new AddressConstantOperand(f.getOffset()), new LocationOperand(f),
+                                        new TrueGuardOperand());
+      put.copyPosition(s);
+      s.insertBefore(put);
+      DefUse.updateDUForNewInstruction(put);
+    }
+    ArrayList<RegisterOperand> uses = new ArrayList<RegisterOperand>();
+    for (Enumeration<Operand> e = s.getUses(); e.hasMoreElements();) {
+      Operand op = e.nextElement();
+      if (op instanceof RegisterOperand && aliases.contains(((RegisterOperand) op).getRegister())) {
+        uses.add((RegisterOperand) op);
+      }
+    }
+    for (RegisterOperand use : uses) {
+      DefUse.transferUse(use, obj.copyRO());
+    }
+  }
+
   private void transform2(Register reg, Instruction defI, RegisterOperand[] scalars, ArrayList<RVMField> fields, Set<Register> visited) {
     final boolean DEBUG = false;
 
@@ -156,11 +396,15 @@ final class ObjectReplacer implements AggregateReplacer {
    * @param r the register holding the object reference
    * @param _klass the type of the object to replace
    * @param i the IR
+   * @param escapes the instructions where the object escapes, if any
+   * @param aliases the registers holding the object reference, if it escapes
    */
-  private ObjectReplacer(Register r, RVMClass _klass, IR i) {
+  private ObjectReplacer(Register r, RVMClass _klass, IR i, ArrayList<Instruction> escapes, Set<Register> aliases) {
     reg = r;
     klass = _klass;
     ir = i;
+    this.escapes = escapes;
+    this.aliases = aliases;
   }
 
   /**
@@ -0,0 +1,337 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.escape;
+
+import static org.jikesrvm.compilers.opt.ir.IRTools.AC;
+import static org.jikesrvm.compilers.opt.ir.IRTools.IC;
+import static org.jikesrvm.compilers.opt.ir.Operators.CALL;
+import static org.jikesrvm.compilers.opt.ir.Operators.CHECKCAST_NOTNULL_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.CHECKCAST_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.GETFIELD;
+import static org.jikesrvm.compilers.opt.ir.Operators.MONITORENTER_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.MONITOREXIT_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NEWARRAY_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NEW_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_MOVE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_SUB;
+import static org.jikesrvm.runtime.UnboxedSizeConstants.BYTES_IN_ADDRESS;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.RVMArray;
+import org.jikesrvm.classloader.RVMClass;
+import org.jikesrvm.classloader.RVMField;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.opt.DefUse;
+import org.jikesrvm.compilers.opt.inlining.InlineDecision;
+import org.jikesrvm.compilers.opt.inlining.Inliner;
+import org.jikesrvm.compilers.opt.ir.BasicBlock;
+import org.jikesrvm.compilers.opt.ir.Binary;
+import org.jikesrvm.compilers.opt.ir.Call;
+import org.jikesrvm.compilers.opt.ir.GetField;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.New;
+import org.jikesrvm.compilers.opt.ir.NewArray;
+import org.jikesrvm.compilers.opt.ir.Register;
+import org.jikesrvm.compilers.opt.ir.ResultCarrier;
+import org.jikesrvm.compilers.opt.ir.operand.AddressConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.LocationOperand;
+import org.jikesrvm.compilers.opt.ir.operand.MethodOperand;
+import org.jikesrvm.compilers.opt.ir.operand.Operand;
+import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
+import org.jikesrvm.compilers.opt.ir.operand.TIBConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.TrueGuardOperand;
+import org.jikesrvm.mm.mminterface.MemoryManager;
+import org.jikesrvm.objectmodel.ObjectModel;
+import org.jikesrvm.runtime.ArchEntrypoints;
+import org.jikesrvm.runtime.Entrypoints;
+import org.jikesrvm.runtime.Memory;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * Class that allocates method-local objects in the stack frame of the
+ * allocating method, for objects that can't be scalar replaced (for
+ * example arrays that are indexed by variables).
+ * <p>
+ * The object keeps its header, so it is used just like a heap object,
+ * but it belongs to no space. Stack scanning skips references to it,
+ * so the object may not contain references itself. When the stack is
+ * resized the pointers to the object are not adjusted; instead the
+ * thread keeps its old stack until the frames that allocated objects in
+ * it have returned (see
+ * {@link org.jikesrvm.scheduler.RVMThread#isStackAddress}). The program
+ * goes on using the object in the old stack, while the collector only
+ * scans the new one, which is why references can't be held in the
+ * object.
+ * <p>
+ * Each allocation site has its own space in the frame, so it mustn't
+ * be inside a loop.
+ */
+final class StackAllocator implements AggregateReplacer {
+  /**
+   * largest object that is allocated on the stack, in bytes
+   */
+  private static final int MAX_OBJECT_BYTES = 256;
+  /**
+   * most space the objects of a method may take in its frame, in bytes
+   */
+  static final int MAX_FRAME_BYTES = 1024;
+
+  /**
+   * the allocation site
+   */
+  private final Instruction inst;
+  /**
+   * type of the object
+   */
+  private final RVMType type;
+  /**
+   * size of the object in bytes
+   */
+  private final int size;
+  /**
+   * bytes reserved in the frame for the object
+   */
+  private final int reserved;
+  /**
+   * the governing IR
+   */
+  private final IR ir;
+
+  private StackAllocator(Instruction inst, RVMType type, int size, int reserved, IR ir) {
+    this.inst = inst;
+    this.type = type;
+    this.size = size;
+    this.reserved = reserved;
+    this.ir = ir;
+  }
+
+  /**
+   * Returns an object representing this transformation for a given
+   * allocation site.
+   *
+   * <p> PRECONDITION: objects returned by this allocation site do NOT escape
+   *                 the current method
+   *
+   * @param inst the allocation site
+   * @param ir the governing IR
+   * @param budget the bytes still available for objects in the frame
+   * @return the object, or {@code null} if illegal
+   */
+  static StackAllocator getAllocator(Instruction inst, IR ir, int budget) {
+    // The frame pointer is only available in HIR as a field of the thread
+    // on IA32. The outgoing arguments of system calls aren't kept apart
+    // from space allocated in the frame.
+    if (!VM.BuildForIA32 || ir.hasSysCall()) {
+      return null;
+    }
+    RVMType t;
+    int size;
+    int align;
+    if (inst.getOpcode() == NEW_opcode) {
+      RVMClass klass = New.getType(inst).getVMType().asClass();
+      if (klass.hasFinalizer() || klass.getReferenceOffsets().length != 0) {
+        return null;
+      }
+      t = klass;
+      size = klass.getInstanceSize();
+      align = ObjectModel.getAlignment(klass);
+    } else if (inst.getOpcode() == NEWARRAY_opcode) {
+      RVMArray array = NewArray.getType(inst).getVMType().asArray();
+      Operand length = NewArray.getSize(inst);
+      if (!length.isIntConstant() || array.getElementType().isReferenceType()) {
+        return null;
+      }
+      int n = length.asIntConstant().value;
+      if (n < 0 || n > MAX_OBJECT_BYTES) {
+        return null;
+      }
+      t = array;
+      size = ObjectModel.computeArrayHeaderSize(array) + (n << array.getLogElementSize());
+      align = ObjectModel.getAlignment(array);
+    } else {
+      return null;
+    }
+    if (!t.isInitialized() || size > MAX_OBJECT_BYTES) {
+      return null;
+    }
+    int reserved = Memory.alignUp(MemoryManager.getStackSpaceSize(size, align), BYTES_IN_ADDRESS);
+    if (reserved > budget) {
+      return null;
+    }
+    if (isInLoop(inst.getBasicBlock())) {
+      return null;
+    }
+    // a fat lock would refer to the object from the heap
+    Register r = ResultCarrier.getResult(inst).getRegister();
+    if (synchronizesOn(r, new HashSet<Register>())) {
+      return null;
+    }
+    return new StackAllocator(inst, t, size, reserved, ir);
+  }
+
+  /**
+   * @return the bytes the object takes in the frame
+   */
+  int getReservedBytes() {
+    return reserved;
+  }
+
+  /**
+   * Can control reach a block again once it has left it?
+   *
+   * @param bb the block
+   * @return whether the block is part of a cycle
+   */
+  private static boolean isInLoop(BasicBlock bb) {
+    Set<BasicBlock> visited = new HashSet<BasicBlock>();
+    ArrayList<BasicBlock> work = new ArrayList<BasicBlock>();
+    for (Enumeration<BasicBlock> e = bb.getOut(); e.hasMoreElements();) {
+      work.add(e.nextElement());
+    }
+    while (!work.isEmpty()) {
+      BasicBlock b = work.remove(work.size() - 1);
+      if (b == bb) {
+        return true;
+      }
+      if (!visited.add(b)) {
+        continue;
+      }
+      for (Enumeration<BasicBlock> e = b.getOut(); e.hasMoreElements();) {
+        work.add(e.nextElement());
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Does the method synchronize on the object held in a register or one
+   * of its copies?
+   *
+   * @param r the register
+   * @param visited the registers already looked at
+   * @return whether a monitor operation uses the object
+   */
+  private static boolean synchronizesOn(Register r, Set<Register> visited) {
+    if (!visited.add(r)) {
+      return false;
+    }
+    for (RegisterOperand use = r.useList; use != null; use = use.getNext()) {
+      Instruction s = use.instruction;
+      switch (s.getOpcode()) {
+        case MONITORENTER_opcode:
+        case MONITOREXIT_opcode:
+          return true;
+        case REF_MOVE_opcode:
+        case CHECKCAST_opcode:
+        case CHECKCAST_NOTNULL_opcode:
+          if (synchronizesOn(ResultCarrier.getResult(s).getRegister(), visited)) {
+            return true;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void transform() {
+    // The stack manager places space allocated in the frame below the
+    // frame pointer, so [FP - (free + reserved), FP - free) is ours.
+    int free = ir.stackManager.allocateOnStackFrame(reserved);
+    ir.compiledMethod.setHasStackAllocatedObjects(true);
+
+    RVMField f = ArchEntrypoints.framePointerField;
+    RegisterOperand fp = ir.regpool.makeTemp(TypeReference.Address);
+    Instruction getFP = GetField.create(GETFIELD,
+                                        fp,
+                                        ir.regpool.makeTROp(),
+                                        new AddressConstantOperand(f.getOffset()),
+                                        new LocationOperand(f),
+                                        new TrueGuardOperand());
+    getFP.copyPosition(inst);
+    inst.insertBefore(getFP);
+    DefUse.updateDUForNewInstruction(getFP);
+    RegisterOperand region = ir.regpool.makeTemp(TypeReference.Address);
+    Instruction sub = Binary.create(REF_SUB, region, fp.copyD2U(), AC(Offset.fromIntSignExtend(free + reserved)));
+    sub.copyPosition(inst);
+    inst.insertBefore(sub);
+    DefUse.updateDUForNewInstruction(sub);
+
+    Operand tib = new TIBConstantOperand(type);
+    RegisterOperand regionUse = region.copyD2U();
+    RVMMethod target;
+    if (type.isClassType()) {
+      RVMClass klass = type.asClass();
+      target = Entrypoints.initializeStackScalarMethod;
+      Call.mutate5(inst,
+                   CALL,
+                   New.getClearResult(inst),
+                   AC(target.getOffset()),
+                   MethodOperand.STATIC(target),
+                   regionUse,
+                   IC(size),
+                   tib,
+                   IC(ObjectModel.getAlignment(klass)),
+                   IC(ObjectModel.getOffsetForAlignment(klass, false)));
+    } else {
+      RVMArray array = type.asArray();
+      Operand length = NewArray.getClearSize(inst);
+      target = Entrypoints.initializeStackArrayMethod;
+      Call.mutate6(inst,
+                   CALL,
+                   NewArray.getClearResult(inst),
+                   AC(target.getOffset()),
+                   MethodOperand.STATIC(target),
+                   regionUse,
+                   length,
+                   IC(size),
+                   tib,
+                   IC(ObjectModel.getAlignment(array)),
+                   IC(ObjectModel.getOffsetForAlignment(array, false)));
+    }
+    DefUse.recordUse(regionUse);
+    inline(target);
+  }
+
+  /**
+   * Inline the initialization of the object, all the way down, as
+   * runtime services are.
+   *
+   * @param target the initialization method
+   */
+  private void inline(RVMMethod target) {
+    boolean savedInliningOption = ir.options.INLINE;
+    boolean savedExceptionOption = ir.options.H2L_NO_CALLEE_EXCEPTIONS;
+    boolean savedOsrGI = ir.options.OSR_GUARDED_INLINING;
+    ir.options.INLINE = true;
+    ir.options.H2L_NO_CALLEE_EXCEPTIONS = true;
+    ir.options.OSR_GUARDED_INLINING = false;
+    try {
+      Inliner.execute(InlineDecision.YES(target, "Stack allocation"), ir, inst);
+    } finally {
+      ir.options.INLINE = savedInliningOption;
+      ir.options.H2L_NO_CALLEE_EXCEPTIONS = savedExceptionOption;
+      ir.options.OSR_GUARDED_INLINING = savedOsrGI;
+    }
+  }
+}
@@ -67,7 +67,10 @@ import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_LOCK_CMPXCHG
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_LOCK_CMPXCHG8B;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_METHODSTART;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOV;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVAPD;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVAPS;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVD;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVDQU;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVSD;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVSS;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVSXDQ;
@@ -79,6 +82,8 @@ import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_NOT;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_OR;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ORPD;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ORPS;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PUNPCKLDQ;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PUNPCKLQDQ;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_RCR;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_RDTSC;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SAR;
@@ -89,6 +94,8 @@ import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SHR;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SUB;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SYSCALL;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_TRAPIF;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_UNPCKLPD;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_UNPCKLPS;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_XOR;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_XORPD;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_XORPS;
@@ -138,6 +145,7 @@ import org.jikesrvm.compilers.opt.ir.ia32.MIR_Set;
 import org.jikesrvm.compilers.opt.ir.ia32.MIR_TrapIf;
 import org.jikesrvm.compilers.opt.ir.ia32.MIR_Unary;
 import org.jikesrvm.compilers.opt.ir.ia32.MIR_UnaryAcc;
+import org.jikesrvm.compilers.opt.ir.ia32.VectorStore;
 import org.jikesrvm.compilers.opt.ir.operand.BranchOperand;
 import org.jikesrvm.compilers.opt.ir.operand.BranchProfileOperand;
 import org.jikesrvm.compilers.opt.ir.operand.ConditionOperand;
@@ -1356,6 +1364,82 @@ public abstract class BURS_Helpers extends BURS_MemOp_Helpers {
     }
   }
 
+  /**
+   * Load the 16 byte vector denoted by an operand of a vector operation
+   * into an XMM register. An address operand names the vector in memory,
+   * any other operand is a scalar that is broadcast to every element.
+   *
+   * @param s the instruction being expanded
+   * @param vector the XMM register to load
+   * @param value the vector operand
+   * @param elementType the type of the elements of the vector
+   */
+  private void VECTOR_LOAD(Instruction s, RegisterOperand vector, Operand value, TypeReference elementType) {
+    if (value.isRegister() && value.asRegister().getType().isWordLikeType()) {
+      EMIT(CPOS(s, MIR_Move.create(IA32_MOVDQU, vector,
+          MemoryOperand.B(value.asRegister().copyRO(), PARAGRAPH, null, null))));
+    } else if (elementType == TypeReference.Int) {
+      EMIT(CPOS(s, MIR_Move.create(IA32_MOVD, vector, asReg(s, IA32_MOV, value.copy()))));
+      EMIT(CPOS(s, MIR_BinaryAcc.create(IA32_PUNPCKLDQ, vector.copyRO(), vector.copyRO())));
+      EMIT(CPOS(s, MIR_BinaryAcc.create(IA32_PUNPCKLQDQ, vector.copyRO(), vector.copyRO())));
+    } else if (elementType == TypeReference.Float) {
+      EMIT(CPOS(s, MIR_Move.create(IA32_MOVAPS, vector, value.copy())));
+      EMIT(CPOS(s, MIR_BinaryAcc.create(IA32_UNPCKLPS, vector.copyRO(), vector.copyRO())));
+      EMIT(CPOS(s, MIR_BinaryAcc.create(IA32_UNPCKLPD, vector.copyRO(), vector.copyRO())));
+    } else {
+      if (VM.VerifyAssertions) opt_assert(elementType == TypeReference.Double);
+      EMIT(CPOS(s, MIR_Move.create(IA32_MOVAPD, vector, value.copy())));
+      EMIT(CPOS(s, MIR_BinaryAcc.create(IA32_UNPCKLPD, vector.copyRO(), vector.copyRO())));
+    }
+  }
+
+  /**
+   * Expansion of the vector moves and element-wise vector operations.
+   * Vector values are only ever held in scratch XMM registers within
+   * this expansion, as the upper halves of XMM registers aren't
+   * preserved by spills or across yieldpoints.
+   *
+   * @param s the instruction to expand
+   * @param operator the packed operator to combine the two operands
+   *  with, {@code null} for a vector move
+   * @param elementType the type of the elements of the vector
+   */
+  protected final void VECTOR_STORE(Instruction s, Operator operator, TypeReference elementType) {
+    RegisterOperand vector = new RegisterOperand(getFPR(6), TypeReference.Double);
+    VECTOR_LOAD(s, vector, VectorStore.getVal1(s), elementType);
+    if (operator != null) {
+      RegisterOperand vector2 = new RegisterOperand(getFPR(7), TypeReference.Double);
+      VECTOR_LOAD(s, vector2, VectorStore.getVal2(s), elementType);
+      EMIT(CPOS(s, MIR_BinaryAcc.create(operator, vector.copyRO(), vector2.copyRO())));
+    }
+    MemoryOperand address = MemoryOperand.B(VectorStore.getAddress(s).asRegister().copyRO(), PARAGRAPH, null, null);
+    EMIT(MIR_Move.mutate(s, IA32_MOVDQU, address, vector.copyRO()));
+  }
+
+  /**
+   * Expansion of the int vector reductions. The two vectors are
+   * combined with a packed operation then the elements of the result
+   * are folded together through a stack slot.
+   *
+   * @param s the instruction to expand
+   * @param vectorOperator the packed operator that combines the vectors
+   * @param operator the scalar operator that folds the elements
+   */
+  protected final void VECTOR_REDUCE(Instruction s, Operator vectorOperator, Operator operator) {
+    RegisterOperand vector = new RegisterOperand(getFPR(6), TypeReference.Double);
+    RegisterOperand vector2 = new RegisterOperand(getFPR(7), TypeReference.Double);
+    VECTOR_LOAD(s, vector, Binary.getVal1(s), TypeReference.Int);
+    VECTOR_LOAD(s, vector2, Binary.getVal2(s), TypeReference.Int);
+    EMIT(CPOS(s, MIR_BinaryAcc.create(vectorOperator, vector.copyRO(), vector2.copyRO())));
+    int offset = -burs.ir.stackManager.allocateSpaceForVector();
+    EMIT(CPOS(s, MIR_Move.create(IA32_MOVDQU, new StackLocationOperand(true, offset, PARAGRAPH), vector.copyRO())));
+    RegisterOperand result = Binary.getResult(s);
+    EMIT(CPOS(s, MIR_Move.create(IA32_MOV, result.copyRO(), new StackLocationOperand(true, offset, DW))));
+    for (int i = DW; i < PARAGRAPH; i += DW) {
+      EMIT(CPOS(s, MIR_BinaryAcc.create(operator, result.copyRO(), new StackLocationOperand(true, offset + i, DW))));
+    }
+  }
+
   /**
    * Expansion of INT_DIV, SIGNED_DIV_64_32, UNSIGNED_DIV_64_32 and INT_REM
    *
@@ -22,6 +22,8 @@ import static org.jikesrvm.compilers.opt.ir.Operators.UNINT_BEGIN_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.UNINT_END_opcode;
 import static org.jikesrvm.compilers.opt.ir.Operators.WRITE_FLOOR_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ADC_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ADDPD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ADDPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ADDSD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ADDSS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ADD_opcode;
@@ -52,6 +54,8 @@ import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_CVTSS2SD_opc
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_CVTSS2SI_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_CVTTSD2SI_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_CVTTSS2SI_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_DIVPD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_DIVPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_DIVSD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_DIVSS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_INT_opcode;
@@ -62,25 +66,39 @@ import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_LOCK_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_METHODSTART_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVAPD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVAPS_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVDQU_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVLPD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVQ_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVSD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVSS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOV_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MULPD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MULPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MULSD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MULSS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_OFFSET_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_OR_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PADDD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PAND_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_POR_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PSUBD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PUNPCKLDQ_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PUNPCKLQDQ_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PUSH_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PXOR_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_RET_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SBB_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SQRTSD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SUBPD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SUBPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SUBSD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SUBSS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_TEST_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_UCOMISD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_UCOMISS_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_UNPCKLPD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_UNPCKLPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_XORPD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_XORPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_XOR_opcode;
@@ -907,7 +925,24 @@ abstract class AssemblerBase extends Assembler {
       case IA32_SUBSS_opcode:
       case IA32_MULSS_opcode:
       case IA32_DIVSS_opcode:
-      case IA32_XORPS_opcode: {
+      case IA32_XORPS_opcode:
+      case IA32_PADDD_opcode:
+      case IA32_PSUBD_opcode:
+      case IA32_PAND_opcode:
+      case IA32_POR_opcode:
+      case IA32_PXOR_opcode:
+      case IA32_PUNPCKLDQ_opcode:
+      case IA32_PUNPCKLQDQ_opcode:
+      case IA32_ADDPS_opcode:
+      case IA32_SUBPS_opcode:
+      case IA32_MULPS_opcode:
+      case IA32_DIVPS_opcode:
+      case IA32_UNPCKLPS_opcode:
+      case IA32_ADDPD_opcode:
+      case IA32_SUBPD_opcode:
+      case IA32_MULPD_opcode:
+      case IA32_DIVPD_opcode:
+      case IA32_UNPCKLPD_opcode: {
         int size = 4; // opcode + modr/m
         Operand value = MIR_BinaryAcc.getValue(inst);
         size += operandCost(value, false);
@@ -962,6 +997,7 @@ abstract class AssemblerBase extends Assembler {
         return size;
       }
       case IA32_MOVD_opcode:
+      case IA32_MOVDQU_opcode:
       case IA32_MOVAPD_opcode:
       case IA32_MOVAPS_opcode:
       case IA32_MOVLPD_opcode:
@@ -101,6 +101,11 @@ public abstract class GenericStackManager extends IRTools {
    */
   private int conversionOffset;
 
+  /**
+   * Memory location (16 bytes) to be used for vector reductions
+   */
+  private int vectorOffset;
+
   /**
    * Memory location (4 bytes) to be used for caughtExceptions
    */
@@ -1321,6 +1326,19 @@ l   */
     return conversionOffset;
   }
 
+  /**
+   * We encountered a vector reduction that uses the stack as
+   * temporary storage.
+   *
+   * @return offset to the start of the allocated space
+   */
+  public int allocateSpaceForVector() {
+    if (vectorOffset == 0) {
+      vectorOffset = allocateOnStackFrame(16);
+    }
+    return vectorOffset;
+  }
+
   /**
    * We encountered a catch block that actually uses its caught
    * exception object; allocate a stack slot for the exception delivery
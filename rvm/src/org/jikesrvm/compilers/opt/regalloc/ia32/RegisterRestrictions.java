@@ -13,6 +13,8 @@
 package org.jikesrvm.compilers.opt.regalloc.ia32;
 
 import static org.jikesrvm.compilers.opt.ir.Operators.IR_PROLOGUE;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ADDPD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ADDPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ADDSD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ADDSS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ANDNPD_opcode;
@@ -45,6 +47,8 @@ import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_CVTSS2SD_opc
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_CVTSS2SI_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_CVTTSD2SI_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_CVTTSS2SI_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_DIVPD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_DIVPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_DIVSD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_DIVSS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_FCLEAR;
@@ -63,21 +67,34 @@ import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVZXQ__B_op
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVZXQ__W_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVZX__B_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MOVZX__W_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MULPD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MULPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MULSD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_MULSS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ORPD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_ORPS_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PADDD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PAND_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_POR_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PREFETCHNTA_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PSUBD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PUNPCKLDQ_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PUNPCKLQDQ_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_PXOR_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SET__B_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SHLD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SHRD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SQRTSD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SQRTSS_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SUBPD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SUBPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SUBSD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_SUBSS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_TEST_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_UCOMISD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_UCOMISS_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_UNPCKLPD_opcode;
+import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_UNPCKLPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_XORPD_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IA32_XORPS_opcode;
 import static org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.IMMQ_MOV_opcode;
@@ -302,6 +319,23 @@ public final class RegisterRestrictions extends GenericRegisterRestrictions {
       case IA32_ANDNPD_opcode:
       case IA32_ORPD_opcode:
       case IA32_XORPD_opcode:
+      case IA32_PADDD_opcode:
+      case IA32_PSUBD_opcode:
+      case IA32_PAND_opcode:
+      case IA32_POR_opcode:
+      case IA32_PXOR_opcode:
+      case IA32_PUNPCKLDQ_opcode:
+      case IA32_PUNPCKLQDQ_opcode:
+      case IA32_ADDPS_opcode:
+      case IA32_SUBPS_opcode:
+      case IA32_MULPS_opcode:
+      case IA32_DIVPS_opcode:
+      case IA32_UNPCKLPS_opcode:
+      case IA32_ADDPD_opcode:
+      case IA32_SUBPD_opcode:
+      case IA32_MULPD_opcode:
+      case IA32_DIVPD_opcode:
+      case IA32_UNPCKLPD_opcode:
       case IMMQ_MOV_opcode:
         return true;
 
@@ -352,6 +352,8 @@ public final class OptCompiledMethod extends CompiledMethod {
   private boolean volatilesSaved;
   /** is the current method executing with instrumentation */
   private boolean instrumented;
+  /** does the method allocate objects in its stack frame? */
+  private boolean stackAllocation;
 
   public int getUnsignedNonVolatileOffset() {
     return nonvolatileOffset;
@@ -381,6 +383,10 @@ public final class OptCompiledMethod extends CompiledMethod {
     return instrumented;
   }
 
+  public boolean hasStackAllocatedObjects() {
+    return stackAllocation;
+  }
+
   public int getFrameFixedSize() {
     return stackFrameFixedSize;
   }
@@ -418,6 +424,10 @@ public final class OptCompiledMethod extends CompiledMethod {
     instrumented = _instrumented;
   }
 
+  public void setHasStackAllocatedObjects(boolean sa) {
+    stackAllocation = sa;
+  }
+
   public void setFrameFixedSize(int x) {
     if (VM.VerifyAssertions) VM._assert(x >= 0 && x < 0xFFFF);
     stackFrameFixedSize = (char) x;
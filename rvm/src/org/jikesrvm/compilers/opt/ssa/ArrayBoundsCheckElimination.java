@@ -0,0 +1,791 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.ssa;
+
+import static org.jikesrvm.compilers.opt.ir.Operators.ARRAYLENGTH_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.BOUNDS_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.GUARD_MOVE;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ADD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_AND_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_IFCMP_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_MOVE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_SUB_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NEWARRAY_UNRESOLVED_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NEWARRAY_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.PHI_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.PI;
+import static org.jikesrvm.compilers.opt.ir.Operators.PI_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_MOVE_opcode;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.compilers.opt.DefUse;
+import org.jikesrvm.compilers.opt.OptOptions;
+import org.jikesrvm.compilers.opt.controlflow.DominanceFrontier;
+import org.jikesrvm.compilers.opt.controlflow.DominatorsPhase;
+import org.jikesrvm.compilers.opt.driver.CompilerPhase;
+import org.jikesrvm.compilers.opt.driver.OptimizationPlanAtomicElement;
+import org.jikesrvm.compilers.opt.driver.OptimizationPlanCompositeElement;
+import org.jikesrvm.compilers.opt.driver.OptimizationPlanElement;
+import org.jikesrvm.compilers.opt.ir.Binary;
+import org.jikesrvm.compilers.opt.ir.BoundsCheck;
+import org.jikesrvm.compilers.opt.ir.GuardedUnary;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.IfCmp;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.Move;
+import org.jikesrvm.compilers.opt.ir.NewArray;
+import org.jikesrvm.compilers.opt.ir.Phi;
+import org.jikesrvm.compilers.opt.ir.Register;
+import org.jikesrvm.compilers.opt.ir.operand.ConditionOperand;
+import org.jikesrvm.compilers.opt.ir.operand.Operand;
+import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
+import org.jikesrvm.compilers.opt.ir.operand.TrueGuardOperand;
+
+/**
+ * Array bounds check elimination on demand (ABCD), after Bodik, Gupta
+ * and Sarkar, "ABCD: Eliminating Array Bounds Checks on Demand", PLDI
+ * 2000.
+ * <p>
+ * PI nodes are inserted after conditional branches, bounds checks and
+ * array allocations and the IR is put back into SSA form, so that every
+ * fact learnt from a comparison has its own name. Two inequality graphs are then built
+ * over the integer SSA values, array lengths and constants: one holding
+ * constraints of the form <code>v &lt;= u + c</code> and one of the
+ * form <code>v &gt;= u + c</code>. The edges come from copies, PI
+ * nodes, additions of constants, array lengths, array allocations and
+ * <code>and</code> with non-negative values; phis are merge nodes
+ * whose operands must all satisfy a constraint for it to hold.
+ * <p>
+ * A bounds check <code>0 &lt;= i &lt; a.length</code> is redundant if
+ * both <code>i &lt;= a.length - 1</code> and <code>i &gt;= 0</code>
+ * can be proven by walking the graphs backwards from <code>i</code>.
+ * Cycles through phis are induction variables: a cycle that doesn't
+ * weaken the constraint being proven is harmless, whereas one that
+ * does (such as an increasing variable when proving an upper bound)
+ * fails the proof. Additions of constants only yield constraints when
+ * they are known not to overflow, which is itself proven on demand,
+ * and a check is never proven using the PI node that follows it.
+ */
+public final class ArrayBoundsCheckElimination extends OptimizationPlanCompositeElement {
+
+  @Override
+  public boolean shouldPerform(OptOptions options) {
+    return options.SSA_ABCD;
+  }
+
+  /**
+   * Create this phase element as a composite of other elements
+   */
+  public ArrayBoundsCheckElimination() {
+    super("Array Bounds Check Elimination", new OptimizationPlanElement[]{
+        // Stage 1: Insert PI nodes to name the facts we learn from checks
+        new OptimizationPlanAtomicElement(new InsertPiNodes()),
+
+        // Stage 2: Recompute dominators for the new blocks
+        new OptimizationPlanAtomicElement(new DominatorsPhase(true)),
+        new OptimizationPlanAtomicElement(new DominanceFrontier()),
+
+        // Stage 3: Require SSA form
+        new OptimizationPlanAtomicElement(new EnsureSSA()),
+
+        // Stage 4: Do the optimization
+        new OptimizationPlanAtomicElement(new ABCD()),
+
+        // Stage 5: Turn the PI nodes back into moves
+        new OptimizationPlanAtomicElement(new RemovePiNodes())});
+  }
+
+  private static final class InsertPiNodes extends CompilerPhase {
+
+    @Override
+    public String getName() {
+      return "Insert Pi Nodes";
+    }
+
+    @Override
+    public void perform(IR ir) {
+      new PiNodes(true).perform(ir);
+      // The size of an array is only known to be its length where the
+      // allocation succeeded, so name it afresh after the allocation
+      for (Instruction s = ir.firstInstructionInCodeOrder(); s != null; s = s.nextInstructionInCodeOrder()) {
+        if (NewArray.conforms(s)) {
+          Operand size = NewArray.getSize(s);
+          if (size.isRegister() && !size.asRegister().getRegister().isPhysical()) {
+            Instruction pi = GuardedUnary.create(PI, (RegisterOperand) size.copy(), size.copy(), null);
+            pi.copyPosition(s);
+            s.insertAfter(pi);
+            s = pi;
+          }
+        }
+      }
+    }
+
+    @Override
+    public CompilerPhase newExecution(IR ir) {
+      return this;
+    }
+  }
+
+  private static final class EnsureSSA extends CompilerPhase {
+
+    @Override
+    public String getName() {
+      return "Ensure SSA";
+    }
+
+    @Override
+    public void perform(IR ir) {
+      ir.desiredSSAOptions = new SSAOptions();
+      new EnterSSA().perform(ir);
+    }
+
+    @Override
+    public CompilerPhase newExecution(IR ir) {
+      return this;
+    }
+  }
+
+  private static final class RemovePiNodes extends CompilerPhase {
+
+    @Override
+    public String getName() {
+      return "Remove Pi Nodes";
+    }
+
+    @Override
+    public void perform(IR ir) {
+      PiNodes.cleanUp(ir);
+    }
+
+    @Override
+    public CompilerPhase newExecution(IR ir) {
+      return this;
+    }
+  }
+
+  private static final class ABCD extends CompilerPhase {
+    private static final boolean DEBUG = false;
+
+    /**
+     * Maximum number of graph nodes visited to prove a single
+     * constraint, bounding compile time on large methods
+     */
+    private static final int BUDGET = 500;
+    /**
+     * Maximum nesting of the proofs that additions don't overflow
+     */
+    private static final int MAX_DEPTH = 2;
+
+    @Override
+    public String getName() {
+      return "ABCD Transform";
+    }
+
+    @Override
+    public boolean printingEnabled(OptOptions options, boolean before) {
+      return false;
+    }
+
+    /**
+     * Return this instance of this phase. This phase contains
+     * no per-compilation instance fields.
+     * @param ir not used
+     * @return this
+     */
+    @Override
+    public CompilerPhase newExecution(IR ir) {
+      return this;
+    }
+
+    /**
+     * Find and remove the bounds checks the inequality graphs prove
+     * redundant.
+     *
+     * @param ir   The IR on which to apply the phase
+     */
+    @Override
+    public void perform(IR ir) {
+      DefUse.computeDU(ir);
+      DefUse.recomputeSSA(ir);
+      Graphs graphs = new Graphs();
+      graphs.build(ir);
+
+      // (1) Find the redundant checks; removing them as we go would
+      // lose the generators of the PI nodes we're reasoning about
+      ArrayList<Instruction> redundant = new ArrayList<Instruction>();
+      int total = 0;
+      for (Enumeration<Instruction> e = ir.forwardInstrEnumerator(); e.hasMoreElements();) {
+        Instruction s = e.nextElement();
+        if (s.getOpcode() != BOUNDS_CHECK_opcode) {
+          continue;
+        }
+        total++;
+        Object array = graphs.getLength(BoundsCheck.getRef(s));
+        Object index = graphs.getNode(BoundsCheck.getIndex(s));
+        if ((array == null) || (index == null)) {
+          continue;
+        }
+        Register guard = BoundsCheck.getGuardResult(s).getRegister();
+        if (new Prover(graphs, true, array, guard, 0).proves(index, -1) &&
+            new Prover(graphs, false, 0, guard, 0).proves(index, 0)) {
+          if (DEBUG) {
+            VM.sysWriteln("ABCD: redundant " + s);
+          }
+          redundant.add(s);
+        }
+      }
+
+      // (2) Replace them by moves of the true guard
+      for (Instruction s : redundant) {
+        Instruction move = Move.create(GUARD_MOVE, BoundsCheck.getGuardResult(s).copyD2D(), new TrueGuardOperand());
+        move.copyPosition(s);
+        s.insertAfter(move);
+        DefUse.updateDUForNewInstruction(move);
+        DefUse.removeInstructionAndUpdateDU(s);
+      }
+
+      if (container != null) {
+        container.counter1 += redundant.size();
+        container.counter2 += total;
+      }
+      if (ir.options.PRINT_ABCD && (total != 0)) {
+        VM.sysWriteln("ABCD: removed " + redundant.size() + " of " + total +
+                      " bounds checks in " + ir.method);
+      }
+    }
+
+    @Override
+    public void reportAdditionalStats() {
+      VM.sysWrite("  ");
+      VM.sysWrite(container.counter1 / container.counter2 * 100, 2);
+      VM.sysWrite("% bounds checks removed");
+    }
+  }
+
+  /**
+   * The length of an array, identified by the register holding it.
+   */
+  private static final class Length {
+    final Register array;
+
+    Length(Register array) {
+      this.array = array;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof Length) && (((Length) o).array == array);
+    }
+
+    @Override
+    public int hashCode() {
+      return array.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "length(" + array + ")";
+    }
+  }
+
+  /**
+   * A constraint <code>target &lt;= source + weight</code> in the upper
+   * bound graph, or <code>target &gt;= source + weight</code> in the
+   * lower bound graph.
+   */
+  private static final class Edge {
+    /** The node the constraint is relative to */
+    final Object source;
+    /** The constant difference */
+    final long weight;
+    /**
+     * The guard of the bounds check whose PI node gave rise to the
+     * edge, or {@code null}
+     */
+    final Register check;
+    /**
+     * A node that must be shown to be within a bound for the edge to
+     * hold, or {@code null} if the edge holds unconditionally
+     */
+    final Object condition;
+    /** Is the condition an upper (or lower) bound? */
+    final boolean conditionUpper;
+    /** The bound on the condition node */
+    final int conditionBound;
+
+    Edge(Object source, long weight, Register check, Object condition, boolean conditionUpper, int conditionBound) {
+      this.source = source;
+      this.weight = weight;
+      this.check = check;
+      this.condition = condition;
+      this.conditionUpper = conditionUpper;
+      this.conditionBound = conditionBound;
+    }
+  }
+
+  /**
+   * The upper and lower bound inequality graphs of a method. Nodes are
+   * integer {@link Register}s, {@link Integer} constants and array
+   * {@link Length}s.
+   */
+  private static final class Graphs {
+    /** Edges into each node of the upper bound graph */
+    final HashMap<Object, ArrayList<Edge>> upper = new HashMap<Object, ArrayList<Edge>>();
+    /** Edges into each node of the lower bound graph */
+    final HashMap<Object, ArrayList<Edge>> lower = new HashMap<Object, ArrayList<Edge>>();
+    /** Registers defined by phis */
+    final HashSet<Object> phis = new HashSet<Object>();
+    /** Lengths seen so far */
+    final HashSet<Length> lengths = new HashSet<Length>();
+
+    /**
+     * Stands for values we know nothing about, such as unreachable phi
+     * operands; it has no edges so nothing can be proven through it
+     */
+    private static final Object UNKNOWN = new Object();
+
+    /**
+     * @param op an operand
+     * @return the node for an integer operand or {@code null}
+     */
+    Object getNode(Operand op) {
+      if (op.isIntConstant()) {
+        return op.asIntConstant().value;
+      } else if (op.isRegister() && op.asRegister().getRegister().isInteger()) {
+        return op.asRegister().getRegister();
+      }
+      return null;
+    }
+
+    /**
+     * @param op an operand holding an array
+     * @return the node for the array's length or {@code null}
+     */
+    Object getLength(Operand op) {
+      if (!op.isRegister()) {
+        return null;
+      }
+      // look through copies of the array
+      Register array = op.asRegister().getRegister();
+      while (true) {
+        RegisterOperand def = array.defList;
+        if ((def == null) || (def.getNext() != null)) {
+          break;
+        }
+        Operand value;
+        if (def.instruction.getOpcode() == REF_MOVE_opcode) {
+          value = Move.getVal(def.instruction);
+        } else if (def.instruction.getOpcode() == PI_opcode) {
+          value = GuardedUnary.getVal(def.instruction);
+        } else {
+          break;
+        }
+        if (!value.isRegister()) {
+          break;
+        }
+        array = value.asRegister().getRegister();
+      }
+      if (!array.isSSA()) {
+        // the array may be reassigned
+        return null;
+      }
+      Length length = new Length(array);
+      if (lengths.add(length)) {
+        // 0 <= length <= Integer.MAX_VALUE
+        add(upper, length, Integer.MAX_VALUE, 0);
+        add(lower, length, 0, 0);
+      }
+      return length;
+    }
+
+    /**
+     * Add an unconditional edge to a graph.
+     *
+     * @param graph the graph
+     * @param target the constrained node
+     * @param source the node it's relative to
+     * @param weight the constant difference
+     */
+    void add(HashMap<Object, ArrayList<Edge>> graph, Object target, Object source, long weight) {
+      add(graph, target, new Edge(source, weight, null, null, false, 0));
+    }
+
+    void add(HashMap<Object, ArrayList<Edge>> graph, Object target, Edge edge) {
+      if ((target instanceof Register) && !((Register) target).isSSA()) {
+        // constraints on one definition don't hold for the others
+        return;
+      }
+      ArrayList<Edge> edges = graph.get(target);
+      if (edges == null) {
+        edges = new ArrayList<Edge>(2);
+        graph.put(target, edges);
+      }
+      edges.add(edge);
+    }
+
+    /**
+     * Add edges for a copy.
+     *
+     * @param target the copy
+     * @param source the value copied
+     */
+    void addCopy(Object target, Object source) {
+      add(upper, target, source, 0);
+      add(lower, target, source, 0);
+    }
+
+    /**
+     * Add edges for <code>target = source + k</code>. As the addition
+     * may wrap, <code>target &lt;= source + k</code> is only known for
+     * a negative <code>k</code> if <code>source</code> can't underflow,
+     * and vice versa for the lower bound.
+     *
+     * @param target the sum
+     * @param source the value added to
+     * @param k the constant added
+     */
+    void addSum(Object target, Object source, long k) {
+      if (source == null) {
+        return;
+      } else if (k >= 0) {
+        add(upper, target, source, k);
+        add(lower, target, new Edge(source, k, null, source, true, (int) (Integer.MAX_VALUE - k)));
+      } else {
+        add(upper, target, new Edge(source, k, null, source, false, (int) (Integer.MIN_VALUE - k)));
+        add(lower, target, source, k);
+      }
+    }
+
+    /**
+     * Build the graphs from the instructions of the IR.
+     *
+     * @param ir the IR
+     */
+    void build(IR ir) {
+      for (Enumeration<Instruction> e = ir.forwardInstrEnumerator(); e.hasMoreElements();) {
+        Instruction s = e.nextElement();
+        switch (s.getOpcode()) {
+          case PHI_opcode: {
+            Object result = getNode(Phi.getResult(s));
+            if (result == null) {
+              break;
+            }
+            phis.add(result);
+            for (int i = 0; i < Phi.getNumberOfValues(s); i++) {
+              Object value = getNode(Phi.getValue(s, i));
+              if (value == null) {
+                value = UNKNOWN;
+              }
+              addCopy(result, value);
+            }
+            break;
+          }
+          case INT_MOVE_opcode: {
+            Object result = getNode(Move.getResult(s));
+            Object value = getNode(Move.getVal(s));
+            if ((result != null) && (value != null)) {
+              addCopy(result, value);
+            }
+            break;
+          }
+          case PI_opcode:
+            addPi(s);
+            break;
+          case INT_ADD_opcode:
+          case INT_SUB_opcode: {
+            Object result = getNode(Binary.getResult(s));
+            Operand val1 = Binary.getVal1(s);
+            Operand val2 = Binary.getVal2(s);
+            if (result == null) {
+              break;
+            }
+            if (val1.isRegister() && val2.isIntConstant()) {
+              long k = val2.asIntConstant().value;
+              addSum(result, getNode(val1), (s.getOpcode() == INT_ADD_opcode) ? k : -k);
+            } else if (val2.isRegister() && val1.isIntConstant() && (s.getOpcode() == INT_ADD_opcode)) {
+              addSum(result, getNode(val2), val1.asIntConstant().value);
+            }
+            break;
+          }
+          case INT_AND_opcode: {
+            // anding with a non-negative value gives a value between 0 and it
+            Object result = getNode(Binary.getResult(s));
+            if (result == null) {
+              break;
+            }
+            for (int i = 0; i < 2; i++) {
+              Object value = getNode((i == 0) ? Binary.getVal1(s) : Binary.getVal2(s));
+              if (value == null) {
+                continue;
+              }
+              add(upper, result, new Edge(value, 0, null, value, false, 0));
+              add(lower, result, new Edge(0, 0, null, value, false, 0));
+            }
+            break;
+          }
+          case ARRAYLENGTH_opcode: {
+            Object result = getNode(GuardedUnary.getResult(s));
+            Object length = getLength(GuardedUnary.getVal(s));
+            if ((result != null) && (length != null)) {
+              addCopy(result, length);
+            }
+            break;
+          }
+          case NEWARRAY_opcode:
+          case NEWARRAY_UNRESOLVED_opcode: {
+            Object length = getLength(NewArray.getResult(s));
+            Object size = getNode(NewArray.getSize(s));
+            // the size isn't known to be the length where the allocation
+            // was skipped or failed; the PI node after it says so instead
+            if ((length != null) && (size != null)) {
+              addCopy(length, size);
+            }
+            break;
+          }
+          default:
+            break;
+        }
+      }
+    }
+
+    /**
+     * Add the edges for a PI node: it's a copy of its value, which is
+     * also constrained by the bounds check or branch it follows.
+     *
+     * @param pi the PI node
+     */
+    void addPi(Instruction pi) {
+      Object result = getNode(GuardedUnary.getResult(pi));
+      Object value = getNode(GuardedUnary.getVal(pi));
+      if ((result == null) || (value == null)) {
+        return;
+      }
+      addCopy(result, value);
+      if (GuardedUnary.getGuard(pi) == null) {
+        // PI node for the size after an array allocation
+        Instruction allocation = pi.prevInstructionInCodeOrder();
+        if (NewArray.conforms(allocation)) {
+          Object length = getLength(NewArray.getResult(allocation));
+          if (length != null) {
+            addCopy(result, length);
+          }
+        }
+        return;
+      }
+      Instruction generator = PiNodes.getGenerator(pi);
+      if (PiNodes.isBoundsCheckPi(pi)) {
+        if (BoundsCheck.conforms(generator)) {
+          Object length = getLength(BoundsCheck.getRef(generator));
+          Register check = BoundsCheck.getGuardResult(generator).getRegister();
+          if (length != null) {
+            // 0 <= result <= length - 1
+            add(upper, result, new Edge(length, -1, check, null, false, 0));
+            add(lower, result, new Edge(0, 0, check, null, false, 0));
+          }
+        }
+        return;
+      }
+      if ((generator.getOpcode() != INT_IFCMP_opcode) ||
+          !(PiNodes.isTakenPi(pi) || PiNodes.isNotTakenPi(pi))) {
+        return;
+      }
+      // Work out the condition holding between the value and the other
+      // operand of the comparison on this edge
+      Register register = GuardedUnary.getVal(pi).asRegister().getRegister();
+      Operand val1 = IfCmp.getVal1(generator);
+      Operand val2 = IfCmp.getVal2(generator);
+      ConditionOperand cond = (ConditionOperand) IfCmp.getCond(generator).copy();
+      Operand other;
+      if (val1.isRegister() && (val1.asRegister().getRegister() == register)) {
+        other = val2;
+      } else if (val2.isRegister() && (val2.asRegister().getRegister() == register)) {
+        other = val1;
+        cond.flipOperands();
+      } else {
+        return;
+      }
+      Object otherNode = getNode(other);
+      if ((otherNode == null) || otherNode.equals(value)) {
+        return;
+      }
+      if (PiNodes.isNotTakenPi(pi)) {
+        cond.flipCode();
+      }
+      if (cond.isLESS()) {
+        add(upper, result, otherNode, -1);
+      } else if (cond.isLESS_EQUAL()) {
+        add(upper, result, otherNode, 0);
+      } else if (cond.isGREATER()) {
+        add(lower, result, otherNode, 1);
+      } else if (cond.isGREATER_EQUAL()) {
+        add(lower, result, otherNode, 0);
+      } else if (cond.isEQUAL()) {
+        addCopy(result, otherNode);
+      }
+    }
+  }
+
+  /**
+   * Demand driven prover of a constraint relative to a single source
+   * node in one of the graphs. The upper bound graph proves
+   * <code>v &lt;= source + c</code> and the lower bound graph
+   * <code>v &gt;= source + c</code>.
+   */
+  private static final class Prover {
+    /** Results of a proof, ordered so that phis take the minimum */
+    private static final int FALSE = 0;
+    private static final int REDUCED = 1;
+    private static final int TRUE = 2;
+
+    final Graphs graphs;
+    final boolean upper;
+    final Object source;
+    /** Guard of the bounds check being proven, whose PI node we mustn't use */
+    final Register check;
+    final int depth;
+    int budget = ABCD.BUDGET;
+
+    /** Constraints being proven on the current path */
+    final HashMap<Object, Long> active = new HashMap<Object, Long>();
+    /**
+     * Weakest constants proven false and strongest proven true, by
+     * node. Reduced results depend on the cycles on the current path
+     * so aren't remembered.
+     */
+    final HashMap<Object, long[]> memo = new HashMap<Object, long[]>();
+
+    Prover(Graphs graphs, boolean upper, Object source, Register check, int depth) {
+      this.graphs = graphs;
+      this.upper = upper;
+      this.source = source;
+      this.check = check;
+      this.depth = depth;
+    }
+
+    /**
+     * @param v the node
+     * @param c the constant
+     * @return whether <code>v &lt;= source + c</code> (or
+     * <code>&gt;=</code> for the lower bound graph) was proven
+     */
+    boolean proves(Object v, long c) {
+      return prove(v, c) != FALSE;
+    }
+
+    /**
+     * @param v the node
+     * @param c the constant
+     * @return the result of proving the constraint
+     */
+    private int prove(Object v, long c) {
+      if (--budget < 0) {
+        return FALSE;
+      }
+      if (v.equals(source) && weaker(c, 0)) {
+        return TRUE;
+      }
+      if (v instanceof Integer) {
+        long value = (Integer) v;
+        if (source instanceof Integer) {
+          long bound = (Integer) source;
+          return (upper ? (value <= bound + c) : (value >= bound + c)) ? TRUE : FALSE;
+        } else if (upper && (source instanceof Length)) {
+          // lengths are never negative
+          return (value - c <= 0) ? TRUE : FALSE;
+        }
+        return FALSE;
+      }
+      long[] results = memo.get(v);
+      if (results != null) {
+        if (weaker(c, results[TRUE])) {
+          return TRUE;
+        } else if (weaker(results[FALSE], c)) {
+          return FALSE;
+        }
+      }
+      Long activeConstant = active.get(v);
+      if (activeConstant != null) {
+        // we've come round a cycle: it's fine if it didn't make the
+        // constraint any stronger
+        return weaker(c, activeConstant) ? REDUCED : FALSE;
+      }
+      ArrayList<Edge> edges = (upper ? graphs.upper : graphs.lower).get(v);
+      if (edges == null) {
+        return FALSE;
+      }
+      active.put(v, c);
+      boolean phi = graphs.phis.contains(v);
+      int result = phi ? TRUE : FALSE;
+      for (Edge edge : edges) {
+        if (phi) {
+          result = Math.min(result, prove(edge.source, c - edge.weight));
+          if (result == FALSE) {
+            break;
+          }
+        } else if (((edge.check == null) || (edge.check != check)) && holds(edge)) {
+          result = Math.max(result, prove(edge.source, c - edge.weight));
+          if (result == TRUE) {
+            break;
+          }
+        }
+      }
+      active.remove(v);
+      if (result == REDUCED) {
+        return result;
+      }
+      if (results == null) {
+        results = upper ? new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE} : new long[]{Long.MAX_VALUE, 0, Long.MIN_VALUE};
+        memo.put(v, results);
+      }
+      if (result == FALSE) {
+        results[FALSE] = upper ? Math.max(results[FALSE], c) : Math.min(results[FALSE], c);
+      } else {
+        results[TRUE] = upper ? Math.min(results[TRUE], c) : Math.max(results[TRUE], c);
+      }
+      return result;
+    }
+
+    /**
+     * @param c1 a constant
+     * @param c2 another constant
+     * @return whether the constraint for <code>c1</code> is no
+     * stronger than that for <code>c2</code>
+     */
+    private boolean weaker(long c1, long c2) {
+      return upper ? (c1 >= c2) : (c1 <= c2);
+    }
+
+    /**
+     * @param edge an edge
+     * @return whether the condition for the edge to hold is met
+     */
+    private boolean holds(Edge edge) {
+      if (edge.condition == null) {
+        return true;
+      }
+      if (edge.condition instanceof Integer) {
+        int value = (Integer) edge.condition;
+        return edge.conditionUpper ? (value <= edge.conditionBound) : (value >= edge.conditionBound);
+      }
+      if (depth >= ABCD.MAX_DEPTH) {
+        return false;
+      }
+      return new Prover(graphs, edge.conditionUpper, edge.conditionBound, check, depth + 1).proves(edge.condition, 0);
+    }
+  }
+}
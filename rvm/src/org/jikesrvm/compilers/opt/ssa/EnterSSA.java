@@ -470,6 +470,7 @@ public class EnterSSA extends CompilerPhase {
             Prepare.conforms(s) ||
             Attempt.conforms(s) ||
             CacheOp.conforms(s) ||
+            dictionary.isHandledByRegisterUnknown(s.getOpcode()) ||
             s.isDynamicLinkingPoint()) {
           dictionary.registerUnknown(s, b);
         }
@@ -0,0 +1,1286 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.ssa;
+
+import static org.jikesrvm.compilers.opt.driver.OptConstants.SYNTH_LOOP_VECTORIZATION_BCI;
+import static org.jikesrvm.compilers.opt.ir.Operators.ARRAYLENGTH;
+import static org.jikesrvm.compilers.opt.ir.Operators.BOUNDS_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.DOUBLE_ADD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.DOUBLE_ALOAD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.DOUBLE_ASTORE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.DOUBLE_DIV_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.DOUBLE_MUL_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.DOUBLE_SUB_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.FLOAT_ADD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.FLOAT_ALOAD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.FLOAT_ASTORE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.FLOAT_DIV_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.FLOAT_MUL_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.FLOAT_SUB_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.GOTO_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.GUARD_COMBINE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.GUARD_MOVE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_2ADDRZerExt;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ADD;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ADD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ALOAD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_AND;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_AND_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ASTORE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_IFCMP;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_IFCMP_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_OR;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_OR_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_SHL;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_SUB;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_SUB_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_XOR;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_XOR_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NULL_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.PHI;
+import static org.jikesrvm.compilers.opt.ir.Operators.PHI_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_ADD;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_IFCMP;
+import static org.jikesrvm.compilers.opt.ir.Operators.YIELDPOINT_BACKEDGE_opcode;
+import static org.jikesrvm.mm.mminterface.Barriers.NEEDS_DOUBLE_ALOAD_BARRIER;
+import static org.jikesrvm.mm.mminterface.Barriers.NEEDS_DOUBLE_ASTORE_BARRIER;
+import static org.jikesrvm.mm.mminterface.Barriers.NEEDS_FLOAT_ALOAD_BARRIER;
+import static org.jikesrvm.mm.mminterface.Barriers.NEEDS_FLOAT_ASTORE_BARRIER;
+import static org.jikesrvm.mm.mminterface.Barriers.NEEDS_INT_ALOAD_BARRIER;
+import static org.jikesrvm.mm.mminterface.Barriers.NEEDS_INT_ASTORE_BARRIER;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.opt.DefUse;
+import org.jikesrvm.compilers.opt.OptOptions;
+import org.jikesrvm.compilers.opt.controlflow.AnnotatedLSTGraph;
+import org.jikesrvm.compilers.opt.controlflow.AnnotatedLSTNode;
+import org.jikesrvm.compilers.opt.controlflow.DominatorTree;
+import org.jikesrvm.compilers.opt.controlflow.DominatorsPhase;
+import org.jikesrvm.compilers.opt.controlflow.LSTGraph;
+import org.jikesrvm.compilers.opt.controlflow.LTDominators;
+import org.jikesrvm.compilers.opt.driver.CompilerPhase;
+import org.jikesrvm.compilers.opt.ir.ALoad;
+import org.jikesrvm.compilers.opt.ir.AStore;
+import org.jikesrvm.compilers.opt.ir.BasicBlock;
+import org.jikesrvm.compilers.opt.ir.Binary;
+import org.jikesrvm.compilers.opt.ir.BoundsCheck;
+import org.jikesrvm.compilers.opt.ir.GuardedUnary;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.IfCmp;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.NullCheck;
+import org.jikesrvm.compilers.opt.ir.Operator;
+import org.jikesrvm.compilers.opt.ir.Phi;
+import org.jikesrvm.compilers.opt.ir.Register;
+import org.jikesrvm.compilers.opt.ir.Unary;
+import org.jikesrvm.compilers.opt.ir.operand.BasicBlockOperand;
+import org.jikesrvm.compilers.opt.ir.operand.BranchProfileOperand;
+import org.jikesrvm.compilers.opt.ir.operand.ConditionOperand;
+import org.jikesrvm.compilers.opt.ir.operand.IntConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.NullConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.Operand;
+import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
+import org.jikesrvm.compilers.opt.util.GraphNode;
+
+/**
+ * Vectorizes simple counted loops over <code>int</code>,
+ * <code>float</code> and <code>double</code> arrays using the packed
+ * SSE operations of the IA32 backend. A loop is a candidate when it
+ * is a regular {@link AnnotatedLSTNode} consisting of a single basic
+ * block whose iterator steps by one towards an invariant bound, and
+ * whose body only:
+ * <ul>
+ * <li>loads and stores array elements indexed by the loop iterator,
+ * <li>combines two such elements (or an element and a loop invariant)
+ * with a single element-wise arithmetic or logical operation before
+ * storing the result, or
+ * <li>folds elements into an <code>int</code> accumulator with
+ * add, and, or or xor.
+ * </ul>
+ * <p>
+ * The transformation leaves the original loop in place and inserts a
+ * strip-mined vector loop in front of it. Guards check the arrays are
+ * non-null and long enough, and that the iteration space holds at
+ * least one strip, before the vector loop is entered. The vector loop
+ * always stops short of the final element so the original loop,
+ * which then handles the remaining iterations (or all of them if a
+ * guard fails), still executes at least once and leaves any values
+ * used after the loop as they were.
+ * <p>
+ * Example:
+ * <pre>
+ *   for (int t1=0; t1 &lt; n; t1++) {
+ *      t2 = aload l0, t1
+ *      t3 = aload l1, t1
+ *      t4 = int_add t2, t3
+ *           astore t4, l2, t1
+ *   }
+ * </pre>
+ *
+ * gains the prefix:
+ *
+ * <pre>
+ *   if l0 == null (unlikely) goto join
+ *   if n &gt; l0.length (unlikely) goto join
+ *   ... (likewise for l1 and l2)
+ *   if 0 &lt; 0 (unlikely) goto join
+ *   if n &lt;= 8 (unlikely) goto join
+ *   limit = n - 8
+ *   if 0 &gt;= limit (unlikely) goto join
+ * vector_loop:
+ *   v1 = phi 0, v2
+ *   ... (compute the addresses of the two vectors at v1 in each array)
+ *   int_vector_add [l2 + v1], [l0 + v1], [l1 + v1]
+ *   int_vector_add [l2 + v1 + 4], [l0 + v1 + 4], [l1 + v1 + 4]
+ *   v2 = v1 + 8
+ *   if v2 &lt; limit goto vector_loop
+ * join:
+ *   t1_0 = phi 0, ..., 0, v2
+ * </pre>
+ *
+ * after which the original loop starts from <code>t1_0</code>.
+ */
+public final class LoopVectorization extends CompilerPhase {
+  // -oO Debug variables Oo-
+  /**
+   * Flag to optionally print verbose debugging messages
+   */
+  private static final boolean DEBUG = false;
+  /**
+   * Flag to verify computed IR
+   */
+  private static final boolean VERIFY = false;
+
+  // -oO Debug routines Oo-
+  /**
+   * Human readable report of what goes on
+   *
+   * @param s String to print
+   **/
+  private static void report(String s) {
+    if (DEBUG) {
+      VM.sysWriteln(s);
+    }
+  }
+
+  /**
+   * Return a string name for this phase.
+   * @return "Loop Vectorization"
+   */
+  @Override
+  public String getName() {
+    return "Loop Vectorization";
+  }
+
+  // -oO Variables used throughout the optimisation phase Oo-
+  /**
+   * Number of bytes held in an SSE register
+   */
+  private static final int BYTES_IN_VECTOR = 16;
+  /**
+   * Number of vectors processed by each iteration of the vector loop.
+   * Reductions combine exactly this many vectors at once.
+   */
+  private static final int VECTORS_PER_ITERATION = 2;
+
+  /**
+   * IR for optimisation
+   */
+  private IR ir;
+
+  /**
+   * Headers of loops we've already considered, so that rebuilding the
+   * loop structure tree doesn't make us visit them again
+   */
+  private HashSet<BasicBlock> visitedHeaders;
+
+  /**
+   * Element type of the arrays accessed by the loop being analysed
+   */
+  private TypeReference elementType;
+  /**
+   * The phi defining the loop iterator
+   */
+  private Instruction iteratorPhi;
+  /**
+   * The conditional branch closing the loop
+   */
+  private Instruction exitBranch;
+  /**
+   * The back edge yieldpoint of the loop, if any
+   */
+  private Instruction yieldpoint;
+  /**
+   * The arrays accessed by the loop, in order of first access
+   */
+  private ArrayList<RegisterOperand> arrays;
+  /**
+   * Array loads of the loop, keyed on the register they define
+   */
+  private HashMap<Register, Instruction> loads;
+  /**
+   * Element-wise operations of the loop, keyed on the register they define
+   */
+  private HashMap<Register, Instruction> operations;
+  /**
+   * Reductions of the loop, mapped to the phi of their accumulator
+   */
+  private HashMap<Instruction, Instruction> reductions;
+  /**
+   * Array stores and reductions of the loop, in program order
+   */
+  private ArrayList<Instruction> statements;
+  /**
+   * Position of each instruction within the loop body
+   */
+  private HashMap<Instruction, Integer> positions;
+
+  /**
+   * SSA options
+   */
+  private final SSAOptions desiredSSAOptions;
+  /**
+   * Compiler phases called from this one
+   */
+  private final CompilerPhase domPhase;
+
+  // -oO Interface to the rest of the compiler Oo-
+
+  /**
+   * Constructor for this compiler phase
+   */
+  private static final Constructor<CompilerPhase> constructor =
+      getCompilerPhaseConstructor(LoopVectorization.class);
+
+  /**
+   * Get a constructor object for this compiler phase
+   * @return compiler phase constructor
+   */
+  @Override
+  public Constructor<CompilerPhase> getClassConstructor() {
+    return constructor;
+  }
+
+  /**
+   * Constructor
+   */
+  public LoopVectorization() {
+    desiredSSAOptions = new SSAOptions();
+    desiredSSAOptions.setScalarsOnly(true);
+    domPhase = new DominatorsPhase(false);
+  }
+
+  /**
+   * Should loop vectorization be performed? The packed operations
+   * are only provided by the IA32 backend when it uses SSE2 for all
+   * floating point.
+   */
+  @Override
+  public boolean shouldPerform(OptOptions options) {
+    return options.SSA_LOOP_VECTORIZATION && VM.BuildForIA32 && VM.BuildForSSE2Full;
+  }
+
+  /**
+   * @param _ir the IR to process
+   */
+  @Override
+  public void perform(IR _ir) {
+    ir = _ir;
+
+    ir.desiredSSAOptions = desiredSSAOptions;
+
+    // Perform loop annotation
+    if (!ir.hasReachableExceptionHandlers()) {
+      // Build LST tree and dominator info
+      domPhase.perform(ir);
+      DefUse.computeDU(ir);
+      // Build annotated version
+      ir.HIRInfo.loopStructureTree = new AnnotatedLSTGraph(ir, ir.HIRInfo.loopStructureTree);
+    }
+    if (VERIFY) {
+      ir.verify(getName(), true);
+    }
+
+    // Check loop annotation has been performed
+    if (!(ir.HIRInfo.loopStructureTree instanceof AnnotatedLSTGraph)) {
+      report("Vectorization of " + ir.getMethod() + " failed as LST wasn't annotated\n");
+    } else {
+      visitedHeaders = new HashSet<BasicBlock>();
+
+      while (findLoopToVectorize((AnnotatedLSTNode) ir.HIRInfo.loopStructureTree.getRoot())) {
+        if (DEBUG) {
+          VM.sysWriteln("Successful vectorization of " + ir.getMethod());
+          SSA.printInstructions(ir);
+        }
+        // Get IR into shape for next pass
+        DefUse.computeDU(ir);
+        LTDominators.perform(ir, true, true);
+        ir.HIRInfo.dominatorTree = new DominatorTree(ir, true);
+        LSTGraph.perform(ir);
+        AnnotatedLSTGraph.perform(ir);
+
+        if (VERIFY) {
+          ir.verify(getName(), true);
+        }
+      }
+      // No longer in use
+      visitedHeaders = null;
+      arrays = null;
+      loads = null;
+      operations = null;
+      reductions = null;
+      statements = null;
+      positions = null;
+    }
+  }
+
+  /**
+   * Find a loop to vectorize, working from the innermost loops outward,
+   * and vectorize it.
+   *
+   * @param loop  Loop to search
+   * @return was a loop vectorized
+   */
+  private boolean findLoopToVectorize(AnnotatedLSTNode loop) {
+    // Process inner loops first
+    Enumeration<GraphNode> innerLoops = loop.outNodes();
+    while (innerLoops.hasMoreElements()) {
+      if (findLoopToVectorize((AnnotatedLSTNode) innerLoops.nextElement())) {
+        return true;
+      }
+    }
+    // Don't try to vectorize irregular loops or loops we've seen before
+    if (loop.isNonRegularLoop() || !visitedHeaders.add(loop.header)) {
+      return false;
+    }
+    if (!isVectorizable(loop)) {
+      return false;
+    }
+    if (DEBUG) {
+      report("LoopVectorization: vectorizing loop at " + loop.header + " in " + ir.getMethod());
+    }
+    vectorize(loop);
+    return true;
+  }
+
+  // -oO Analysis Oo-
+
+  /**
+   * Determine whether the loop has a shape we can vectorize, recording
+   * what we learn about it in the fields of this phase.
+   *
+   * @param loop the loop to analyse
+   * @return whether the loop can be vectorized
+   */
+  private boolean isVectorizable(AnnotatedLSTNode loop) {
+    BasicBlock header = loop.header;
+    if ((header != loop.exit) ||
+        (loop.predecessor == null) ||
+        (header.prevBasicBlockInCodeOrder() == null) ||
+        !loop.isMonotonic() ||
+        (loop.getMonotonicStrideValue() != 1)) {
+      return false;
+    }
+    Instruction iteratorInstr = AnnotatedLSTNode.definingInstruction(loop.getCarriedLoopIterator());
+
+    elementType = null;
+    iteratorPhi = null;
+    exitBranch = null;
+    yieldpoint = null;
+    arrays = new ArrayList<RegisterOperand>();
+    loads = new HashMap<Register, Instruction>();
+    operations = new HashMap<Register, Instruction>();
+    reductions = new HashMap<Instruction, Instruction>();
+    statements = new ArrayList<Instruction>();
+    positions = new HashMap<Instruction, Integer>();
+    ArrayList<Instruction> accumulators = new ArrayList<Instruction>();
+    ArrayList<Instruction> binaries = new ArrayList<Instruction>();
+    ArrayList<Instruction> checks = new ArrayList<Instruction>();
+
+    // 1) Classify every instruction of the loop body
+    int position = 0;
+    for (Enumeration<Instruction> e = header.forwardRealInstrEnumerator(); e.hasMoreElements(); position++) {
+      Instruction s = e.nextElement();
+      positions.put(s, position);
+      if (s == iteratorInstr) {
+        continue;
+      }
+      switch (s.getOpcode()) {
+        case PHI_opcode:
+          if (Phi.getNumberOfValues(s) != 2) {
+            return false;
+          }
+          if (loop.isPhiLoopIterator(Phi.getResult(s))) {
+            iteratorPhi = s;
+          } else {
+            accumulators.add(s);
+          }
+          break;
+        case INT_ALOAD_opcode:
+        case FLOAT_ALOAD_opcode:
+        case DOUBLE_ALOAD_opcode:
+          if (!isIteratorIndexedAccess(loop, s, ALoad.getArray(s), ALoad.getIndex(s))) {
+            return false;
+          }
+          loads.put(ALoad.getResult(s).getRegister(), s);
+          break;
+        case INT_ASTORE_opcode:
+        case FLOAT_ASTORE_opcode:
+        case DOUBLE_ASTORE_opcode:
+          if (!isIteratorIndexedAccess(loop, s, AStore.getArray(s), AStore.getIndex(s))) {
+            return false;
+          }
+          break;
+        case NULL_CHECK_opcode:
+        case BOUNDS_CHECK_opcode:
+          checks.add(s);
+          break;
+        case GUARD_COMBINE_opcode:
+        case GUARD_MOVE_opcode:
+        case GOTO_opcode:
+          break;
+        case YIELDPOINT_BACKEDGE_opcode:
+          yieldpoint = s;
+          break;
+        case INT_IFCMP_opcode:
+          if (exitBranch != null || !isExitBranch(loop, s)) {
+            return false;
+          }
+          exitBranch = s;
+          break;
+        default:
+          if (!Binary.conforms(s)) {
+            report("LoopVectorization: can't vectorize " + s);
+            return false;
+          }
+          binaries.add(s);
+          break;
+      }
+    }
+    if ((iteratorPhi == null) || (exitBranch == null) || (elementType == null)) {
+      return false;
+    }
+    if (needsBarriers(elementType)) {
+      // vector loads and stores would bypass the barriers expanded for ALOAD and ASTORE
+      report("LoopVectorization: array barriers required for " + elementType);
+      return false;
+    }
+
+    // 2) Separate reductions from element-wise operations
+    for (Instruction s : binaries) {
+      Instruction accumulator = findAccumulator(s, accumulators);
+      if (accumulator != null) {
+        reductions.put(s, accumulator);
+      } else if ((vectorOperator(s.getOpcode()) != null) &&
+                 isLeaf(loop, Binary.getVal1(s)) &&
+                 isLeaf(loop, Binary.getVal2(s)) &&
+                 !(isDefinedOutside(loop, Binary.getVal1(s)) && isDefinedOutside(loop, Binary.getVal2(s)))) {
+        operations.put(Binary.getResult(s).getRegister(), s);
+      } else {
+        report("LoopVectorization: can't vectorize " + s);
+        return false;
+      }
+    }
+    if (reductions.size() != accumulators.size()) {
+      return false;
+    }
+    for (Enumeration<Instruction> e = header.forwardRealInstrEnumerator(); e.hasMoreElements();) {
+      Instruction s = e.nextElement();
+      if (AStore.conforms(s) || reductions.containsKey(s)) {
+        statements.add(s);
+      }
+    }
+    if (statements.isEmpty()) {
+      return false;
+    }
+
+    // 3) Check the values flowing around the loop are all accounted for
+    for (Instruction s : statements) {
+      if (AStore.conforms(s) && !isStoredValue(loop, AStore.getValue(s))) {
+        return false;
+      }
+    }
+    for (Instruction s : checks) {
+      Operand ref = NullCheck.conforms(s) ? NullCheck.getRef(s) : BoundsCheck.getRef(s);
+      if (!ref.isRegister() || (findArray(ref.asRegister().getRegister()) == null)) {
+        return false;
+      }
+      if (BoundsCheck.conforms(s) && !loop.isPhiLoopIterator(BoundsCheck.getIndex(s))) {
+        return false;
+      }
+    }
+    if (!areIteratorUsesVectorizable(loop, iteratorInstr)) {
+      return false;
+    }
+    for (Instruction s : loads.values()) {
+      if (!areLoadUsesVectorizable(loop, ALoad.getResult(s).getRegister())) {
+        return false;
+      }
+    }
+    for (Instruction s : operations.values()) {
+      if (!areOperationUsesVectorizable(loop, Binary.getResult(s).getRegister())) {
+        return false;
+      }
+    }
+
+    // 4) Vector statements read their elements when they execute, so
+    // no store may separate a load from the statement it feeds
+    int lastStore = -1;
+    for (Instruction s : statements) {
+      ArrayList<Instruction> feeding = new ArrayList<Instruction>();
+      if (AStore.conforms(s)) {
+        addFeedingLoads(AStore.getValue(s), feeding);
+      } else {
+        addFeedingLoads(Binary.getVal1(s), feeding);
+        addFeedingLoads(Binary.getVal2(s), feeding);
+      }
+      for (Instruction load : feeding) {
+        if (positions.get(load) < lastStore) {
+          return false;
+        }
+      }
+      if (AStore.conforms(s)) {
+        lastStore = positions.get(s);
+      }
+    }
+
+    // 5) Don't bother if the bound shows the vector loop never runs
+    Operand terminal = IfCmp.getVal2(exitBranch);
+    if (terminal.isIntConstant() && (terminal.asIntConstant().value <= getStrip())) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Is the array access in the loop indexed by the loop iterator into
+   * an array that's defined outside of the loop?
+   *
+   * @param loop the loop
+   * @param s the array load or store
+   * @param array the accessed array
+   * @param index the index of the element accessed
+   * @return whether the access can be vectorized
+   */
+  private boolean isIteratorIndexedAccess(AnnotatedLSTNode loop, Instruction s, Operand array, Operand index) {
+    TypeReference type = getElementType(s.getOpcode());
+    if (elementType == null) {
+      elementType = type;
+    } else if (elementType != type) {
+      return false;
+    }
+    if (!array.isRegister() || !isDefinedOutside(loop, array) ||
+        !index.isRegister() || !loop.isPhiLoopIterator(index)) {
+      return false;
+    }
+    if (findArray(array.asRegister().getRegister()) == null) {
+      arrays.add(array.asRegister());
+    }
+    return true;
+  }
+
+  /**
+   * @param type the element type of the arrays accessed by a loop
+   * @return whether the plan needs read or write barriers on arrays of
+   * that type
+   */
+  private static boolean needsBarriers(TypeReference type) {
+    if (type == TypeReference.Int) {
+      return NEEDS_INT_ASTORE_BARRIER || NEEDS_INT_ALOAD_BARRIER;
+    } else if (type == TypeReference.Float) {
+      return NEEDS_FLOAT_ASTORE_BARRIER || NEEDS_FLOAT_ALOAD_BARRIER;
+    } else {
+      return NEEDS_DOUBLE_ASTORE_BARRIER || NEEDS_DOUBLE_ALOAD_BARRIER;
+    }
+  }
+
+  /**
+   * Is the branch the loop's exit test, branching back to the header
+   * while the carried iterator is below an invariant bound?
+   *
+   * @param loop the loop
+   * @param s the branch
+   * @return whether the branch is a recognised exit test
+   */
+  private boolean isExitBranch(AnnotatedLSTNode loop, Instruction s) {
+    Operand val1 = IfCmp.getVal1(s);
+    Operand val2 = IfCmp.getVal2(s);
+    return (IfCmp.getTarget(s).target.getBasicBlock() == loop.header) &&
+           IfCmp.getCond(s).isLESS() &&
+           val1.isRegister() && loop.isCarriedLoopIterator(val1) &&
+           (val2.isIntConstant() || val2.isRegister()) && isDefinedOutside(loop, val2);
+  }
+
+  /**
+   * Find the accumulator phi, if any, that the binary instruction
+   * reduces an array element into.
+   *
+   * @param s the binary instruction
+   * @param accumulators the non-iterator phis of the loop
+   * @return the accumulator phi or {@code null}
+   */
+  private Instruction findAccumulator(Instruction s, ArrayList<Instruction> accumulators) {
+    if ((reductionOperator(s.getOpcode()) == null) || (elementType != TypeReference.Int)) {
+      return null;
+    }
+    Operand val1 = Binary.getVal1(s);
+    Operand val2 = Binary.getVal2(s);
+    Operand accumulator;
+    if (isLoadResult(val2)) {
+      accumulator = val1;
+    } else if (isLoadResult(val1)) {
+      accumulator = val2;
+    } else {
+      return null;
+    }
+    if (!accumulator.isRegister()) {
+      return null;
+    }
+    Register result = Binary.getResult(s).getRegister();
+    for (Instruction phi : accumulators) {
+      if (Phi.getResult(phi).asRegister().getRegister() != accumulator.asRegister().getRegister()) {
+        continue;
+      }
+      // the accumulator must be carried round the loop by this reduction alone
+      for (int i = 0; i < 2; i++) {
+        if (Phi.getPred(phi, i).block == s.getBasicBlock()) {
+          Operand carried = Phi.getValue(phi, i);
+          if (carried.isRegister() && (carried.asRegister().getRegister() == result) &&
+              hasSingleUseInLoop(accumulator.asRegister().getRegister(), s) &&
+              hasSingleUseInLoop(result, phi)) {
+            return phi;
+          }
+        }
+      }
+      return null;
+    }
+    return null;
+  }
+
+  /**
+   * Is the register used only by the given instruction inside the loop?
+   *
+   * @param reg the register
+   * @param user the only allowed in-loop user
+   * @return whether all other uses are outside of the loop
+   */
+  private static boolean hasSingleUseInLoop(Register reg, Instruction user) {
+    for (Enumeration<RegisterOperand> uses = DefUse.uses(reg); uses.hasMoreElements();) {
+      Instruction s = uses.nextElement().instruction;
+      if ((s.getBasicBlock() == user.getBasicBlock()) && (s != user)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Is the value defined outside of the loop, and so available before
+   * the vector loop?
+   *
+   * @param loop the loop
+   * @param op the value
+   * @return whether the value is a constant or defined outside of the loop
+   */
+  private static boolean isDefinedOutside(AnnotatedLSTNode loop, Operand op) {
+    if (op.isConstant()) {
+      return true;
+    }
+    return op.isRegister() && !loop.contains(AnnotatedLSTNode.definingInstruction(op).getBasicBlock());
+  }
+
+  /**
+   * @param op an operand
+   * @return whether the operand is the result of an array load in the loop
+   */
+  private boolean isLoadResult(Operand op) {
+    return op.isRegister() && loads.containsKey(op.asRegister().getRegister());
+  }
+
+  /**
+   * Can the operand supply a whole vector of elements? That's true of
+   * array loads and of invariant values of the element type, which are
+   * replicated.
+   *
+   * @param loop the loop
+   * @param op the operand
+   * @return whether the operand is a leaf of a vector expression
+   */
+  private boolean isLeaf(AnnotatedLSTNode loop, Operand op) {
+    if (isLoadResult(op)) {
+      return true;
+    }
+    if (!isDefinedOutside(loop, op)) {
+      return false;
+    }
+    if (elementType == TypeReference.Int) {
+      return op.isIntConstant() || (op.isRegister() && op.getType().isIntLikeType());
+    } else if (elementType == TypeReference.Float) {
+      return op.isFloatConstant() || (op.isRegister() && op.getType() == TypeReference.Float);
+    } else {
+      return op.isDoubleConstant() || (op.isRegister() && op.getType() == TypeReference.Double);
+    }
+  }
+
+  /**
+   * @param loop the loop
+   * @param op the value stored by an array store
+   * @return whether the stored value can be computed a vector at a time
+   */
+  private boolean isStoredValue(AnnotatedLSTNode loop, Operand op) {
+    return isLeaf(loop, op) || (op.isRegister() && operations.containsKey(op.asRegister().getRegister()));
+  }
+
+  /**
+   * The loop iterator may only index arrays; anything else would need
+   * the individual iterator values inside the vector loop.
+   *
+   * @param loop the loop
+   * @param iteratorInstr the instruction incrementing the iterator
+   * @return whether the iterators are only used in ways we handle
+   */
+  private boolean areIteratorUsesVectorizable(AnnotatedLSTNode loop, Instruction iteratorInstr) {
+    Register phiIterator = Phi.getResult(iteratorPhi).asRegister().getRegister();
+    for (Enumeration<RegisterOperand> uses = DefUse.uses(phiIterator); uses.hasMoreElements();) {
+      RegisterOperand use = uses.nextElement();
+      Instruction s = use.instruction;
+      if (!loop.contains(s.getBasicBlock()) || (s == iteratorInstr) ||
+          (ALoad.conforms(s) && (ALoad.getIndex(s) == use)) ||
+          (AStore.conforms(s) && (AStore.getIndex(s) == use)) ||
+          (BoundsCheck.conforms(s) && (BoundsCheck.getIndex(s) == use))) {
+        continue;
+      }
+      return false;
+    }
+    Register carriedIterator = loop.getCarriedLoopIterator().asRegister().getRegister();
+    for (Enumeration<RegisterOperand> uses = DefUse.uses(carriedIterator); uses.hasMoreElements();) {
+      Instruction s = uses.nextElement().instruction;
+      if (loop.contains(s.getBasicBlock()) && (s != exitBranch) && (s != iteratorPhi)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Loaded elements may only be consumed by vectorized statements and
+   * operations within the loop.
+   *
+   * @param loop the loop
+   * @param reg the register defined by the load
+   * @return whether all in-loop uses are vectorized
+   */
+  private boolean areLoadUsesVectorizable(AnnotatedLSTNode loop, Register reg) {
+    for (Enumeration<RegisterOperand> uses = DefUse.uses(reg); uses.hasMoreElements();) {
+      RegisterOperand use = uses.nextElement();
+      Instruction s = use.instruction;
+      if (!loop.contains(s.getBasicBlock()) || reductions.containsKey(s) ||
+          (Binary.conforms(s) && operations.containsKey(Binary.getResult(s).getRegister())) ||
+          (AStore.conforms(s) && (AStore.getValue(s) == use))) {
+        continue;
+      }
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Element-wise operations may only be consumed by stores within the
+   * loop.
+   *
+   * @param loop the loop
+   * @param reg the register defined by the operation
+   * @return whether all in-loop uses are vectorized
+   */
+  private boolean areOperationUsesVectorizable(AnnotatedLSTNode loop, Register reg) {
+    for (Enumeration<RegisterOperand> uses = DefUse.uses(reg); uses.hasMoreElements();) {
+      RegisterOperand use = uses.nextElement();
+      Instruction s = use.instruction;
+      if (loop.contains(s.getBasicBlock()) && !(AStore.conforms(s) && (AStore.getValue(s) == use))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Add the loads whose elements flow into the operand to the list.
+   *
+   * @param op a value used by a statement
+   * @param feeding the list of loads
+   */
+  private void addFeedingLoads(Operand op, ArrayList<Instruction> feeding) {
+    if (!op.isRegister()) {
+      return;
+    }
+    Register reg = op.asRegister().getRegister();
+    if (loads.containsKey(reg)) {
+      feeding.add(loads.get(reg));
+    } else if (operations.containsKey(reg)) {
+      Instruction s = operations.get(reg);
+      addFeedingLoads(Binary.getVal1(s), feeding);
+      addFeedingLoads(Binary.getVal2(s), feeding);
+    }
+  }
+
+  /**
+   * @param reg a register
+   * @return the accessed array held in the register or {@code null}
+   */
+  private RegisterOperand findArray(Register reg) {
+    for (RegisterOperand array : arrays) {
+      if (array.getRegister() == reg) {
+        return array;
+      }
+    }
+    return null;
+  }
+
+  // -oO Element types and operators Oo-
+
+  /**
+   * @param opcode an array load or store opcode
+   * @return the type of the elements it accesses
+   */
+  private static TypeReference getElementType(int opcode) {
+    switch (opcode) {
+      case INT_ALOAD_opcode:
+      case INT_ASTORE_opcode:
+        return TypeReference.Int;
+      case FLOAT_ALOAD_opcode:
+      case FLOAT_ASTORE_opcode:
+        return TypeReference.Float;
+      default:
+        return TypeReference.Double;
+    }
+  }
+
+  /**
+   * @return log base 2 of the size of the elements accessed
+   */
+  private int getLogElementSize() {
+    return (elementType == TypeReference.Double) ? 3 : 2;
+  }
+
+  /**
+   * @return the number of elements processed by an iteration of the
+   * vector loop
+   */
+  private int getStrip() {
+    return (BYTES_IN_VECTOR >> getLogElementSize()) * VECTORS_PER_ITERATION;
+  }
+
+  /**
+   * @return the operator copying a vector of the element type
+   */
+  private Operator moveOperator() {
+    if (elementType == TypeReference.Int) {
+      return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_MOVE;
+    } else if (elementType == TypeReference.Float) {
+      return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.FLOAT_VECTOR_MOVE;
+    } else {
+      return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.DOUBLE_VECTOR_MOVE;
+    }
+  }
+
+  /**
+   * @param opcode a scalar binary opcode
+   * @return the packed operator computing it on vectors of the element
+   * type, or {@code null} if there isn't one
+   */
+  private Operator vectorOperator(int opcode) {
+    if (elementType == TypeReference.Int) {
+      switch (opcode) {
+        case INT_ADD_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_ADD;
+        case INT_SUB_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_SUB;
+        case INT_AND_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_AND;
+        case INT_OR_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_OR;
+        case INT_XOR_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_XOR;
+        default:
+          return null;
+      }
+    } else if (elementType == TypeReference.Float) {
+      switch (opcode) {
+        case FLOAT_ADD_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.FLOAT_VECTOR_ADD;
+        case FLOAT_SUB_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.FLOAT_VECTOR_SUB;
+        case FLOAT_MUL_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.FLOAT_VECTOR_MUL;
+        case FLOAT_DIV_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.FLOAT_VECTOR_DIV;
+        default:
+          return null;
+      }
+    } else {
+      switch (opcode) {
+        case DOUBLE_ADD_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.DOUBLE_VECTOR_ADD;
+        case DOUBLE_SUB_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.DOUBLE_VECTOR_SUB;
+        case DOUBLE_MUL_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.DOUBLE_VECTOR_MUL;
+        case DOUBLE_DIV_opcode:
+          return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.DOUBLE_VECTOR_DIV;
+        default:
+          return null;
+      }
+    }
+  }
+
+  /**
+   * Only integer reductions are performed as reassociating floating
+   * point arithmetic would change its result.
+   *
+   * @param opcode a scalar binary opcode
+   * @return the operator reducing two int vectors with it, or
+   * {@code null} if there isn't one
+   */
+  private static Operator reductionOperator(int opcode) {
+    switch (opcode) {
+      case INT_ADD_opcode:
+        return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_ADD_REDUCE;
+      case INT_AND_opcode:
+        return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_AND_REDUCE;
+      case INT_OR_opcode:
+        return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_OR_REDUCE;
+      case INT_XOR_opcode:
+        return org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_XOR_REDUCE;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @param opcode a scalar binary opcode
+   * @return the scalar operator
+   */
+  private static Operator scalarOperator(int opcode) {
+    switch (opcode) {
+      case INT_ADD_opcode:
+        return INT_ADD;
+      case INT_AND_opcode:
+        return INT_AND;
+      case INT_OR_opcode:
+        return INT_OR;
+      default:
+        return INT_XOR;
+    }
+  }
+
+  // -oO Transformation Oo-
+
+  /**
+   * Insert the guards and the vector loop in front of the loop.
+   *
+   * @param loop the loop to vectorize
+   */
+  private void vectorize(AnnotatedLSTNode loop) {
+    BasicBlock header = loop.header;
+    int strip = getStrip();
+
+    // Values entering the original loop
+    Operand initial = getPredecessorValue(loop, iteratorPhi);
+    Operand terminal = IfCmp.getVal2(exitBranch);
+
+    // 1) Create the entry block and place it before the header
+    BasicBlock block = header.createSubBlock(SYNTH_LOOP_VECTORIZATION_BCI, ir);
+    BasicBlock temp = header.prevBasicBlockInCodeOrder();
+    ir.cfg.breakCodeOrder(temp, header);
+    ir.cfg.linkInCodeOrder(temp, block);
+    ir.cfg.linkInCodeOrder(block, header);
+    loop.predecessor.redirectOuts(header, block, ir);
+
+    // 2) Guard the vector loop, any failure skipping straight to the join
+    BasicBlock join = header.createSubBlock(SYNTH_LOOP_VECTORIZATION_BCI, ir);
+    ArrayList<BasicBlock> guardBlocks = new ArrayList<BasicBlock>();
+    for (RegisterOperand array : arrays) {
+      RegisterOperand guard = ir.regpool.makeTempValidation();
+      block = appendGuard(block, join, guardBlocks,
+          IfCmp.create(REF_IFCMP, guard, array.copy(), new NullConstantOperand(), ConditionOperand.EQUAL(),
+              join.makeJumpTarget(), BranchProfileOperand.unlikely()));
+      RegisterOperand length = ir.regpool.makeTempInt();
+      appendInstruction(block, GuardedUnary.create(ARRAYLENGTH, length, array.copy(), guard.copy()));
+      block = appendGuard(block, join, guardBlocks,
+          IfCmp.create(INT_IFCMP, ir.regpool.makeTempValidation(), terminal.copy(), length.copy(),
+              ConditionOperand.GREATER(), join.makeJumpTarget(), BranchProfileOperand.unlikely()));
+    }
+    if (!initial.isIntConstant() || (initial.asIntConstant().value < 0)) {
+      block = appendGuard(block, join, guardBlocks,
+          IfCmp.create(INT_IFCMP, ir.regpool.makeTempValidation(), initial.copy(), new IntConstantOperand(0),
+              ConditionOperand.LESS(), join.makeJumpTarget(), BranchProfileOperand.unlikely()));
+    }
+    Operand limit;
+    if (terminal.isIntConstant()) {
+      limit = new IntConstantOperand(terminal.asIntConstant().value - strip);
+    } else {
+      block = appendGuard(block, join, guardBlocks,
+          IfCmp.create(INT_IFCMP, ir.regpool.makeTempValidation(), terminal.copy(), new IntConstantOperand(strip),
+              ConditionOperand.LESS_EQUAL(), join.makeJumpTarget(), BranchProfileOperand.unlikely()));
+      limit = ir.regpool.makeTempInt();
+      appendInstruction(block, Binary.create(INT_SUB, limit.asRegister(), terminal.copy(),
+          new IntConstantOperand(strip)));
+    }
+    block = appendGuard(block, join, guardBlocks,
+        IfCmp.create(INT_IFCMP, ir.regpool.makeTempValidation(), initial.copy(), limit.copy(),
+            ConditionOperand.GREATER_EQUAL(), join.makeJumpTarget(), BranchProfileOperand.unlikely()));
+    BasicBlock lastGuard = guardBlocks.get(guardBlocks.size() - 1);
+
+    // 3) The block the last guard falls through to becomes the vector loop
+    BasicBlock vector = block;
+    ir.cfg.breakCodeOrder(vector, header);
+    ir.cfg.linkInCodeOrder(vector, join);
+    ir.cfg.linkInCodeOrder(join, header);
+    vector.insertOut(vector);
+    vector.insertOut(join);
+    join.insertOut(header);
+
+    RegisterOperand index = ir.regpool.makeTempInt();
+    RegisterOperand nextIndex = ir.regpool.makeTempInt();
+    appendInstruction(vector, createPhi(index, initial, lastGuard, nextIndex, vector));
+    HashMap<Instruction, RegisterOperand> accumulatorValues = new HashMap<Instruction, RegisterOperand>();
+    HashMap<Instruction, RegisterOperand> nextAccumulatorValues = new HashMap<Instruction, RegisterOperand>();
+    for (Instruction reduction : statements) {
+      Instruction phi = reductions.get(reduction);
+      if (phi != null) {
+        RegisterOperand value = ir.regpool.makeTempInt();
+        RegisterOperand nextValue = ir.regpool.makeTempInt();
+        appendInstruction(vector,
+            createPhi(value, getPredecessorValue(loop, phi), lastGuard, nextValue, vector));
+        accumulatorValues.put(reduction, value);
+        nextAccumulatorValues.put(reduction, nextValue);
+      }
+    }
+    if (yieldpoint != null) {
+      vector.appendInstruction(yieldpoint.copyWithoutLinks());
+    }
+
+    // 4) Compute the address of each vector in each array
+    RegisterOperand scaledIndex = ir.regpool.makeTempInt();
+    appendInstruction(vector, Binary.create(INT_SHL, scaledIndex, index.copy(),
+        new IntConstantOperand(getLogElementSize())));
+    RegisterOperand[] offsets = new RegisterOperand[VECTORS_PER_ITERATION];
+    for (int v = 0; v < VECTORS_PER_ITERATION; v++) {
+      RegisterOperand byteIndex = scaledIndex;
+      if (v != 0) {
+        byteIndex = ir.regpool.makeTempInt();
+        appendInstruction(vector, Binary.create(INT_ADD, byteIndex, scaledIndex.copy(),
+            new IntConstantOperand(v * BYTES_IN_VECTOR)));
+      }
+      offsets[v] = ir.regpool.makeTemp(TypeReference.Offset);
+      appendInstruction(vector, Unary.create(INT_2ADDRZerExt, offsets[v], byteIndex.copy()));
+    }
+    HashMap<Register, RegisterOperand[]> addresses = new HashMap<Register, RegisterOperand[]>();
+    for (RegisterOperand array : arrays) {
+      RegisterOperand[] arrayAddresses = new RegisterOperand[VECTORS_PER_ITERATION];
+      for (int v = 0; v < VECTORS_PER_ITERATION; v++) {
+        arrayAddresses[v] = ir.regpool.makeTemp(TypeReference.Address);
+        appendInstruction(vector, Binary.create(REF_ADD, arrayAddresses[v], array.copy(), offsets[v].copy()));
+      }
+      addresses.put(array.getRegister(), arrayAddresses);
+    }
+
+    // 5) Vectorize the statements in program order
+    for (Instruction s : statements) {
+      if (AStore.conforms(s)) {
+        RegisterOperand[] target = addresses.get(AStore.getArray(s).asRegister().getRegister());
+        Operand value = AStore.getValue(s);
+        Instruction operation = value.isRegister() ? operations.get(value.asRegister().getRegister()) : null;
+        for (int v = 0; v < VECTORS_PER_ITERATION; v++) {
+          Instruction store;
+          if (operation != null) {
+            store = org.jikesrvm.compilers.opt.ir.ia32.VectorStore.create(vectorOperator(operation.getOpcode()),
+                target[v].copy(),
+                getVectorLeaf(Binary.getVal1(operation), addresses, v),
+                getVectorLeaf(Binary.getVal2(operation), addresses, v));
+          } else {
+            store = org.jikesrvm.compilers.opt.ir.ia32.VectorStore.create(moveOperator(),
+                target[v].copy(), getVectorLeaf(value, addresses, v), null);
+          }
+          appendInstruction(vector, store);
+        }
+      } else {
+        Operand element = isLoadResult(Binary.getVal1(s)) ? Binary.getVal1(s) : Binary.getVal2(s);
+        RegisterOperand[] source =
+            addresses.get(ALoad.getArray(loads.get(element.asRegister().getRegister())).asRegister().getRegister());
+        RegisterOperand reduced = ir.regpool.makeTempInt();
+        appendInstruction(vector, Binary.create(reductionOperator(s.getOpcode()), reduced,
+            source[0].copy(), source[1].copy()));
+        appendInstruction(vector, Binary.create(scalarOperator(s.getOpcode()),
+            nextAccumulatorValues.get(s).copyRO(), accumulatorValues.get(s).copy(), reduced.copy()));
+      }
+    }
+
+    // 6) Step the vector loop
+    appendInstruction(vector, Binary.create(INT_ADD, nextIndex.copyRO(), index.copy(),
+        new IntConstantOperand(strip)));
+    appendInstruction(vector, IfCmp.create(INT_IFCMP, ir.regpool.makeTempValidation(), nextIndex.copy(),
+        limit.copy(), ConditionOperand.LESS(), vector.makeJumpTarget(), BranchProfileOperand.likely()));
+
+    // 7) Merge the values the original loop starts from at the join and
+    // feed them into the header
+    RegisterOperand joinIndex = ir.regpool.makeTempInt();
+    appendInstruction(join, createJoinPhi(joinIndex, initial, guardBlocks, nextIndex, vector));
+    replacePredecessorValue(loop, iteratorPhi, joinIndex, join);
+    for (Instruction s : statements) {
+      Instruction phi = reductions.get(s);
+      if (phi != null) {
+        RegisterOperand joinValue = ir.regpool.makeTempInt();
+        appendInstruction(join,
+            createJoinPhi(joinValue, getPredecessorValue(loop, phi), guardBlocks, nextAccumulatorValues.get(s), vector));
+        replacePredecessorValue(loop, phi, joinValue, join);
+      }
+    }
+
+    // 8) Compact node numbering to reflect the new blocks
+    ir.cfg.compactNodeNumbering();
+  }
+
+  /**
+   * Append a guard test to a block, branching to the join if it fails
+   * and otherwise falling through to a new block placed after it.
+   *
+   * @param block the block to append the test to
+   * @param join the block skipping the vector loop
+   * @param guardBlocks list of the blocks branching to the join
+   * @param test the guard test
+   * @return the block the test falls through to
+   */
+  private BasicBlock appendGuard(BasicBlock block, BasicBlock join, ArrayList<BasicBlock> guardBlocks,
+                                 Instruction test) {
+    appendInstruction(block, test);
+    block.insertOut(join);
+    guardBlocks.add(block);
+
+    BasicBlock next = block.createSubBlock(SYNTH_LOOP_VECTORIZATION_BCI, ir);
+    BasicBlock temp = block.nextBasicBlockInCodeOrder();
+    ir.cfg.breakCodeOrder(block, temp);
+    ir.cfg.linkInCodeOrder(block, next);
+    ir.cfg.linkInCodeOrder(next, temp);
+    block.insertOut(next);
+    return next;
+  }
+
+  /**
+   * Append a synthesized instruction to a block.
+   *
+   * @param block the block
+   * @param s the instruction
+   */
+  private static void appendInstruction(BasicBlock block, Instruction s) {
+    s.setBytecodeIndex(SYNTH_LOOP_VECTORIZATION_BCI);
+    block.appendInstruction(s);
+  }
+
+  /**
+   * Produce a vector operand for an element-wise leaf: the address of
+   * the vector for loaded elements, or the invariant value itself.
+   *
+   * @param op the scalar leaf
+   * @param addresses the addresses of the vectors of each array
+   * @param v which vector of the iteration
+   * @return the vector operand
+   */
+  private Operand getVectorLeaf(Operand op, HashMap<Register, RegisterOperand[]> addresses, int v) {
+    if (isLoadResult(op)) {
+      Instruction load = loads.get(op.asRegister().getRegister());
+      return addresses.get(ALoad.getArray(load).asRegister().getRegister())[v].copy();
+    }
+    return op.copy();
+  }
+
+  /**
+   * @param loop the loop
+   * @param phi a phi in the loop header
+   * @return the value of the phi on entry to the loop
+   */
+  private static Operand getPredecessorValue(AnnotatedLSTNode loop, Instruction phi) {
+    for (int i = 0; i < Phi.getNumberOfValues(phi); i++) {
+      if (Phi.getPred(phi, i).block == loop.predecessor) {
+        return Phi.getValue(phi, i);
+      }
+    }
+    throw new Error("Phi " + phi + " has no value for the loop predecessor");
+  }
+
+  /**
+   * Make the phi in the loop header take its entry value from the join.
+   *
+   * @param loop the loop
+   * @param phi a phi in the loop header
+   * @param value the value merged at the join
+   * @param join the join block
+   */
+  private static void replacePredecessorValue(AnnotatedLSTNode loop, Instruction phi, RegisterOperand value,
+                                              BasicBlock join) {
+    for (int i = 0; i < Phi.getNumberOfValues(phi); i++) {
+      if (Phi.getPred(phi, i).block == loop.predecessor) {
+        Phi.setValue(phi, i, value.copy());
+        Phi.setPred(phi, i, new BasicBlockOperand(join));
+        return;
+      }
+    }
+  }
+
+  /**
+   * @param result the phi result
+   * @param entryValue the value on entry to the vector loop
+   * @param entry the block entering the vector loop
+   * @param nextValue the value on the vector loop's back edge
+   * @param vector the vector loop
+   * @return phi merging the values at the head of the vector loop
+   */
+  private static Instruction createPhi(RegisterOperand result, Operand entryValue, BasicBlock entry,
+                                       RegisterOperand nextValue, BasicBlock vector) {
+    Instruction phi = Phi.create(PHI, result, 2);
+    Phi.setValue(phi, 0, entryValue.copy());
+    Phi.setPred(phi, 0, new BasicBlockOperand(entry));
+    Phi.setValue(phi, 1, nextValue.copy());
+    Phi.setPred(phi, 1, new BasicBlockOperand(vector));
+    return phi;
+  }
+
+  /**
+   * @param result the phi result
+   * @param entryValue the value if the vector loop was skipped
+   * @param guardBlocks the blocks skipping the vector loop
+   * @param nextValue the value on leaving the vector loop
+   * @param vector the vector loop
+   * @return phi merging the values at the join
+   */
+  private static Instruction createJoinPhi(RegisterOperand result, Operand entryValue,
+                                           ArrayList<BasicBlock> guardBlocks, RegisterOperand nextValue,
+                                           BasicBlock vector) {
+    int n = guardBlocks.size();
+    Instruction phi = Phi.create(PHI, result, n + 1);
+    for (int i = 0; i < n; i++) {
+      Phi.setValue(phi, i, entryValue.copy());
+      Phi.setPred(phi, i, new BasicBlockOperand(guardBlocks.get(i)));
+    }
+    Phi.setValue(phi, n, nextValue.copy());
+    Phi.setPred(phi, n, new BasicBlockOperand(vector));
+    return phi;
+  }
+}
@@ -890,9 +890,34 @@ public final class SSADictionary {
     }
   }
 
-  private boolean isHandledByRegisterUnknown(char opcode) {
+  boolean isHandledByRegisterUnknown(char opcode) {
     if (VM.BuildForIA32) {
-      return opcode == org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.PREFETCH_opcode;
+      switch (opcode) {
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.PREFETCH_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_MOVE_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.FLOAT_VECTOR_MOVE_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.DOUBLE_VECTOR_MOVE_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_ADD_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_SUB_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_AND_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_OR_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_XOR_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.FLOAT_VECTOR_ADD_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.FLOAT_VECTOR_SUB_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.FLOAT_VECTOR_MUL_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.FLOAT_VECTOR_DIV_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.DOUBLE_VECTOR_ADD_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.DOUBLE_VECTOR_SUB_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.DOUBLE_VECTOR_MUL_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.DOUBLE_VECTOR_DIV_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_ADD_REDUCE_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_AND_REDUCE_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_OR_REDUCE_opcode:
+        case org.jikesrvm.compilers.opt.ir.ia32.ArchOperators.INT_VECTOR_XOR_REDUCE_opcode:
+        return true;
+      default:
+        return false;
+      }
     } else {
       if (VM.VerifyAssertions) VM._assert(VM.BuildForPowerPC);
       switch (opcode) {
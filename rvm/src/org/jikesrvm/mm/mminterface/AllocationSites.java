@@ -0,0 +1,131 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.mm.mminterface;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.util.HashMapRVM;
+import org.jikesrvm.util.LinkedListRVM;
+import org.mmtk.plan.generational.AllocationSiteProfile;
+import org.mmtk.utility.options.Options;
+
+/**
+ * Numbers the allocating bytecodes of methods for the allocation site
+ * profile of the generational plans (see {@link AllocationSiteProfile}).
+ * <p>
+ * While sites are being sampled a bytecode keeps its site number however
+ * often its method is compiled or inlined, so the survival rate measured
+ * for the site still applies to the recompiled code. Otherwise every
+ * compilation of an allocation gets a fresh site, as before.
+ */
+public final class AllocationSites {
+
+  /** Site numbers by method id (high word) and bytecode index (low word) */
+  private static final HashMapRVM<Long, Integer> sites = new HashMapRVM<Long, Integer>();
+
+  /** The method holding each sampled site */
+  private static RVMMethod[] siteMethods;
+
+  /** The bytecode index of each sampled site */
+  private static int[] siteBytecodes;
+
+  /** Sites whose methods have been handed out for recompilation */
+  private static boolean[] recompiled;
+
+  /** The number of pretenured sites when we last looked for new ones */
+  private static int pretenuredSitesSeen;
+
+  private AllocationSites() {}
+
+  /**
+   * @return {@code true} if allocation sites are being sampled
+   */
+  public static boolean isSampling() {
+    return AllocationSiteProfile.isEnabled();
+  }
+
+  /**
+   * @param method the method containing the allocation
+   * @param bcIndex the bytecode index of the allocation
+   * @return the allocation site of the bytecode
+   */
+  static synchronized int getSite(RVMMethod method, int bcIndex) {
+    if (!AllocationSiteProfile.isEnabled() || method == null) {
+      return MemoryManager.getAllocationSite(true);
+    }
+    Long key = Long.valueOf(((long) method.getId() << 32) | (bcIndex & 0xFFFFFFFFL));
+    Integer site = sites.get(key);
+    if (site == null) {
+      site = MemoryManager.getAllocationSite(true);
+      sites.put(key, site);
+      record(site, method, bcIndex);
+    }
+    return site;
+  }
+
+  private static void record(int site, RVMMethod method, int bcIndex) {
+    if (site < 0 || site >= AllocationSiteProfile.MAX_SITES) return;
+    if (siteMethods == null) {
+      siteMethods = new RVMMethod[AllocationSiteProfile.MAX_SITES];
+      siteBytecodes = new int[AllocationSiteProfile.MAX_SITES];
+      recompiled = new boolean[AllocationSiteProfile.MAX_SITES];
+    }
+    siteMethods[site] = method;
+    siteBytecodes[site] = bcIndex;
+  }
+
+  /**
+   * Find the methods containing sites that have been advised to pretenure
+   * since the last call. Their current code still allocates those sites
+   * in the nursery until it is recompiled.
+   *
+   * @return the methods, each site's method being returned only once
+   */
+  public static synchronized LinkedListRVM<RVMMethod> takeNewlyPretenuredMethods() {
+    LinkedListRVM<RVMMethod> methods = new LinkedListRVM<RVMMethod>();
+    int pretenured = AllocationSiteProfile.getPretenuredSites();
+    if (pretenured == pretenuredSitesSeen || siteMethods == null) {
+      return methods;
+    }
+    pretenuredSitesSeen = pretenured;
+    for (int site = 0; site < AllocationSiteProfile.MAX_SITES; site++) {
+      RVMMethod method = siteMethods[site];
+      if (method != null && !recompiled[site] && AllocationSiteProfile.shouldPretenure(site)) {
+        recompiled[site] = true;
+        if (!methods.contains(method)) {
+          methods.add(method);
+        }
+      }
+    }
+    return methods;
+  }
+
+  /**
+   * Print the sampled survival rate of each site, if sites were sampled
+   * and the GC is verbose.
+   */
+  static synchronized void report() {
+    if (!AllocationSiteProfile.isEnabled() || siteMethods == null || Options.verbose.getValue() < 1) {
+      return;
+    }
+    VM.sysWriteln("Allocation sites (samples, survivors):");
+    for (int site = 0; site < AllocationSiteProfile.MAX_SITES; site++) {
+      int samples = AllocationSiteProfile.getSampled(site);
+      if (siteMethods[site] == null || samples == 0) continue;
+      int survivors = AllocationSiteProfile.getSurvived(site);
+      VM.sysWriteln("  " + siteMethods[site] + " @" + siteBytecodes[site] + ": " +
+                    samples + ", " + survivors + " (" + (100L * survivors / samples) + "%)" +
+                    (AllocationSiteProfile.shouldPretenure(site) ? " pretenured" : ""));
+    }
+  }
+}
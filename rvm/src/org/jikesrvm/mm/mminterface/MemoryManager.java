@@ -50,6 +50,8 @@ import org.jikesrvm.runtime.Callbacks;
 import org.jikesrvm.runtime.Magic;
 import org.mmtk.plan.CollectorContext;
 import org.mmtk.plan.Plan;
+import org.mmtk.plan.generational.AllocationSiteProfile;
+import org.mmtk.plan.generational.Gen;
 import org.mmtk.policy.Space;
 import org.mmtk.utility.Memory;
 import org.mmtk.utility.alloc.Allocator;
@@ -132,6 +134,7 @@ public final class MemoryManager {
       @Override
       public void notifyExit(int value) {
         Selected.Plan.get().notifyExit(value);
+        AllocationSites.report();
       }
     });
 
@@ -349,6 +352,20 @@ public final class MemoryManager {
     return Plan.getAllocationSite(compileTime);
   }
 
+  /**
+   * Return the allocation site of an allocating bytecode.  While the
+   * generational plans sample allocation sites for pretenuring, the
+   * bytecode keeps the same site however often its method is compiled.
+   *
+   * @param method the method containing the allocation
+   * @param bcIndex the bytecode index of the allocation
+   * @return an allocation site
+   */
+  @Interruptible
+  public static int getAllocationSite(RVMMethod method, int bcIndex) {
+    return AllocationSites.getSite(method, bcIndex);
+  }
+
   /**
    * Returns the appropriate allocation scheme/area for the given
    * type.  This form is deprecated.  Without the RVMMethod argument,
@@ -440,6 +457,26 @@ public final class MemoryManager {
     return type.getMMAllocator();
   }
 
+  /**
+   * Returns the appropriate allocation scheme/area for an allocation
+   * site.  This is the mature space of a generational plan if most of
+   * the site's objects have been seen to survive the nursery.
+   *
+   * @param type the type of the object to be allocated
+   * @param method the method requesting the allocation
+   * @param site the allocation site
+   * @return the identifier of the appropriate allocator
+   */
+  @Interruptible
+  public static int pickAllocator(RVMType type, RVMMethod method, int site) {
+    int allocator = pickAllocator(type, method);
+    if (allocator == Plan.ALLOC_DEFAULT && Selected.Constraints.get().generational() &&
+        AllocationSiteProfile.shouldPretenure(site)) {
+      return Gen.ALLOC_MATURE;
+    }
+    return allocator;
+  }
+
   /**
    * Determine the default allocator to be used for a given type.
    *
@@ -570,6 +607,82 @@ public final class MemoryManager {
     return result;
   }
 
+  /**
+   * Initialize a scalar object in space that the optimizing compiler has
+   * reserved for it in the stack frame of the allocating method. The object
+   * belongs to no space and is never traced, so it must not contain
+   * references.
+   *
+   * @param region the start of the reserved space, which must leave room
+   * for alignment
+   * @param size Size in bytes of the object, including any headers
+   * that need space.
+   * @param tib  Type of the object (pointer to TIB).
+   * @param align the alignment requested; must be a power of 2.
+   * @param offset the offset at which the alignment is desired.
+   * @return the initialized Object
+   */
+  @Inline
+  @Entrypoint
+  public static Object initializeStackScalar(Address region, int size, TIB tib, int align, int offset) {
+    Address start = prepareStackSpace(region, size, align, offset);
+    return ObjectModel.initializeScalar(start, tib, size);
+  }
+
+  /**
+   * Initialize an array in space that the optimizing compiler has reserved
+   * for it in the stack frame of the allocating method. The array belongs
+   * to no space and is never traced, so its elements must not be
+   * references.
+   *
+   * @param region the start of the reserved space, which must leave room
+   * for alignment
+   * @param numElements number of array elements
+   * @param size size in bytes of the array, including its header
+   * @param tib type information block for array object
+   * @param align the alignment requested; must be a power of 2.
+   * @param offset the offset at which the alignment is desired.
+   * @return array object with header installed and all elements set
+   *         to zero
+   */
+  @Inline
+  @Entrypoint
+  public static Object initializeStackArray(Address region, int numElements, int size, TIB tib, int align,
+                                            int offset) {
+    Address start = prepareStackSpace(region, size, align, offset);
+    return ObjectModel.initializeArray(start, tib, numElements, size);
+  }
+
+  /**
+   * @param size the size of the object in bytes
+   * @param align the alignment requested; must be a power of 2.
+   * @return the number of bytes to reserve in a stack frame so that
+   *  the object fits whatever the alignment of the frame
+   */
+  @Interruptible
+  public static int getStackSpaceSize(int size, int align) {
+    return Allocator.getMaximumAlignedSize(org.jikesrvm.runtime.Memory.alignUp(size, MIN_ALIGNMENT), align);
+  }
+
+  /**
+   * Align and zero the space for a stack allocated object. Unlike the
+   * space handed out by MMTk, a frame may hold stale values from earlier
+   * calls.
+   *
+   * @param region the start of the reserved space
+   * @param bytes The size of the object in bytes
+   * @param align The alignment requested; must be a power of 2.
+   * @param offset The offset at which the alignment is desired.
+   * @return The first byte of the object's space
+   */
+  @Inline
+  private static Address prepareStackSpace(Address region, int bytes, int align, int offset) {
+    bytes = org.jikesrvm.runtime.Memory.alignUp(bytes, MIN_ALIGNMENT);
+    Address start = Allocator.alignAllocationNoFill(region, align, offset);
+    Memory.zeroSmall(start, Extent.fromIntZeroExtend(bytes));
+    return start;
+  }
+
   /**
    * Allocate space for runtime allocation of an object
    *
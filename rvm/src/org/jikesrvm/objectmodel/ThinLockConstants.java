@@ -28,7 +28,9 @@ import org.vmmagic.unboxed.Word;
  * 1Z..Z where Z..Z is the id of a heavy lock, or it is in
  * thin state in which case it looks like 0I..IC..C where
  * I is the thread id of the thread that owns the lock and
- * C is the recursion count of the lock.
+ * C is the recursion count of the lock.  In the biasable state the
+ * top bits of the recursion count hold the bias epoch E of the type
+ * at the time the bias was granted, so the count looks like E..EC..C.
  * <pre>
  * aaaaTTTTTTTTTTbbbbb
  * JavaHeader.NUM_THIN_LOCK_BITS = # of T's
@@ -63,6 +65,13 @@ public final class ThinLockConstants {
   public static final Word TL_UNLOCK_MASK = Word.fromIntSignExtend(-1).rshl(BITS_IN_ADDRESS - JavaHeader
       .NUM_THIN_LOCK_BITS).lsh(JavaHeader.THIN_LOCK_SHIFT).not();
 
+  /** Number of recursion count bits that hold the bias epoch of a biasable lock */
+  public static final int TL_NUM_BITS_BIAS_EPOCH = 2;
+  public static final int TL_BIAS_EPOCH_SHIFT = TL_STAT_SHIFT - TL_NUM_BITS_BIAS_EPOCH;
+  public static final Word TL_BIAS_EPOCH_MASK = Word.fromIntSignExtend(-1).rshl(BITS_IN_ADDRESS - TL_NUM_BITS_BIAS_EPOCH).lsh(TL_BIAS_EPOCH_SHIFT);
+  /** The recursion count of a biasable lock, which excludes the bias epoch */
+  public static final Word TL_BIASED_LOCK_COUNT_MASK = TL_LOCK_COUNT_MASK.and(TL_BIAS_EPOCH_MASK.not());
+
   public static final Word TL_STAT_BIASABLE = Word.fromIntSignExtend(0).lsh(TL_STAT_SHIFT);
   public static final Word TL_STAT_THIN = Word.fromIntSignExtend(1).lsh(TL_STAT_SHIFT);
   public static final Word TL_STAT_FAT = Word.fromIntSignExtend(2).lsh(TL_STAT_SHIFT);
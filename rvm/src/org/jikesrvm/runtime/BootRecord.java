@@ -261,6 +261,11 @@ public class BootRecord {
   public Address sysMMapIP;
   public Address sysMMapErrnoIP;
   public Address sysMProtectIP;
+  public Address sysNumaNodesIP;
+  public Address sysNumaCurrentNodeIP;
+  public Address sysNumaBindIP;
+  public Address sysMAdviseHugePagesIP;
+  public Address sysMAdviseDontNeedIP;
 
   // threads
   public Address sysNumProcessorsIP;
@@ -72,12 +72,26 @@ public class Entrypoints {
       getMethod(org.jikesrvm.runtime.RuntimeEntrypoints.class,
                 "resolvedNewArray",
                 "(IIILorg/jikesrvm/objectmodel/TIB;IIII)Ljava/lang/Object;");
+  public static final NormalMethod initializeStackScalarMethod =
+      getMethod(org.jikesrvm.mm.mminterface.MemoryManager.class,
+                "initializeStackScalar",
+                "(Lorg/vmmagic/unboxed/Address;ILorg/jikesrvm/objectmodel/TIB;II)Ljava/lang/Object;");
+  public static final NormalMethod initializeStackArrayMethod =
+      getMethod(org.jikesrvm.mm.mminterface.MemoryManager.class,
+                "initializeStackArray",
+                "(Lorg/vmmagic/unboxed/Address;IILorg/jikesrvm/objectmodel/TIB;II)Ljava/lang/Object;");
 
   public static final RVMField sysWriteLockField = getField(org.jikesrvm.VM.class, "sysWriteLock", int.class);
   public static final RVMField intBufferLockField =
       getField(org.jikesrvm.util.Services.class, "intBufferLock", int.class);
   public static final RVMField dumpBufferLockField =
       getField(org.jikesrvm.util.Services.class, "dumpBufferLock", int.class);
+  public static final RVMField atomNextIdField =
+      getField(org.jikesrvm.classloader.Atom.class, "nextId", int.class);
+  public static final RVMField typeReferenceNextIdField =
+      getField(org.jikesrvm.classloader.TypeReference.class, "nextId", int.class);
+  public static final RVMField currentCompiledMethodIdField =
+      getField(org.jikesrvm.compilers.common.CompiledMethods.class, "currentCompiledMethodId", int.class);
 
   public static final NormalMethod unexpectedAbstractMethodCallMethod =
       getMethod(org.jikesrvm.runtime.RuntimeEntrypoints.class, "unexpectedAbstractMethodCall", "()V");
@@ -389,6 +403,8 @@ public class Entrypoints {
   public static final RVMField depthField = getField(org.jikesrvm.classloader.RVMType.class, "depth", int.class);
   public static final RVMField idField = getField(org.jikesrvm.classloader.RVMType.class, "id", int.class);
   public static final RVMField dimensionField = getField(org.jikesrvm.classloader.RVMType.class, "dimension", int.class);
+  public static final RVMField biasRevocationsField =
+      getField(org.jikesrvm.classloader.RVMType.class, "biasRevocations", int.class);
 
   public static final RVMField innermostElementTypeDimensionField =
       getField(org.jikesrvm.classloader.RVMArray.class, "innermostElementTypeDimension", int.class);
@@ -562,6 +562,61 @@ public class Memory {
     return SysCall.sysCall.sysMProtect(address, size, prot) == 0;
   }
 
+  /**
+   * @return the number of NUMA nodes in the system, 1 if it is not NUMA
+   */
+  public static int numaNodes() {
+    return SysCall.sysCall.sysNumaNodes();
+  }
+
+  /**
+   * @return the NUMA node of the processor the current thread is running on
+   */
+  public static int currentNumaNode() {
+    return SysCall.sysCall.sysNumaCurrentNode();
+  }
+
+  /**
+   * Ask for a range of memory to be placed on a NUMA node.
+   * @param address Start of address range (Address)
+   * @param size Size of address range
+   * @param node The node
+   * @return true iff success
+   */
+  public static boolean numaBind(Address address, Extent size, int node) {
+    if (VM.VerifyAssertions) {
+      VM._assert(isPageAligned(address) && isPageMultiple(size));
+    }
+    return SysCall.sysCall.sysNumaBind(address, size, node) == 0;
+  }
+
+  /**
+   * Ask for a range of memory to be backed by transparent huge pages.
+   * @param address Start of address range (Address)
+   * @param size Size of address range
+   * @return true iff success
+   */
+  public static boolean adviseHugePages(Address address, Extent size) {
+    if (VM.VerifyAssertions) {
+      VM._assert(isPageAligned(address) && isPageMultiple(size));
+    }
+    return SysCall.sysCall.sysMAdviseHugePages(address, size) == 0;
+  }
+
+  /**
+   * Return the physical memory behind a range to the OS, leaving it
+   * mapped. The range reads as zero when next touched.
+   * @param address Start of address range (Address)
+   * @param size Size of address range
+   * @return true iff success
+   */
+  public static boolean uncommit(Address address, Extent size) {
+    if (VM.VerifyAssertions) {
+      VM._assert(isPageAligned(address) && isPageMultiple(size));
+    }
+    return SysCall.sysCall.sysMAdviseDontNeed(address, size) == 0;
+  }
+
   private static int pagesize = UNKNOWN;
   private static int pagesizeLog = UNKNOWN;
 
@@ -270,7 +270,7 @@ public class RuntimeEntrypoints {
       initializeClassForDynamicLink(cls);
     }
 
-    int allocator = MemoryManager.pickAllocator(cls);
+    int allocator = MemoryManager.pickAllocator(cls, null, site);
     int align = ObjectModel.getAlignment(cls);
     int offset = ObjectModel.getOffsetForAlignment(cls, false);
     return resolvedNewScalar(cls.getInstanceSize(),
@@ -377,7 +377,7 @@ public class RuntimeEntrypoints {
                             array.getLogElementSize(),
                             ObjectModel.computeArrayHeaderSize(array),
                             array.getTypeInformationBlock(),
-                            MemoryManager.pickAllocator(array),
+                            MemoryManager.pickAllocator(array, null, site),
                             ObjectModel.getAlignment(array),
                             ObjectModel.getOffsetForAlignment(array, false),
                             site);
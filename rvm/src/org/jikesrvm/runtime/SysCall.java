@@ -169,6 +169,22 @@ public abstract class SysCall {
   @SysCallTemplate
   public abstract int sysMProtect(Address start, Extent length, int prot);
 
+  // NUMA
+  @SysCallTemplate
+  public abstract int sysNumaNodes();
+
+  @SysCallTemplate
+  public abstract int sysNumaCurrentNode();
+
+  @SysCallTemplate
+  public abstract int sysNumaBind(Address start, Extent length, int node);
+
+  @SysCallTemplate
+  public abstract int sysMAdviseHugePages(Address start, Extent length);
+
+  @SysCallTemplate
+  public abstract int sysMAdviseDontNeed(Address start, Extent length);
+
   // threads
   @SysCallTemplate
   public abstract int sysNumProcessors();
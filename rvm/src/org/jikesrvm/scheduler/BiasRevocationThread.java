@@ -0,0 +1,105 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.scheduler;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.RVMType;
+import org.vmmagic.pragma.NonMoving;
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * Bias revocation thread.
+ * <p>
+ * Bulk rebiasing and bulk revocation of biased locks (see {@link ThinLock})
+ * stop all mutators with a hard handshake. The thread whose revocation of a
+ * bias brings the count for a type to a threshold is in the middle of
+ * locking an object, so it only queues a request here and this thread,
+ * which is created by RVMThread.boot() at runtime startup, carries it out.
+ * <p>
+ * Requests are held in a small fixed queue, so that they can be made
+ * without allocating. If it is full, the request is dropped and the next
+ * revocation on the type asks again.
+ */
+@NonMoving
+public final class BiasRevocationThread extends SystemThread {
+
+  /** The most requests that may be waiting */
+  private static final int MAX_PENDING = 64;
+
+  /** Guards the queue, and wakes this thread when a request is made */
+  private static Monitor schedLock;
+
+  /** The types to bulk rebias or revoke (guarded by schedLock) */
+  private static final RVMType[] pendingTypes = new RVMType[MAX_PENDING];
+
+  /** For each pending type, whether to revoke rather than rebias (guarded by schedLock) */
+  private static final boolean[] pendingRevokes = new boolean[MAX_PENDING];
+
+  /** The number of pending requests (guarded by schedLock) */
+  private static int pending;
+
+  public static void boot() {
+    schedLock = new Monitor();
+    BiasRevocationThread brt = new BiasRevocationThread();
+    brt.start();
+  }
+
+  /**
+   * Ask for the instances of a type to be bulk rebiased or revoked.
+   *
+   * @param type the type
+   * @param revoke whether to stop biasing instances of the type
+   * @return whether the request was queued
+   */
+  @Uninterruptible
+  static boolean request(RVMType type, boolean revoke) {
+    if (schedLock == null) return false;
+    schedLock.lockNoHandshake();
+    boolean queued = pending < MAX_PENDING;
+    if (queued) {
+      pendingTypes[pending] = type;
+      pendingRevokes[pending] = revoke;
+      pending++;
+      schedLock.broadcast();
+    }
+    schedLock.unlock();
+    return queued;
+  }
+
+  private BiasRevocationThread() {
+    super("BiasRevocationThread");
+  }
+
+  /** Run the bias revocation thread (one per RVM) */
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        schedLock.lockNoHandshake();
+        while (pending == 0) {
+          schedLock.waitWithHandshake();
+        }
+        pending--;
+        RVMType type = pendingTypes[pending];
+        boolean revoke = pendingRevokes[pending];
+        pendingTypes[pending] = null;
+        schedLock.unlock();
+
+        ThinLock.bulkRebias(type, revoke);
+      }
+    } catch (Throwable e) {
+      VM.sysWriteln("Unexpected exception thrown in bias revocation thread: ", e.toString());
+      e.printStackTrace();
+    }
+  }
+}
@@ -85,19 +85,26 @@ java.lang.Object#notifyAll}, and {@link java.lang.Object#wait()}.
  inflate the lock and yield to the heavy-weight lock's entering
  queue.  Currently, yield n times, then inflate.
  (This seemed to be best for the portBOB benchmark on a 12-way AIX
- SMP in the Fall of '99.)
+ SMP in the Fall of '99.)  Once a lock is inflated, a thread that
+ finds it held by a running thread spins for a while before joining
+ the entering queue.  Each lock adapts how long to spin: the limit
+ grows when spinning saw the lock released and shrinks when it didn't.
  <LI> <EM>When should a heavy-weight lock be deflated?</EM>  Currently,
  deflation happens when the lock is unlocked with nothing on either
- of its queues.  Probably better, would be to periodically (what
- period?) examine heavy-weight locks and deflate any that havn't
- been held for a while (how long?).
+ of its queues, unless threads have contended for it since it was
+ inflated.  Such locks are likely to be contended again, so they are
+ kept until the end of the next garbage collection, when all locks
+ that are neither held nor waited on are deflated (see
+ {@link #deflateIdleLocks}).
  <LI> <EM>How many heavy-weight locks are needed? and how should they be
- managed?</EM>  Currently, each processor maintains a pool of free
- locks.  When a lock is inflated by a processor it is taken from
- this pool and when a lock is deflated by a processor it gets added
- to the processors pool.  Since inflation can happen on one processor
- and deflation on another, this can create an imbalance.  It might
- be worth investigating a scheme for balancing these local pools.
+ managed?</EM>  Currently, each thread maintains a small cache of free
+ locks.  When a lock is inflated by a thread it is taken from this
+ cache and when a lock is deflated by a thread it gets added to the
+ thread's cache.  Since inflation can happen on one thread and
+ deflation on another, caches exchange locks with the global freelist
+ in batches: an empty cache is refilled and a cache that grows too
+ large gives a batch back.  The lock table is a spine of fixed size
+ chunks, so it grows without copying.
  <LI> <EM>Is there any advantage to using the {@link SpinLock#tryLock}
  method?</EM>
  </OL>
@@ -137,6 +144,21 @@ public final class Lock {
   protected static final int MAX_LOCKS = LOCK_SPINE_SIZE * LOCK_CHUNK_SIZE;
   /** The number of chunks to allocate on startup */
   protected static final int INITIAL_CHUNKS = 1;
+  /**
+   * The number of free locks a thread takes from, or gives back to, the
+   * global freelist at a time. A thread caches at most twice this many.
+   */
+  private static final int LOCK_CACHE_BATCH = 8;
+
+  /** The fewest iterations a thread spins for a held heavy-weight lock */
+  private static final int MIN_SPIN = 1 << 4;
+  /** The most iterations a thread spins for a held heavy-weight lock */
+  private static final int MAX_SPIN = 1 << 12;
+  /** The spin limit of a newly allocated lock */
+  private static final int INITIAL_SPIN = 1 << 8;
+
+  /** The most locks {@link #deflateIdleLocks} looks at after a collection that isn't full heap */
+  private static final int IDLE_DEFLATION_BATCH = 1 << 9;
 
   /**
    * Should we give up or persist in the attempt to get a heavy-weight lock,
@@ -166,6 +188,8 @@ public final class Lock {
   private static int globalLocksAllocated;
   /** the total number of free operations. */
   private static int globalLocksFreed;
+  /** The index at which {@link #deflateIdleLocks} carries on after a collection that isn't full heap */
+  private static int idleDeflationCursor = 1;
 
   // Statistics
 
@@ -175,6 +199,12 @@ public final class Lock {
   public static int unlockOperations;
   /** Number of deflations */
   public static int deflations;
+  /** Number of idle locks deflated at the end of a garbage collection */
+  public static int idleDeflations;
+  /** Number of contended lock operations that saw the lock released while spinning */
+  public static int spinSuccesses;
+  /** Number of contended lock operations that gave up spinning */
+  public static int spinFailures;
 
   /****************************************************************************
    * Instance
@@ -198,6 +228,17 @@ public final class Lock {
   ThreadQueue entering;
   /** Queue for waiting on a notify, guarded by mutex as well. */
   ThreadQueue waiting;
+  /**
+   * How many iterations a thread spins for this lock while it is held,
+   * adapted to how often spinning succeeded. Updated without synchronization.
+   */
+  private int spinLimit = INITIAL_SPIN;
+  /**
+   * Has a thread contended for this lock since it was inflated? If so, it
+   * is not deflated when released but at the end of the next garbage
+   * collection. Updated without synchronization.
+   */
+  private boolean contended;
 
   /**
    * A heavy weight lock to handle extreme contention and wait/notify
@@ -217,6 +258,13 @@ public final class Lock {
    */
   @Unpreemptible
   public boolean lockHeavy(Object o) {
+    int owner = ownerId;
+    if (owner != 0 && owner != RVMThread.getCurrentThread().getLockingId()) {
+      contended = true;
+      if (RVMThread.availableProcessors > 1) {
+        spinWhileHeld(o);
+      }
+    }
     if (tentativeMicrolocking) {
       if (!mutex.tryLock()) {
         return false;
@@ -248,6 +296,7 @@ public final class Lock {
       ownerId = threadId;
       recursionCount = 1;
     } else {
+      contended = true;
       entering.enqueue(me);
       mutex.unlock();
       me.monitor().lockNoHandshake();
@@ -261,6 +310,35 @@ public final class Lock {
     return true;
   }
 
+  /**
+   * Spins while this lock is held by a running thread, for at most
+   * {@link #spinLimit} iterations, so that short critical sections don't
+   * cost the contending thread a trip through the entering queue.
+   *
+   * @param o the object to be locked
+   */
+  @Unpreemptible
+  private void spinWhileHeld(Object o) {
+    int limit = spinLimit;
+    for (int i = 0; i < limit; i++) {
+      Magic.pause();
+      Magic.combinedLoadBarrier(); // see updates made by the owner
+      int owner = ownerId;
+      if (owner == 0 || lockedObject != o) {
+        // spinning paid off (or the lock went away), be more patient next time
+        if (STATS) spinSuccesses++;
+        if (limit < MAX_SPIN) spinLimit = limit << 1;
+        return;
+      }
+      RVMThread t = RVMThread.threadBySlot[owner >>> TL_THREAD_ID_SHIFT];
+      if (t == null || !t.isInJava()) {
+        break; // the owner won't release the lock any time soon
+      }
+    }
+    if (STATS) spinFailures++;
+    if (limit > MIN_SPIN) spinLimit = limit >> 1;
+  }
+
   @UnpreemptibleNoWarn
   private static void raiseIllegalMonitorStateException(String msg, Object o) {
     throw new IllegalMonitorStateException(msg + o);
@@ -288,8 +366,8 @@ public final class Lock {
     if (STATS) unlockOperations++;
     ownerId = 0;
     RVMThread toAwaken = entering.dequeue();
-    if (toAwaken == null && entering.isEmpty() && waiting.isEmpty()) { // heavy lock can be deflated
-      // Possible project: decide on a heuristic to control when lock should be deflated
+    if (toAwaken == null && entering.isEmpty() && waiting.isEmpty() && !contended) { // heavy lock can be deflated
+      // contended locks are left for deflateIdleLocks
       Offset lockOffset = Magic.getObjectType(o).getThinLockOffset();
       if (!lockOffset.isMax()) { // deflate heavy lock
         deflate(o, lockOffset);
@@ -320,9 +398,68 @@ public final class Lock {
     if (STATS) deflations++;
     ThinLock.markDeflated(o, lockOffset, index);
     lockedObject = null;
+    contended = false;
     free(this);
   }
 
+  /**
+   * Deflates heavy-weight locks that are neither held nor waited on,
+   * returning them to the global free list. This bounds the number of
+   * inflated locks kept by {@link #unlockHeavy} for contended objects.
+   * <p>
+   * Called by the collector at the end of a garbage collection, before
+   * the mutators resume. Mutators only touch a lock's state while
+   * holding its mutex and can't be stopped for collection in between, so
+   * locks whose mutex is held are skipped.
+   * <p>
+   * Full heap collections look at every lock created so far. Other
+   * collections look at no more than {@link #IDLE_DEFLATION_BATCH} locks,
+   * carrying on from where the last one stopped, so that short pauses
+   * don't pay for a large lock table.
+   *
+   * @param fullHeap whether the collection was a full heap collection
+   */
+  public static void deflateIdleLocks(boolean fullHeap) {
+    // locks may have been counted but not yet added to the table
+    int n = nextLockIndex < numLocks() ? nextLockIndex : numLocks();
+    if (fullHeap || n <= IDLE_DEFLATION_BATCH) {
+      deflateIdleLocks(1, n);
+      idleDeflationCursor = 1;
+    } else {
+      int from = idleDeflationCursor < n ? idleDeflationCursor : 1;
+      int to = from + IDLE_DEFLATION_BATCH < n ? from + IDLE_DEFLATION_BATCH : n;
+      deflateIdleLocks(from, to);
+      idleDeflationCursor = to;
+    }
+  }
+
+  /**
+   * Deflates the idle heavy-weight locks in part of the lock table.
+   *
+   * @param from the index of the first lock to look at
+   * @param to the index after the last lock to look at
+   */
+  private static void deflateIdleLocks(int from, int to) {
+    for (int i = from; i < to; i++) {
+      Lock l = getLock(i);
+      if (l == null || !l.active || !l.mutex.tryLock()) continue;
+      Object o = l.lockedObject;
+      if (l.active && o != null && l.ownerId == 0 &&
+          l.entering.isEmpty() && l.waiting.isEmpty()) {
+        Offset lockOffset = Magic.getObjectType(o).getThinLockOffset();
+        if (!lockOffset.isMax()) {
+          if (STATS) idleDeflations++;
+          ThinLock.markDeflated(o, lockOffset, l.index);
+          l.lockedObject = null;
+          l.contended = false;
+          l.active = false;
+          returnLock(l);
+        }
+      }
+      l.mutex.unlock();
+    }
+  }
+
   /**
    * Set the owner of a lock
    * @param id The thread id of the owner.
@@ -463,8 +600,10 @@ public final class Lock {
 
   /**
    * Delivers up an unassigned heavy-weight lock.  Locks are allocated
-   * from processor specific regions or lists, so normally no synchronization
-   * is required to obtain a lock.
+   * from a cache of free locks kept by each thread, so normally no
+   * synchronization is required to obtain a lock.  An empty cache is
+   * refilled with a batch of locks, taking {@link #lockAllocationMutex}
+   * once per batch.
    * <p>
    * Collector threads cannot use heavy-weight locks.
    *
@@ -473,95 +612,157 @@ public final class Lock {
   @UnpreemptibleNoWarn("The caller is prepared to lose control when it allocates a lock")
   static Lock allocate() {
     RVMThread me = RVMThread.getCurrentThread();
-    if (me.cachedFreeLock != null) {
-      Lock l = me.cachedFreeLock;
-      me.cachedFreeLock = null;
-      if (trace) {
-        VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
-                      ", a cached free lock from Thread #",me.getThreadSlot());
-      }
-      l.active = true;
-      return l;
+    if (me.cachedFreeLocks == null) {
+      refillCachedLocks(me);
     }
+    Lock l = me.cachedFreeLocks;
+    me.cachedFreeLocks = l.nextFreeLock;
+    me.numCachedFreeLocks--;
+    l.nextFreeLock = null;
+    l.active = true;
+    if (trace) {
+      VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
+                    ", a cached free lock from Thread #",me.getThreadSlot());
+    }
+    return l;
+  }
 
-    Lock l = null;
-    while (l == null) {
+  /**
+   * Fills the given thread's empty cache with a batch of free locks, taken
+   * from the global freelist if it has any and freshly allocated otherwise.
+   *
+   * @param me the current thread
+   */
+  @UnpreemptibleNoWarn("The caller is prepared to lose control when it allocates a lock")
+  private static void refillCachedLocks(RVMThread me) {
+    while (true) {
       if (globalFreeLock != null) {
         lockAllocationMutex.lock();
-        l = globalFreeLock;
-        if (l != null) {
+        int n = 0;
+        while (globalFreeLock != null && n < LOCK_CACHE_BATCH) {
+          Lock l = globalFreeLock;
           globalFreeLock = l.nextFreeLock;
-          l.nextFreeLock = null;
-          l.active = true;
-          globalFreeLocks--;
+          l.nextFreeLock = me.cachedFreeLocks;
+          me.cachedFreeLocks = l;
+          n++;
         }
+        globalFreeLocks -= n;
         lockAllocationMutex.unlock();
-        if (trace && l != null) {
-          VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
-                        " from the global freelist for Thread #",me.getThreadSlot());
+        me.numCachedFreeLocks += n;
+        if (trace) {
+          VM.sysWriteln("Lock.allocate: took ", n,
+                        " locks from the global freelist for Thread #", me.getThreadSlot());
         }
+        if (n > 0) return;
       } else {
-        l = new Lock(); // may cause thread switch (and processor loss)
+        Lock first = null;
+        for (int i = 0; i < LOCK_CACHE_BATCH; i++) {
+          Lock l = new Lock(); // may cause thread switch (and processor loss)
+          l.nextFreeLock = first;
+          first = l;
+        }
+        int base = 0;
         lockAllocationMutex.lock();
         if (globalFreeLock == null) {
-          // ok, it's still correct for us to be adding a new lock
-          if (nextLockIndex >= MAX_LOCKS) {
+          // ok, it's still correct for us to be adding new locks
+          if (nextLockIndex + LOCK_CACHE_BATCH > MAX_LOCKS) {
             VM.sysWriteln("Too many fat locks"); // make MAX_LOCKS bigger? we can keep going??
             VM.sysFail("Exiting VM with fatal error");
           }
-          l.index = nextLockIndex++;
-          globalLocksAllocated++;
-        } else {
-          l = null; // someone added to the freelist, try again
+          base = nextLockIndex;
+          nextLockIndex += LOCK_CACHE_BATCH;
+          globalLocksAllocated += LOCK_CACHE_BATCH;
         }
         lockAllocationMutex.unlock();
-        if (l != null) {
-          if (l.index >= numLocks()) {
-            /* We need to grow the table */
-            growLocks(l.index);
-          }
+        if (base == 0) {
+          continue; // someone added to the freelist, try again
+        }
+        if (base + LOCK_CACHE_BATCH - 1 >= numLocks()) {
+          /* We need to grow the table */
+          growLocks(base + LOCK_CACHE_BATCH - 1);
+        }
+        Lock last = null;
+        for (Lock l = first; l != null; l = l.nextFreeLock) {
+          l.index = base++;
           addLock(l);
-          l.active = true;
-          /* make sure other processors see lock initialization.
-           * Note: Derek and I BELIEVE that an isync is not required in the other processor because the lock is newly allocated - Bowen */
-          Magic.fence();
+          last = l;
         }
-        if (trace && l != null) {
-          VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
-                        ", a freshly allocated lock for Thread #",
-                        me.getThreadSlot());
+        last.nextFreeLock = me.cachedFreeLocks;
+        me.cachedFreeLocks = first;
+        me.numCachedFreeLocks += LOCK_CACHE_BATCH;
+        /* make sure other processors see lock initialization.
+         * Note: Derek and I BELIEVE that an isync is not required in the other processor because the lock is newly allocated - Bowen */
+        Magic.fence();
+        if (trace) {
+          VM.sysWriteln("Lock.allocate: allocated ", LOCK_CACHE_BATCH,
+                        " fresh locks for Thread #", me.getThreadSlot());
         }
+        return;
       }
     }
-    return l;
   }
 
   /**
    * Recycles an unused heavy-weight lock.  Locks are deallocated
-   * to processor specific lists, so normally no synchronization
-   * is required to obtain or release a lock.
+   * to thread specific caches, so normally no synchronization
+   * is required to release a lock.  When a cache grows past
+   * twice the batch size, a batch is returned to the global freelist.
    *
    * @param l the unused lock
    */
   protected static void free(Lock l) {
     l.active = false;
     RVMThread me = RVMThread.getCurrentThread();
-    if (me.cachedFreeLock == null) {
-      if (trace) {
-        VM.sysWriteln("Lock.free: setting ",Magic.objectAsAddress(l),
-                      " as the cached free lock for Thread #",
-                      me.getThreadSlot());
-      }
-      me.cachedFreeLock = l;
-    } else {
-      if (trace) {
-        VM.sysWriteln("Lock.free: returning ",Magic.objectAsAddress(l),
-                      " to the global freelist for Thread #",
-                      me.getThreadSlot());
-      }
-      returnLock(l);
+    if (trace) {
+      VM.sysWriteln("Lock.free: caching ",Magic.objectAsAddress(l),
+                    " for Thread #", me.getThreadSlot());
+    }
+    l.nextFreeLock = me.cachedFreeLocks;
+    me.cachedFreeLocks = l;
+    me.numCachedFreeLocks++;
+    if (me.numCachedFreeLocks > 2 * LOCK_CACHE_BATCH) {
+      returnCachedLocks(me, LOCK_CACHE_BATCH);
+    }
+  }
+
+  /**
+   * Returns all locks cached by a thread to the global freelist.  Called
+   * when the thread terminates.
+   *
+   * @param t the thread
+   */
+  static void returnCachedLocks(RVMThread t) {
+    returnCachedLocks(t, t.numCachedFreeLocks);
+  }
+
+  /**
+   * Moves locks from a thread's cache to the global freelist, taking the
+   * global lock once.
+   *
+   * @param t the thread that owns the cache
+   * @param n how many locks to move, at most the number cached
+   */
+  private static void returnCachedLocks(RVMThread t, int n) {
+    if (n == 0) return;
+    Lock first = t.cachedFreeLocks;
+    Lock last = first;
+    for (int i = 1; i < n; i++) {
+      last = last.nextFreeLock;
+    }
+    t.cachedFreeLocks = last.nextFreeLock;
+    t.numCachedFreeLocks -= n;
+    if (trace) {
+      VM.sysWriteln("Lock.free: returning ", n,
+                    " locks to the global freelist for Thread #", t.getThreadSlot());
     }
+    lockAllocationMutex.lock();
+    last.nextFreeLock = globalFreeLock;
+    globalFreeLock = first;
+    globalFreeLocks += n;
+    globalLocksFreed += n;
+    lockAllocationMutex.unlock();
   }
+
   static void returnLock(Lock l) {
     if (trace) {
       VM.sysWriteln("Lock.returnLock: returning ",Magic.objectAsAddress(l),
@@ -614,6 +815,14 @@ public final class Lock {
     return chunksAllocated * LOCK_CHUNK_SIZE;
   }
 
+  /**
+   * @return the number of heavy-weight locks created so far, whether they
+   * are in use or free
+   */
+  public static int numCreatedLocks() {
+    return nextLockIndex - 1;
+  }
+
   /**
    * Read a lock from the lock table by id.
    *
@@ -713,6 +922,9 @@ public final class Lock {
       lockOperations = 0;
       unlockOperations = 0;
       deflations = 0;
+      idleDeflations = 0;
+      spinSuccesses = 0;
+      spinFailures = 0;
 
       ThinLock.notifyAppRunStart("", 0);
     }
@@ -738,6 +950,14 @@ public final class Lock {
       VM.sysWrite("FatLocks: ");
       VM.sysWrite(deflations);
       VM.sysWriteln(" deflations");
+      VM.sysWrite("FatLocks: ");
+      VM.sysWrite(idleDeflations);
+      VM.sysWriteln(" idle locks deflated after GC");
+      VM.sysWrite("FatLocks: ");
+      VM.sysWrite(spinSuccesses);
+      VM.sysWrite(" spins saw the lock released, ");
+      VM.sysWrite(spinFailures);
+      VM.sysWriteln(" spins gave up");
 
       ThinLock.notifyExit(totalLocks);
       VM.sysWriteln();
@@ -18,6 +18,7 @@ import static org.jikesrvm.runtime.ExitStatus.EXIT_STATUS_MAIN_THREAD_COULD_NOT_
 import static org.jikesrvm.runtime.ExitStatus.EXIT_STATUS_RECURSIVELY_SHUTTING_DOWN;
 import static org.jikesrvm.runtime.SysCall.sysCall;
 import static org.jikesrvm.objectmodel.ThinLockConstants.TL_THREAD_ID_SHIFT;
+import static org.jikesrvm.runtime.UnboxedSizeConstants.LOG_BYTES_IN_ADDRESS;
 
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -142,6 +143,7 @@ import org.vmmagic.unboxed.Word;
  *
  * @see org.jikesrvm.mm.mminterface.CollectorThread
  * @see FinalizerThread
+ * @see BiasRevocationThread
  * @see org.jikesrvm.adaptive.measurements.organizers.Organizer
  */
 @Uninterruptible
@@ -506,6 +508,22 @@ public final class RVMThread extends ThreadContext {
   @Entrypoint
   public Address stackLimit;
 
+  /**
+   * Stacks this thread outgrew while they held objects that the optimizing
+   * compiler allocated in stack frames. Pointers to such objects are not
+   * adjusted when the frames move, so the objects stay behind in the old
+   * stack until the frames that allocated them return. Entries are cleared
+   * by {@link #releaseRetiredStacks} once that has happened.
+   */
+  private byte[][] retiredStacks;
+
+  /**
+   * For each retired stack, the distance in bytes from the top of the stack
+   * to the innermost frame that allocated objects in it. Frames keep their
+   * distance from the top when the stack is resized.
+   */
+  private int[] retiredStackDepths;
+
   /* --------- BEGIN IA-specific fields. NOTE: NEED TO REFACTOR --------- */
   // On powerpc, these values are in dedicated registers,
   // we don't have registers to burn on IA32, so we indirect
@@ -672,10 +690,13 @@ public final class RVMThread extends ThreadContext {
   private int uncaughtExceptionCount = 0;
 
   /**
-   * A cached free lock. Not a free list; this will only ever contain 0 or 1
-   * locks!
+   * This thread's cache of free heavy-weight locks, linked through the
+   * locks themselves. Only accessed by this thread, see {@link Lock#allocate}.
    */
-  public Lock cachedFreeLock;
+  Lock cachedFreeLocks;
+
+  /** The number of locks in {@link #cachedFreeLocks} */
+  int numCachedFreeLocks;
 
   /*
    * Wait/notify fields
@@ -1470,6 +1491,7 @@ public final class RVMThread extends ThreadContext {
     }
 
     FinalizerThread.boot();
+    BiasRevocationThread.boot();
     getCurrentThread().enableYieldpoints();
     if (traceAcct) VM.sysWriteln("RVMThread booted");
   }
@@ -2981,17 +3003,15 @@ public final class RVMThread extends ThreadContext {
   private void terminateUnpreemptible() {
     // return cached free lock
     if (traceAcct)
-      VM.sysWriteln("returning cached lock...");
+      VM.sysWriteln("returning cached locks...");
 
-    if (cachedFreeLock != null) {
+    if (cachedFreeLocks != null) {
       if (Lock.trace) {
-        VM.sysWriteln("Thread #", threadSlot, ": about to free lock ",
-            Magic.objectAsAddress(cachedFreeLock));
+        VM.sysWriteln("Thread #", threadSlot, ": about to free cached locks");
       }
       if (VM.VerifyAssertions)
-        VM._assert(cachedFreeLock.mutex.latestContender != this);
-      Lock.returnLock(cachedFreeLock);
-      cachedFreeLock = null;
+        VM._assert(cachedFreeLocks.mutex.latestContender != this);
+      Lock.returnCachedLocks(this);
     }
 
     if (traceAcct)
@@ -4353,6 +4373,12 @@ public final class RVMThread extends ThreadContext {
       VM.sysFail("system error: resizing stack while GC is in progress");
     }
     byte[] newStack = MemoryManager.newStack(newSize);
+    if (VM.BuildForOptCompiler) {
+      Address fp = innermostStackAllocatingFrame(Magic.getFramePointer());
+      if (!fp.isZero()) {
+        getCurrentThread().retireStack(getCurrentThread().getStackDepth(fp));
+      }
+    }
     getCurrentThread().disableYieldpoints();
     transferExecutionToNewStack(newStack, exceptionRegisters);
     getCurrentThread().enableYieldpoints();
@@ -4364,6 +4390,129 @@ public final class RVMThread extends ThreadContext {
     }
   }
 
+  /**
+   * Finds the innermost frame, from the given one outwards, of a method
+   * that allocates objects in its stack frame.
+   *
+   * @param fp the innermost frame to look at
+   * @return the frame pointer of that frame, or zero if there is none
+   */
+  private static Address innermostStackAllocatingFrame(Address fp) {
+    while (Magic.getCallerFramePointer(fp).NE(StackFrameLayout.getStackFrameSentinelFP())) {
+      if (allocatesInFrame(fp)) {
+        return fp;
+      }
+      fp = Magic.getCallerFramePointer(fp);
+    }
+    return Address.zero();
+  }
+
+  /**
+   * @param fp a frame pointer
+   * @return {@code true} if the frame belongs to a method that allocates
+   *  objects in its stack frame
+   */
+  public static boolean allocatesInFrame(Address fp) {
+    int compiledMethodId = Magic.getCompiledMethodID(fp);
+    if (compiledMethodId == StackFrameLayout.getInvisibleMethodID()) {
+      return false;
+    }
+    CompiledMethod compiledMethod = CompiledMethods.getCompiledMethod(compiledMethodId);
+    return compiledMethod != null && compiledMethod.getCompilerType() == CompiledMethod.OPT &&
+        ((OptCompiledMethod) compiledMethod).hasStackAllocatedObjects();
+  }
+
+  /**
+   * @param fp a frame pointer on this thread's stack
+   * @return the distance in bytes from the top of the stack to the frame
+   */
+  private int getStackDepth(Address fp) {
+    return Magic.objectAsAddress(stack).plus(stack.length).diff(fp).toInt();
+  }
+
+  /**
+   * Keep the current stack alive after it has been replaced, as objects
+   * allocated in its frames remain in use.
+   *
+   * @param depth the distance from the top of the stack to the innermost
+   *  frame that allocated objects in it
+   */
+  @Unpreemptible("May block due to allocation")
+  private void retireStack(int depth) {
+    int n = retiredStacks == null ? 0 : retiredStacks.length;
+    byte[][] stacks = new byte[n + 1][];
+    int[] depths = new int[n + 1];
+    // a collection may have released some of the stacks meanwhile
+    int live = 0;
+    for (int i = 0; i < n; i++) {
+      if (retiredStacks[i] != null) {
+        stacks[live] = retiredStacks[i];
+        depths[live] = retiredStackDepths[i];
+        live++;
+      }
+    }
+    stacks[live] = stack;
+    depths[live] = depth;
+    retiredStacks = stacks;
+    retiredStackDepths = depths;
+  }
+
+  /**
+   * @return whether this thread keeps stacks it has outgrown
+   */
+  public boolean hasRetiredStacks() {
+    return retiredStacks != null;
+  }
+
+  /**
+   * Releases the retired stacks that no frame on the stack can refer to any
+   * longer, because every frame that allocated objects in them has returned.
+   * Called by the collector after it has walked all of this thread's frames.
+   *
+   * @param outermostFp the outermost frame on the stack of a method that
+   *  allocates objects in its stack frame, or zero if there is none
+   */
+  public void releaseRetiredStacks(Address outermostFp) {
+    if (retiredStacks == null) {
+      return;
+    }
+    int depth = outermostFp.isZero() ? Integer.MAX_VALUE : getStackDepth(outermostFp);
+    for (int i = 0; i < retiredStacks.length; i++) {
+      if (retiredStacks[i] != null && retiredStackDepths[i] < depth) {
+        // no write barrier during a collection
+        Magic.setObjectAtOffset(retiredStacks, Offset.fromIntZeroExtend(i << LOG_BYTES_IN_ADDRESS), null);
+      }
+    }
+  }
+
+  /**
+   * Does an address lie within this thread's stack, or a stack it has
+   * outgrown? References to objects that the optimizing compiler
+   * allocated in stack frames point there. Such objects are not in any
+   * space, so stack scanning skips them.
+   *
+   * @param addr the address to check
+   * @return {@code true} if the address is within one of the stacks
+   */
+  public boolean isStackAddress(Address addr) {
+    if (stack != null && isWithin(stack, addr)) {
+      return true;
+    }
+    if (retiredStacks != null) {
+      for (byte[] retired : retiredStacks) {
+        if (retired != null && isWithin(retired, addr)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isWithin(byte[] s, Address addr) {
+    Address start = Magic.objectAsAddress(s);
+    return addr.GE(start) && addr.LT(start.plus(s.length));
+  }
+
   @NoInline
   @BaselineNoRegisters
   // this method does not do a normal return and hence does not execute epilogue
@@ -12,6 +12,9 @@
  */
 package org.jikesrvm.scheduler;
 
+import static org.jikesrvm.objectmodel.ThinLockConstants.TL_BIASED_LOCK_COUNT_MASK;
+import static org.jikesrvm.objectmodel.ThinLockConstants.TL_BIAS_EPOCH_MASK;
+import static org.jikesrvm.objectmodel.ThinLockConstants.TL_BIAS_EPOCH_SHIFT;
 import static org.jikesrvm.objectmodel.ThinLockConstants.TL_DEDICATED_U16_OFFSET;
 import static org.jikesrvm.objectmodel.ThinLockConstants.TL_DEDICATED_U16_SHIFT;
 import static org.jikesrvm.objectmodel.ThinLockConstants.TL_LOCK_COUNT_MASK;
@@ -28,7 +31,10 @@ import static org.jikesrvm.objectmodel.ThinLockConstants.TL_THREAD_ID_SHIFT;
 import static org.jikesrvm.objectmodel.ThinLockConstants.TL_UNLOCK_MASK;
 
 import org.jikesrvm.VM;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.objectmodel.ObjectModel;
 import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.runtime.Time;
 import org.jikesrvm.util.Services;
 import org.vmmagic.pragma.Entrypoint;
 import org.vmmagic.pragma.Inline;
@@ -44,6 +50,25 @@ import org.vmmagic.unboxed.Word;
  * <p>
  * Note that these locks are used for Java-level locking. As such, they must ensure that all paths for lock have at least
  * one LoadLoad and LoadStore barrier and that all paths for unlock have at least one StoreStore and StoreLoad barrier.
+ * <p>
+ * An unlocked object is biased towards the first thread that locks it, which can then lock and unlock it without
+ * atomic operations. When another thread locks the object the bias is revoked, which requires a handshake with the
+ * owner.
+ * <p>
+ * A biased lock word also records the bias epoch of the object's type when the bias was granted. Advancing the
+ * type's epoch, which is done with all mutators stopped, makes every existing bias on its instances stale at once.
+ * The owner then checks the epoch before locking without a CAS, so a stale bias that isn't held can be taken over
+ * by any thread with a CAS and no handshake. Revocations are counted per type:
+ * <ul>
+ *   <li>once {@link VM#BiasedLockingRebiasThreshold} biases on instances of a type have been revoked, the type is
+ *       bulk rebiased: its epoch is advanced, so the next thread to lock each instance takes over the bias,
+ *       which suits objects that are handed from one thread to another.</li>
+ *   <li>once {@link VM#BiasedLockingRevokeThreshold} biases have been revoked within
+ *       {@link VM#BiasedLockingDecayTime} ms of the bulk rebias, the type is bulk revoked: biasing is disabled for
+ *       it and its epoch is advanced, so its instances become thin locks when next locked. If revocations are rarer
+ *       than that, the type is bulk rebiased again instead.</li>
+ * </ul>
+ * Only stale biases held at the time of the bulk operation still need a handshake to be revoked.
  */
 @Uninterruptible
 public final class ThinLock {
@@ -60,7 +85,8 @@ public final class ThinLock {
     Word tid = Word.fromIntSignExtend(RVMThread.getCurrentThread().getLockingId());
     if (id.EQ(tid)) {
       Word changed = old.plus(TL_LOCK_COUNT_UNIT);
-      if (!changed.and(TL_LOCK_COUNT_MASK).isZero()) {
+      if (!changed.and(TL_BIASED_LOCK_COUNT_MASK).isZero() &&
+          old.and(TL_BIAS_EPOCH_MASK).EQ(biasEpoch(ObjectModel.getObjectType(o)))) {
         setDedicatedU16(o, lockOffset, changed);
         Magic.combinedLoadBarrier();
         return;
@@ -84,7 +110,7 @@ public final class ThinLock {
     Word id = old.and(TL_THREAD_ID_MASK.or(TL_STAT_MASK));
     Word tid = Word.fromIntSignExtend(RVMThread.getCurrentThread().getLockingId());
     if (id.EQ(tid)) {
-      if (!old.and(TL_LOCK_COUNT_MASK).isZero()) {
+      if (!old.and(TL_BIASED_LOCK_COUNT_MASK).isZero()) {
         setDedicatedU16(o, lockOffset, old.minus(TL_LOCK_COUNT_UNIT));
         Magic.fence();
         return;
@@ -113,13 +139,14 @@ public final class ThinLock {
       boolean tryToInflate = false;
       if (stat.EQ(TL_STAT_BIASABLE)) {
         Word id = old.and(TL_THREAD_ID_MASK);
+        RVMType type = ObjectModel.getObjectType(o);
         if (id.isZero()) {
-          if (ENABLE_BIASED_LOCKING) {
+          if (ENABLE_BIASED_LOCKING && type.isBiasable()) {
             // lock is unbiased, bias it in our favor and grab it
             if (Synchronization.tryCompareAndSwap(
                   o, lockOffset,
                   old,
-                  old.or(threadId).plus(TL_LOCK_COUNT_UNIT))) {
+                  biasTowards(old, threadId, type).plus(TL_LOCK_COUNT_UNIT))) {
               if (!VM.MagicAttemptImpliesStoreLoadBarrier) Magic.fence();
               return;
             }
@@ -137,17 +164,45 @@ public final class ThinLock {
         } else if (id.EQ(threadId)) {
           // lock is biased in our favor
           Word changed = old.plus(TL_LOCK_COUNT_UNIT);
-          if (!changed.and(TL_LOCK_COUNT_MASK).isZero()) {
+          if (changed.and(TL_BIASED_LOCK_COUNT_MASK).isZero()) {
+            tryToInflate = true;
+          } else if (old.and(TL_BIAS_EPOCH_MASK).EQ(biasEpoch(type))) {
             setDedicatedU16(o, lockOffset, changed);
             Magic.combinedLoadBarrier();
             return;
           } else {
-            tryToInflate = true;
+            // the bias is stale, so other threads may be taking it over: renew
+            // it, or make the lock thin if the type is no longer biasable
+            boolean biasable = type.isBiasable();
+            changed = biasable ?
+              biasTowards(changed, threadId, type) :
+              biasBitsToThinBits(old);
+            if (Synchronization.tryCompareAndSwap(o, lockOffset, old, changed)) {
+              if (biasable) {
+                if (!VM.MagicAttemptImpliesStoreLoadBarrier) Magic.fence();
+                return;
+              }
+              continue; // don't spin, since it's thin now
+            }
           }
-        } else {
-          if (casFromBiased(o, lockOffset, old, biasBitsToThinBits(old), cnt)) {
+        } else if (old.and(TL_BIAS_EPOCH_MASK).NE(biasEpoch(type)) &&
+                   old.and(TL_BIASED_LOCK_COUNT_MASK).isZero()) {
+          // the bias is stale and not held, and the owner only takes a stale
+          // bias with a CAS, so take it over without a handshake
+          boolean biasable = type.isBiasable();
+          Word changed = biasable ?
+            biasTowards(old, threadId, type).plus(TL_LOCK_COUNT_UNIT) :
+            biasBitsToThinBits(old);
+          if (Synchronization.tryCompareAndSwap(o, lockOffset, old, changed)) {
+            if (biasable) {
+              if (!VM.MagicAttemptImpliesStoreLoadBarrier) Magic.fence();
+              return;
+            }
             continue; // don't spin, since it's thin now
           }
+        } else if (casFromBiased(o, lockOffset, old, biasBitsToThinBits(old), cnt)) {
+          noteBiasRevoked(type);
+          continue; // don't spin, since it's thin now
         }
       } else if (stat.EQ(TL_STAT_THIN)) {
         Word id = old.and(TL_THREAD_ID_MASK);
@@ -206,7 +261,7 @@ public final class ThinLock {
       if (stat.EQ(TL_STAT_BIASABLE)) {
         Word id = old.and(TL_THREAD_ID_MASK);
         if (id.EQ(threadId)) {
-          if (old.and(TL_LOCK_COUNT_MASK).isZero()) {
+          if (old.and(TL_BIASED_LOCK_COUNT_MASK).isZero()) {
             RVMThread.raiseIllegalMonitorStateException("biased unlocking: we own this object but the count is already zero", o);
           }
           setDedicatedU16(o, lockOffset, old.minus(TL_LOCK_COUNT_UNIT));
@@ -256,7 +311,7 @@ public final class ThinLock {
         // if locked, then it is locked with a thin lock
         return
           bits.and(TL_THREAD_ID_MASK).toInt() == tid &&
-          !bits.and(TL_LOCK_COUNT_MASK).isZero();
+          !bits.and(TL_BIASED_LOCK_COUNT_MASK).isZero();
       } else if (bits.and(TL_STAT_MASK).EQ(TL_STAT_THIN)) {
         return bits.and(TL_THREAD_ID_MASK).toInt() == tid;
       } else {
@@ -310,7 +365,7 @@ public final class ThinLock {
   public static int getLockOwner(Word lockWord) {
     if (VM.VerifyAssertions) VM._assert(!isFat(lockWord));
     if (lockWord.and(TL_STAT_MASK).EQ(TL_STAT_BIASABLE)) {
-      if (lockWord.and(TL_LOCK_COUNT_MASK).isZero()) {
+      if (lockWord.and(TL_BIASED_LOCK_COUNT_MASK).isZero()) {
         return 0;
       } else {
         return lockWord.and(TL_THREAD_ID_MASK).toInt();
@@ -325,7 +380,7 @@ public final class ThinLock {
   public static int getRecCount(Word lockWord) {
     if (VM.VerifyAssertions) VM._assert(getLockOwner(lockWord) != 0);
     if (lockWord.and(TL_STAT_MASK).EQ(TL_STAT_BIASABLE)) {
-      return lockWord.and(TL_LOCK_COUNT_MASK).rshl(TL_LOCK_COUNT_SHIFT).toInt();
+      return lockWord.and(TL_BIASED_LOCK_COUNT_MASK).rshl(TL_LOCK_COUNT_SHIFT).toInt();
     } else {
       return lockWord.and(TL_LOCK_COUNT_MASK).rshl(TL_LOCK_COUNT_SHIFT).toInt() + 1;
     }
@@ -488,6 +543,100 @@ public final class ThinLock {
     }
   }
 
+  /**
+   * @param type a type
+   * @return the bias epoch of the type, positioned as in a lock word
+   */
+  @Inline
+  @Uninterruptible
+  private static Word biasEpoch(RVMType type) {
+    return Word.fromIntZeroExtend(type.getBiasEpoch()).lsh(TL_BIAS_EPOCH_SHIFT).and(TL_BIAS_EPOCH_MASK);
+  }
+
+  /**
+   * @param bits a biasable lock word
+   * @param threadId the locking id of the new owner
+   * @param type the type of the locked object
+   * @return the lock word biased towards the thread in the current epoch
+   *  of the type, keeping the recursion count
+   */
+  @Inline
+  @Uninterruptible
+  private static Word biasTowards(Word bits, Word threadId, RVMType type) {
+    return bits.and(TL_THREAD_ID_MASK.or(TL_BIAS_EPOCH_MASK).not()).or(threadId).or(biasEpoch(type));
+  }
+
+  /**
+   * Records that another thread took away a bias on an instance of the
+   * given type. The count is updated with a compare-and-swap, so exactly
+   * one thread sees it reach each threshold; that thread asks the
+   * {@link BiasRevocationThread} to bulk rebias or bulk revoke the type,
+   * since stopping all mutators must not be done from the locking slow
+   * path.
+   *
+   * @param type the type of the object whose bias was revoked
+   */
+  @Unpreemptible
+  private static void noteBiasRevoked(RVMType type) {
+    if (!type.isBiasable()) return;
+    int revocations;
+    int updated;
+    boolean request;
+    boolean revoke;
+    do {
+      revocations = type.getBiasRevocations();
+      updated = revocations + 1;
+      request = false;
+      revoke = false;
+      if (updated == VM.BiasedLockingRevokeThreshold) {
+        long lastRebias = type.getLastBulkRebiasTime();
+        request = true;
+        if (lastRebias != 0 && Time.nanoTime() - lastRebias > VM.BiasedLockingDecayTime * 1000000L) {
+          // revocations are rare for this type, keep rebiasing
+          updated = VM.BiasedLockingRebiasThreshold;
+        } else {
+          revoke = true;
+        }
+      } else if (updated == VM.BiasedLockingRebiasThreshold) {
+        request = true;
+      }
+    } while (!type.attemptBiasRevocations(revocations, updated));
+    if (request && !BiasRevocationThread.request(type, revoke)) {
+      // no room for the request: step back below the threshold, over any
+      // revocations counted since, so that the next revocation asks again
+      do {
+        revocations = type.getBiasRevocations();
+      } while (revocations >= updated && !type.attemptBiasRevocations(revocations, updated - 1));
+    }
+  }
+
+  /**
+   * Makes all biases on instances of a type stale by advancing its bias
+   * epoch with all mutators stopped, so that no thread is part way through
+   * locking an instance under the old epoch. Only called by the
+   * {@link BiasRevocationThread}.
+   *
+   * @param type the type to bulk rebias
+   * @param revoke whether to also stop biasing instances of the type
+   */
+  @NoInline
+  @Unpreemptible
+  static void bulkRebias(RVMType type, boolean revoke) {
+    if (!type.isBiasable()) return;
+    RVMThread.hardHandshakeSuspend();
+    if (revoke) {
+      type.disableBiasing();
+    } else {
+      type.setLastBulkRebiasTime(Time.nanoTime());
+    }
+    type.advanceBiasEpoch();
+    RVMThread.hardHandshakeResume();
+    if (trace) {
+      VM.sysWriteln(revoke ? "ThinLock: bulk revoked biasing for " : "ThinLock: bulk rebiased ",
+                    type.getTypeRef().getName());
+    }
+  }
+
   @Inline
   @Uninterruptible
   private static Word biasBitsToThinBits(Word bits) {
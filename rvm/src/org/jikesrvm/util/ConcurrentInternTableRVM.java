@@ -0,0 +1,162 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.util;
+
+import static org.jikesrvm.runtime.UnboxedSizeConstants.LOG_BYTES_IN_ADDRESS;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.scheduler.Synchronization;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * A set used to intern (canonicalize) objects that many threads look up
+ * and extend at the same time.
+ * <p>
+ * Buckets are chains of immutable entries. Once the VM is running a new
+ * entry is published by a single compare-and-swap of the bucket head, so
+ * lookups never block and always see either the old or the new chain. A
+ * thread that loses a race to insert an equal key gets the winner back.
+ * <p>
+ * As with the other immutable entry hash sets, the bucket array is only
+ * grown while writing the boot image, where updates are serialized by
+ * the table's monitor. In the running VM the bucket array lives in the
+ * boot image and chains lengthen instead.
+ */
+public final class ConcurrentInternTableRVM<T> {
+
+  private static final int DEFAULT_SIZE = 7;
+  private static final float LOAD = 3;
+
+  static final class Entry<T> {
+    final T key;
+    final int hash;
+    final Entry<T> next;
+
+    Entry(T key, int hash, Entry<T> next) {
+      this.key = key;
+      this.hash = hash;
+      this.next = next;
+    }
+  }
+
+  /** The buckets, replaced only while writing the boot image */
+  private volatile Entry<T>[] buckets;
+
+  /** Number of keys added while writing the boot image */
+  private int numElems = 0;
+
+  public ConcurrentInternTableRVM() {
+    this(DEFAULT_SIZE);
+  }
+
+  public ConcurrentInternTableRVM(int size) {
+    buckets = newBucketArray(size);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Entry<T>[] newBucketArray(int size) {
+    return new Entry[size];
+  }
+
+  private static int bucketIndex(int hash, int divisor) {
+    return (hash & 0x7fffffff) % divisor;
+  }
+
+  private static <T> T find(Entry<T> cur, T key, int hash) {
+    while (cur != null) {
+      if (cur.hash == hash && cur.key.equals(key)) {
+        return cur.key;
+      }
+      cur = cur.next;
+    }
+    return null;
+  }
+
+  /**
+   * Looks up the interned key equal to the given key. Never blocks.
+   *
+   * @param key the key to look for
+   * @return the interned key or {@code null} if there is none
+   */
+  public T get(T key) {
+    if (key == null) {
+      return null;
+    }
+    int hash = key.hashCode();
+    Entry<T>[] b = buckets;
+    return find(b[bucketIndex(hash, b.length)], key, hash);
+  }
+
+  /**
+   * Interns the given key unless an equal key is already present.
+   *
+   * @param key the key to intern
+   * @return the interned key equal to {@code key}, which is {@code key}
+   *  itself if it was added by this call
+   */
+  public T findOrAdd(T key) {
+    if (VM.VerifyAssertions) VM._assert(key != null);
+    if (!VM.runningVM) {
+      return findOrAddWhileWritingImage(key);
+    }
+    int hash = key.hashCode();
+    Entry<T>[] b = buckets;
+    int bucketIdx = bucketIndex(hash, b.length);
+    Offset slot = Offset.fromIntZeroExtend(bucketIdx << LOG_BYTES_IN_ADDRESS);
+    while (true) {
+      Entry<T> head = b[bucketIdx];
+      T found = find(head, key, hash);
+      if (found != null) {
+        return found;
+      }
+      Entry<T> entry = new Entry<T>(key, hash, head);
+      // Make the key's state visible before the entry can be found
+      Magic.storeStoreBarrier();
+      if (Synchronization.tryCompareAndSwap(b, slot, head, entry)) {
+        return key;
+      }
+    }
+  }
+
+  private synchronized T findOrAddWhileWritingImage(T key) {
+    int hash = key.hashCode();
+    T found = find(buckets[bucketIndex(hash, buckets.length)], key, hash);
+    if (found != null) {
+      return found;
+    }
+    if (numElems > buckets.length * LOAD) {
+      growMap();
+    }
+    int bucketIdx = bucketIndex(hash, buckets.length);
+    buckets[bucketIdx] = new Entry<T>(key, hash, buckets[bucketIdx]);
+    numElems++;
+    return key;
+  }
+
+  /**
+   * Rehash into a larger bucket array. Entries are immutable so the chains
+   * are rebuilt into the new array before it is published.
+   */
+  private void growMap() {
+    Entry<T>[] newBuckets = newBucketArray(buckets.length * 2 + 1);
+    for (Entry<T> cur : buckets) {
+      while (cur != null) {
+        int newIdx = bucketIndex(cur.hash, newBuckets.length);
+        newBuckets[newIdx] = new Entry<T>(cur.key, cur.hash, newBuckets[newIdx]);
+        cur = cur.next;
+      }
+    }
+    buckets = newBuckets;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.basic.core.classloading;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.jikesrvm.classloader.Atom;
+import org.jikesrvm.classloader.BootstrapClassLoader;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.classloader.TypeReference;
+
+/**
+ * Checks the classes preloaded by the class preloader. The test is run with
+ * <code>-X:vm:classPreloadFile</code> naming the class list that it is
+ * also given as its argument. It never loads the listed classes itself, so
+ * every class on the list that can be found must end up loaded and resolved
+ * by the preloader threads. The list also names a missing class, which the
+ * preloader must skip.
+ */
+public class TestClassPreloadFile {
+
+  /** How long to wait for the preloader threads to get through the list */
+  private static final long TIMEOUT_MILLIS = 60000;
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    ArrayList<String> names = readClassList(args[0]);
+    BootstrapClassLoader loader = BootstrapClassLoader.getBootstrapClassLoader();
+    ArrayList<TypeReference> expected = new ArrayList<TypeReference>();
+    for (String name : names) {
+      // finding the class file does not load the class
+      if (loader.getResource(name.replace('.', '/') + ".class") == null) continue;
+      Atom descriptor = Atom.findOrCreateAsciiAtom("L" + name.replace('.', '/') + ";");
+      expected.add(TypeReference.findOrCreate(loader, descriptor));
+    }
+
+    boolean success = !expected.isEmpty();
+    if (!success) {
+      System.out.println("None of the listed classes could be found");
+    }
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (success && !allResolved(expected)) {
+      if (System.currentTimeMillis() > deadline) {
+        for (TypeReference tr : expected) {
+          RVMType type = tr.peekType();
+          if (type == null) {
+            System.out.println(tr + " was not preloaded");
+          } else if (!type.isResolved()) {
+            System.out.println(tr + " was preloaded but not resolved");
+          }
+        }
+        success = false;
+      }
+      Thread.sleep(10);
+    }
+
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  private static boolean allResolved(ArrayList<TypeReference> types) {
+    for (TypeReference tr : types) {
+      RVMType type = tr.peekType();
+      if (type == null || !type.isResolved()) return false;
+    }
+    return true;
+  }
+
+  private static ArrayList<String> readClassList(String file) throws IOException {
+    ArrayList<String> names = new ArrayList<String>();
+    BufferedReader in = new BufferedReader(new FileReader(file));
+    try {
+      for (String s = in.readLine(); s != null; s = in.readLine()) {
+        s = s.trim();
+        if (s.length() == 0 || s.startsWith("#")) continue;
+        names.add(s.replace('/', '.'));
+      }
+    } finally {
+      in.close();
+    }
+    return names;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.basic.core.classloading;
+
+import org.jikesrvm.classloader.Atom;
+import org.jikesrvm.classloader.TypeReference;
+
+/**
+ * Micro-benchmark for concurrent interning of atoms and type references.
+ * <p>
+ * Every thread interns the same set of fresh names, starting at a different
+ * point so that the threads race to create each entry. Afterwards all threads
+ * must agree on the canonical instances and type reference ids must map
+ * back to them.
+ * The second phase times lookups of names that already exist, which is the
+ * common case during class loading.
+ */
+public class TestConcurrentInterning {
+
+  private static final int THREADS = 4;
+  private static final int NAMES = 4000;
+  private static final int LOOKUP_ROUNDS = 20;
+
+  private static final String[] names = new String[NAMES];
+  private static final Atom[][] atoms = new Atom[THREADS][NAMES];
+  private static final TypeReference[][] types = new TypeReference[THREADS][NAMES];
+
+  private static boolean success = true;
+
+  public static void main(String[] args) throws InterruptedException {
+    for (int i = 0; i < NAMES; i++) {
+      names[i] = "Ltest/org/jikesrvm/basic/core/classloading/Interned" + i + ";";
+    }
+
+    long start = System.nanoTime();
+    runThreads(false);
+    long createTime = System.nanoTime() - start;
+    check();
+
+    start = System.nanoTime();
+    runThreads(true);
+    long lookupTime = System.nanoTime() - start;
+    check();
+
+    System.out.println("Create: " + THREADS + " threads x " + NAMES + " names in " + (createTime / 1000000) + "ms");
+    System.out.println("Lookup: " + THREADS + " threads x " + (NAMES * LOOKUP_ROUNDS) + " names in " + (lookupTime / 1000000) + "ms");
+
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  private static void runThreads(final boolean lookupOnly) throws InterruptedException {
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int id = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          int rounds = lookupOnly ? LOOKUP_ROUNDS : 1;
+          for (int r = 0; r < rounds; r++) {
+            for (int n = 0; n < NAMES; n++) {
+              int i = (n + id * (NAMES / THREADS)) % NAMES;
+              Atom a = Atom.findOrCreateAsciiAtom(names[i]);
+              atoms[id][i] = a;
+              types[id][i] = TypeReference.findOrCreate(TestConcurrentInterning.class.getClassLoader(), a);
+            }
+          }
+        }
+      };
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  private static void check() {
+    for (int i = 0; i < NAMES; i++) {
+      Atom a = atoms[0][i];
+      TypeReference tr = types[0][i];
+      for (int t = 1; t < THREADS; t++) {
+        if (atoms[t][i] != a) {
+          System.out.println("Atom for " + names[i] + " differs between threads 0 and " + t);
+          success = false;
+        }
+        if (types[t][i] != tr) {
+          System.out.println("TypeReference for " + names[i] + " differs between threads 0 and " + t);
+          success = false;
+        }
+      }
+      if (tr.getName() != a) {
+        System.out.println("TypeReference for " + names[i] + " has a non-canonical name");
+        success = false;
+      }
+      if (TypeReference.getTypeRef(tr.getId()) != tr) {
+        System.out.println("TypeReference id " + tr.getId() + " does not map back to " + names[i]);
+        success = false;
+      }
+    }
+  }
+}
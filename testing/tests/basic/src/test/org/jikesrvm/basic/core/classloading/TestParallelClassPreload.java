@@ -0,0 +1,128 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.basic.core.classloading;
+
+import org.jikesrvm.classloader.Atom;
+import org.jikesrvm.classloader.BootstrapClassLoader;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.classloader.TypeReference;
+
+/**
+ * Preloads a list of class library classes on several threads at once, the
+ * way the class preloader does, all threads racing for the same classes.
+ * Every class must be loaded exactly once: all threads must see the same
+ * class and type, and that type must be the one published through its type
+ * reference.
+ */
+public class TestParallelClassPreload {
+
+  private static final int THREADS = 4;
+
+  /** Class library classes that a trivial program is unlikely to have loaded */
+  private static final String[] CLASSES = {
+    "java.util.concurrent.ConcurrentSkipListMap",
+    "java.util.concurrent.ConcurrentSkipListSet",
+    "java.util.concurrent.CopyOnWriteArraySet",
+    "java.util.concurrent.CyclicBarrier",
+    "java.util.concurrent.DelayQueue",
+    "java.util.concurrent.Exchanger",
+    "java.util.concurrent.LinkedBlockingDeque",
+    "java.util.concurrent.PriorityBlockingQueue",
+    "java.util.concurrent.Semaphore",
+    "java.util.concurrent.SynchronousQueue",
+    "java.util.concurrent.atomic.AtomicIntegerArray",
+    "java.util.concurrent.atomic.AtomicLongArray",
+    "java.util.concurrent.atomic.AtomicMarkableReference",
+    "java.util.concurrent.atomic.AtomicStampedReference",
+    "java.util.concurrent.locks.ReentrantReadWriteLock",
+    "java.util.zip.Adler32",
+    "java.util.zip.Deflater",
+    "java.util.zip.GZIPOutputStream",
+    "java.util.zip.CheckedInputStream",
+    "java.text.DecimalFormat",
+    "java.text.MessageFormat",
+    "java.text.ChoiceFormat",
+    "java.math.BigDecimal",
+    "java.math.MathContext",
+    "java.util.BitSet",
+    "java.util.IdentityHashMap",
+    "java.util.PriorityQueue",
+    "java.util.TreeSet",
+    "java.util.WeakHashMap",
+    "java.util.Stack",
+  };
+
+  /** The class each thread loaded for each name, or null if it could not be loaded */
+  private static final Class<?>[][] loaded = new Class<?>[THREADS][CLASSES.length];
+
+  private static boolean success = true;
+
+  public static void main(String[] args) throws InterruptedException {
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int id = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int n = 0; n < CLASSES.length; n++) {
+            int i = (n + id * (CLASSES.length / THREADS)) % CLASSES.length;
+            try {
+              loaded[id][i] = BootstrapClassLoader.getBootstrapClassLoader().loadClass(CLASSES[i], false);
+            } catch (ClassNotFoundException e) {
+              loaded[id][i] = null;
+            }
+          }
+        }
+      };
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    check();
+
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  private static void check() {
+    int found = 0;
+    for (int i = 0; i < CLASSES.length; i++) {
+      Class<?> klass = loaded[0][i];
+      for (int t = 1; t < THREADS; t++) {
+        if (loaded[t][i] != klass) {
+          System.out.println(CLASSES[i] + " was loaded more than once: threads 0 and " + t + " differ");
+          success = false;
+        }
+      }
+      if (klass == null) continue;
+      found++;
+      RVMType type = java.lang.JikesRVMSupport.getTypeForClass(klass);
+      Atom name = Atom.findOrCreateAsciiAtom("L" + CLASSES[i].replace('.', '/') + ";");
+      TypeReference tr = TypeReference.findOrCreate(BootstrapClassLoader.getBootstrapClassLoader(), name);
+      if (tr.peekType() != type) {
+        System.out.println("The type of " + CLASSES[i] + " is not the one published by its type reference");
+        success = false;
+      }
+    }
+    if (found == 0) {
+      System.out.println("None of the classes could be loaded");
+      success = false;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.basic.core.threads;
+
+import org.jikesrvm.classloader.RVMType;
+
+/**
+ * Test biased locking under contention.
+ * <p>
+ * Two threads at a time lock every object of a set, in opposite orders,
+ * and increment a counter in it while holding its lock. This revokes the
+ * biases of the previous threads, and enough revocations on one type make
+ * the type bulk rebiased and then bulk revoked. Every increment must
+ * survive, whatever state the locks were in.
+ * <p>
+ * With the argument {@code rebias} the test expects to be run with
+ * {@code -X:vm:biasedLockingDecayTime=0}, so that the type is bulk
+ * rebiased again each time rather than revoked. It then keeps going until
+ * the bias epoch of the type has wrapped around in the lock words.
+ */
+public class TestBiasedLocking {
+
+  private static final int OBJECTS = 100;
+  private static final int MAX_ROUNDS = 400;
+
+  /** Enough bulk rebiases for the epoch bits of a lock word to wrap */
+  private static final int WRAPPED_EPOCH = 8;
+
+  static final class Counter {
+    int count;
+  }
+
+  private static final Counter[] counters = new Counter[OBJECTS];
+
+  private static boolean success = true;
+
+  public static void main(String[] args) throws InterruptedException {
+    boolean rebias = args.length > 0 && args[0].equals("rebias");
+    for (int i = 0; i < OBJECTS; i++) {
+      counters[i] = new Counter();
+    }
+    RVMType type = java.lang.JikesRVMSupport.getTypeForClass(Counter.class);
+
+    int rounds = 0;
+    while (rounds < MAX_ROUNDS && !done(type, rebias)) {
+      round();
+      rounds++;
+      // give the bias revocation thread a chance to catch up
+      if (rounds % 10 == 0) Thread.sleep(10);
+    }
+    if (!done(type, rebias)) {
+      System.out.println(rebias ?
+          "The bias epoch only reached " + type.getBiasEpoch() :
+          "Biasing was not revoked for the type");
+      success = false;
+    }
+
+    // a few more rounds in the final state
+    for (int i = 0; i < 10; i++) {
+      round();
+      rounds++;
+    }
+
+    for (int i = 0; i < OBJECTS; i++) {
+      if (counters[i].count != 2 * rounds) {
+        System.out.println("Counter " + i + " is " + counters[i].count + " after " + rounds + " rounds");
+        success = false;
+      }
+    }
+
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  private static boolean done(RVMType type, boolean rebias) {
+    return rebias ? type.getBiasEpoch() >= WRAPPED_EPOCH : !type.isBiasable();
+  }
+
+  private static void round() throws InterruptedException {
+    Thread up = new Thread() {
+      @Override
+      public void run() {
+        for (int i = 0; i < OBJECTS; i++) {
+          increment(counters[i]);
+        }
+      }
+    };
+    Thread down = new Thread() {
+      @Override
+      public void run() {
+        for (int i = OBJECTS - 1; i >= 0; i--) {
+          increment(counters[i]);
+        }
+      }
+    };
+    up.start();
+    down.start();
+    up.join();
+    down.join();
+  }
+
+  private static void increment(Counter counter) {
+    synchronized (counter) {
+      counter.count++;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.basic.core.threads;
+
+import org.jikesrvm.scheduler.Lock;
+
+/**
+ * Test the per-thread caches of free heavy-weight locks.
+ * <p>
+ * Generations of threads wait briefly on every object of a shared set,
+ * which inflates its lock, so the threads take locks from their caches,
+ * refill them from the global free list, deflate locks inflated by other
+ * threads, and give batches back. Every thread exits with locks in its
+ * cache, which it must return to the global free list: otherwise every
+ * generation would need new locks.
+ */
+public class TestLockChurn {
+
+  private static final int THREADS = 8;
+  private static final int GENERATIONS = 20;
+  private static final int OBJECTS = 64;
+  private static final int PASSES = 4;
+
+  /** More than one generation can keep in its caches, much less than all of them */
+  private static final int SLACK = 256;
+
+  static final class Counter {
+    int count;
+  }
+
+  private static final Counter[] counters = new Counter[OBJECTS];
+
+  private static boolean success = true;
+
+  public static void main(String[] args) throws InterruptedException {
+    for (int i = 0; i < OBJECTS; i++) {
+      counters[i] = new Counter();
+    }
+
+    // the first generation creates the locks the later ones should reuse
+    generation();
+    int before = Lock.numCreatedLocks();
+    for (int g = 1; g < GENERATIONS; g++) {
+      generation();
+    }
+
+    int created = Lock.numCreatedLocks() - before;
+    if (created > SLACK) {
+      System.out.println(created + " locks were created after the first generation");
+      success = false;
+    }
+
+    for (int i = 0; i < OBJECTS; i++) {
+      if (counters[i].count != GENERATIONS * THREADS * PASSES) {
+        System.out.println("Counter " + i + " is " + counters[i].count);
+        success = false;
+      }
+    }
+
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  /**
+   * Run a generation of threads to completion, then collect so that
+   * locks kept for contended objects are deflated.
+   */
+  private static void generation() throws InterruptedException {
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int offset = t * OBJECTS / THREADS;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int p = 0; p < PASSES; p++) {
+            for (int i = 0; i < OBJECTS; i++) {
+              Counter c = counters[(offset + i) % OBJECTS];
+              synchronized (c) {
+                c.count++;
+                try {
+                  c.wait(1);
+                } catch (InterruptedException e) {
+                  throw new Error(e);
+                }
+              }
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    System.gc();
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.basic.core.threads;
+
+import org.jikesrvm.scheduler.Lock;
+
+/**
+ * Test that heavy-weight locks kept for contended objects are deflated
+ * by garbage collections and reused.
+ * <p>
+ * In each round a second thread holds the lock of every object of a set
+ * in turn while the main thread tries to take it too, so the main thread
+ * spins and then parks on an inflated lock. Contended locks are only
+ * deflated by collections, which the rounds force in turn by filling the
+ * nursery and by calling {@link System#gc()}. If the locks were not
+ * deflated, every round would need a new lock for every object.
+ * <p>
+ * Finally every object is used for a wait and a notify, to check that
+ * deflated locks can be inflated again.
+ */
+public class TestLockDeflation {
+
+  private static final int OBJECTS = 200;
+  private static final int ROUNDS = 10;
+
+  /** Room for the locks cached by threads, and for locks used by the VM meanwhile */
+  private static final int SLACK = 256;
+
+  /** How long the second thread holds each lock */
+  private static final long HOLD_MILLIS = 1;
+
+  static final class Counter {
+    int count;
+  }
+
+  private static final Counter[] counters = new Counter[OBJECTS];
+
+  /** The index of the object whose lock the second thread holds, or -1 */
+  private static volatile int held = -1;
+
+  private static volatile Object sink;
+
+  private static boolean success = true;
+
+  public static void main(String[] args) throws InterruptedException {
+    for (int i = 0; i < OBJECTS; i++) {
+      counters[i] = new Counter();
+    }
+    int before = Lock.numCreatedLocks();
+
+    for (int round = 0; round < ROUNDS; round++) {
+      contend();
+      if (round % 2 == 0) {
+        fillNursery();
+      } else {
+        System.gc();
+      }
+    }
+
+    int created = Lock.numCreatedLocks() - before;
+    if (created > 2 * OBJECTS + SLACK) {
+      System.out.println(created + " locks were created for " + OBJECTS + " objects");
+      success = false;
+    }
+
+    for (int i = 0; i < OBJECTS; i++) {
+      waitAndNotify(counters[i]);
+    }
+
+    for (int i = 0; i < OBJECTS; i++) {
+      if (counters[i].count != 2 * ROUNDS + 2) {
+        System.out.println("Counter " + i + " is " + counters[i].count + " after " + ROUNDS + " rounds");
+        success = false;
+      }
+    }
+
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  /**
+   * Take the lock of every object while a second thread holds it.
+   */
+  private static void contend() throws InterruptedException {
+    Thread holder = new Thread() {
+      @Override
+      public void run() {
+        for (int i = 0; i < OBJECTS; i++) {
+          synchronized (counters[i]) {
+            counters[i].count++;
+            held = i;
+            try {
+              Thread.sleep(HOLD_MILLIS);
+            } catch (InterruptedException e) {
+              throw new Error(e);
+            }
+          }
+        }
+        held = -1;
+      }
+    };
+    holder.start();
+    for (int i = 0; i < OBJECTS; i++) {
+      while (held < i && holder.isAlive()) {
+        Thread.yield();
+      }
+      synchronized (counters[i]) {
+        counters[i].count++;
+      }
+    }
+    holder.join();
+  }
+
+  /**
+   * Allocate enough garbage for a nursery collection on the generational plans.
+   */
+  private static void fillNursery() {
+    for (int i = 0; i < 100000; i++) {
+      sink = new int[16];
+    }
+  }
+
+  /**
+   * Have a second thread wait until the count is odd, and make it odd.
+   *
+   * @param c the object to wait and notify on
+   */
+  private static void waitAndNotify(final Counter c) throws InterruptedException {
+    Thread waiter = new Thread() {
+      @Override
+      public void run() {
+        synchronized (c) {
+          while (c.count % 2 == 0) {
+            try {
+              c.wait();
+            } catch (InterruptedException e) {
+              throw new Error(e);
+            }
+          }
+          c.count++;
+        }
+      }
+    };
+    waiter.start();
+    synchronized (c) {
+      c.count++;
+      c.notifyAll();
+    }
+    waiter.join();
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+
+/**
+ * Allocate small arrays that all survive at a single allocation site, so
+ * that the site is advised to allocate into the mature space, and then
+ * allocate arrays at the same site that are too large for the mature
+ * space.  Run with pretenuring enabled (-X:gc:pretenureSurvivalRatio).
+ */
+class PretenureLargeArray {
+
+  static final int SMALL_LENGTH = 64;
+  static final int LARGE_LENGTH = 1 << 20;   // 4Mb of ints
+  static final int GC_INTERVAL = 10000;
+
+  static int smallCount;
+  static int largeCount;
+  static int[][] survivors;
+
+  public static void main(String[] args) {
+    boolean base = true;
+    if (args.length == 0) {
+      System.out.println("No argument.  Assuming base");
+    } else if (args[0].compareTo("opt") == 0 || args[0].compareTo("perf") == 0) {
+      base = false;
+    }
+    smallCount = base ? 80000 : 160000;
+    largeCount = base ? 200 : 400;
+    runTest();
+  }
+
+  /**
+   * The allocation site being pretenured.
+   *
+   * @param length the length of the array
+   * @return a new array
+   */
+  static int[] allocate(int length) {
+    return new int[length];
+  }
+
+  static void runTest() {
+    System.out.println("PretenureLargeArray: " + smallCount + " surviving arrays, then " + largeCount + " large ones");
+
+    // Make the site's objects survive, collecting periodically so they are sampled
+    survivors = new int[smallCount][];
+    for (int i = 0; i < smallCount; i++) {
+      int[] a = allocate(SMALL_LENGTH);
+      a[SMALL_LENGTH - 1] = i;
+      survivors[i] = a;
+      if (i % GC_INTERVAL == GC_INTERVAL - 1) {
+        System.gc();
+      }
+    }
+
+    // Allocate arrays too large for the mature space at the same site
+    int[] previous = null;
+    for (int i = 0; i < largeCount; i++) {
+      int length = LARGE_LENGTH + i;
+      int[] a = allocate(length);
+      if (a.length != length) {
+        fail("large array " + i + " has length " + a.length);
+      }
+      a[0] = i;
+      a[length - 1] = -i;
+      if (previous != null && (previous[0] != i - 1 || previous[previous.length - 1] != 1 - i)) {
+        fail("large array " + (i - 1) + " was corrupted");
+      }
+      previous = a;
+    }
+
+    for (int i = 0; i < smallCount; i++) {
+      if (survivors[i][SMALL_LENGTH - 1] != i) {
+        fail("surviving array " + i + " was corrupted");
+      }
+    }
+    System.out.println("ALL TESTS PASSED");
+  }
+
+  static void fail(String message) {
+    System.out.println("FAILED: " + message);
+    System.exit(1);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+
+/**
+ * Keeps a window of medium-lived objects alive across many nursery
+ * collections while allocating garbage.  Run with
+ * <code>-X:gc:tenuringThreshold=3</code> so that the objects are aged in
+ * the survivor spaces before they are promoted.  The objects refer to
+ * each other, and long-lived holders are made to refer to them, so
+ * references into the survivor spaces from the nursery, from other
+ * survivors and from the mature space all have to be updated whenever
+ * the survivors are copied.
+ */
+class SurvivorAging {
+
+  /** A medium-lived object whose contents can be checked */
+  static final class Node {
+    final int id;
+    final int[] payload;
+    Node older;
+
+    Node(int id, Node older) {
+      this.id = id;
+      this.older = older;
+      payload = new int[8 + (id & 15)];
+      for (int i = 0; i < payload.length; i++) {
+        payload[i] = id * 31 + i;
+      }
+    }
+  }
+
+  /** A long-lived object that is made to refer to young nodes */
+  static final class Holder {
+    Node node;
+  }
+
+  static final int WINDOW = 4096;
+  static final int HOLDERS = 256;
+  static final int GARBAGE_PER_NODE = 16;
+
+  static Object sink;
+
+  public static void main(String[] args) {
+    boolean base = true;
+    if (args.length > 0 && (args[0].equals("opt") || args[0].equals("perf"))) {
+      base = false;
+    }
+    int nodes = base ? 400000 : 2000000;
+
+    Node[] window = new Node[WINDOW];
+    Holder[] holders = new Holder[HOLDERS];
+    for (int i = 0; i < HOLDERS; i++) {
+      holders[i] = new Holder();
+    }
+    // Make the window and the holders old
+    System.gc();
+
+    Node previous = null;
+    for (int id = 1; id <= nodes; id++) {
+      Node node = new Node(id, previous);
+      window[id % WINDOW] = node;
+      if ((id & 7) == 0) {
+        holders[(id >>> 3) % HOLDERS].node = node;
+      }
+      // Only keep the chain as long as the window
+      Node evicted = id >= WINDOW ? window[(id + 1) % WINDOW] : null;
+      if (evicted != null) {
+        evicted.older = null;
+      }
+      previous = node;
+      for (int i = 0; i < GARBAGE_PER_NODE; i++) {
+        sink = new int[4 + (i & 7)];
+      }
+      if ((id & 0xffff) == 0 && !check(window, holders, id)) {
+        System.out.println("TEST FAILED");
+        return;
+      }
+    }
+    if (!check(window, holders, nodes)) {
+      System.out.println("TEST FAILED");
+      return;
+    }
+    System.out.println("ALL TESTS PASSED");
+  }
+
+  /**
+   * Check every node in the window, the chain between them and the nodes
+   * the holders refer to.
+   *
+   * @param window the nodes that are alive
+   * @param holders the long-lived holders
+   * @param last the id of the newest node
+   * @return {@code true} if every node is intact
+   */
+  static boolean check(Node[] window, Holder[] holders, int last) {
+    for (int id = Math.max(1, last - WINDOW + 2); id <= last; id++) {
+      Node node = window[id % WINDOW];
+      if (!intact(node, id)) {
+        return false;
+      }
+      Node older = node.older;
+      if (older != null && !intact(older, id - 1)) {
+        System.out.println("Node " + id + " does not refer to node " + (id - 1));
+        return false;
+      }
+    }
+    for (int i = 0; i < HOLDERS; i++) {
+      Node node = holders[i].node;
+      if (node != null && (((node.id >>> 3) % HOLDERS) != i || !intact(node, node.id))) {
+        System.out.println("Holder " + i + " refers to the wrong node");
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean intact(Node node, int id) {
+    if (node == null || node.id != id) {
+      System.out.println("Expected node " + id + " but found " + (node == null ? "null" : "node " + node.id));
+      return false;
+    }
+    if (node.payload.length != 8 + (id & 15)) {
+      System.out.println("Node " + id + " has a payload of length " + node.payload.length);
+      return false;
+    }
+    for (int i = 0; i < node.payload.length; i++) {
+      if (node.payload[i] != id * 31 + i) {
+        System.out.println("Node " + id + " has a corrupt payload at " + i);
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+
+/**
+ * Measures the rate of reference stores that make long-lived objects refer
+ * to newly allocated ones, which is the case the generational write barrier
+ * has to remember.  Run with <code>-X:gc:cardMarking=true</code> to compare
+ * card marking with the default remembered set.
+ */
+class WriteBarrierStress {
+
+  /** A young object, identified so that lost updates are noticed */
+  static final class Cell {
+    final int id;
+    Cell(int id) {
+      this.id = id;
+    }
+  }
+
+  /** A long-lived object with a few reference fields */
+  static final class Holder {
+    Cell a;
+    Cell b;
+    Holder next;
+  }
+
+  static final int HOLDERS = 64 * 1024;
+  static final int ARRAY_LENGTH = 256 * 1024;
+
+  public static void main(String[] args) {
+    boolean base = true;
+    if (args.length > 0 && (args[0].equals("opt") || args[0].equals("perf"))) {
+      base = false;
+    }
+    int rounds = base ? 10 : 40;
+    int storesPerRound = base ? 1000000 : 4000000;
+
+    Holder[] holders = new Holder[HOLDERS];
+    for (int i = 0; i < HOLDERS; i++) {
+      holders[i] = new Holder();
+      holders[i].next = holders[(i * 7) % (i + 1)];
+    }
+    Cell[] cells = new Cell[ARRAY_LENGTH];
+    // Make the holders and the array old before measuring
+    System.gc();
+
+    int[] expected = new int[ARRAY_LENGTH];
+    int seed = 12345;
+    int id = 0;
+    double best = 0.0;
+    for (int round = 0; round < rounds; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < storesPerRound; i++) {
+        seed = seed * 1103515245 + 12345;
+        int index = (seed >>> 8) & (ARRAY_LENGTH - 1);
+        Cell cell = new Cell(++id);
+        cells[index] = cell;
+        expected[index] = id;
+        Holder holder = holders[index & (HOLDERS - 1)];
+        if ((i & 1) == 0) {
+          holder.a = cell;
+        } else {
+          holder.b = cell;
+        }
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      double rate = storesPerRound / seconds / 1e6;
+      System.out.println("Round " + round + ": " + rate + " M stores/s");
+      if (round > 0 && rate > best) {
+        best = rate;
+      }
+    }
+
+    for (int i = 0; i < ARRAY_LENGTH; i++) {
+      int actual = cells[i] == null ? 0 : cells[i].id;
+      if (actual != expected[i]) {
+        System.out.println("Element " + i + " refers to cell " + actual + " rather than " + expected[i]);
+        System.out.println("TEST FAILED");
+        return;
+      }
+    }
+    System.out.println("Store rate: " + best + " M/s");
+    System.out.println("ALL TESTS PASSED");
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.opttests.adaptive;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.jikesrvm.classloader.Atom;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.TypeReference;
+import org.jikesrvm.compilers.common.CompiledMethod;
+
+/**
+ * Tests the persistent profile cache (<code>-X:aos:profile_cache_dir</code>).
+ * The test is run several times in a row, with the first argument naming
+ * the step:
+ * <ul>
+ *  <li><code>write</code>: run {@link Hot#work} until the adaptive system
+ *      has opt compiled it, so that it is recorded in the cache on exit</li>
+ *  <li><code>read</code>: instantiate {@link Hot} without ever calling
+ *      {@link Hot#work}, which must then be opt compiled from the cache</li>
+ *  <li><code>corrupt</code>: run without the cache, copying it twice, once
+ *      with the version of another VM and once with a truncated list of hot
+ *      methods</li>
+ *  <li><code>rejected</code>: as <code>read</code>, but the cache must be
+ *      ignored, so {@link Hot#work} stays baseline compiled</li>
+ * </ul>
+ */
+public class TestProfileCache {
+
+  /** How long to wait for a compilation that must happen */
+  private static final long TIMEOUT_MILLIS = 120000;
+
+  /** How long to watch for a compilation that must not happen */
+  private static final long REJECT_MILLIS = 5000;
+
+  private static final String VERSION_FILE = "version";
+  private static final String ADVICE_FILE = "hot-methods.ca";
+
+  static final class Hot {
+    int work(int n) {
+      int sum = 0;
+      for (int i = 0; i < n; i++) {
+        sum += (i * 31) ^ (sum >>> 3);
+      }
+      return sum;
+    }
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    String step = args[0];
+    boolean success;
+    if (step.equals("write")) {
+      success = write();
+    } else if (step.equals("read")) {
+      success = read();
+    } else if (step.equals("corrupt")) {
+      success = corrupt(new File(args[1]), new File(args[2]), new File(args[3]));
+    } else if (step.equals("rejected")) {
+      success = rejected();
+    } else {
+      System.out.println("Unknown step " + step);
+      success = false;
+    }
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  private static boolean write() {
+    Hot hot = new Hot();
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    int sink = 0;
+    while (!isOptCompiled()) {
+      if (System.currentTimeMillis() > deadline) {
+        System.out.println("Hot.work was never opt compiled");
+        return false;
+      }
+      for (int i = 0; i < 1000; i++) {
+        sink += hot.work(1000);
+      }
+    }
+    System.out.println("Hot.work was opt compiled (" + (sink & 1) + ")");
+    return true;
+  }
+
+  private static boolean read() throws InterruptedException {
+    new Hot();
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (!isOptCompiled()) {
+      if (System.currentTimeMillis() > deadline) {
+        System.out.println("Hot.work was not compiled from the profile cache");
+        return false;
+      }
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+  private static boolean rejected() throws InterruptedException {
+    new Hot();
+    long deadline = System.currentTimeMillis() + REJECT_MILLIS;
+    while (System.currentTimeMillis() < deadline) {
+      if (isOptCompiled()) {
+        System.out.println("Hot.work was compiled from a profile cache that should have been ignored");
+        return false;
+      }
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+  private static boolean corrupt(File cache, File otherVersion, File truncated) throws IOException {
+    if (!new File(cache, VERSION_FILE).exists()) {
+      System.out.println("No profile cache was written to " + cache);
+      return false;
+    }
+    copyDirectory(cache, otherVersion);
+    OutputStream out = new FileOutputStream(new File(otherVersion, VERSION_FILE));
+    out.write("0 another VM\n".getBytes("UTF-8"));
+    out.close();
+
+    copyDirectory(cache, truncated);
+    File advice = new File(truncated, ADVICE_FILE);
+    byte[] contents = readFile(advice);
+    if (contents.length == 0) {
+      System.out.println("No hot methods were recorded in " + cache);
+      return false;
+    }
+    out = new FileOutputStream(advice);
+    out.write(contents, 0, contents.length / 2);
+    out.close();
+    return true;
+  }
+
+  private static boolean isOptCompiled() {
+    RVMMethod method = TypeReference.findOrCreate(Hot.class).peekType().asClass().
+        findDeclaredMethod(Atom.findOrCreateAsciiAtom("work"));
+    CompiledMethod cm = method.getCurrentCompiledMethod();
+    return cm != null && cm.getCompilerType() == CompiledMethod.OPT;
+  }
+
+  private static void copyDirectory(File from, File to) throws IOException {
+    if (!to.isDirectory() && !to.mkdirs()) {
+      throw new IOException("Unable to create " + to);
+    }
+    for (File file : from.listFiles()) {
+      OutputStream out = new FileOutputStream(new File(to, file.getName()));
+      out.write(readFile(file));
+      out.close();
+    }
+  }
+
+  private static byte[] readFile(File file) throws IOException {
+    byte[] contents = new byte[(int) file.length()];
+    InputStream in = new FileInputStream(file);
+    try {
+      int read = 0;
+      while (read < contents.length) {
+        int n = in.read(contents, read, contents.length - read);
+        if (n < 0) break;
+        read += n;
+      }
+    } finally {
+      in.close();
+    }
+    return contents;
+  }
+}
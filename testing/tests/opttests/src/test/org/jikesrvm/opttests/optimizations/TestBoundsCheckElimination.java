@@ -0,0 +1,367 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.opttests.optimizations;
+
+import java.util.Random;
+
+import org.vmmagic.pragma.NoInline;
+import org.vmmagic.pragma.NoOptCompile;
+
+/**
+ * Tests the array accesses whose bounds checks the optimizing compiler
+ * may remove (plain, strided and decreasing loops, indices derived by
+ * adding constants or masking) against the same accesses compiled by
+ * the baseline compiler, and checks that accesses that are out of
+ * bounds (negative, overflowing or past the end, also where the index
+ * is the size of an array that may not have been allocated) still throw
+ * <code>ArrayIndexOutOfBoundsException</code>.
+ */
+public class TestBoundsCheckElimination {
+
+  private static final int MAX_LENGTH = 20;
+  private static final int REPEATS = 3;
+
+  private static final Random random = new Random(42);
+  private static boolean success = true;
+
+  static int[] sink;
+
+  public static void main(String[] args) {
+    for (int r = 0; r < REPEATS; r++) {
+      for (int n = 0; n <= MAX_LENGTH; n++) {
+        int[] a = randomInts(n);
+        testInBounds(a);
+        testOutOfBounds(a);
+      }
+      testOverflow();
+      testConditionalAllocation();
+    }
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  /*
+   * Accesses that are always in bounds
+   */
+
+  private static void testInBounds(int[] a) {
+    int n = a.length;
+    check("sum", n, sum(a), sumRef(a));
+    check("sumDown", n, sumDown(a), sumDownRef(a));
+    check("sumStride", n, sumStride(a, 3), sumStrideRef(a, 3));
+    check("sumNeighbours", n, sumNeighbours(a), sumNeighboursRef(a));
+    check("sumShifted", n, sumShifted(a, 2), sumShiftedRef(a, 2));
+    if (Integer.bitCount(n) == 1) {
+      check("sumMasked", n, sumMasked(a, n - 1), sumMaskedRef(a, n - 1));
+    }
+    check("fillNew", n, fillNew(n), fillNewRef(n));
+  }
+
+  @NoInline
+  private static int sum(int[] a) {
+    int s = 0;
+    for (int i = 0; i < a.length; i++) s += a[i];
+    return s;
+  }
+
+  @NoOptCompile
+  private static int sumRef(int[] a) {
+    int s = 0;
+    for (int i = 0; i < a.length; i++) s += a[i];
+    return s;
+  }
+
+  @NoInline
+  private static int sumDown(int[] a) {
+    int s = 0;
+    for (int i = a.length - 1; i >= 0; i--) s = s * 31 + a[i];
+    return s;
+  }
+
+  @NoOptCompile
+  private static int sumDownRef(int[] a) {
+    int s = 0;
+    for (int i = a.length - 1; i >= 0; i--) s = s * 31 + a[i];
+    return s;
+  }
+
+  @NoInline
+  private static int sumStride(int[] a, int stride) {
+    int s = 0;
+    for (int i = 0; i < a.length; i += 2) s += a[i];
+    for (int i = 1; i < a.length; i += stride) s = s * 31 + a[i];
+    return s;
+  }
+
+  @NoOptCompile
+  private static int sumStrideRef(int[] a, int stride) {
+    int s = 0;
+    for (int i = 0; i < a.length; i += 2) s += a[i];
+    for (int i = 1; i < a.length; i += stride) s = s * 31 + a[i];
+    return s;
+  }
+
+  @NoInline
+  private static int sumNeighbours(int[] a) {
+    int s = 0;
+    for (int i = 1; i < a.length - 1; i++) s += a[i - 1] ^ a[i] ^ a[i + 1];
+    return s;
+  }
+
+  @NoOptCompile
+  private static int sumNeighboursRef(int[] a) {
+    int s = 0;
+    for (int i = 1; i < a.length - 1; i++) s += a[i - 1] ^ a[i] ^ a[i + 1];
+    return s;
+  }
+
+  @NoInline
+  private static int sumShifted(int[] a, int k) {
+    int s = 0;
+    for (int i = 0; i + k < a.length; i++) s = s * 31 + a[i + k];
+    return s;
+  }
+
+  @NoOptCompile
+  private static int sumShiftedRef(int[] a, int k) {
+    int s = 0;
+    for (int i = 0; i + k < a.length; i++) s = s * 31 + a[i + k];
+    return s;
+  }
+
+  @NoInline
+  private static int sumMasked(int[] a, int mask) {
+    int s = 0;
+    for (int i = 0; i < 3 * a.length; i++) s = s * 31 + a[(i * 7) & mask];
+    return s;
+  }
+
+  @NoOptCompile
+  private static int sumMaskedRef(int[] a, int mask) {
+    int s = 0;
+    for (int i = 0; i < 3 * a.length; i++) s = s * 31 + a[(i * 7) & mask];
+    return s;
+  }
+
+  @NoInline
+  private static int fillNew(int n) {
+    int[] a = new int[n];
+    for (int i = 0; i < n; i++) a[i] = i * i;
+    return sumRef(a);
+  }
+
+  @NoOptCompile
+  private static int fillNewRef(int n) {
+    int[] a = new int[n];
+    for (int i = 0; i < n; i++) a[i] = i * i;
+    return sumRef(a);
+  }
+
+  /*
+   * Accesses that go out of bounds
+   */
+
+  private static void testOutOfBounds(int[] a) {
+    int n = a.length;
+    try {
+      sumUpToLength(a);
+      fail("sumUpToLength", n, "no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // expected
+    }
+    try {
+      sumDownPastZero(a);
+      fail("sumDownPastZero", n, "no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // expected
+    }
+    try {
+      sumPrevious(a);
+      if (n != 0) fail("sumPrevious", n, "no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      if (n == 0) fail("sumPrevious", n, "unexpected exception");
+    }
+    try {
+      sumNext(a);
+      if (n != 0) fail("sumNext", n, "no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      if (n == 0) fail("sumNext", n, "unexpected exception");
+    }
+    if (Integer.bitCount(n) == 1) {
+      // a mask of the length itself lets the index reach it
+      try {
+        sumMasked(a, n);
+        fail("sumMasked", n, "no exception with mask " + n);
+      } catch (ArrayIndexOutOfBoundsException e) {
+        // expected
+      }
+    }
+    try {
+      sumStride(a, 0x7fffffff);
+      if (n > 1) fail("sumStride", n, "no exception with overflowing stride");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      if (n <= 1) fail("sumStride", n, "unexpected exception with overflowing stride");
+    }
+    try {
+      sumShifted(a, -1);
+      fail("sumShifted", n, "no exception with shift -1");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  @NoInline
+  private static int sumUpToLength(int[] a) {
+    int s = 0;
+    for (int i = 0; i <= a.length; i++) s += a[i];
+    return s;
+  }
+
+  @NoInline
+  private static int sumDownPastZero(int[] a) {
+    int s = 0;
+    for (int i = a.length - 1; i >= -1; i--) s += a[i];
+    return s;
+  }
+
+  @NoInline
+  private static int sumPrevious(int[] a) {
+    int s = 0;
+    for (int i = 0; i < a.length; i++) s += a[i - 1];
+    return s;
+  }
+
+  @NoInline
+  private static int sumNext(int[] a) {
+    int s = 0;
+    for (int i = 0; i < a.length; i++) s += a[i + 1];
+    return s;
+  }
+
+  /*
+   * Indices that overflow
+   */
+
+  private static void testOverflow() {
+    int[] a = randomInts(4);
+    try {
+      addAndLoad(a, 1, Integer.MAX_VALUE);
+      fail("addAndLoad", 4, "no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // expected
+    }
+    try {
+      subtractAndLoad(a, Integer.MIN_VALUE, 1);
+      fail("subtractAndLoad", 4, "no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // expected
+    }
+    check("addAndLoad", 4, addAndLoad(a, 1, 2), a[3]);
+    check("subtractAndLoad", 4, subtractAndLoad(a, 3, 1), a[2]);
+  }
+
+  @NoInline
+  private static int addAndLoad(int[] a, int i, int k) {
+    if (i >= 0 && i < a.length && k >= 0) {
+      int j = i + k;
+      if (j >= i) {
+        return a[j & 3];
+      }
+      return a[j];
+    }
+    return 0;
+  }
+
+  @NoInline
+  private static int subtractAndLoad(int[] a, int i, int k) {
+    if (i < a.length && k > 0) {
+      return a[i - k];
+    }
+    return 0;
+  }
+
+  /*
+   * The size of an array that may not have been allocated
+   */
+
+  private static void testConditionalAllocation() {
+    int[] b = randomInts(8);
+    check("conditionalAllocation", 8, conditionalAllocation(b, 3, true), b[3]);
+    check("conditionalAllocation", 8, conditionalAllocation(b, 5, false), b[5]);
+    try {
+      conditionalAllocation(b, -1, false);
+      fail("conditionalAllocation", 8, "no exception for -1 without allocation");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // expected
+    }
+    try {
+      conditionalAllocation(b, -1, true);
+      fail("conditionalAllocation", 8, "no exception for -1 with allocation");
+    } catch (NegativeArraySizeException e) {
+      // expected
+    }
+    try {
+      caughtAllocation(b, -1);
+      fail("caughtAllocation", 8, "no exception");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // expected
+    }
+    check("caughtAllocation", 8, caughtAllocation(b, 2), b[2]);
+  }
+
+  @NoInline
+  private static int conditionalAllocation(int[] b, int n, boolean c) {
+    if (n < b.length) {
+      if (c) sink = new int[n];
+      return b[n];
+    }
+    return 0;
+  }
+
+  @NoInline
+  private static int caughtAllocation(int[] b, int n) {
+    if (n < b.length) {
+      try {
+        sink = new int[n];
+      } catch (NegativeArraySizeException e) {
+        sink = null;
+      }
+      return b[n];
+    }
+    return 0;
+  }
+
+  /*
+   * Helpers
+   */
+
+  private static int[] randomInts(int n) {
+    int[] a = new int[n];
+    for (int i = 0; i < n; i++) a[i] = random.nextInt();
+    return a;
+  }
+
+  private static void check(String test, int n, int got, int expected) {
+    if (got != expected) {
+      fail(test, n, "got " + got + ", expected " + expected);
+    }
+  }
+
+  private static void fail(String test, int n, String message) {
+    System.out.println(test + " failed for length " + n + ": " + message);
+    success = false;
+  }
+}
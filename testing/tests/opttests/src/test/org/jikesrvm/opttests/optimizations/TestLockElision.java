@@ -0,0 +1,247 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.opttests.optimizations;
+
+import org.vmmagic.pragma.Inline;
+import org.vmmagic.pragma.NoInline;
+import org.vmmagic.pragma.NoOptCompile;
+
+/**
+ * Tests the locks that the optimizing compiler elides in synchronized
+ * methods inlined into a synchronized caller on the same object, and the
+ * monitor exits and enters on the same object that it merges.
+ * <ul>
+ *  <li>an elided nested method throws: the caller must still hold the
+ *      lock in its handler and release it exactly once when it returns
+ *  <li>an elided nested method waits and notifies
+ *  <li>adjacent synchronized blocks on the same object, run by two
+ *      threads at once
+ * </ul>
+ * Results are compared with the same methods compiled by the baseline
+ * compiler.
+ */
+public class TestLockElision {
+
+  private static final int ITERATIONS = 10000;
+  private static final long JOIN_MILLIS = 10000;
+
+  private static boolean success = true;
+
+  static final class Account {
+    int balance;
+    int rejected;
+    int x;
+    int y;
+    boolean ready;
+
+    @Inline
+    synchronized void depositOrThrow(int amount) {
+      if (amount < 0) throw new IllegalArgumentException();
+      balance += amount;
+    }
+
+    @NoInline
+    synchronized int deposit(int amount) {
+      try {
+        depositOrThrow(amount);
+      } catch (IllegalArgumentException e) {
+        if (!Thread.holdsLock(this)) {
+          fail("the lock was released by the nested method's handler");
+        }
+        rejected++;
+      }
+      return balance * 31 + rejected;
+    }
+
+    @NoOptCompile
+    synchronized int depositRef(int amount) {
+      try {
+        depositOrThrowRef(amount);
+      } catch (IllegalArgumentException e) {
+        if (!Thread.holdsLock(this)) {
+          fail("the lock was released by the nested method's handler");
+        }
+        rejected++;
+      }
+      return balance * 31 + rejected;
+    }
+
+    @NoOptCompile
+    synchronized void depositOrThrowRef(int amount) {
+      if (amount < 0) throw new IllegalArgumentException();
+      balance += amount;
+    }
+
+    @Inline
+    synchronized void awaitReady() throws InterruptedException {
+      while (!ready) {
+        wait();
+      }
+      ready = false;
+      notifyAll();
+    }
+
+    @NoInline
+    synchronized int consume() throws InterruptedException {
+      awaitReady();
+      return balance;
+    }
+
+    @Inline
+    synchronized void signal(int amount) throws InterruptedException {
+      balance = amount;
+      ready = true;
+      notifyAll();
+      while (ready) {
+        wait();
+      }
+    }
+
+    @NoInline
+    synchronized void produce(int amount) throws InterruptedException {
+      signal(amount);
+    }
+
+    @NoInline
+    void incrementBoth() {
+      synchronized (this) {
+        x++;
+      }
+      synchronized (this) {
+        y += x;
+      }
+    }
+
+    @NoOptCompile
+    void incrementBothRef() {
+      synchronized (this) {
+        x++;
+      }
+      synchronized (this) {
+        y += x;
+      }
+    }
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    testNestedThrow();
+    testNestedWait();
+    testCoarsening();
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  private static void testNestedThrow() throws InterruptedException {
+    Account account = new Account();
+    Account expected = new Account();
+    for (int i = 0; i < ITERATIONS; i++) {
+      int amount = i % 7 == 0 ? -i : i;
+      try {
+        int got = account.deposit(amount);
+        int want = expected.depositRef(amount);
+        if (got != want) {
+          fail("deposit(" + amount + "): got " + got + " but expected " + want);
+        }
+      } catch (IllegalMonitorStateException e) {
+        fail("deposit(" + amount + ") released the lock twice");
+      }
+      if (Thread.holdsLock(account)) {
+        fail("deposit(" + amount + ") did not release the lock");
+        return;
+      }
+    }
+    // another thread must be able to take the lock
+    final Account shared = account;
+    Thread other = new Thread() {
+      @Override
+      public void run() {
+        shared.deposit(1);
+      }
+    };
+    other.start();
+    other.join(JOIN_MILLIS);
+    if (other.isAlive()) {
+      fail("the lock is still held after deposit returned");
+    }
+  }
+
+  private static void testNestedWait() throws InterruptedException {
+    final Account account = new Account();
+    Thread producer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          for (int i = 1; i <= ITERATIONS / 10; i++) {
+            account.produce(i);
+          }
+        } catch (InterruptedException e) {
+          fail("producer interrupted");
+        }
+      }
+    };
+    producer.start();
+    for (int i = 1; i <= ITERATIONS / 10; i++) {
+      int got = account.consume();
+      if (got != i) {
+        fail("consume: got " + got + " but expected " + i);
+      }
+    }
+    producer.join(JOIN_MILLIS);
+    if (producer.isAlive()) {
+      fail("the producer is still waiting");
+    }
+  }
+
+  private static void testCoarsening() throws InterruptedException {
+    final Account account = new Account();
+    Account expected = new Account();
+    for (int i = 0; i < ITERATIONS; i++) {
+      account.incrementBoth();
+      expected.incrementBothRef();
+    }
+    if (account.x != expected.x || account.y != expected.y) {
+      fail("incrementBoth: got " + account.x + ", " + account.y +
+          " but expected " + expected.x + ", " + expected.y);
+    }
+    Thread[] threads = new Thread[2];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < ITERATIONS; i++) {
+            account.incrementBoth();
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join(JOIN_MILLIS);
+      if (thread.isAlive()) {
+        fail("incrementBoth did not release the lock");
+        return;
+      }
+    }
+    if (account.x != 3 * ITERATIONS) {
+      fail("incrementBoth lost updates: x is " + account.x + " but expected " + 3 * ITERATIONS);
+    }
+  }
+
+  private static synchronized void fail(String message) {
+    System.out.println(message);
+    success = false;
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.opttests.optimizations;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.vmmagic.pragma.NoInline;
+import org.vmmagic.pragma.NoOptCompile;
+
+/**
+ * Tests the loops that the optimizing compiler vectorizes (copies, fills,
+ * element-wise operations and <code>int</code> reductions) against the
+ * same loops compiled by the baseline compiler, for lengths around the
+ * vector strip sizes (8 <code>int</code>s or <code>float</code>s, 4
+ * <code>double</code>s) and for loops not starting at zero.
+ */
+public class TestLoopVectorization {
+
+  private static final int MAX_LENGTH = 40;
+  private static final int REPEATS = 3;
+
+  private static final Random random = new Random(42);
+  private static boolean success = true;
+
+  public static void main(String[] args) {
+    for (int r = 0; r < REPEATS; r++) {
+      for (int n = 0; n <= MAX_LENGTH; n++) {
+        testInt(n, 0);
+        testInt(n, n / 3);
+        testFloat(n, 0);
+        testDouble(n, 0);
+        testDouble(n, n / 3);
+      }
+      testInt(1001, 0);
+      testFloat(1001, 5);
+      testDouble(1001, 0);
+    }
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  /*
+   * int
+   */
+
+  private static void testInt(int n, int from) {
+    int[] a = randomInts(n);
+    int[] b = randomInts(n);
+    int k = random.nextInt();
+
+    int[] got = new int[n];
+    int[] expected = new int[n];
+    intCopy(a, got, from, n);
+    intCopyRef(a, expected, from, n);
+    check("intCopy", n, from, got, expected);
+
+    Arrays.fill(got, 1);
+    Arrays.fill(expected, 1);
+    intFill(got, k, from, n);
+    intFillRef(expected, k, from, n);
+    check("intFill", n, from, got, expected);
+
+    intAdd(a, b, got, from, n);
+    intAddRef(a, b, expected, from, n);
+    check("intAdd", n, from, got, expected);
+
+    intSub(a, b, got, from, n);
+    intSubRef(a, b, expected, from, n);
+    check("intSub", n, from, got, expected);
+
+    intAndInvariant(a, k, got, from, n);
+    intAndInvariantRef(a, k, expected, from, n);
+    check("intAndInvariant", n, from, got, expected);
+
+    intXor(a, b, got, from, n);
+    intXorRef(a, b, expected, from, n);
+    check("intXor", n, from, got, expected);
+
+    check("intSum", n, from, intSum(a, from, n), intSumRef(a, from, n));
+    check("intOrReduce", n, from, intOrReduce(a, from, n), intOrReduceRef(a, from, n));
+    check("intXorReduce", n, from, intXorReduce(a, from, n), intXorReduceRef(a, from, n));
+  }
+
+  @NoInline
+  private static void intCopy(int[] src, int[] dst, int from, int n) {
+    for (int i = from; i < n; i++) dst[i] = src[i];
+  }
+
+  @NoOptCompile
+  private static void intCopyRef(int[] src, int[] dst, int from, int n) {
+    for (int i = from; i < n; i++) dst[i] = src[i];
+  }
+
+  @NoInline
+  private static void intFill(int[] a, int v, int from, int n) {
+    for (int i = from; i < n; i++) a[i] = v;
+  }
+
+  @NoOptCompile
+  private static void intFillRef(int[] a, int v, int from, int n) {
+    for (int i = from; i < n; i++) a[i] = v;
+  }
+
+  @NoInline
+  private static void intAdd(int[] a, int[] b, int[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] + b[i];
+  }
+
+  @NoOptCompile
+  private static void intAddRef(int[] a, int[] b, int[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] + b[i];
+  }
+
+  @NoInline
+  private static void intSub(int[] a, int[] b, int[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] - b[i];
+  }
+
+  @NoOptCompile
+  private static void intSubRef(int[] a, int[] b, int[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] - b[i];
+  }
+
+  @NoInline
+  private static void intAndInvariant(int[] a, int k, int[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] & k;
+  }
+
+  @NoOptCompile
+  private static void intAndInvariantRef(int[] a, int k, int[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] & k;
+  }
+
+  @NoInline
+  private static void intXor(int[] a, int[] b, int[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] ^ b[i];
+  }
+
+  @NoOptCompile
+  private static void intXorRef(int[] a, int[] b, int[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] ^ b[i];
+  }
+
+  @NoInline
+  private static int intSum(int[] a, int from, int n) {
+    int sum = 0;
+    for (int i = from; i < n; i++) sum += a[i];
+    return sum;
+  }
+
+  @NoOptCompile
+  private static int intSumRef(int[] a, int from, int n) {
+    int sum = 0;
+    for (int i = from; i < n; i++) sum += a[i];
+    return sum;
+  }
+
+  @NoInline
+  private static int intOrReduce(int[] a, int from, int n) {
+    int bits = 0;
+    for (int i = from; i < n; i++) bits |= a[i];
+    return bits;
+  }
+
+  @NoOptCompile
+  private static int intOrReduceRef(int[] a, int from, int n) {
+    int bits = 0;
+    for (int i = from; i < n; i++) bits |= a[i];
+    return bits;
+  }
+
+  @NoInline
+  private static int intXorReduce(int[] a, int from, int n) {
+    int bits = 0;
+    for (int i = from; i < n; i++) bits ^= a[i];
+    return bits;
+  }
+
+  @NoOptCompile
+  private static int intXorReduceRef(int[] a, int from, int n) {
+    int bits = 0;
+    for (int i = from; i < n; i++) bits ^= a[i];
+    return bits;
+  }
+
+  /*
+   * float
+   */
+
+  private static void testFloat(int n, int from) {
+    float[] a = randomFloats(n);
+    float[] b = randomFloats(n);
+
+    float[] got = new float[n];
+    float[] expected = new float[n];
+    floatCopy(a, got, from, n);
+    floatCopyRef(a, expected, from, n);
+    check("floatCopy", n, from, got, expected);
+
+    floatAdd(a, b, got, from, n);
+    floatAddRef(a, b, expected, from, n);
+    check("floatAdd", n, from, got, expected);
+
+    floatMul(a, b, got, from, n);
+    floatMulRef(a, b, expected, from, n);
+    check("floatMul", n, from, got, expected);
+  }
+
+  @NoInline
+  private static void floatCopy(float[] src, float[] dst, int from, int n) {
+    for (int i = from; i < n; i++) dst[i] = src[i];
+  }
+
+  @NoOptCompile
+  private static void floatCopyRef(float[] src, float[] dst, int from, int n) {
+    for (int i = from; i < n; i++) dst[i] = src[i];
+  }
+
+  @NoInline
+  private static void floatAdd(float[] a, float[] b, float[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] + b[i];
+  }
+
+  @NoOptCompile
+  private static void floatAddRef(float[] a, float[] b, float[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] + b[i];
+  }
+
+  @NoInline
+  private static void floatMul(float[] a, float[] b, float[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] * b[i];
+  }
+
+  @NoOptCompile
+  private static void floatMulRef(float[] a, float[] b, float[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] * b[i];
+  }
+
+  /*
+   * double
+   */
+
+  private static void testDouble(int n, int from) {
+    double[] a = randomDoubles(n);
+    double[] b = randomDoubles(n);
+    double k = random.nextDouble();
+
+    double[] got = new double[n];
+    double[] expected = new double[n];
+    doubleFill(got, k, from, n);
+    doubleFillRef(expected, k, from, n);
+    check("doubleFill", n, from, got, expected);
+
+    doubleSub(a, b, got, from, n);
+    doubleSubRef(a, b, expected, from, n);
+    check("doubleSub", n, from, got, expected);
+
+    doubleDivInvariant(a, k, got, from, n);
+    doubleDivInvariantRef(a, k, expected, from, n);
+    check("doubleDivInvariant", n, from, got, expected);
+  }
+
+  @NoInline
+  private static void doubleFill(double[] a, double v, int from, int n) {
+    for (int i = from; i < n; i++) a[i] = v;
+  }
+
+  @NoOptCompile
+  private static void doubleFillRef(double[] a, double v, int from, int n) {
+    for (int i = from; i < n; i++) a[i] = v;
+  }
+
+  @NoInline
+  private static void doubleSub(double[] a, double[] b, double[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] - b[i];
+  }
+
+  @NoOptCompile
+  private static void doubleSubRef(double[] a, double[] b, double[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] - b[i];
+  }
+
+  @NoInline
+  private static void doubleDivInvariant(double[] a, double k, double[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] / k;
+  }
+
+  @NoOptCompile
+  private static void doubleDivInvariantRef(double[] a, double k, double[] c, int from, int n) {
+    for (int i = from; i < n; i++) c[i] = a[i] / k;
+  }
+
+  /*
+   * Helpers
+   */
+
+  private static int[] randomInts(int n) {
+    int[] a = new int[n];
+    for (int i = 0; i < n; i++) a[i] = random.nextInt();
+    return a;
+  }
+
+  private static float[] randomFloats(int n) {
+    float[] a = new float[n];
+    for (int i = 0; i < n; i++) a[i] = random.nextFloat() * 1000f - 500f;
+    return a;
+  }
+
+  private static double[] randomDoubles(int n) {
+    double[] a = new double[n];
+    for (int i = 0; i < n; i++) a[i] = random.nextDouble() * 1000d - 500d;
+    return a;
+  }
+
+  private static void check(String test, int n, int from, int got, int expected) {
+    if (got != expected) {
+      fail(test, n, from, "got " + got + ", expected " + expected);
+    }
+  }
+
+  private static void check(String test, int n, int from, int[] got, int[] expected) {
+    if (!Arrays.equals(got, expected)) {
+      fail(test, n, from, "got " + Arrays.toString(got) + ", expected " + Arrays.toString(expected));
+    }
+  }
+
+  private static void check(String test, int n, int from, float[] got, float[] expected) {
+    if (!Arrays.equals(got, expected)) {
+      fail(test, n, from, "got " + Arrays.toString(got) + ", expected " + Arrays.toString(expected));
+    }
+  }
+
+  private static void check(String test, int n, int from, double[] got, double[] expected) {
+    if (!Arrays.equals(got, expected)) {
+      fail(test, n, from, "got " + Arrays.toString(got) + ", expected " + Arrays.toString(expected));
+    }
+  }
+
+  private static void fail(String test, int n, int from, String message) {
+    System.out.println(test + " failed for length " + n + " from " + from + ": " + message);
+    success = false;
+  }
+}
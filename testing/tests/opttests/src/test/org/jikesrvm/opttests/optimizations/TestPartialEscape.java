@@ -0,0 +1,279 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.opttests.optimizations;
+
+import org.vmmagic.pragma.NoInline;
+import org.vmmagic.pragma.NoOptCompile;
+
+/**
+ * Tests objects that escape only on rarely executed paths, which the
+ * optimizing compiler replaces by scalars and materializes where they
+ * escape, against the same methods compiled by the baseline compiler.
+ * <p>
+ * The object escapes through a throw, a return, a static field and a call
+ * argument. Two methods use the object again after it may have escaped,
+ * in a loop and in a handler for an exception thrown by the escaping
+ * call; replacing the object there would lose the updates made through
+ * the escaped reference.
+ * <p>
+ * Every method runs often enough for the adaptive system to recompile it
+ * with edge profiles, which is what makes the escaping paths cold.
+ */
+public class TestPartialEscape {
+
+  private static final int ITERATIONS = 200000;
+
+  /** One iteration in this many takes the escaping path */
+  private static final int COLD = 1024;
+
+  private static boolean success = true;
+
+  static final class Pair {
+    int a;
+    long b;
+  }
+
+  static final class PairException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    final Pair pair;
+    PairException(Pair pair) {
+      this.pair = pair;
+    }
+  }
+
+  private static Pair sink;
+
+  public static void main(String[] args) {
+    for (int i = 0; i < ITERATIONS; i++) {
+      check("coldThrow", i, coldThrowResult(i), coldThrowRefResult(i));
+      check("coldReturn", i, summarize(coldReturn(i)), summarize(coldReturnRef(i)));
+
+      sink = null;
+      long got = coldPutstatic(i) * 31 + summarize(sink);
+      sink = null;
+      long expected = coldPutstaticRef(i) * 31 + summarize(sink);
+      check("coldPutstatic", i, got, expected);
+
+      check("coldCallArgument", i, coldCallArgument(i), coldCallArgumentRef(i));
+
+      sink = null;
+      got = loop(i) * 31 + summarize(sink);
+      sink = null;
+      expected = loopRef(i) * 31 + summarize(sink);
+      check("loop", i, got, expected);
+
+      check("handler", i, handler(i), handlerRef(i));
+    }
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  private static boolean isCold(int i) {
+    return i % COLD == COLD - 1;
+  }
+
+  private static long summarize(Pair p) {
+    return p == null ? -1 : p.a * 1000003L + p.b;
+  }
+
+  /*
+   * Escape through a throw
+   */
+
+  private static long coldThrowResult(int i) {
+    try {
+      return coldThrow(i);
+    } catch (PairException e) {
+      return -summarize(e.pair);
+    }
+  }
+
+  private static long coldThrowRefResult(int i) {
+    try {
+      return coldThrowRef(i);
+    } catch (PairException e) {
+      return -summarize(e.pair);
+    }
+  }
+
+  @NoInline
+  private static long coldThrow(int i) {
+    Pair p = new Pair();
+    p.a = i;
+    p.b = i * 3L;
+    if (isCold(i)) throw new PairException(p);
+    return p.a + p.b;
+  }
+
+  @NoOptCompile
+  private static long coldThrowRef(int i) {
+    Pair p = new Pair();
+    p.a = i;
+    p.b = i * 3L;
+    if (isCold(i)) throw new PairException(p);
+    return p.a + p.b;
+  }
+
+  /*
+   * Escape through a return
+   */
+
+  @NoInline
+  private static Pair coldReturn(int i) {
+    Pair p = new Pair();
+    p.a = i + 1;
+    p.b = p.a * 7L;
+    if (isCold(i)) return p;
+    return p.b > 1000 ? null : sink;
+  }
+
+  @NoOptCompile
+  private static Pair coldReturnRef(int i) {
+    Pair p = new Pair();
+    p.a = i + 1;
+    p.b = p.a * 7L;
+    if (isCold(i)) return p;
+    return p.b > 1000 ? null : sink;
+  }
+
+  /*
+   * Escape through a static field
+   */
+
+  @NoInline
+  private static long coldPutstatic(int i) {
+    Pair p = new Pair();
+    p.a = i;
+    p.b = -i;
+    if (isCold(i)) {
+      sink = p;
+      return 0;
+    }
+    return p.a - p.b;
+  }
+
+  @NoOptCompile
+  private static long coldPutstaticRef(int i) {
+    Pair p = new Pair();
+    p.a = i;
+    p.b = -i;
+    if (isCold(i)) {
+      sink = p;
+      return 0;
+    }
+    return p.a - p.b;
+  }
+
+  /*
+   * Escape through a call argument
+   */
+
+  @NoInline
+  private static long consume(Pair p) {
+    p.a++;
+    return summarize(p);
+  }
+
+  @NoInline
+  private static long coldCallArgument(int i) {
+    Pair p = new Pair();
+    p.a = i * 5;
+    p.b = i;
+    if (isCold(i)) return consume(p);
+    return p.a + p.b;
+  }
+
+  @NoOptCompile
+  private static long coldCallArgumentRef(int i) {
+    Pair p = new Pair();
+    p.a = i * 5;
+    p.b = i;
+    if (isCold(i)) return consume(p);
+    return p.a + p.b;
+  }
+
+  /*
+   * Escape inside a loop that goes on using the object, which must not be
+   * replaced: the escaped object has to see the later updates.
+   */
+
+  @NoInline
+  private static long loop(int i) {
+    Pair p = new Pair();
+    for (int j = 0; j < 8; j++) {
+      p.a += j;
+      p.b += i;
+      if (isCold(i + j)) sink = p;
+    }
+    return p.a + p.b;
+  }
+
+  @NoOptCompile
+  private static long loopRef(int i) {
+    Pair p = new Pair();
+    for (int j = 0; j < 8; j++) {
+      p.a += j;
+      p.b += i;
+      if (isCold(i + j)) sink = p;
+    }
+    return p.a + p.b;
+  }
+
+  /*
+   * Escape at a call whose exception is caught by a handler that uses the
+   * object, and must see the update made by the callee.
+   */
+
+  @NoInline
+  private static void updateAndThrow(Pair p) {
+    p.a = -1;
+    p.b = -2;
+    throw new IllegalStateException();
+  }
+
+  @NoInline
+  private static long handler(int i) {
+    Pair p = new Pair();
+    p.a = i;
+    p.b = i * 11L;
+    try {
+      if (isCold(i)) updateAndThrow(p);
+    } catch (IllegalStateException e) {
+      return summarize(p) + 5;
+    }
+    return i;
+  }
+
+  @NoOptCompile
+  private static long handlerRef(int i) {
+    Pair p = new Pair();
+    p.a = i;
+    p.b = i * 11L;
+    try {
+      if (isCold(i)) updateAndThrow(p);
+    } catch (IllegalStateException e) {
+      return summarize(p) + 5;
+    }
+    return i;
+  }
+
+  private static void check(String test, int i, long got, long expected) {
+    if (got != expected) {
+      System.out.println(test + "(" + i + "): got " + got + " but expected " + expected);
+      success = false;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.opttests.optimizations;
+
+import org.vmmagic.pragma.NoInline;
+import org.vmmagic.pragma.NoOptCompile;
+import org.vmmagic.pragma.NoTailCallElimination;
+
+/**
+ * Tests objects that the optimizing compiler allocates in the stack frame,
+ * across a resize of the stack and a collection. Each method allocates
+ * objects that don't escape it, recurses deeply enough for the stack to be
+ * resized while its frame is live, forces a collection and then checks the
+ * objects against the same method compiled by the baseline compiler.
+ * <p>
+ * Objects with reference fields must stay in the heap, so the object
+ * they refer to must still be reachable through them after the collection.
+ */
+public class TestStackAllocation {
+
+  /** Deep enough for the stack of the main thread to be resized */
+  private static final int DEPTH = 20000;
+  private static final int REPEATS = 3;
+
+  private static boolean success = true;
+
+  static final class Point {
+    int x;
+    int y;
+    long z;
+  }
+
+  static final class Holder {
+    Object ref;
+    int count;
+  }
+
+  public static void main(String[] args) {
+    for (int r = 0; r < REPEATS; r++) {
+      check("array", array(r), arrayRef(r));
+      check("scalar", scalar(r), scalarRef(r));
+      check("references", references(r), referencesRef(r));
+    }
+    if (success) {
+      System.out.println("ALL TESTS PASSED");
+    } else {
+      System.out.println("FAILURE");
+    }
+  }
+
+  @NoInline
+  private static long array(int seed) {
+    int[] a = new int[16];
+    for (int i = 0; i < 16; i++) a[i] = seed * 31 + i;
+    recurseAndCollect();
+    long sum = 0;
+    for (int i = 0; i < 16; i++) sum = sum * 7 + a[i];
+    return sum;
+  }
+
+  @NoOptCompile
+  private static long arrayRef(int seed) {
+    int[] a = new int[16];
+    for (int i = 0; i < 16; i++) a[i] = seed * 31 + i;
+    recurseAndCollect();
+    long sum = 0;
+    for (int i = 0; i < 16; i++) sum = sum * 7 + a[i];
+    return sum;
+  }
+
+  @NoInline
+  private static long scalar(int seed) {
+    Point p = new Point();
+    p.x = seed + 1;
+    p.y = seed * 3;
+    p.z = 0x123456789L + seed;
+    recurseAndCollect();
+    return p.x * 1000003L + p.y * 31L + p.z;
+  }
+
+  @NoOptCompile
+  private static long scalarRef(int seed) {
+    Point p = new Point();
+    p.x = seed + 1;
+    p.y = seed * 3;
+    p.z = 0x123456789L + seed;
+    recurseAndCollect();
+    return p.x * 1000003L + p.y * 31L + p.z;
+  }
+
+  @NoInline
+  private static long references(int seed) {
+    Holder h = new Holder();
+    h.ref = new int[] {seed, seed + 1, seed + 2};
+    h.count = seed;
+    recurseAndCollect();
+    int[] a = (int[]) h.ref;
+    return a[0] + a[1] * 17L + a[2] * 289L + h.count;
+  }
+
+  @NoOptCompile
+  private static long referencesRef(int seed) {
+    Holder h = new Holder();
+    h.ref = new int[] {seed, seed + 1, seed + 2};
+    h.count = seed;
+    recurseAndCollect();
+    int[] a = (int[]) h.ref;
+    return a[0] + a[1] * 17L + a[2] * 289L + h.count;
+  }
+
+  @NoInline
+  private static void recurseAndCollect() {
+    if (recurse(DEPTH) != DEPTH) {
+      System.out.println("Recursion returned the wrong depth");
+      success = false;
+    }
+    System.gc();
+    // fill the heap where collected objects were
+    Object[] garbage = new Object[1000];
+    for (int i = 0; i < garbage.length; i++) garbage[i] = new int[] {-1, -1, -1, -1};
+  }
+
+  @NoInline
+  @NoTailCallElimination
+  private static int recurse(int depth) {
+    if (depth == 0) return 0;
+    return recurse(depth - 1) + 1;
+  }
+
+  private static void check(String test, long got, long expected) {
+    if (got != expected) {
+      System.out.println(test + ": got " + got + " but expected " + expected);
+      success = false;
+    }
+  }
+}
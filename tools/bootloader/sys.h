@@ -232,6 +232,11 @@ EXTERNAL void * sysMMapErrno(char *start , size_t length ,
                              int protection , int flags ,
                              int fd , Offset offset);
 EXTERNAL int sysMProtect(char *start, size_t length, int prot);
+EXTERNAL int sysNumaNodes();
+EXTERNAL int sysNumaCurrentNode();
+EXTERNAL int sysNumaBind(char *start, size_t length, int node);
+EXTERNAL int sysMAdviseHugePages(char *start, size_t length);
+EXTERNAL int sysMAdviseDontNeed(char *start, size_t length);
 EXTERNAL void sysCopy(void *dst, const void *src, Extent cnt);
 EXTERNAL void sysMemmove(void *dst, const void *src, Extent cnt);
 EXTERNAL void sysSyncCache(void *address, size_t size);
@@ -17,6 +17,11 @@
 #include <errno.h> // error numbers
 #include <string.h> // memcpy & memmove
 #include <sys/mman.h> // mmap
+#ifdef RVM_FOR_LINUX
+#include <stdio.h> // fopen, fscanf
+#include <unistd.h> // syscall
+#include <sys/syscall.h> // SYS_mbind, SYS_getcpu
+#endif
 
 int inRVMAddressSpace(Address a);
 
@@ -257,6 +262,120 @@ EXTERNAL int sysMProtect(char *start, size_t length, int prot)
   return mprotect(start, length, prot);
 }
 
+/**
+ * Number of NUMA nodes in the system.
+ * Returned:  number of online nodes, 1 if unknown or not NUMA (Java int)
+ */
+EXTERNAL int sysNumaNodes()
+{
+  int nodes = 1;
+  TRACE_PRINTF("%s: sysNumaNodes\n", Me);
+#ifdef RVM_FOR_LINUX
+  /* A list of ranges such as "0-3,6"; node numbers need not be dense */
+  FILE *online = fopen("/sys/devices/system/node/online", "r");
+  if (online != NULL) {
+    int first;
+    int last;
+    int separator;
+    nodes = 0;
+    while (fscanf(online, "%d", &first) == 1) {
+      last = first;
+      separator = fgetc(online);
+      if (separator == '-') {
+        if (fscanf(online, "%d", &last) != 1) {
+          break;
+        }
+        separator = fgetc(online);
+      }
+      if (last >= first) {
+        nodes += last - first + 1;
+      }
+      if (separator != ',') {
+        break;
+      }
+    }
+    fclose(online);
+  }
+  if (nodes < 1) {
+    nodes = 1;
+  }
+#endif
+  return nodes;
+}
+
+/**
+ * NUMA node of the processor the calling thread is running on.
+ * Returned:  the node, 0 if unknown (Java int)
+ */
+EXTERNAL int sysNumaCurrentNode()
+{
+#if defined(RVM_FOR_LINUX) && defined(SYS_getcpu)
+  unsigned cpu;
+  unsigned node;
+  if (syscall(SYS_getcpu, &cpu, &node, NULL) == 0) {
+    return (int) node;
+  }
+#endif
+  return 0;
+}
+
+/**
+ * Ask for a range of memory to be placed on a NUMA node. Pages that are
+ * already resident elsewhere are moved, and later faults prefer the node.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ *            node (Java int)
+ * Returned:  0 (success) or -1 (failure) (Java int)
+ */
+EXTERNAL int sysNumaBind(char *start, size_t length, int node)
+{
+  TRACE_PRINTF("%s: sysNumaBind %p %zu %d\n", Me, start, length, node);
+#if defined(RVM_FOR_LINUX) && defined(SYS_mbind)
+  /* From linux/mempolicy.h, which not every system has installed */
+  const int mpolPreferred = 1;
+  const unsigned mpolMfMove = 1 << 1;
+  unsigned long mask[1024 / (8 * sizeof(unsigned long))];
+  if (node < 0 || node >= (int) (8 * sizeof(mask))) {
+    return -1;
+  }
+  memset(mask, 0, sizeof(mask));
+  mask[node / (8 * sizeof(unsigned long))] = 1UL << (node % (8 * sizeof(unsigned long)));
+  return (int) syscall(SYS_mbind, start, length, mpolPreferred, mask, 8 * sizeof(mask), mpolMfMove);
+#else
+  return -1;
+#endif
+}
+
+/**
+ * Ask for a range of memory to be backed by transparent huge pages.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ * Returned:  0 (success) or -1 (failure) (Java int)
+ */
+EXTERNAL int sysMAdviseHugePages(char *start, size_t length)
+{
+  TRACE_PRINTF("%s: sysMAdviseHugePages %p %zu\n", Me, start, length);
+#ifdef MADV_HUGEPAGE
+  return madvise(start, length, MADV_HUGEPAGE);
+#else
+  return -1;
+#endif
+}
+
+/**
+ * Return the physical memory behind a range to the OS. The range stays
+ * mapped and reads as zero when next touched. MADV_FREE is not used
+ * because the memory stays charged to the process until the OS needs it.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ * Returned:  0 (success) or -1 (failure) (Java int)
+ */
+EXTERNAL int sysMAdviseDontNeed(char *start, size_t length)
+{
+  TRACE_PRINTF("%s: sysMAdviseDontNeed %p %zu\n", Me, start, length);
+  return madvise(start, length, MADV_DONTNEED);
+}
+
 /** Memory to memory copy. Memory regions must not overlap. */
 EXTERNAL void sysCopy(void *dst, const void *src, Extent cnt)
 {